@@ -1,6 +1,7 @@
 package org.jrp;
 
 import com.google.common.base.Joiner;
+import io.lettuce.core.resource.Transports;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.*;
@@ -9,6 +10,7 @@ import io.netty.channel.epoll.EpollServerSocketChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.flush.FlushConsolidationHandler;
 import io.netty.handler.timeout.IdleStateHandler;
 import io.netty.util.concurrent.DefaultEventExecutorGroup;
 import org.apache.commons.cli.CommandLine;
@@ -26,6 +28,7 @@ import org.jrp.monitor.metrics.RedisproxyMetrics;
 import org.jrp.monitor.metrics.RedisproxyStatusMetrics;
 import org.jrp.server.RedisServer;
 import org.jrp.server.RedisproxyAsyncServer;
+import org.jrp.server.handler.LocalCommandHandler;
 import org.jrp.server.handler.RedisCommandAsyncHandler;
 import org.jrp.server.handler.RedisCommandDecoder;
 import org.jrp.server.handler.RedisCommandHandler;
@@ -36,6 +39,10 @@ import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Modifier;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -50,9 +57,15 @@ public class Bootstrap {
     private final ProxyConfig proxyConfig;
     private final boolean detached;
 
+    private volatile InetSocketAddress localAddress;
+
     private Bootstrap(CommandLine cli) throws IOException {
         this.proxyConfig = ProxyConfig.loadProxyConfig(cli.getOptionValue("c"));
-        this.detached = cli.hasOption("detached");
+        this.detached = cli.hasOption("detached") || cli.hasOption("cdstrain");
+        if (cli.hasOption("cdstrain")) {
+            // don't conflict with the running proxy that is to be replaced
+            proxyConfig.setPort(0);
+        }
     }
 
     public Bootstrap(ProxyConfig proxyConfig, boolean detached) {
@@ -87,7 +100,7 @@ public class Bootstrap {
                 new RedisCommandAsyncHandler(redisServer, proxyConfig) :
                 new RedisCommandHandler(redisServer, proxyConfig);
 
-        startProxy(handler);
+        startProxy(redisServer, handler);
     }
 
     private void startMonitors() {
@@ -110,20 +123,29 @@ public class Bootstrap {
         MetricsGroups.start();
     }
 
-    private void startProxy(RedisCommandHandler handler) {
+    private void startProxy(RedisServer redisServer, RedisCommandHandler handler) {
         int handlerThreads = proxyConfig.getHandlerThreads();
         DefaultEventExecutorGroup group;
-        if (handlerThreads > 0) {
+        if (proxyConfig.isThreadPerCore()) {
+            group = null;
+            LOGGER.info("thread-per-core mode: requests are executed in IO threads, along with their Redis connections");
+        } else if (handlerThreads > 0) {
             group = new DefaultEventExecutorGroup(handlerThreads);
         } else {
             group = null;
             LOGGER.warn("please be aware that all requests will be executed in IO threads");
         }
 
+        // only the async handler keeps the replies in order whichever thread executes the commands
+        LocalCommandHandler localCommandHandler =
+                group != null && proxyConfig.isLocalCommandsInIoThreads() &&
+                        handler instanceof RedisCommandAsyncHandler asyncHandler ?
+                        new LocalCommandHandler(asyncHandler) : null;
+
         ServerBootstrap bootstrap = new ServerBootstrap();
         EventLoopGroup bossEventLoopGroup;
         EventLoopGroup ioEventLoopGroup;
-        if (proxyConfig.isUseNettyEpoll()) {
+        if (useNettyEpoll()) {
             bossEventLoopGroup = new EpollEventLoopGroup(1);
             ioEventLoopGroup = new EpollEventLoopGroup(proxyConfig.getIoThreads());
             bootstrap.channel(EpollServerSocketChannel.class);
@@ -144,13 +166,21 @@ public class Bootstrap {
                         @Override
                         public void initChannel(SocketChannel ch) {
                             ChannelPipeline p = ch.pipeline();
+                            if (proxyConfig.getExplicitFlushAfterFlushes() > 0) {
+                                p.addLast(new FlushConsolidationHandler(
+                                        proxyConfig.getExplicitFlushAfterFlushes(),
+                                        proxyConfig.isConsolidateWhenNoReadInProgress()));
+                            }
                             if (proxyConfig.isUseIdleStateHandler()) {
                                 p.addLast(new IdleStateHandler(
                                         8, 0, 0, TimeUnit.MINUTES));
                             }
-                            p.addLast(new RedisCommandDecoder(proxyConfig.getMaxQueuedCommands()));
-                            p.addLast(new RedisReplyEncoder());
+                            p.addLast(new RedisCommandDecoder(proxyConfig));
+                            p.addLast(new RedisReplyEncoder(proxyConfig.getHugeReplyThreshold()));
                             if (group != null) {
+                                if (localCommandHandler != null) {
+                                    p.addLast(localCommandHandler);
+                                }
                                 p.addLast(group, handler);
                             } else {
                                 p.addLast(handler);
@@ -158,8 +188,13 @@ public class Bootstrap {
                         }
                     });
             ChannelFuture future = bootstrap.bind().sync();
+            localAddress = (InetSocketAddress) future.channel().localAddress();
 
-            LOGGER.info("redisproxy started at port {}", proxyConfig.getPort());
+            if (proxyConfig.isThreadPerCore() && redisServer instanceof RedisproxyAsyncServer asyncServer) {
+                pinConnections(asyncServer, ioEventLoopGroup);
+            }
+
+            LOGGER.info("redisproxy started at port {}", localAddress.getPort());
             startLatch.countDown();
 
             future.channel().closeFuture().sync();
@@ -168,6 +203,68 @@ public class Bootstrap {
         } finally {
             ioEventLoopGroup.shutdownGracefully();
             bossEventLoopGroup.shutdownGracefully();
+            if (group != null) {
+                group.shutdownGracefully();
+            }
+            if (handler instanceof RedisCommandAsyncHandler asyncHandler) {
+                asyncHandler.shutdown();
+            }
+            if (redisServer instanceof RedisproxyAsyncServer asyncServer &&
+                    asyncServer.getPassThroughClient() != null) {
+                asyncServer.getPassThroughClient().shutdown();
+            }
+        }
+    }
+
+    /**
+     * In the thread-per-core mode, Lettuce's connections are registered to the IO event loops, so they must be of the
+     * transport Lettuce chooses.
+     */
+    private boolean useNettyEpoll() {
+        boolean useNettyEpoll = proxyConfig.isUseNettyEpoll();
+        if (!proxyConfig.isThreadPerCore()) {
+            return useNettyEpoll;
+        }
+        boolean lettuceEpoll = Transports.eventLoopGroupClass() == EpollEventLoopGroup.class;
+        if (lettuceEpoll != useNettyEpoll) {
+            LOGGER.warn("thread-per-core mode: useNettyEpoll is {} to match the transport of Lettuce", lettuceEpoll);
+        }
+        return lettuceEpoll;
+    }
+
+    private void pinConnections(RedisproxyAsyncServer asyncServer, EventLoopGroup ioEventLoopGroup) {
+        try {
+            asyncServer.pinConnections(ioEventLoopGroup);
+            LOGGER.info("thread-per-core mode: connections to Redis are pinned to IO threads");
+        } catch (RuntimeException e) {
+            // the commands are still executed, only through the connections not pinned
+            LOGGER.error("thread-per-core mode: unable to pin connections to Redis to IO threads", e);
+        }
+    }
+
+    /**
+     * Send some typical commands to the started proxy, so that the classes handling them are loaded and
+     * linked before the JVM exits and dumps its AppCDS archive (see "-XX:ArchiveClassesAtExit" in start.sh).
+     * Only local and read commands are sent.
+     */
+    private void trainCds() throws IOException {
+        String key = "__redisproxy_cds_training__";
+        String commands = "PING\r\n" +
+                "ECHO hello\r\n" +
+                "COMMAND COUNT\r\n" +
+                "INFO\r\n" +
+                "*2\r\n$3\r\nGET\r\n$" + key.length() + "\r\n" + key + "\r\n" +
+                "*2\r\n$6\r\nEXISTS\r\n$" + key.length() + "\r\n" + key + "\r\n" +
+                "*4\r\n$6\r\nZRANGE\r\n$" + key.length() + "\r\n" + key + "\r\n$1\r\n0\r\n$2\r\n-1\r\n" +
+                "*2\r\n$7\r\nHGETALL\r\n$" + key.length() + "\r\n" + key + "\r\n" +
+                "QUIT\r\n";
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), localAddress.getPort())) {
+            socket.setSoTimeout((int) TimeUnit.SECONDS.toMillis(10));
+            socket.getOutputStream().write(commands.getBytes(StandardCharsets.UTF_8));
+            socket.getOutputStream().flush();
+            // the proxy closes the connection after replying QUIT
+            byte[] replies = socket.getInputStream().readAllBytes();
+            LOGGER.info("AppCDS training got {} bytes of replies", replies.length);
         }
     }
 
@@ -214,6 +311,8 @@ public class Bootstrap {
         options.addOption("h", "help", false, "print usage");
         options.addOption("c", "conf", true, "path to config file (required)");
         options.addOption("detached", false, "started in detached mode");
+        options.addOption("cdstrain", false,
+                "start at a random port, run some commands against itself then exit, to dump the AppCDS archive");
 
         DefaultParser parser = new DefaultParser();
         CommandLine cli = parser.parse(options, args);
@@ -232,5 +331,9 @@ public class Bootstrap {
 
         Bootstrap bootstrap = new Bootstrap(cli);
         bootstrap.start();
+        if (cli.hasOption("cdstrain")) {
+            bootstrap.trainCds();
+            System.exit(0);
+        }
     }
 }
@@ -0,0 +1,49 @@
+package org.jrp.client.lettuce;
+
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.netty.buffer.ByteBuf;
+
+import java.util.List;
+
+/**
+ * The connections to one DB of Redis, along with their clients and in-flight commands.
+ */
+final class BackendConnections {
+
+    private final List<RedisAsyncCommands<byte[], byte[]>> clients;
+    private final List<RedisAsyncCommands<byte[], ByteBuf>> bufClients;
+    private final List<InFlightCommandsListener> inFlights;
+
+    BackendConnections(List<RedisAsyncCommands<byte[], byte[]>> clients,
+                       List<RedisAsyncCommands<byte[], ByteBuf>> bufClients,
+                       List<InFlightCommandsListener> inFlights) {
+        this.clients = clients;
+        this.bufClients = bufClients;
+        this.inFlights = inFlights;
+    }
+
+    int size() {
+        return clients.size();
+    }
+
+    int indexOf(int hash) {
+        int size = clients.size();
+        return size == 1 ? 0 : Math.floorMod(hash, size);
+    }
+
+    RedisAsyncCommands<byte[], byte[]> client(int i) {
+        return clients.get(i);
+    }
+
+    RedisAsyncCommands<byte[], ByteBuf> bufClient(int i) {
+        return bufClients.get(i);
+    }
+
+    long inFlight(int i) {
+        return inFlights.get(i).get();
+    }
+
+    List<RedisAsyncCommands<byte[], byte[]>> clients() {
+        return clients;
+    }
+}
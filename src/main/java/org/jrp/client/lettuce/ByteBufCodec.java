@@ -0,0 +1,47 @@
+package org.jrp.client.lettuce;
+
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A codec with {@code byte[]} keys and {@link ByteBuf} values.
+ * <p>
+ * Values are encoded as a NIO view of the buffer, so a retained slice of the inbound request buffer is copied
+ * exactly once, straight into Lettuce's outbound buffer. The readable bytes of the value are left untouched, and
+ * it's the caller's duty to keep the value alive until the command is written (or completed).
+ * <p>
+ * Values are decoded by one copy into a pooled buffer, which the caller owns and must release. Lettuce drops a
+ * value that arrives after its command timed out without releasing it, so the proxy doesn't read values through
+ * this codec, the commands replying them are dispatched with a {@link org.jrp.reply.BulkOutput} instead.
+ */
+public class ByteBufCodec implements RedisCodec<byte[], ByteBuf> {
+
+    public static final ByteBufCodec INSTANCE = new ByteBufCodec();
+
+    @Override
+    public byte[] decodeKey(ByteBuffer bytes) {
+        return ByteArrayCodec.INSTANCE.decodeKey(bytes);
+    }
+
+    @Override
+    public ByteBuf decodeValue(ByteBuffer bytes) {
+        return ByteBufAllocator.DEFAULT.ioBuffer(bytes.remaining()).writeBytes(bytes);
+    }
+
+    @Override
+    public ByteBuffer encodeKey(byte[] key) {
+        return ByteArrayCodec.INSTANCE.encodeKey(key);
+    }
+
+    @Override
+    public ByteBuffer encodeValue(ByteBuf value) {
+        if (value == null) {
+            return ByteBuffer.allocate(0);
+        }
+        return value.nioBuffer();
+    }
+}
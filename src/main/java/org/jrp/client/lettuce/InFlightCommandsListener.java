@@ -0,0 +1,59 @@
+package org.jrp.client.lettuce;
+
+import io.lettuce.core.event.command.CommandBaseEvent;
+import io.lettuce.core.event.command.CommandFailedEvent;
+import io.lettuce.core.event.command.CommandListener;
+import io.lettuce.core.event.command.CommandStartedEvent;
+import io.lettuce.core.event.command.CommandSucceededEvent;
+import org.jrp.monitor.metrics.RedisproxyStatusMetrics;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the commands written to one connection and not completed yet, and all of them in
+ * {@link RedisproxyStatusMetrics#backendInFlight}.
+ * <p>
+ * A command timed out is completed twice (by the timeout, and by its late reply), so it's marked in the event
+ * context when started, and the mark is taken by whichever completion comes first.
+ */
+class InFlightCommandsListener implements CommandListener {
+
+    private static final String IN_FLIGHT = "inFlight";
+
+    private final LongAdder inFlight = new LongAdder();
+
+    long get() {
+        return inFlight.sum();
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        event.getContext().put(IN_FLIGHT, Boolean.TRUE);
+        inFlight.increment();
+        RedisproxyStatusMetrics.INSTANCE.backendInFlight.incr();
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        completed(event);
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        completed(event);
+    }
+
+    private void completed(CommandBaseEvent event) {
+        Map<String, Object> context = event.getContext();
+        Object mark;
+        // the timeout and the reply may complete the command in different threads
+        synchronized (context) {
+            mark = context.remove(IN_FLIGHT);
+        }
+        if (mark != null) {
+            inFlight.decrement();
+            RedisproxyStatusMetrics.INSTANCE.backendInFlight.decr();
+        }
+    }
+}
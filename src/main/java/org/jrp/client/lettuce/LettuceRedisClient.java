@@ -2,7 +2,9 @@ package org.jrp.client.lettuce;
 
 import com.google.common.annotations.VisibleForTesting;
 import io.lettuce.core.ClientOptions;
+import io.lettuce.core.RedisAsyncCommandsImpl;
 import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisFuture;
 import io.lettuce.core.RedisURI;
 import io.lettuce.core.TimeoutOptions;
 import io.lettuce.core.api.StatefulRedisConnection;
@@ -11,22 +13,50 @@ import io.lettuce.core.codec.ByteArrayCodec;
 import io.lettuce.core.metrics.CommandLatencyCollectorOptions;
 import io.lettuce.core.resource.ClientResources;
 import io.lettuce.core.resource.DefaultClientResources;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.jrp.exception.RedisException;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class LettuceRedisClient {
 
     private static final Logger LOGGER = LogManager.getLogger(LettuceRedisClient.class);
 
     private final LettuceRedisClientBuilder builder;
-    private final ConcurrentMap<Integer, RedisAsyncCommands<byte[], byte[]>> dbClients = new ConcurrentHashMap<>();
+    // connected asynchronously, so no map bin is locked and no event loop is blocked while connecting
+    private final ConcurrentMap<Integer, CompletableFuture<BackendConnections>> dbConnections =
+            new ConcurrentHashMap<>();
+    // shared by the connections to all DBs, created on the first connection
+    private volatile ClientResources clientResources;
+    // the clients whose connections are made on the event loops, see "pin"
+    private final ConcurrentMap<EventLoop, LettuceRedisClient> pinnedClients = new ConcurrentHashMap<>();
+    // the event loop the connections of this client are pinned to, or null if they are not
+    private final EventLoop pinnedEventLoop;
 
     LettuceRedisClient(LettuceRedisClientBuilder builder) {
         this.builder = builder;
+        this.pinnedEventLoop = null;
+    }
+
+    private LettuceRedisClient(LettuceRedisClientBuilder builder, ClientResources clientResources,
+                               EventLoop pinnedEventLoop) {
+        this.builder = builder;
+        this.clientResources = clientResources;
+        this.pinnedEventLoop = pinnedEventLoop;
     }
 
     /**
@@ -36,29 +66,279 @@ public class LettuceRedisClient {
         return getClient(0);
     }
 
+    /**
+     * Get the client of the first connection to the DB.
+     */
     public RedisAsyncCommands<byte[], byte[]> getClient(int db) {
-        return dbClients.computeIfAbsent(db, k -> {
-            RedisClient redisClient = createRedisClient(k);
-            StatefulRedisConnection<byte[], byte[]> connection = redisClient.connect(ByteArrayCodec.INSTANCE);
-            return connection.async();
+        return getConnections(db).client(0);
+    }
+
+    /**
+     * Get the client of the connection to the DB that 'hash' maps to, so the commands of the same hash (like of the
+     * same key) are executed in order.
+     */
+    public RedisAsyncCommands<byte[], byte[]> getClient(int db, int hash) {
+        BackendConnections connections = getConnections(db);
+        return connections.client(connections.indexOf(hash));
+    }
+
+    /**
+     * Get Redis Client with {@link ByteBuf} values for DB '0', lazily.
+     */
+    public RedisAsyncCommands<byte[], ByteBuf> getBufClient() {
+        return getBufClient(0);
+    }
+
+    /**
+     * The returned client shares the connection of {@link #getClient(int)}, only the value codec differs, so
+     * commands issued through both clients are still pipelined in order.
+     */
+    public RedisAsyncCommands<byte[], ByteBuf> getBufClient(int db) {
+        return getConnections(db).bufClient(0);
+    }
+
+    /**
+     * The returned client shares the connection of {@link #getClient(int, int)} for the same hash.
+     */
+    public RedisAsyncCommands<byte[], ByteBuf> getBufClient(int db, int hash) {
+        BackendConnections connections = getConnections(db);
+        return connections.bufClient(connections.indexOf(hash));
+    }
+
+    /**
+     * @return the number of connections to each DB
+     */
+    public int getConnections() {
+        return builder.getConnections();
+    }
+
+    /**
+     * @return the commands written to each connection to the DB and not completed yet
+     */
+    public long[] getInFlightCommands(int db) {
+        CompletableFuture<BackendConnections> future = dbConnections.get(db);
+        BackendConnections connections = future == null ? null : future.getNow(null);
+        if (connections == null) {
+            return new long[0];
+        }
+        long[] inFlight = new long[connections.size()];
+        for (int i = 0; i < inFlight.length; i++) {
+            inFlight[i] = connections.inFlight(i);
+        }
+        return inFlight;
+    }
+
+    /**
+     * Connect to the DB now rather than on its first command, and check every connection by "PING".
+     *
+     * @throws RedisException if any connection fails the check
+     */
+    public void warmUp(int db) throws RedisException {
+        List<RedisAsyncCommands<byte[], byte[]>> clients = getConnections(db).clients();
+        List<RedisFuture<String>> pings = clients.stream().map(RedisAsyncCommands::ping).toList();
+        for (RedisFuture<String> ping : pings) {
+            String pong = await(ping);
+            if (!"PONG".equals(pong)) {
+                throw new RedisException("unexpected reply to PING: " + pong);
+            }
+        }
+        LOGGER.info("warmed up {} connections to DB {}", clients.size(), db);
+    }
+
+    /**
+     * Wait for the result of a command, within the timeout of the client. Must not be called in any event loop that
+     * connections are pinned to, where the reply could only be read by the very thread waiting for it.
+     *
+     * @throws IllegalStateException if called in a pinned event loop
+     * @throws RedisException        if the command fails or times out
+     */
+    public <T> T await(RedisFuture<T> future) throws RedisException {
+        if (inPinnedEventLoop()) {
+            throw new IllegalStateException("unable to wait for a command in the pinned event loop " +
+                    Thread.currentThread().getName());
+        }
+        try {
+            return future.get(builder.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RedisException(e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new RedisException(e);
+        }
+    }
+
+    private boolean inPinnedEventLoop() {
+        if (pinnedEventLoop != null) {
+            return pinnedEventLoop.inEventLoop();
+        }
+        for (EventLoop eventLoop : pinnedClients.keySet()) {
+            if (eventLoop.inEventLoop()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Connect to the DB on each of the event loops, for the thread-per-core mode: a command issued in one of the
+     * event loops to a client got by {@link #pinnedTo(EventLoop, int)} is written, and its reply is read and
+     * completed, all in that event loop.
+     * <p>
+     * The pinned clients share everything of this client's {@link ClientResources} but the event loops. Must not be
+     * called in any of the event loops, since connecting waits for the connections made in them.
+     *
+     * @throws RedisException if any connection fails the check of {@link #warmUp(int)}
+     */
+    public void pin(EventLoopGroup eventLoops, int db) throws RedisException {
+        for (EventExecutor executor : eventLoops) {
+            EventLoop eventLoop = (EventLoop) executor;
+            LettuceRedisClient pinned = pinnedClients.computeIfAbsent(eventLoop, loop ->
+                    new LettuceRedisClient(builder, getClientResources().mutate()
+                            .eventLoopGroupProvider(new PinnedEventLoopProvider(loop))
+                            .build(), loop));
+            pinned.warmUp(db);
+        }
+    }
+
+    /**
+     * @return the client whose connections to the DB are made on the event loop by {@link #pin(EventLoopGroup, int)},
+     * or this client if they are not pinned (connecting to the DB in the event loop itself would never finish)
+     */
+    public LettuceRedisClient pinnedTo(EventLoop eventLoop, int db) {
+        LettuceRedisClient pinned = pinnedClients.get(eventLoop);
+        return pinned != null && pinned.isConnected(db) ? pinned : this;
+    }
+
+    /**
+     * @return true if the connections to the DB are made, so getting their clients doesn't wait
+     */
+    public boolean isConnected(int db) {
+        CompletableFuture<BackendConnections> future = dbConnections.get(db);
+        return future != null && future.isDone() && !future.isCompletedExceptionally();
+    }
+
+    /**
+     * Start connecting to the DB if it's not yet, without waiting for it. A failed connecting is forgotten, so the
+     * next one tries again.
+     *
+     * @return the future of the connections to the DB
+     */
+    public CompletableFuture<?> connectAsync(int db) {
+        return connections(db);
+    }
+
+    private CompletableFuture<BackendConnections> connections(int db) {
+        CompletableFuture<BackendConnections> future = dbConnections.get(db);
+        if (future != null) {
+            return future;
+        }
+        CompletableFuture<BackendConnections> connecting = new CompletableFuture<>();
+        future = dbConnections.putIfAbsent(db, connecting);
+        if (future != null) {
+            return future;
+        }
+        connect(db).whenComplete((connections, e) -> {
+            if (e != null) {
+                dbConnections.remove(db, connecting);
+                connecting.completeExceptionally(e);
+            } else {
+                connecting.complete(connections);
+            }
+        });
+        return connecting;
+    }
+
+    /**
+     * Wait for the connections to the DB, which are made right away off the event loops (see {@link #pin}), and are
+     * made before the commands are executed in them (see {@link #isConnected(int)}).
+     *
+     * @throws RedisException if the connecting fails
+     */
+    private BackendConnections getConnections(int db) {
+        CompletableFuture<BackendConnections> future = connections(db);
+        BackendConnections connections = future.getNow(null);
+        if (connections != null) {
+            return connections;
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw new RedisException(e.getCause());
+        }
+    }
+
+    /**
+     * Each connection is made by its own {@link RedisClient}, so that it has its own in-flight commands listener,
+     * while the clients of all DBs share one {@link ClientResources} (and so the event loops).
+     */
+    private CompletableFuture<BackendConnections> connect(int db) {
+        ClientResources clientResources = getClientResources();
+        int n = builder.getConnections();
+        List<InFlightCommandsListener> inFlights = new ArrayList<>(n);
+        List<CompletableFuture<StatefulRedisConnection<byte[], byte[]>>> connecting = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            RedisURI uri = createRedisURI(db);
+            RedisClient redisClient = createRedisClient(uri, clientResources);
+            InFlightCommandsListener inFlight = new InFlightCommandsListener();
+            redisClient.addListener(inFlight);
+            connecting.add(redisClient.connectAsync(ByteArrayCodec.INSTANCE, uri).toCompletableFuture());
+            inFlights.add(inFlight);
+        }
+        return CompletableFuture.allOf(connecting.toArray(CompletableFuture[]::new)).thenApply(v -> {
+            List<RedisAsyncCommands<byte[], byte[]>> clients = new ArrayList<>(n);
+            List<RedisAsyncCommands<byte[], ByteBuf>> bufClients = new ArrayList<>(n);
+            for (CompletableFuture<StatefulRedisConnection<byte[], byte[]>> future : connecting) {
+                StatefulRedisConnection<byte[], byte[]> connection = future.join();
+                clients.add(connection.async());
+                //noinspection unchecked
+                bufClients.add(new RedisAsyncCommandsImpl<>(
+                        (StatefulRedisConnection<byte[], ByteBuf>) (StatefulRedisConnection<?, ?>) connection,
+                        ByteBufCodec.INSTANCE));
+            }
+            return new BackendConnections(List.copyOf(clients), List.copyOf(bufClients), List.copyOf(inFlights));
         });
     }
 
-    private RedisClient createRedisClient(int db) {
+    @VisibleForTesting
+    ClientResources getClientResources() {
+        ClientResources resources = clientResources;
+        if (resources == null) {
+            synchronized (this) {
+                resources = clientResources;
+                if (resources == null) {
+                    resources = createClientResources();
+                    clientResources = resources;
+                }
+            }
+        }
+        return resources;
+    }
+
+    private ClientResources createClientResources() {
+        CommandLatencyCollectorOptions latencyCollectorOptions = CommandLatencyCollectorOptions.create();
+        RedisCommandLatencyCollector latencyCollector = new RedisCommandLatencyCollector(latencyCollectorOptions);
+        DefaultClientResources.Builder resourcesBuilder = DefaultClientResources.builder()
+                .commandLatencyRecorder(latencyCollector);
+        int ioThreads = builder.getIoThreads();
+        if (ioThreads > 0) {
+            resourcesBuilder.ioThreadPoolSize(ioThreads).computationThreadPoolSize(ioThreads);
+        }
+        ClientResources resources = resourcesBuilder.build();
+        LOGGER.info("created ClientResources with {} io threads", resources.ioThreadPoolSize());
+        return resources;
+    }
+
+    private RedisURI createRedisURI(int db) {
         RedisURI.Builder uriBuilder = RedisURI.Builder.redis(builder.getHost(), builder.getPort());
         uriBuilder.withDatabase(db);
         if (builder.getPassword() != null) {
             uriBuilder.withPassword(builder.getPassword());
         }
         uriBuilder.withTimeout(Duration.ofMillis(builder.getTimeoutMillis()));
-        RedisURI uri = uriBuilder.build();
-
-        CommandLatencyCollectorOptions latencyCollectorOptions = CommandLatencyCollectorOptions.create();
-        RedisCommandLatencyCollector latencyCollector = new RedisCommandLatencyCollector(latencyCollectorOptions);
+        return uriBuilder.build();
+    }
 
-        ClientResources clientResources = DefaultClientResources.builder()
-                .commandLatencyRecorder(latencyCollector)
-                .build();
+    private RedisClient createRedisClient(RedisURI uri, ClientResources clientResources) {
         RedisClient client = RedisClient.create(clientResources, uri);
 
         ClientOptions clientOptions = ClientOptions.builder()
@@ -78,7 +358,7 @@ public class LettuceRedisClient {
     }
 
     @VisibleForTesting
-    ConcurrentMap<Integer, RedisAsyncCommands<byte[], byte[]>> getDbClients() {
-        return dbClients;
+    ConcurrentMap<Integer, CompletableFuture<BackendConnections>> getDbConnections() {
+        return dbConnections;
     }
 }
@@ -6,12 +6,17 @@ public class LettuceRedisClientBuilder {
     static final int DEFAULT_PORT = 6379;
     static final int DEFAULT_TIMEOUT_MILLIS = 500;
     static final int DEFAULT_REQUEST_QUEUE_SIZE = 2048;
+    static final int DEFAULT_CONNECTIONS = 1;
+    // Lettuce's default, the number of processors
+    static final int DEFAULT_IO_THREADS = 0;
 
     private String host = DEFAULT_HOST;
     private int port = DEFAULT_PORT;
     private char[] password = null;
     private int timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
     private int requestQueueSize = DEFAULT_REQUEST_QUEUE_SIZE;
+    private int connections = DEFAULT_CONNECTIONS;
+    private int ioThreads = DEFAULT_IO_THREADS;
 
     public LettuceRedisClientBuilder withHost(String host) {
         this.host = host;
@@ -38,19 +43,39 @@ public class LettuceRedisClientBuilder {
         return this;
     }
 
+    /**
+     * @param connections the number of connections to each DB, among which the commands are spread by key
+     */
+    public LettuceRedisClientBuilder withConnections(int connections) {
+        if (connections < 1) {
+            throw new IllegalArgumentException("connections must be positive: " + connections);
+        }
+        this.connections = connections;
+        return this;
+    }
+
+    /**
+     * @param ioThreads the number of I/O (and computation) threads shared by the connections to all DBs,
+     *                  0 for Lettuce's default
+     */
+    public LettuceRedisClientBuilder withIoThreads(int ioThreads) {
+        this.ioThreads = ioThreads;
+        return this;
+    }
+
     public LettuceRedisClient build() {
         return new LettuceRedisClient(this);
     }
 
-    String getHost() {
+    public String getHost() {
         return host;
     }
 
-    int getPort() {
+    public int getPort() {
         return port;
     }
 
-    char[] getPassword() {
+    public char[] getPassword() {
         return password;
     }
 
@@ -61,4 +86,12 @@ public class LettuceRedisClientBuilder {
     int getRequestQueueSize() {
         return requestQueueSize;
     }
+
+    int getConnections() {
+        return connections;
+    }
+
+    int getIoThreads() {
+        return ioThreads;
+    }
 }
@@ -0,0 +1,49 @@
+package org.jrp.client.lettuce;
+
+import io.lettuce.core.resource.EventLoopGroupProvider;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.EventExecutorGroup;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.SucceededFuture;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Provides one event loop (which is a group of itself) to Lettuce, so that every connection made by the client is
+ * registered to it. The event loop is owned by the caller, so it's never shut down here.
+ */
+final class PinnedEventLoopProvider implements EventLoopGroupProvider {
+
+    private final EventLoop eventLoop;
+
+    PinnedEventLoopProvider(EventLoop eventLoop) {
+        this.eventLoop = eventLoop;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends EventLoopGroup> T allocate(Class<T> type) {
+        // the channel class chosen by Lettuce only works with the event loops of the requested group type
+        if (!type.isInstance(eventLoop.parent())) {
+            throw new IllegalStateException("event loop " + eventLoop + " is not of " + type.getName());
+        }
+        return (T) eventLoop;
+    }
+
+    @Override
+    public int threadPoolSize() {
+        return 1;
+    }
+
+    @Override
+    public Future<Boolean> release(EventExecutorGroup eventLoopGroup, long quietPeriod, long timeout,
+                                   TimeUnit unit) {
+        return new SucceededFuture<>(eventLoop, true);
+    }
+
+    @Override
+    public Future<Boolean> shutdown(long quietPeriod, long timeout, TimeUnit timeUnit) {
+        return new SucceededFuture<>(eventLoop, true);
+    }
+}
@@ -0,0 +1,124 @@
+package org.jrp.client.passthrough;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jrp.cmd.Command;
+import org.jrp.reply.CompletableReply;
+import org.jrp.reply.EncodedReply;
+import org.jrp.reply.Reply;
+
+import static org.jrp.utils.BytesUtils.bytes;
+
+/**
+ * Forwards commands to Redis as they are, over a few raw Netty connections, and hands back the replies as they
+ * are, so neither the command nor the reply is converted to and from Lettuce's objects.
+ * <p>
+ * The commands of one client channel always go through the same connection, so they are executed in order.
+ * Connections are made lazily and asynchronously, and remade on the next command after being lost.
+ */
+public class PassThroughClient {
+
+    private static final Logger LOGGER = LogManager.getLogger(PassThroughClient.class);
+
+    static final int CONNECT_TIMEOUT_MILLIS = 1000;
+
+    private static final byte[] AUTH = bytes("AUTH");
+
+    private final String host;
+    private final int port;
+    private final char[] password;
+    private final EventLoopGroup eventLoopGroup;
+    private final Bootstrap bootstrap;
+    private final PassThroughConnection[] connections;
+
+    public PassThroughClient(String host, int port, char[] password, int connections) {
+        this.host = host;
+        this.port = port;
+        this.password = password;
+        this.eventLoopGroup = new NioEventLoopGroup(connections, new DefaultThreadFactory("PassThrough"));
+        this.bootstrap = new Bootstrap()
+                .group(eventLoopGroup)
+                .channel(NioSocketChannel.class)
+                .option(ChannelOption.TCP_NODELAY, true)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, CONNECT_TIMEOUT_MILLIS);
+        this.connections = new PassThroughConnection[connections];
+    }
+
+    /**
+     * Send the command to Redis under 'name', through the connection of the client channel.
+     *
+     * @param channel the client channel, or null
+     */
+    public Reply forward(Command command, byte[] name, Channel channel) {
+        PassThroughConnection connection =
+                getConnection(channel == null ? 0 : Math.floorMod(channel.hashCode(), connections.length));
+        ByteBuf frame = (channel == null ? ByteBufAllocator.DEFAULT : channel.alloc()).ioBuffer();
+        command.writeTo(frame, name);
+        CompletableReply reply = new CompletableReply();
+        connection.send(frame, reply);
+        return reply;
+    }
+
+    private PassThroughConnection getConnection(int i) {
+        PassThroughConnection connection = connections[i];
+        if (connection != null && connection.isOpen()) {
+            return connection;
+        }
+        // connect() doesn't wait for the connection to be made, the commands sent meanwhile are queued
+        synchronized (connections) {
+            connection = connections[i];
+            if (connection == null || !connection.isOpen()) {
+                connection = connect();
+                connections[i] = connection;
+            }
+            return connection;
+        }
+    }
+
+    private PassThroughConnection connect() {
+        PassThroughConnection connection = new PassThroughConnection();
+        ChannelFuture connectFuture = bootstrap.clone()
+                .handler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.pipeline().addLast(new RespFrameDecoder(), connection);
+                    }
+                })
+                .connect(host, port);
+        connection.connecting(connectFuture);
+        Channel channel = connectFuture.channel();
+        if (password != null) {
+            CompletableReply reply = new CompletableReply();
+            reply.onComplete(r -> {
+                // a lost connection or one that can't be made is logged by the connection
+                if (r instanceof EncodedReply e && e.buf().getByte(e.buf().readerIndex()) == '-') {
+                    LOGGER.error("unable to authenticate pass-through connection {}", channel);
+                }
+                ReferenceCountUtil.release(r);
+            });
+            ByteBuf frame = channel.alloc().ioBuffer();
+            new Command(new byte[][]{AUTH, bytes(String.valueOf(password))}).writeTo(frame, AUTH);
+            connection.send(frame, reply);
+        }
+        LOGGER.info("creating pass-through connection {}", channel);
+        return connection;
+    }
+
+    public void shutdown() {
+        eventLoopGroup.shutdownGracefully();
+    }
+}
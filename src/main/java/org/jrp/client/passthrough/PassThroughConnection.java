@@ -0,0 +1,142 @@
+package org.jrp.client.passthrough;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.EventLoop;
+import io.netty.util.ReferenceCountUtil;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jrp.reply.CompletableReply;
+import org.jrp.reply.EncodedReply;
+import org.jrp.reply.ErrorReply;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * One raw connection to Redis, whose replies are matched to the forwarded commands in the order they were sent.
+ * <p>
+ * Commands are queued and written on the connection's event loop, so the pending queue needs no locking, and the
+ * writes queued before a flush runs are flushed together. The commands sent while the connection is being made are
+ * written once it's made, or failed if it can't be.
+ */
+class PassThroughConnection extends ChannelInboundHandlerAdapter {
+
+    private static final Logger LOGGER = LogManager.getLogger(PassThroughConnection.class);
+
+    static final ErrorReply CONNECTION_LOST = new ErrorReply("ERR connection to Redis lost");
+
+    private volatile Channel channel;
+
+    // accessed in the event loop only
+    private final Queue<CompletableReply> pending = new ArrayDeque<>();
+    private final Queue<ByteBuf> unsent = new ArrayDeque<>();
+    private boolean flushScheduled;
+    private final Runnable flushTask = () -> {
+        flushScheduled = false;
+        channel.flush();
+    };
+
+    /**
+     * Must be called before sending any command, with the future of the connect just started.
+     */
+    void connecting(ChannelFuture connectFuture) {
+        channel = connectFuture.channel();
+        connectFuture.addListener(f -> {
+            if (!f.isSuccess()) {
+                LOGGER.error("unable to make pass-through connection " + channel, f.cause());
+                fail(new ErrorReply("ERR unable to connect to Redis: " +
+                        ExceptionUtils.getRootCauseMessage(f.cause())));
+            }
+        });
+    }
+
+    /**
+     * @return false once the connection is lost or can't be made
+     */
+    boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    /**
+     * Send the encoded command, whose reply completes 'reply'. The frame is released after being written.
+     */
+    void send(ByteBuf frame, CompletableReply reply) {
+        EventLoop eventLoop = channel.eventLoop();
+        if (eventLoop.inEventLoop()) {
+            write(frame, reply);
+        } else {
+            eventLoop.execute(() -> write(frame, reply));
+        }
+    }
+
+    private void write(ByteBuf frame, CompletableReply reply) {
+        if (!channel.isActive()) {
+            if (channel.isOpen()) {
+                // still connecting
+                pending.add(reply);
+                unsent.add(frame);
+                return;
+            }
+            frame.release();
+            reply.complete(CONNECTION_LOST);
+            return;
+        }
+        pending.add(reply);
+        channel.write(frame, channel.voidPromise());
+        if (!flushScheduled) {
+            flushScheduled = true;
+            channel.eventLoop().execute(flushTask);
+        }
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        ByteBuf frame;
+        while ((frame = unsent.poll()) != null) {
+            channel.write(frame, channel.voidPromise());
+        }
+        channel.flush();
+        super.channelActive(ctx);
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        CompletableReply reply = pending.poll();
+        if (reply == null) {
+            LOGGER.error("unexpected reply from Redis on {}", ctx.channel());
+            ReferenceCountUtil.release(msg);
+            return;
+        }
+        reply.complete(new EncodedReply((ByteBuf) msg));
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        LOGGER.warn("pass-through connection {} is closed, failing {} pending commands", ctx.channel(),
+                pending.size());
+        fail(CONNECTION_LOST);
+        super.channelInactive(ctx);
+    }
+
+    private void fail(ErrorReply error) {
+        ByteBuf frame;
+        while ((frame = unsent.poll()) != null) {
+            frame.release();
+        }
+        CompletableReply reply;
+        while ((reply = pending.poll()) != null) {
+            reply.complete(error);
+        }
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        LOGGER.error("caught exception on pass-through connection " + ctx.channel() + ", closing it", cause);
+        ctx.close();
+    }
+}
@@ -0,0 +1,87 @@
+package org.jrp.client.passthrough;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.util.ByteProcessor;
+
+import java.util.List;
+
+/**
+ * Splits the RESP2 replies of Redis into frames, each a retained slice of one whole reply, nested arrays included.
+ * <p>
+ * The replies are not parsed beyond their headers: the scan resumes where it stopped when more bytes arrive, and
+ * only counts how many values are still needed to complete the reply, so a huge reply is scanned once however it's
+ * split.
+ */
+public class RespFrameDecoder extends ByteToMessageDecoder {
+
+    // where to resume the scan, relative to the reader index
+    private int scanned;
+    // the values still needed to complete the reply being scanned
+    private int pending = 1;
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+        while (in.isReadable()) {
+            int start = in.readerIndex();
+            int end = in.writerIndex();
+            while (pending > 0) {
+                int p = start + scanned;
+                if (p >= end) {
+                    return;
+                }
+                int lf = in.forEachByte(p, end - p, ByteProcessor.FIND_LF);
+                if (lf < 0) {
+                    return;
+                }
+                byte type = in.getByte(p);
+                int next = lf + 1;
+                switch (type) {
+                    case '+', '-', ':' -> pending--;
+                    case '$' -> {
+                        long length = parseNumber(in, p + 1, lf - 1);
+                        if (length >= 0) {
+                            // the payload and its CRLF
+                            next += length + 2;
+                            if (next > end) {
+                                return;
+                            }
+                        }
+                        pending--;
+                    }
+                    case '*' -> {
+                        long count = parseNumber(in, p + 1, lf - 1);
+                        pending += (int) Math.max(count, 0) - 1;
+                    }
+                    default -> {
+                        // there's no telling where the next reply starts, the connection is to be closed
+                        in.skipBytes(in.readableBytes());
+                        throw new CorruptedFrameException("unexpected RESP type '" + (char) type + "' from Redis");
+                    }
+                }
+                scanned = next - start;
+            }
+            out.add(in.readRetainedSlice(scanned));
+            scanned = 0;
+            pending = 1;
+        }
+    }
+
+    /**
+     * @return the number in range [from, to), where 'to' is at CR
+     */
+    private static long parseNumber(ByteBuf in, int from, int to) {
+        boolean negative = from < to && in.getByte(from) == '-';
+        long n = 0;
+        for (int i = negative ? from + 1 : from; i < to; i++) {
+            byte b = in.getByte(i);
+            if (b < '0' || b > '9') {
+                throw new CorruptedFrameException("malformed RESP number from Redis");
+            }
+            n = n * 10 + (b - '0');
+        }
+        return negative ? -n : n;
+    }
+}
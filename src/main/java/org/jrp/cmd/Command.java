@@ -1,10 +1,21 @@
 package org.jrp.cmd;
 
 import com.google.common.annotations.VisibleForTesting;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.util.Recycler;
+import io.netty.util.concurrent.FastThreadLocal;
 import org.apache.commons.lang3.StringUtils;
+import org.jrp.exception.InvalidArgumentException;
+import org.jrp.reply.ErrorReply;
+import org.jrp.reply.Reply;
+import org.jrp.reply.ReplyHeaders;
 import org.jrp.utils.BytesUtils;
 
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 public class Command {
 
@@ -13,11 +24,43 @@ public class Command {
 
     private static final AtomicLong ID_GEN = new AtomicLong(0);
 
-    public final long id;
-    private final byte[][] tokens;
-    private final CommandProcessor commandProcessor;
+    // enough for any long, and decimals that are not absurdly long
+    private static final int PARSE_SCRATCH_SIZE = 64;
+    private static final FastThreadLocal<byte[]> PARSE_SCRATCH = new FastThreadLocal<>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[PARSE_SCRATCH_SIZE];
+        }
+    };
+
+    private static final Recycler<Command> RECYCLER = new Recycler<>() {
+        @Override
+        protected Command newObject(Handle<Command> handle) {
+            return new Command(handle);
+        }
+    };
+
+    // a pooled command is held by the handler executing it and by the writer of its reply
+    private static final int POOLED_HOLDERS = 2;
+    private static final AtomicIntegerFieldUpdater<Command> HOLDERS_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(Command.class, "holders");
+    private static final LongAdder POOLED_IN_USE = new LongAdder();
+
+    // the fields are reassigned only when a pooled command is reused
+    private long id;
+    private byte[][] tokens;
+    // retained slices of the inbound buffer, a token is either here or in 'tokens' (until it's materialized)
+    private ByteBuf[] tokenBufs;
+    private CommandProcessor commandProcessor;
     private final CommandLifecycle commandLifecycle;
     private volatile String clientAddress;
+    // set once by the thread completing the command, read by the thread writing replies in order
+    private volatile Reply reply;
+    // counted in the queued commands by the decoder, until the handler takes it
+    private boolean queued;
+
+    private final Recycler.Handle<Command> handle;
+    private volatile int holders;
 
     public Command() {
         this(ID_GEN.incrementAndGet());
@@ -31,11 +74,112 @@ public class Command {
         this(ID_GEN.incrementAndGet(), tokens);
     }
 
+    /**
+     * @param tokens    the tokens, the command name must be present
+     * @param tokenBufs the tokens backed by retained slices, whose counterparts in 'tokens' are null
+     */
+    public Command(byte[][] tokens, ByteBuf[] tokenBufs) {
+        this(ID_GEN.incrementAndGet(), tokens);
+        this.tokenBufs = tokenBufs;
+    }
+
     private Command(long id, byte[][] tokens) {
         this.id = id;
         this.tokens = tokens;
         this.commandProcessor = tokens == null ? null : CommandProcessors.get(tokens[0]);
         this.commandLifecycle = new CommandLifecycle();
+        this.handle = null;
+    }
+
+    private Command(Recycler.Handle<Command> handle) {
+        this.commandLifecycle = new CommandLifecycle();
+        this.handle = handle;
+    }
+
+    /**
+     * Get a command from the pool, which must be given back by {@link #recycle()} of both its holders: the handler
+     * executing it and the writer of its reply.
+     *
+     * @see #Command(byte[][], ByteBuf[])
+     */
+    public static Command newInstance(byte[][] tokens, ByteBuf[] tokenBufs) {
+        Command command = RECYCLER.get();
+        command.id = ID_GEN.incrementAndGet();
+        command.tokens = tokens;
+        command.tokenBufs = tokenBufs;
+        command.commandProcessor = CommandProcessors.get(tokens[0]);
+        command.commandLifecycle.reset();
+        HOLDERS_UPDATER.set(command, POOLED_HOLDERS);
+        POOLED_IN_USE.increment();
+        return command;
+    }
+
+    /**
+     * Give up one hold of a pooled command, the last one returns it to the pool, after which it must not be touched.
+     * Does nothing to a command that is not pooled.
+     *
+     * @throws IllegalStateException if the command is recycled more times than it's held
+     */
+    public void recycle() {
+        if (handle == null) {
+            return;
+        }
+        int remaining = HOLDERS_UPDATER.decrementAndGet(this);
+        if (remaining > 0) {
+            return;
+        }
+        if (remaining < 0) {
+            throw new IllegalStateException("command " + id + " is recycled already");
+        }
+        release();
+        tokens = null;
+        commandProcessor = null;
+        clientAddress = null;
+        reply = null;
+        queued = false;
+        POOLED_IN_USE.decrement();
+        handle.recycle(this);
+    }
+
+    /**
+     * Drop a command that is never executed nor replied, like one refused for being busy: its tokens are released,
+     * and a pooled command is given back to the pool for both its holders.
+     */
+    public void discard() {
+        if (handle == null) {
+            release();
+            return;
+        }
+        for (int i = 0; i < POOLED_HOLDERS; i++) {
+            recycle();
+        }
+    }
+
+    /**
+     * @return true if the command is counted in the queued commands, from its decoding until its handling
+     */
+    public boolean isQueued() {
+        return queued;
+    }
+
+    public void setQueued(boolean queued) {
+        this.queued = queued;
+    }
+
+    public boolean isPooled() {
+        return handle != null;
+    }
+
+    /**
+     * @return the number of pooled commands that are not recycled yet
+     */
+    @VisibleForTesting
+    public static long pooledInUse() {
+        return POOLED_IN_USE.sum();
+    }
+
+    public long getId() {
+        return id;
     }
 
     public CommandProcessor getCommandProcessor() {
@@ -54,29 +198,246 @@ public class Command {
         this.clientAddress = clientAddress;
     }
 
+    public Reply getReply() {
+        return reply;
+    }
+
+    public void setReply(Reply reply) {
+        this.reply = reply;
+    }
+
     public Object[] toArguments(Class<?>[] types) {
         Object[] arguments = new Object[types.length];
-        for (int i = 0, j = 1; i < types.length && j < tokens.length; i++, j++) {
-            Class<?> type = types[i];
-            if (type == byte[].class) {
-                arguments[i] = tokens[j];
-            } else if (type == byte[][].class) {
-                int remaining = tokens.length - j;
-                byte[][] remainingArguments = new byte[remaining][];
-                System.arraycopy(tokens, j, remainingArguments, 0, remaining);
-                arguments[i] = remainingArguments;
+        for (int i = 0; i < types.length; i++) {
+            arguments[i] = toArgument(i, types[i]);
+            if (types[i].isArray() && types[i] != byte[].class) {
+                // the remaining tokens are all taken
                 break;
-            } else {
-                throw new IllegalStateException(
-                        "parameter type can only be one of 'byte[]' or 'byte[][]', got " + type.getSimpleName());
             }
         }
         return arguments;
     }
 
+    /**
+     * @param i    the index of the parameter, i.e. the index of the token minus 1
+     * @param type the type of the parameter, array types take all the remaining tokens
+     * @return the argument, or null if there are not enough tokens (except for the parsed types, which are required)
+     */
+    public Object toArgument(int i, Class<?> type) {
+        if (type == long.class) {
+            return toLong(i);
+        } else if (type == int.class) {
+            return toInt(i);
+        } else if (type == double.class) {
+            return toDouble(i);
+        } else if (type == RedisKeyword.class) {
+            return toKeyword(i);
+        }
+        int j = i + 1;
+        if (j >= tokens.length) {
+            return null;
+        }
+        if (type == byte[].class) {
+            return token(j);
+        } else if (type == ByteBuf.class) {
+            return tokenBuf(j);
+        } else if (type == byte[][].class) {
+            int remaining = tokens.length - j;
+            byte[][] remainingArguments = new byte[remaining][];
+            if (tokenBufs == null) {
+                System.arraycopy(tokens, j, remainingArguments, 0, remaining);
+            } else {
+                for (int k = 0; k < remaining; k++) {
+                    remainingArguments[k] = token(j + k);
+                }
+            }
+            return remainingArguments;
+        } else if (type == ByteBuf[].class) {
+            int remaining = tokens.length - j;
+            ByteBuf[] remainingArguments = new ByteBuf[remaining];
+            for (int k = 0; k < remaining; k++) {
+                remainingArguments[k] = tokenBuf(j + k);
+            }
+            return remainingArguments;
+        } else {
+            throw new IllegalStateException("parameter type can only be one of " +
+                    "'byte[]', 'byte[][]', 'ByteBuf', 'ByteBuf[]', 'long', 'int', 'double' or 'RedisKeyword', got " +
+                    type.getSimpleName());
+        }
+    }
+
+    /**
+     * Parse the argument of the 'long' parameter 'i', the argument is required.
+     *
+     * @throws InvalidArgumentException if the argument is missing or not an integer
+     */
+    public long toLong(int i) {
+        int j = requiredToken(i);
+        try {
+            return BytesUtils.toLong(parsedToken(j), 0, tokenLength(j));
+        } catch (NumberFormatException e) {
+            throw InvalidArgumentException.NOT_INTEGER;
+        }
+    }
+
+    /**
+     * Parse the argument of the 'int' parameter 'i', the argument is required.
+     *
+     * @throws InvalidArgumentException if the argument is missing or not an integer
+     */
+    public int toInt(int i) {
+        int j = requiredToken(i);
+        try {
+            return BytesUtils.toInt(parsedToken(j), 0, tokenLength(j));
+        } catch (NumberFormatException e) {
+            throw InvalidArgumentException.NOT_INTEGER;
+        }
+    }
+
+    /**
+     * Parse the argument of the 'double' parameter 'i', the argument is required.
+     *
+     * @throws InvalidArgumentException if the argument is missing or not a float (NaN included)
+     */
+    public double toDouble(int i) {
+        int j = requiredToken(i);
+        double d;
+        try {
+            d = BytesUtils.toDouble(parsedToken(j), 0, tokenLength(j));
+        } catch (NumberFormatException e) {
+            throw InvalidArgumentException.NOT_FLOAT;
+        }
+        if (Double.isNaN(d)) {
+            throw InvalidArgumentException.NOT_FLOAT;
+        }
+        return d;
+    }
+
+    /**
+     * Convert the argument of the {@link RedisKeyword} parameter 'i', the argument is required.
+     *
+     * @throws InvalidArgumentException if the argument is missing or not a keyword
+     */
+    public RedisKeyword toKeyword(int i) {
+        int j = requiredToken(i);
+        RedisKeyword keyword = RedisKeyword.convert(parsedToken(j), 0, tokenLength(j));
+        if (keyword == null) {
+            throw InvalidArgumentException.SYNTAX_ERROR;
+        }
+        return keyword;
+    }
+
+    /**
+     * @return the index of the token of parameter 'i'
+     */
+    private int requiredToken(int i) {
+        int j = i + 1;
+        if (j >= tokens.length || (tokens[j] == null && (tokenBufs == null || tokenBufs[j] == null))) {
+            throw new InvalidArgumentException(new ErrorReply("ERR wrong number of arguments for '" +
+                    BytesUtils.string(tokens[0]).toLowerCase() + "' command"));
+        }
+        return j;
+    }
+
+    /**
+     * Get the bytes of the token to parse it, without materializing it if it's short: it's copied to
+     * the thread's scratch instead, in which case only the first {@link #tokenLength(int)} bytes are the token's.
+     */
+    private byte[] parsedToken(int j) {
+        byte[] token = tokens[j];
+        if (token != null) {
+            return token;
+        }
+        ByteBuf buf = tokenBufs[j];
+        int length = buf.readableBytes();
+        if (length > PARSE_SCRATCH_SIZE) {
+            return token(j);
+        }
+        byte[] scratch = PARSE_SCRATCH.get();
+        buf.getBytes(buf.readerIndex(), scratch, 0, length);
+        return scratch;
+    }
+
+    private int tokenLength(int j) {
+        byte[] token = tokens[j];
+        return token != null ? token.length : tokenBufs[j].readableBytes();
+    }
+
+    public int getTokenCount() {
+        return tokens.length;
+    }
+
+    /**
+     * @return the i-th token, where the command name is at 0, copied out of the slice if necessary
+     */
+    public byte[] getToken(int i) {
+        return token(i);
+    }
+
+    /**
+     * Get the token as bytes, copying it out of the slice (only once) if necessary.
+     */
+    private byte[] token(int i) {
+        byte[] token = tokens[i];
+        if (token == null && tokenBufs != null && tokenBufs[i] != null) {
+            token = ByteBufUtil.getBytes(tokenBufs[i]);
+            tokens[i] = token;
+        }
+        return token;
+    }
+
+    /**
+     * Get the token as {@link ByteBuf}, the slice itself if there is one, so no copy is made.
+     */
+    private ByteBuf tokenBuf(int i) {
+        if (tokenBufs != null && tokenBufs[i] != null) {
+            return tokenBufs[i];
+        }
+        byte[] token = tokens[i];
+        return token == null ? null : Unpooled.wrappedBuffer(token);
+    }
+
+    /**
+     * Write the command as a RESP array of bulk strings, with 'name' in place of the command name, e.g. to send it
+     * to Redis as it is. The tokens still in slices are copied from them, not materialized.
+     */
+    public void writeTo(ByteBuf out, byte[] name) {
+        ReplyHeaders.writeLine(out, '*', tokens.length);
+        ReplyHeaders.writeLine(out, '$', name.length);
+        out.writeBytes(name).writeBytes(Reply.CRLF);
+        for (int i = 1; i < tokens.length; i++) {
+            byte[] token = tokens[i];
+            if (token == null && tokenBufs != null && tokenBufs[i] != null) {
+                ByteBuf buf = tokenBufs[i];
+                ReplyHeaders.writeLine(out, '$', buf.readableBytes());
+                out.writeBytes(buf, buf.readerIndex(), buf.readableBytes());
+            } else {
+                ReplyHeaders.writeLine(out, '$', token.length);
+                out.writeBytes(token);
+            }
+            out.writeBytes(Reply.CRLF);
+        }
+    }
+
+    /**
+     * Release the slices of the inbound buffer, if any. Tokens that were not materialized are gone after this.
+     */
+    public void release() {
+        ByteBuf[] bufs = tokenBufs;
+        if (bufs == null) {
+            return;
+        }
+        tokenBufs = null;
+        for (ByteBuf buf : bufs) {
+            if (buf != null) {
+                buf.release();
+            }
+        }
+    }
+
     @Override
     public String toString() {
-        return _toString(tokens.length);
+        return _toString(tokens == null ? 0 : tokens.length);
     }
 
     public String toShortString() {
@@ -102,6 +463,10 @@ public class Command {
         int l = Math.min(maxPrintLength, tokensLength);
         for (int i = 0; i < l; ++i) {
             byte[] token = tokens[i];
+            if (token == null && tokenBufs != null && tokenBufs[i] != null) {
+                token = ByteBufUtil.getBytes(tokenBufs[i], tokenBufs[i].readerIndex(),
+                        Math.min(tokenBufs[i].readableBytes(), MAX_PRINTED_TOKEN_LENGTH + 1));
+            }
             if (token != null) {
                 String s = BytesUtils.string(token);
                 if (s.length() > MAX_PRINTED_TOKEN_LENGTH) {
@@ -125,4 +490,9 @@ public class Command {
     byte[][] getTokens() {
         return tokens;
     }
+
+    @VisibleForTesting
+    ByteBuf[] getTokenBufs() {
+        return tokenBufs;
+    }
 }
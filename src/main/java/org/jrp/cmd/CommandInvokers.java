@@ -0,0 +1,172 @@
+package org.jrp.cmd;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jrp.exception.IllegalCommandException;
+import org.jrp.reply.Reply;
+import org.jrp.server.RedisServer;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+/**
+ * Creates the invokers of command methods.
+ * <p>
+ * A command method of at most {@link #MAX_ARITY} parameters is bound to a functional interface of its arity
+ * by {@link LambdaMetafactory}, so it's invoked like a plain interface call, and the arguments are passed without
+ * an {@code Object[]}. Methods that can't be bound (more parameters, primitive parameters, or inaccessible to this
+ * package) are invoked through a {@link MethodHandle} instead.
+ */
+final class CommandInvokers {
+
+    private static final Logger LOGGER = LogManager.getLogger(CommandInvokers.class);
+
+    static final int MAX_ARITY = 6;
+
+    private static final Class<?>[] INVOKER_TYPES = {
+            Invoker0.class, Invoker1.class, Invoker2.class, Invoker3.class,
+            Invoker4.class, Invoker5.class, Invoker6.class
+    };
+
+    @FunctionalInterface
+    interface CommandInvoker {
+        Reply invoke(RedisServer server, Command command) throws Throwable;
+    }
+
+    @FunctionalInterface
+    interface Invoker0 {
+        Reply invoke(RedisServer server);
+    }
+
+    @FunctionalInterface
+    interface Invoker1 {
+        Reply invoke(RedisServer server, Object a0);
+    }
+
+    @FunctionalInterface
+    interface Invoker2 {
+        Reply invoke(RedisServer server, Object a0, Object a1);
+    }
+
+    @FunctionalInterface
+    interface Invoker3 {
+        Reply invoke(RedisServer server, Object a0, Object a1, Object a2);
+    }
+
+    @FunctionalInterface
+    interface Invoker4 {
+        Reply invoke(RedisServer server, Object a0, Object a1, Object a2, Object a3);
+    }
+
+    @FunctionalInterface
+    interface Invoker5 {
+        Reply invoke(RedisServer server, Object a0, Object a1, Object a2, Object a3, Object a4);
+    }
+
+    @FunctionalInterface
+    interface Invoker6 {
+        Reply invoke(RedisServer server, Object a0, Object a1, Object a2, Object a3, Object a4, Object a5);
+    }
+
+    private CommandInvokers() {
+    }
+
+    static CommandInvoker create(Method method) throws IllegalCommandException {
+        MethodHandle handle;
+        try {
+            handle = MethodHandles.lookup().unreflect(method);
+        } catch (IllegalAccessException e) {
+            throw new IllegalCommandException(String.format(
+                    "Error for method %s : unable to access it: %s", method.getName(), e.getMessage()));
+        }
+        Class<?>[] types = method.getParameterTypes();
+        if (types.length <= MAX_ARITY && Reply.class.isAssignableFrom(method.getReturnType()) &&
+                Arrays.stream(types).noneMatch(Class::isPrimitive)) {
+            try {
+                return bind(method, handle, types);
+            } catch (Throwable e) {
+                LOGGER.warn("unable to bind method {} to an invoker, fall back to method handle: {}",
+                        method, e.toString());
+            }
+        }
+        return spread(handle, types);
+    }
+
+    private static CommandInvoker bind(Method method, MethodHandle handle, Class<?>[] types) throws Throwable {
+        Class<?> declaringClass = method.getDeclaringClass();
+        // the receiver is either RedisServer (or one of its super interfaces), or an implementation of it
+        Class<?> receiverType = RedisServer.class.isAssignableFrom(declaringClass) ?
+                declaringClass : RedisServer.class;
+        Class<?> invokerType = INVOKER_TYPES[types.length];
+        MethodType samType = MethodType.genericMethodType(types.length)
+                .changeReturnType(Reply.class)
+                .insertParameterTypes(0, RedisServer.class);
+        MethodType instantiatedType = MethodType.methodType(method.getReturnType(), types)
+                .insertParameterTypes(0, receiverType);
+        CallSite site = LambdaMetafactory.metafactory(MethodHandles.lookup(), "invoke",
+                MethodType.methodType(invokerType), samType, handle, instantiatedType);
+        Object f = site.getTarget().invoke();
+        return switch (types.length) {
+            case 0 -> {
+                Invoker0 invoker = (Invoker0) f;
+                yield (server, command) -> invoker.invoke(server);
+            }
+            case 1 -> {
+                Invoker1 invoker = (Invoker1) f;
+                Class<?> t0 = types[0];
+                yield (server, command) -> invoker.invoke(server, command.toArgument(0, t0));
+            }
+            case 2 -> {
+                Invoker2 invoker = (Invoker2) f;
+                Class<?> t0 = types[0], t1 = types[1];
+                yield (server, command) -> invoker.invoke(server,
+                        command.toArgument(0, t0), command.toArgument(1, t1));
+            }
+            case 3 -> {
+                Invoker3 invoker = (Invoker3) f;
+                Class<?> t0 = types[0], t1 = types[1], t2 = types[2];
+                yield (server, command) -> invoker.invoke(server,
+                        command.toArgument(0, t0), command.toArgument(1, t1), command.toArgument(2, t2));
+            }
+            case 4 -> {
+                Invoker4 invoker = (Invoker4) f;
+                Class<?> t0 = types[0], t1 = types[1], t2 = types[2], t3 = types[3];
+                yield (server, command) -> invoker.invoke(server,
+                        command.toArgument(0, t0), command.toArgument(1, t1), command.toArgument(2, t2),
+                        command.toArgument(3, t3));
+            }
+            case 5 -> {
+                Invoker5 invoker = (Invoker5) f;
+                Class<?> t0 = types[0], t1 = types[1], t2 = types[2], t3 = types[3], t4 = types[4];
+                yield (server, command) -> invoker.invoke(server,
+                        command.toArgument(0, t0), command.toArgument(1, t1), command.toArgument(2, t2),
+                        command.toArgument(3, t3), command.toArgument(4, t4));
+            }
+            case 6 -> {
+                Invoker6 invoker = (Invoker6) f;
+                Class<?> t0 = types[0], t1 = types[1], t2 = types[2], t3 = types[3], t4 = types[4],
+                        t5 = types[5];
+                yield (server, command) -> invoker.invoke(server,
+                        command.toArgument(0, t0), command.toArgument(1, t1), command.toArgument(2, t2),
+                        command.toArgument(3, t3), command.toArgument(4, t4), command.toArgument(5, t5));
+            }
+            default -> throw new AssertionError("unexpected arity " + types.length);
+        };
+    }
+
+    private static CommandInvoker spread(MethodHandle handle, Class<?>[] types) {
+        MethodHandle spreader = handle
+                .asType(MethodType.genericMethodType(types.length)
+                        .insertParameterTypes(0, RedisServer.class))
+                .asSpreader(Object[].class, types.length);
+        return (server, command) -> {
+            Object reply = spreader.invokeExact(server, command.toArguments(types));
+            return (Reply) reply;
+        };
+    }
+}
@@ -2,6 +2,8 @@ package org.jrp.cmd;
 
 import com.google.common.annotations.VisibleForTesting;
 
+import java.util.Arrays;
+
 import static org.jrp.cmd.CommandLifecycle.STATE.NEW;
 
 public class CommandLifecycle {
@@ -19,6 +21,14 @@ public class CommandLifecycle {
         setState(NEW);
     }
 
+    /**
+     * Start over for a reused command.
+     */
+    void reset() {
+        Arrays.fill(timeMicroseconds, 0);
+        setState(NEW);
+    }
+
     public void setState(STATE state) {
         this.state = state;
         timeMicroseconds[state.ordinal()] = System.nanoTime();
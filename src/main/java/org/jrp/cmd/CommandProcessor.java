@@ -1,7 +1,9 @@
 package org.jrp.cmd;
 
 import com.google.common.annotations.VisibleForTesting;
+import io.netty.buffer.ByteBuf;
 import org.jrp.exception.IllegalCommandException;
+import org.jrp.exception.InvalidArgumentException;
 import org.jrp.exception.RedisException;
 import org.jrp.reply.Reply;
 import org.jrp.server.RedisServer;
@@ -18,17 +20,73 @@ public class CommandProcessor {
 
     private final String commandName;
     private final byte[] commandNameBytes;
-    private final Method commandMethod;
+    private final String methodName;
+    // the name Redis knows the command by, even if it's renamed in the proxy
+    private final byte[] methodNameBytes;
     private final RWType.Type rwType;
+    private final boolean local;
     private final Class<?>[] parameterTypes;
+    private final int optionalParameters;
+    private final KeyExtractor keyExtractor;
+    private final CommandInvokers.CommandInvoker invoker;
+
+    // resolved lazily for the processors of the generated command table
+    private volatile Method commandMethod;
 
     public CommandProcessor(String commandName, Method commandMethod) throws IllegalCommandException {
         this.commandName = commandName;
         this.commandNameBytes = BytesUtils.bytes(commandName);
+        this.methodName = commandMethod.getName();
+        this.methodNameBytes = BytesUtils.bytes(methodName);
         this.commandMethod = commandMethod;
         this.rwType = getRWType(commandMethod);
+        this.local = commandMethod.isAnnotationPresent(Local.class);
         this.parameterTypes = commandMethod.getParameterTypes();
+        OptionalParameters optional = commandMethod.getAnnotation(OptionalParameters.class);
+        this.optionalParameters = optional == null ? 0 : optional.value();
+        this.keyExtractor = KeyExtractor.of(commandMethod);
+        checkValid();
+        this.invoker = CommandInvokers.create(commandMethod);
+    }
+
+    /**
+     * Used by {@link GeneratedCommandTable}, where everything is known at compile time.
+     */
+    CommandProcessor(String commandName, String methodName, RWType.Type rwType, boolean local,
+                     Class<?>[] parameterTypes, int optionalParameters, KeyExtractor keyExtractor,
+                     CommandInvokers.CommandInvoker invoker) throws IllegalCommandException {
+        this.commandName = commandName;
+        this.commandNameBytes = BytesUtils.bytes(commandName);
+        this.methodName = methodName;
+        this.methodNameBytes = BytesUtils.bytes(methodName);
+        this.rwType = rwType;
+        this.local = local;
+        this.parameterTypes = parameterTypes;
+        this.optionalParameters = optionalParameters;
+        this.keyExtractor = keyExtractor;
         checkValid();
+        this.invoker = invoker;
+    }
+
+    private CommandProcessor(String commandName, CommandProcessor processor) {
+        this.commandName = commandName;
+        this.commandNameBytes = BytesUtils.bytes(commandName);
+        this.methodName = processor.methodName;
+        this.methodNameBytes = processor.methodNameBytes;
+        this.commandMethod = processor.commandMethod;
+        this.rwType = processor.rwType;
+        this.local = processor.local;
+        this.parameterTypes = processor.parameterTypes;
+        this.optionalParameters = processor.optionalParameters;
+        this.keyExtractor = processor.keyExtractor;
+        this.invoker = processor.invoker;
+    }
+
+    /**
+     * @return a processor executing the same command method under the new name
+     */
+    public CommandProcessor rename(String commandName) {
+        return new CommandProcessor(commandName, this);
     }
 
     @VisibleForTesting
@@ -46,8 +104,11 @@ public class CommandProcessor {
     public Reply execute(Command command, RedisServer redisServer) throws RedisException {
         command.getCommandLifecycle().setState(READY);
         try {
-            Object[] arguments = command.toArguments(parameterTypes);
-            return (Reply) commandMethod.invoke(redisServer, arguments);
+            return invoker.invoke(redisServer, command);
+        } catch (InvalidArgumentException e) {
+            return e.getErrorReply();
+        } catch (RedisException e) {
+            throw e;
         } catch (Throwable e) {
             throw new RedisException(e);
         } finally {
@@ -56,26 +117,54 @@ public class CommandProcessor {
     }
 
     void checkValid() throws IllegalCommandException {
+        if (optionalParameters < 0 || optionalParameters > parameterTypes.length) {
+            throw new IllegalCommandException(String.format(
+                    "Error for method %s : %d optional parameters out of %d!",
+                    methodName, optionalParameters, parameterTypes.length));
+        }
+        for (int i = parameterTypes.length - optionalParameters; i < parameterTypes.length; i++) {
+            if (parameterTypes[i] != byte[].class && parameterTypes[i] != ByteBuf.class) {
+                throw new IllegalCommandException(String.format(
+                        "Error for method %s : only byte[] or ByteBuf parameters can be optional!", methodName));
+            }
+        }
+        if (keyExtractor.getStep() <= 0 && keyExtractor.getFirstKey() > 0 &&
+                keyExtractor.getLastKey() != keyExtractor.getFirstKey()) {
+            throw new IllegalCommandException(String.format(
+                    "Error for method %s : the key step must be positive for multiple keys!", methodName));
+        }
         for (int i = 0; i < parameterTypes.length; i++) {
             Class<?> type = parameterTypes[i];
-            if (type == byte[].class) {
+            if (type == byte[].class || type == ByteBuf.class) {
+                continue;
+            }
+            if (type == long.class || type == int.class || type == double.class || type == RedisKeyword.class) {
+                // parsed from the token when dispatching
                 continue;
             }
-            if (type == byte[][].class) {
+            if (type == byte[][].class || type == ByteBuf[].class) {
                 if (i != parameterTypes.length - 1) {
                     throw new IllegalCommandException(String.format(
-                            "Error for method %s : byte[][] parameter type can only be put at last!",
-                            commandMethod.getName()));
+                            "Error for method %s : %s parameter type can only be put at last!",
+                            methodName, type.getSimpleName()));
                 } else {
                     continue;
                 }
             }
             throw new IllegalCommandException(String.format(
-                    "Error for method %s : only byte[] or byte[][] parameter types are allowed!",
-                    commandMethod.getName()));
+                    "Error for method %s : only byte[], byte[][], ByteBuf, ByteBuf[], long, int, double " +
+                            "or RedisKeyword parameter types are allowed!",
+                    methodName));
         }
     }
 
+    /**
+     * @return whether the command is annotated by {@link Local}
+     */
+    public boolean isLocal() {
+        return local;
+    }
+
     public String getCommandName() {
         return commandName;
     }
@@ -84,12 +173,66 @@ public class CommandProcessor {
         return commandNameBytes;
     }
 
+    public String getMethodName() {
+        return methodName;
+    }
+
+    public byte[] getMethodNameBytes() {
+        return methodNameBytes;
+    }
+
     public RWType.Type getRWType() {
         return rwType;
     }
 
+    /**
+     * @param i the index of the parameter, i.e. the index of the token minus 1
+     * @return true if the argument of the parameter is taken as a {@link ByteBuf}, so it needs not be a byte[]
+     */
+    public boolean isByteBufParameter(int i) {
+        for (int k = 0; k < parameterTypes.length; k++) {
+            Class<?> type = parameterTypes[k];
+            if (type.isArray() && type != byte[].class) {
+                // takes all the remaining tokens
+                return type == ByteBuf[].class && i >= k;
+            }
+            if (k == i) {
+                return type == ByteBuf.class;
+            }
+        }
+        return false;
+    }
+
+    public KeyExtractor getKeyExtractor() {
+        return keyExtractor;
+    }
+
+    /**
+     * @return the arity as in Redis' COMMAND INFO, counting the command name: negative (as a minimum) if the last
+     * parameter takes all the remaining tokens, or if the last parameters are {@link OptionalParameters}
+     */
+    public int getArity() {
+        int length = parameterTypes.length;
+        if (length > 0 && parameterTypes[length - 1].isArray() && parameterTypes[length - 1] != byte[].class) {
+            return -length;
+        }
+        if (optionalParameters > 0) {
+            return -(length - optionalParameters + 1);
+        }
+        return length + 1;
+    }
+
     public Method getCommandMethod() {
-        return commandMethod;
+        Method method = commandMethod;
+        if (method == null) {
+            try {
+                method = RedisServer.class.getMethod(methodName, parameterTypes);
+            } catch (NoSuchMethodException e) {
+                throw new IllegalStateException(e);
+            }
+            commandMethod = method;
+        }
+        return method;
     }
 
     @Override
@@ -97,7 +240,9 @@ public class CommandProcessor {
         return "CommandProcessor{" +
                 "commandName='" + commandName + '\'' +
                 ", rwType=" + rwType +
+                ", local=" + local +
                 ", parameterTypes=" + Arrays.toString(parameterTypes) +
+                ", keyExtractor=" + keyExtractor +
                 '}';
     }
 }
@@ -1,126 +1,106 @@
 package org.jrp.cmd;
 
-import com.google.common.annotations.VisibleForTesting;
-import org.apache.commons.lang3.ArrayUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jrp.exception.IllegalCommandException;
 import org.jrp.server.RedisServer;
+import org.jrp.utils.PerfectHashTable;
 
 import java.lang.reflect.Method;
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.jrp.utils.BytesUtils.*;
 
+/**
+ * The command processors, looked up case-insensitively by command name in a {@link PerfectHashTable},
+ * which is rebuilt (rarely) when processors are added or removed.
+ */
 public class CommandProcessors {
 
     private static final Logger LOGGER = LogManager.getLogger(CommandProcessors.class);
 
-    private static final CommandProcessor[][] COMMAND_PROCESSORS = new CommandProcessor[26][];
+    // rebuilt at runtime, searching a new seed and size, whenever a command is added or removed
+    private static volatile PerfectHashTable<CommandProcessor> COMMAND_PROCESSORS;
 
     static {
         try {
-            initWith(RedisServer.class.getMethods());
+            initWithCommandTable();
         } catch (IllegalCommandException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Initialize with the commands of {@link RedisServer}, from the command table generated at compile time
+     * (see {@link CommandTable}), without any reflection.
+     */
+    public static void initWithCommandTable() throws IllegalCommandException {
+        init(GeneratedCommandTable.commandProcessors());
+    }
+
     /**
      * side effects: commandMethods will be set accessible = true
      */
     public static void initWith(Method[] commandMethods) throws IllegalCommandException {
-        Arrays.fill(COMMAND_PROCESSORS, null);
-
-        Map<Byte, List<CommandProcessor>> commandIndex = new HashMap<>();
+        List<CommandProcessor> processors = new ArrayList<>(commandMethods.length);
         for (Method method : commandMethods) {
             method.setAccessible(true);
 
             byte[] name = bytes(method.getName());
             toAsciiUppercase(name);
 
-            CommandProcessor processor = new CommandProcessor(string(name), method);
-            commandIndex.computeIfAbsent(name[0], key -> new ArrayList<>()).add(processor);
-        }
-        for (Map.Entry<Byte, List<CommandProcessor>> entry : commandIndex.entrySet()) {
-            COMMAND_PROCESSORS[entry.getKey() - 'A'] = entry.getValue().toArray(CommandProcessor[]::new);
+            processors.add(new CommandProcessor(string(name), method));
         }
+        init(processors);
+    }
+
+    private static synchronized void init(List<CommandProcessor> processors) {
+        COMMAND_PROCESSORS = new PerfectHashTable<>(processors, CommandProcessor::getCommandNameBytes);
         if (LOGGER.isDebugEnabled()) {
-            LOGGER.debug("Initialized command processors: {}",
-                    Arrays.stream(COMMAND_PROCESSORS)
-                            .filter(Objects::nonNull)
-                            .flatMap(Arrays::stream)
-                            .filter(Objects::nonNull)
-                            .map(CommandProcessor::toString)
-                            .collect(Collectors.joining(", ")));
+            LOGGER.debug("Initialized command processors: {}", COMMAND_PROCESSORS.values());
         }
     }
 
     /**
-     * side effects: 'name' will be uppercased.
+     * Find the processor of the command 'name' case-insensitively, 'name' is left untouched.
      */
     public static CommandProcessor get(byte[] name) {
-        if (name == null || name.length < 1) {
-            return null;
-        }
-        return getCommandProcessor(name);
-    }
-
-    private static CommandProcessor getCommandProcessor(byte[] name) {
-        toAsciiUppercase(name);
-
-        int i = name[0] - 'A';
-        if (i >= 0 && i < 26) {
-            CommandProcessor[] commandIndex = COMMAND_PROCESSORS[i];
-            if (commandIndex != null) {
-                for (CommandProcessor command : commandIndex) {
-                    if (Arrays.equals(command.getCommandNameBytes(), name)) {
-                        return command;
-                    }
-                }
-            }
-        }
-        return null;
+        return COMMAND_PROCESSORS.get(name);
     }
 
-    public static void add(CommandProcessor processor) {
-        byte[] commandNameBytes = processor.getCommandNameBytes();
-        if (getCommandProcessor(commandNameBytes) != null) {
+    public static synchronized void add(CommandProcessor processor) {
+        PerfectHashTable<CommandProcessor> processors = COMMAND_PROCESSORS;
+        if (processors.get(processor.getCommandNameBytes()) != null) {
             throw new IllegalStateException(
                     "unable to add exist commandProcessor " + processor.getCommandName());
         }
-        CommandProcessor[] processors = COMMAND_PROCESSORS[commandNameBytes[0] - 'A'];
-        COMMAND_PROCESSORS[commandNameBytes[0] - 'A'] = processors == null ?
-                new CommandProcessor[]{processor} : ArrayUtils.add(processors, processor);
+        List<CommandProcessor> newProcessors = new ArrayList<>(processors.values());
+        newProcessors.add(processor);
+        COMMAND_PROCESSORS = new PerfectHashTable<>(newProcessors, CommandProcessor::getCommandNameBytes);
         LOGGER.warn("add new commandProcessor " + processor);
     }
 
-    public static CommandProcessor remove(byte[] name) {
-        if (getCommandProcessor(name) == null) {
-            throw new IllegalStateException("unable to remove not exist commandProcessor " + string(name));
-        }
-        CommandProcessor processor = null;
-        CommandProcessor[] processors = COMMAND_PROCESSORS[name[0] - 'A'];
-        if (processors != null) {
-            for (int i = 0; i < processors.length; i++) {
-                if (Arrays.equals(processors[i].getCommandNameBytes(), name)) {
-                    processor = processors[i];
-                    COMMAND_PROCESSORS[name[0] - 'A'] = ArrayUtils.remove(processors, i);
-                    LOGGER.warn("remove commandProcessor " + processor);
-                    break;
-                }
-            }
+    public static synchronized CommandProcessor remove(byte[] name) {
+        PerfectHashTable<CommandProcessor> processors = COMMAND_PROCESSORS;
+        CommandProcessor processor = processors.get(name);
+        if (processor == null) {
+            byte[] upper = name.clone();
+            toAsciiUppercase(upper);
+            throw new IllegalStateException("unable to remove not exist commandProcessor " + string(upper));
         }
+        List<CommandProcessor> newProcessors = new ArrayList<>(processors.values());
+        newProcessors.remove(processor);
+        COMMAND_PROCESSORS = new PerfectHashTable<>(newProcessors, CommandProcessor::getCommandNameBytes);
+        LOGGER.warn("remove commandProcessor " + processor);
         return processor;
     }
 
     public static int count() {
-        return COMMAND_PROCESSORS.length;
+        return COMMAND_PROCESSORS.size();
     }
 
-    @VisibleForTesting
-    static CommandProcessor[][] getCommandProcessors() {
-        return COMMAND_PROCESSORS;
+    public static List<CommandProcessor> getCommandProcessors() {
+        return COMMAND_PROCESSORS.values();
     }
 }
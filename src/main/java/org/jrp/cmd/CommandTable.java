@@ -0,0 +1,16 @@
+package org.jrp.cmd;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the command interface whose methods are compiled into a static command table and dispatcher
+ * by {@link org.jrp.cmd.processor.CommandTableProcessor}, so no reflection is needed to create the
+ * command processors at startup.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target({ElementType.TYPE})
+public @interface CommandTable {
+}
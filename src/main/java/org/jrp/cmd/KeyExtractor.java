@@ -0,0 +1,130 @@
+package org.jrp.cmd;
+
+import org.jrp.utils.BytesUtils;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Extracts the keys of a command by the {@link KeySpec} of its method, without converting the other arguments.
+ * The key positions are resolved against the number of tokens, so the first key is found in constant time.
+ */
+public final class KeyExtractor {
+
+    public static final KeyExtractor NO_KEYS = new KeyExtractor(0, 0, 0, 0);
+
+    private final int firstKey;
+    private final int lastKey;
+    private final int step;
+    private final int numKeys;
+
+    /**
+     * @see KeySpec
+     */
+    public KeyExtractor(int firstKey, int lastKey, int step, int numKeys) {
+        this.firstKey = firstKey;
+        this.lastKey = lastKey;
+        this.step = step;
+        this.numKeys = numKeys;
+    }
+
+    static KeyExtractor of(Method method) {
+        KeySpec keySpec = method.getAnnotation(KeySpec.class);
+        if (keySpec == null) {
+            return NO_KEYS;
+        }
+        return new KeyExtractor(keySpec.firstKey(), keySpec.lastKey(), keySpec.step(), keySpec.numKeys());
+    }
+
+    public boolean hasKeys() {
+        return firstKey > 0 || numKeys > 0;
+    }
+
+    /**
+     * @return whether the command has exactly one key, at a fixed position
+     */
+    public boolean isSingleKey() {
+        return firstKey > 0 && lastKey == firstKey && numKeys == 0;
+    }
+
+    /**
+     * @return the first key of the command, or null if there is none
+     */
+    public byte[] firstKey(Command command) {
+        int tokenCount = command.getTokenCount();
+        if (firstKey > 0 && firstKey <= lastIndex(tokenCount)) {
+            return command.getToken(firstKey);
+        }
+        if (numKeys > 0 && numKeyCount(command, tokenCount) > 0) {
+            return command.getToken(numKeys + 1);
+        }
+        return null;
+    }
+
+    public List<byte[]> keys(Command command) {
+        List<byte[]> keys = new ArrayList<>();
+        forEachKey(command, keys::add);
+        return keys;
+    }
+
+    public void forEachKey(Command command, Consumer<byte[]> consumer) {
+        int tokenCount = command.getTokenCount();
+        if (firstKey > 0) {
+            for (int i = firstKey, last = lastIndex(tokenCount); i <= last; i += step) {
+                consumer.accept(command.getToken(i));
+            }
+        }
+        if (numKeys > 0) {
+            for (int i = numKeys + 1, last = numKeys + numKeyCount(command, tokenCount); i <= last; i++) {
+                consumer.accept(command.getToken(i));
+            }
+        }
+    }
+
+    private int lastIndex(int tokenCount) {
+        return Math.min(lastKey < 0 ? tokenCount + lastKey : lastKey, tokenCount - 1);
+    }
+
+    /**
+     * @return the number of keys after the 'numkeys' token, capped by the tokens present, 0 if it's not a number
+     */
+    private int numKeyCount(Command command, int tokenCount) {
+        if (numKeys >= tokenCount) {
+            return 0;
+        }
+        try {
+            long count = BytesUtils.toLong(command.getToken(numKeys));
+            return (int) Math.max(0, Math.min(count, tokenCount - 1 - numKeys));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    public int getFirstKey() {
+        return firstKey;
+    }
+
+    public int getLastKey() {
+        return lastKey;
+    }
+
+    public int getStep() {
+        return step;
+    }
+
+    public int getNumKeys() {
+        return numKeys;
+    }
+
+    @Override
+    public String toString() {
+        return "KeyExtractor{" +
+                "firstKey=" + firstKey +
+                ", lastKey=" + lastKey +
+                ", step=" + step +
+                ", numKeys=" + numKeys +
+                '}';
+    }
+}
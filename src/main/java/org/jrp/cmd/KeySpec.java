@@ -0,0 +1,29 @@
+package org.jrp.cmd;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Where the keys of a command are, in the same terms as Redis' COMMAND INFO: positions are indices of the command
+ * tokens (the command name is at 0), and a negative last key counts from the end (-1 is the last token).
+ * <p>
+ * A command method without this annotation has no keys.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD})
+public @interface KeySpec {
+
+    int firstKey() default 1;
+
+    int lastKey() default 1;
+
+    int step() default 1;
+
+    /**
+     * The index of the token holding the number of keys that follow it, like ZUNIONSTORE's 'numkeys';
+     * 0 if there is no such token.
+     */
+    int numKeys() default 0;
+}
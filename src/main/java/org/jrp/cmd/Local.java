@@ -0,0 +1,15 @@
+package org.jrp.cmd;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The command is answered by the proxy itself without blocking (or hands its blocking part off, like an
+ * {@link org.jrp.reply.AsyncReply}), so it can be executed in the IO thread that decoded it.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD})
+public @interface Local {
+}
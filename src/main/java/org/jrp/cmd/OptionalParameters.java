@@ -0,0 +1,17 @@
+package org.jrp.cmd;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The last {@link #value()} parameters of the command method may be left out by the client (they are null then),
+ * so the arity of the command is a minimum, like "LPOP key [count]".
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD})
+public @interface OptionalParameters {
+
+    int value() default 1;
+}
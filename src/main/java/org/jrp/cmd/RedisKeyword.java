@@ -1,11 +1,10 @@
 package org.jrp.cmd;
 
 import org.jrp.utils.BytesUtils;
+import org.jrp.utils.PerfectHashTable;
 
 import java.util.Arrays;
 
-// Caution: Adding a new Redis keyword must preserve the lexical ordering,
-// because we use binary search to find it, see the 'convert' method.
 public enum RedisKeyword {
 
     AFTER,
@@ -13,7 +12,9 @@ public enum RedisKeyword {
     ALPHA,
     ASC,
     ASYNC,
+    AUTH,
     BEFORE,
+    BLOCK,
     BY,
     BYLEX,
     BYSCORE,
@@ -84,29 +85,21 @@ public enum RedisKeyword {
         name = BytesUtils.bytes(this.name());
     }
 
+    // the seed and size of the table are searched in the static initializer, when this class is loaded
+    private static final PerfectHashTable<RedisKeyword> KEYWORDS =
+            new PerfectHashTable<>(Arrays.asList(values()), keyword -> keyword.name);
+
     /**
-     * side effect: 'name' will be upper-cased
+     * Find the keyword 'name' case-insensitively, 'name' is left untouched.
      */
     public static RedisKeyword convert(byte[] name) {
-        if (name == null) {
-            return null;
-        }
-        BytesUtils.toAsciiUppercase(name);
+        return KEYWORDS.get(name);
+    }
 
-        RedisKeyword[] keywords = RedisKeyword.values();
-        int l = 0, h = keywords.length - 1;
-        while (l <= h) {
-            int m = (l + h) >>> 1;
-            int c = Arrays.compare(keywords[m].name, name);
-            if (c == 0) {
-                return keywords[m];
-            }
-            if (c < 0) {
-                l = m + 1;
-            } else {
-                h = m - 1;
-            }
-        }
-        return null;
+    /**
+     * Find the keyword in range [offset, offset + length) of 'bytes' case-insensitively.
+     */
+    public static RedisKeyword convert(byte[] bytes, int offset, int length) {
+        return KEYWORDS.get(bytes, offset, length);
     }
 }
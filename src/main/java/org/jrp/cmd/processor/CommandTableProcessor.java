@@ -0,0 +1,220 @@
+package org.jrp.cmd.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates {@code org.jrp.cmd.GeneratedCommandTable} from the interface annotated with
+ * {@link org.jrp.cmd.CommandTable}: one command processor per public method (including inherited ones),
+ * with its read/write type, whether it's local, parameter types, key spec, and a dispatcher that calls the method directly.
+ */
+@SupportedAnnotationTypes(CommandTableProcessor.COMMAND_TABLE)
+public class CommandTableProcessor extends AbstractProcessor {
+
+    static final String COMMAND_TABLE = "org.jrp.cmd.CommandTable";
+    static final String RW_TYPE = "org.jrp.cmd.RWType";
+    static final String KEY_SPEC = "org.jrp.cmd.KeySpec";
+    static final String LOCAL = "org.jrp.cmd.Local";
+    static final String OPTIONAL_PARAMETERS = "org.jrp.cmd.OptionalParameters";
+    static final String REPLY = "org.jrp.reply.Reply";
+    static final String REDIS_KEYWORD = "org.jrp.cmd.RedisKeyword";
+
+    static final String GENERATED_PACKAGE = "org.jrp.cmd";
+    static final String GENERATED_CLASS = "GeneratedCommandTable";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            Set<? extends Element> elements = roundEnv.getElementsAnnotatedWith(annotation);
+            if (elements.size() != 1) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "only one interface can be annotated with @CommandTable, but got " + elements);
+                return true;
+            }
+            Element element = elements.iterator().next();
+            if (element.getKind() != ElementKind.INTERFACE) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "@CommandTable can only be put on an interface", element);
+                return true;
+            }
+            try {
+                generate((TypeElement) element);
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "unable to generate " + GENERATED_CLASS + ": " + e, element);
+            }
+        }
+        return true;
+    }
+
+    private void generate(TypeElement server) throws IOException {
+        List<ExecutableElement> methods = ElementFilter.methodsIn(
+                        processingEnv.getElementUtils().getAllMembers(server)).stream()
+                .filter(method -> method.getEnclosingElement().getKind() == ElementKind.INTERFACE)
+                .filter(method -> method.getModifiers().contains(Modifier.PUBLIC))
+                .filter(method -> !method.getModifiers().contains(Modifier.STATIC))
+                .sorted(Comparator.comparing((ExecutableElement method) -> method.getSimpleName().toString())
+                        .thenComparing(method -> method.getParameters().size()))
+                .toList();
+        TypeMirror replyType = processingEnv.getElementUtils().getTypeElement(REPLY).asType();
+        String serverType = server.getQualifiedName().toString();
+
+        try (PrintWriter out = new PrintWriter(processingEnv.getFiler()
+                .createSourceFile(GENERATED_PACKAGE + "." + GENERATED_CLASS, server).openWriter())) {
+            out.println("package " + GENERATED_PACKAGE + ";");
+            out.println();
+            out.println("import org.jrp.exception.IllegalCommandException;");
+            out.println("import org.jrp.reply.Reply;");
+            out.println();
+            out.println("import javax.annotation.processing.Generated;");
+            out.println("import java.util.ArrayList;");
+            out.println("import java.util.List;");
+            out.println();
+            out.println("@Generated(\"" + getClass().getName() + "\")");
+            out.println("final class " + GENERATED_CLASS + " {");
+            out.println();
+            out.println("    private " + GENERATED_CLASS + "() {");
+            out.println("    }");
+            out.println();
+            out.println("    static List<CommandProcessor> commandProcessors() throws IllegalCommandException {");
+            out.println("        List<CommandProcessor> processors = new ArrayList<>(" + methods.size() + ");");
+            for (int id = 0; id < methods.size(); id++) {
+                ExecutableElement method = methods.get(id);
+                String name = method.getSimpleName().toString();
+                StringBuilder types = new StringBuilder();
+                for (VariableElement parameter : method.getParameters()) {
+                    types.append(types.length() == 0 ? "" : ", ").append(erasure(parameter.asType())).append(".class");
+                }
+                out.println("        processors.add(new CommandProcessor(\"" + name.toUpperCase(Locale.ROOT) +
+                        "\", \"" + name + "\", RWType.Type." + rwType(method) + ", " + isLocal(method) + ",");
+                out.println("                new Class<?>[]{" + types + "}, " + optionalParameters(method) + ", " +
+                        keyExtractor(method) + ", new Dispatcher(" + id + ")));");
+            }
+            out.println("        return processors;");
+            out.println("    }");
+            out.println();
+            out.println("    private static final class Dispatcher implements CommandInvokers.CommandInvoker {");
+            out.println();
+            out.println("        private final int id;");
+            out.println();
+            out.println("        Dispatcher(int id) {");
+            out.println("            this.id = id;");
+            out.println("        }");
+            out.println();
+            out.println("        @Override");
+            out.println("        public Reply invoke(" + serverType + " server, Command command) {");
+            out.println("            return switch (id) {");
+            for (int id = 0; id < methods.size(); id++) {
+                ExecutableElement method = methods.get(id);
+                if (method.getReturnType().getKind() == TypeKind.VOID) {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                            "command method must return a reply", method);
+                    continue;
+                }
+                boolean returnsReply = processingEnv.getTypeUtils().isAssignable(
+                        processingEnv.getTypeUtils().erasure(method.getReturnType()), replyType);
+                StringBuilder arguments = new StringBuilder();
+                List<? extends VariableElement> parameters = method.getParameters();
+                for (int i = 0; i < parameters.size(); i++) {
+                    arguments.append(i == 0 ? "" : ", ").append(argument(erasure(parameters.get(i).asType()), i));
+                }
+                out.println("                case " + id + " -> " + (returnsReply ? "" : "(Reply) (Object) ") +
+                        "server." + method.getSimpleName() + "(" + arguments + ");");
+            }
+            out.println("                default -> throw new AssertionError(\"unknown command id \" + id);");
+            out.println("            };");
+            out.println("        }");
+            out.println("    }");
+            out.println("}");
+        }
+    }
+
+    /**
+     * @return the expression of the i-th argument, the parsed types are parsed without boxing
+     */
+    private static String argument(String type, int i) {
+        return switch (type) {
+            case "long" -> "command.toLong(" + i + ")";
+            case "int" -> "command.toInt(" + i + ")";
+            case "double" -> "command.toDouble(" + i + ")";
+            case REDIS_KEYWORD -> "command.toKeyword(" + i + ")";
+            default -> "(" + type + ") command.toArgument(" + i + ", " + type + ".class)";
+        };
+    }
+
+    private String erasure(TypeMirror type) {
+        return processingEnv.getTypeUtils().erasure(type).toString();
+    }
+
+    private static String rwType(ExecutableElement method) {
+        for (AnnotationMirror annotation : method.getAnnotationMirrors()) {
+            if (!((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName()
+                    .contentEquals(RW_TYPE)) {
+                continue;
+            }
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry :
+                    annotation.getElementValues().entrySet()) {
+                if (entry.getKey().getSimpleName().contentEquals("type")) {
+                    return ((VariableElement) entry.getValue().getValue()).getSimpleName().toString();
+                }
+            }
+        }
+        return "OTHER";
+    }
+
+    private static boolean isLocal(ExecutableElement method) {
+        return method.getAnnotationMirrors().stream().anyMatch(annotation ->
+                ((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().contentEquals(LOCAL));
+    }
+
+    private String optionalParameters(ExecutableElement method) {
+        for (AnnotationMirror annotation : method.getAnnotationMirrors()) {
+            if (((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName()
+                    .contentEquals(OPTIONAL_PARAMETERS)) {
+                Map<String, Object> values = new HashMap<>();
+                processingEnv.getElementUtils().getElementValuesWithDefaults(annotation).forEach(
+                        (element, value) -> values.put(element.getSimpleName().toString(), value.getValue()));
+                return String.valueOf(values.get("value"));
+            }
+        }
+        return "0";
+    }
+
+    /**
+     * @return the expression of the key extractor built from the method's key spec (including the defaults)
+     */
+    private String keyExtractor(ExecutableElement method) {
+        for (AnnotationMirror annotation : method.getAnnotationMirrors()) {
+            if (!((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName()
+                    .contentEquals(KEY_SPEC)) {
+                continue;
+            }
+            Map<String, Object> values = new HashMap<>();
+            processingEnv.getElementUtils().getElementValuesWithDefaults(annotation).forEach(
+                    (element, value) -> values.put(element.getSimpleName().toString(), value.getValue()));
+            return "new KeyExtractor(" + values.get("firstKey") + ", " + values.get("lastKey") + ", " +
+                    values.get("step") + ", " + values.get("numKeys") + ")";
+        }
+        return "KeyExtractor.NO_KEYS";
+    }
+}
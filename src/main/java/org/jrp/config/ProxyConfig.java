@@ -18,6 +18,8 @@ public class ProxyConfig {
 
     public static final int DEFAULT_MAX_QUEUED_COMMANDS = 65536;
 
+    public static final int DEFAULT_MAX_BULK_STRING_LENGTH = 1048576;
+
     public static final boolean PREFER_DIRECT_BYTEBUF =
             BooleanUtils.toBoolean(System.getProperty("redisproxy.internal.bytebuf.preferDirect"));
 
@@ -32,10 +34,14 @@ public class ProxyConfig {
         return yaml.load(inputStream);
     }
 
-    // huge command/reply threshold, unit:byte
+    // huge command/reply threshold, unit:byte; with "zeroCopyTokens", a "ByteBuf" argument this long is accumulated
+    // off heap as it arrives rather than awaited whole in the inbound buffer
     private int hugeCommandThreshold = 10240;
     private int hugeReplyThreshold = 20480;
 
+    // max length of a single command argument, unit:byte
+    private int maxBulkStringLength = DEFAULT_MAX_BULK_STRING_LENGTH;
+
     // the slowlog threshold, unit:MILLISECONDS
     private int slowlogLogSlowerThan = 10;
 
@@ -61,11 +67,59 @@ public class ProxyConfig {
 
     private int maxQueuedCommands = DEFAULT_MAX_QUEUED_COMMANDS;
 
+    // keep large command arguments as retained slices of the inbound buffer instead of copying them
+    private boolean zeroCopyTokens = false;
+
+    // consolidate flushes of the synchronous path after this many flushes, 0 to disable
+    private int explicitFlushAfterFlushes = 0;
+
+    private boolean consolidateWhenNoReadInProgress = false;
+
+    // take the decoded commands from a pool, and give them back after their replies are written
+    private boolean pooledCommands = false;
+
+    // the number of Lettuce connections to each DB of Redis, among which the clients are spread
+    private int backendConnections = 1;
+
+    // spread the commands among the connections to each DB by their first keys rather than by their clients, so the
+    // commands of a client on different connections (like a write and a multi-key read after it) may be reordered
+    private boolean backendRoutingByKey = false;
+
+    // the number of I/O threads shared by the Lettuce connections to all DBs, 0 for Lettuce's default
+    private int backendIoThreads = 0;
+
+    // the number of threads executing the commands of a channel in parallel, striped by key, 0 to disable;
+    // every command is then handed off once more, which only pays off for heavily pipelined clients on spare cores;
+    // ignored if "passThroughConnections" is set
+    private int keyStripedThreads = 0;
+
+    // execute the proxy-local commands (like "PING") in the IO threads rather than the handler threads
+    private boolean localCommandsInIoThreads = true;
+
+    // run the handlers in the IO threads, each having its own connections to Redis made in it, so a command is
+    // decoded, sent to Redis, replied and encoded all in one thread ("handlerThreads" is ignored)
+    private boolean threadPerCore = false;
+
+    // the number of DBs of Redis, "SELECT" out of them is refused
+    private int databases = 16;
+
+    // forward the keyed commands of RESP2 clients on DB 0 to Redis over this many raw connections as they are,
+    // and their replies back as they are, instead of through Lettuce; 0 to disable
+    private int passThroughConnections = 0;
+
+    // forward the commands the proxy doesn't know or doesn't implement to Redis as they are, instead of failing them
+    private boolean forwardUnimplementedCommands = false;
+
+    // the RW types ("READ", "WRITE" or "OTHER") of the forwarded commands the proxy doesn't know, like
+    // {scan: READ, unlink: WRITE}; those not listed are taken as "WRITE", so they are refused when read only
+    private Map<String, String> forwardedCommandTypes;
+
     @Override
     public String toString() {
         return "ProxyConfig{" +
                 "hugeCommandThreshold=" + hugeCommandThreshold +
                 ", hugeReplyThreshold=" + hugeReplyThreshold +
+                ", maxBulkStringLength=" + maxBulkStringLength +
                 ", slowlogLogSlowerThan=" + slowlogLogSlowerThan +
                 ", renameCommands=" + renameCommands +
                 ", port=" + port +
@@ -78,6 +132,20 @@ public class ProxyConfig {
                 ", readOnly=" + readOnly +
                 ", useIdleStateHandler=" + useIdleStateHandler +
                 ", maxQueuedCommands=" + maxQueuedCommands +
+                ", zeroCopyTokens=" + zeroCopyTokens +
+                ", explicitFlushAfterFlushes=" + explicitFlushAfterFlushes +
+                ", consolidateWhenNoReadInProgress=" + consolidateWhenNoReadInProgress +
+                ", pooledCommands=" + pooledCommands +
+                ", backendConnections=" + backendConnections +
+                ", backendRoutingByKey=" + backendRoutingByKey +
+                ", backendIoThreads=" + backendIoThreads +
+                ", keyStripedThreads=" + keyStripedThreads +
+                ", localCommandsInIoThreads=" + localCommandsInIoThreads +
+                ", threadPerCore=" + threadPerCore +
+                ", databases=" + databases +
+                ", passThroughConnections=" + passThroughConnections +
+                ", forwardUnimplementedCommands=" + forwardUnimplementedCommands +
+                ", forwardedCommandTypes=" + forwardedCommandTypes +
                 '}';
     }
 
@@ -177,6 +245,14 @@ public class ProxyConfig {
         this.hugeReplyThreshold = hugeReplyThreshold;
     }
 
+    public int getMaxBulkStringLength() {
+        return maxBulkStringLength;
+    }
+
+    public void setMaxBulkStringLength(int maxBulkStringLength) {
+        this.maxBulkStringLength = maxBulkStringLength;
+    }
+
     public boolean isUseIdleStateHandler() {
         return useIdleStateHandler;
     }
@@ -192,4 +268,116 @@ public class ProxyConfig {
     public void setMaxQueuedCommands(int maxQueuedCommands) {
         this.maxQueuedCommands = maxQueuedCommands;
     }
+
+    public boolean isZeroCopyTokens() {
+        return zeroCopyTokens;
+    }
+
+    public void setZeroCopyTokens(boolean zeroCopyTokens) {
+        this.zeroCopyTokens = zeroCopyTokens;
+    }
+
+    public int getExplicitFlushAfterFlushes() {
+        return explicitFlushAfterFlushes;
+    }
+
+    public void setExplicitFlushAfterFlushes(int explicitFlushAfterFlushes) {
+        this.explicitFlushAfterFlushes = explicitFlushAfterFlushes;
+    }
+
+    public boolean isConsolidateWhenNoReadInProgress() {
+        return consolidateWhenNoReadInProgress;
+    }
+
+    public void setConsolidateWhenNoReadInProgress(boolean consolidateWhenNoReadInProgress) {
+        this.consolidateWhenNoReadInProgress = consolidateWhenNoReadInProgress;
+    }
+
+    public boolean isPooledCommands() {
+        return pooledCommands;
+    }
+
+    public void setPooledCommands(boolean pooledCommands) {
+        this.pooledCommands = pooledCommands;
+    }
+
+    public int getBackendConnections() {
+        return backendConnections;
+    }
+
+    public void setBackendConnections(int backendConnections) {
+        this.backendConnections = backendConnections;
+    }
+
+    public boolean isBackendRoutingByKey() {
+        return backendRoutingByKey;
+    }
+
+    public void setBackendRoutingByKey(boolean backendRoutingByKey) {
+        this.backendRoutingByKey = backendRoutingByKey;
+    }
+
+    public int getBackendIoThreads() {
+        return backendIoThreads;
+    }
+
+    public void setBackendIoThreads(int backendIoThreads) {
+        this.backendIoThreads = backendIoThreads;
+    }
+
+    public int getKeyStripedThreads() {
+        return keyStripedThreads;
+    }
+
+    public void setKeyStripedThreads(int keyStripedThreads) {
+        this.keyStripedThreads = keyStripedThreads;
+    }
+
+    public boolean isLocalCommandsInIoThreads() {
+        return localCommandsInIoThreads;
+    }
+
+    public void setLocalCommandsInIoThreads(boolean localCommandsInIoThreads) {
+        this.localCommandsInIoThreads = localCommandsInIoThreads;
+    }
+
+    public boolean isThreadPerCore() {
+        return threadPerCore;
+    }
+
+    public void setThreadPerCore(boolean threadPerCore) {
+        this.threadPerCore = threadPerCore;
+    }
+
+    public int getDatabases() {
+        return databases;
+    }
+
+    public void setDatabases(int databases) {
+        this.databases = databases;
+    }
+
+    public int getPassThroughConnections() {
+        return passThroughConnections;
+    }
+
+    public void setPassThroughConnections(int passThroughConnections) {
+        this.passThroughConnections = passThroughConnections;
+    }
+
+    public boolean isForwardUnimplementedCommands() {
+        return forwardUnimplementedCommands;
+    }
+
+    public void setForwardUnimplementedCommands(boolean forwardUnimplementedCommands) {
+        this.forwardUnimplementedCommands = forwardUnimplementedCommands;
+    }
+
+    public Map<String, String> getForwardedCommandTypes() {
+        return forwardedCommandTypes == null ? null : Collections.unmodifiableMap(forwardedCommandTypes);
+    }
+
+    public void setForwardedCommandTypes(Map<String, String> forwardedCommandTypes) {
+        this.forwardedCommandTypes = forwardedCommandTypes;
+    }
 }
@@ -0,0 +1,28 @@
+package org.jrp.exception;
+
+import org.jrp.reply.ErrorReply;
+
+/**
+ * Thrown when a command argument can't be converted to the type of its parameter, the client is replied
+ * with the error reply. It has no stack trace, as it's only a way to stop the dispatch.
+ */
+public class InvalidArgumentException extends RedisException {
+
+    public static final InvalidArgumentException NOT_INTEGER =
+            new InvalidArgumentException(ErrorReply.NOT_INTEGER_ERROR);
+    public static final InvalidArgumentException NOT_FLOAT =
+            new InvalidArgumentException(ErrorReply.NOT_FLOAT_ERROR);
+    public static final InvalidArgumentException SYNTAX_ERROR =
+            new InvalidArgumentException(ErrorReply.ERR_SYNTAX_ERROR);
+
+    private final ErrorReply errorReply;
+
+    public InvalidArgumentException(ErrorReply errorReply) {
+        super(errorReply.error(), false);
+        this.errorReply = errorReply;
+    }
+
+    public ErrorReply getErrorReply() {
+        return errorReply;
+    }
+}
@@ -12,4 +12,8 @@ public class RedisException extends RuntimeException {
     public RedisException(String message) {
         super(message);
     }
+
+    protected RedisException(String message, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+    }
 }
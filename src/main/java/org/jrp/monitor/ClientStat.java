@@ -5,6 +5,7 @@ import io.netty.channel.Channel;
 import io.netty.channel.ChannelId;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.jrp.reply.RespVersion;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -48,6 +49,8 @@ public class ClientStat {
     private final long since;
     private long lastActive;
     private int proxyTimeout;
+    // negotiated by "HELLO", read by the reply encoder in the event loop
+    private volatile RespVersion protocol = RespVersion.RESP2;
 
     public static void active(Channel channel) {
         ClientStat stat = new ClientStat(channel);
@@ -115,7 +118,8 @@ public class ClientStat {
                 "events=" + events + " " +
                 "cmd=" + cmd + " " +
                 "user=" + user + " " +
-                "redir=" + redir;
+                "redir=" + redir + " " +
+                "resp=" + protocol.version;
     }
 
     public int getProxyTimeout() {
@@ -126,6 +130,14 @@ public class ClientStat {
         this.proxyTimeout = proxyTimeout;
     }
 
+    public RespVersion getProtocol() {
+        return protocol;
+    }
+
+    public void setProtocol(RespVersion protocol) {
+        this.protocol = protocol;
+    }
+
     public int getDb() {
         return db;
     }
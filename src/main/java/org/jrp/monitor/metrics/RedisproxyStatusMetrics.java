@@ -13,9 +13,13 @@ public class RedisproxyStatusMetrics extends MetricsHolder<RedisproxyStatusMetri
 
     public final LongCounter activeConn = CounterFactory.createLongCounter();
 
-    private static final String pattern = "%-7s  %-10s  %-11s";
+    // the commands written to Redis and not completed yet, of all backend connections
+    public final LongCounter backendInFlight = CounterFactory.createLongCounter();
 
-    private static final String TITLE = String.format(pattern, "THREADS", "CMD_QUEUED", "ACTIVE_CONN");
+    private static final String pattern = "%-7s  %-10s  %-11s  %-16s";
+
+    private static final String TITLE = String.format(pattern, "THREADS", "CMD_QUEUED", "ACTIVE_CONN",
+            "BACKEND_INFLIGHT");
 
     private RedisproxyStatusMetrics() {
         super(RedisproxyStatusMetrics.class);
@@ -28,7 +32,7 @@ public class RedisproxyStatusMetrics extends MetricsHolder<RedisproxyStatusMetri
 
     @Override
     public String getStat() {
-        return String.format(pattern, threads.get(), queued.get(), activeConn.get());
+        return String.format(pattern, threads.get(), queued.get(), activeConn.get(), backendInFlight.get());
     }
 
     @Override
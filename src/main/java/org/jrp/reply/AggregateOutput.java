@@ -0,0 +1,65 @@
+package org.jrp.reply;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes an aggregate of bulk strings, like the result of "LRANGE", "SMEMBERS" or "HGETALL", as it arrives.
+ * The top level aggregate is written as the kind of the command in the protocol of the client (whatever
+ * protocol Redis speaks), nested ones (like the elements of "HSCAN") as arrays.
+ */
+public class AggregateOutput extends EncodingOutput {
+
+    public enum Kind {
+        ARRAY,
+        SET,
+        // counted in elements (keys and values) as in RESP2
+        MAP,
+    }
+
+    private final Kind kind;
+    private boolean headerWritten;
+
+    public AggregateOutput(Kind kind, RespVersion version) {
+        super(version);
+        this.kind = kind;
+    }
+
+    /**
+     * Maps and sets of RESP3 are counted as arrays of RESP2 here, see {@code CommandOutput#multiMap(int)}.
+     */
+    @Override
+    public void multi(int count) {
+        if (headerWritten) {
+            ReplyHeaders.writeLine(buf(), Aggregates.ARRAY_MARKER, count);
+            return;
+        }
+        headerWritten = true;
+        if (count < 0) {
+            Aggregates.writeNull(buf(), Aggregates.ARRAY_MARKER, version);
+        } else if (version == RespVersion.RESP3 && kind == Kind.MAP) {
+            ReplyHeaders.writeLine(buf(), MapReply.MARKER, count / 2);
+        } else if (version == RespVersion.RESP3 && kind == Kind.SET) {
+            ReplyHeaders.writeLine(buf(), SetReply.MARKER, count);
+        } else {
+            ReplyHeaders.writeLine(buf(), Aggregates.ARRAY_MARKER, count);
+        }
+    }
+
+    @Override
+    public void set(ByteBuffer bytes) {
+        writeBulk(bytes);
+    }
+
+    @Override
+    public void set(long integer) {
+        ReplyHeaders.writeLine(buf(), IntegerReply.MARKER, integer);
+    }
+
+    @Override
+    void finish() {
+        if (!headerWritten) {
+            headerWritten = true;
+            Aggregates.writeNull(buf(), Aggregates.ARRAY_MARKER, version);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.jrp.reply;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+
+import static org.jrp.reply.Reply.CRLF;
+import static org.jrp.utils.BytesUtils.stringSize;
+
+/**
+ * Encodes the aggregate replies (arrays, maps, sets and pushes), which differ only in the marker and the count
+ * of the header line, and the nulls, which are unified to "_" in RESP3.
+ */
+final class Aggregates {
+
+    static final char ARRAY_MARKER = '*';
+
+    // "_\r\n", the RESP3 null, in place of the "*-1\r\n" or "$-1\r\n" of RESP2
+    private static final byte[] RESP3_NULL = new byte[]{'_', '\r', '\n'};
+
+    private Aggregates() {
+    }
+
+    static void writeNull(ByteBuf out, char marker, RespVersion version) {
+        if (version == RespVersion.RESP3) {
+            out.writeBytes(RESP3_NULL);
+        } else {
+            ReplyHeaders.writeLine(out, marker, -1);
+        }
+    }
+
+    static int nullSize(char marker, RespVersion version) {
+        return version == RespVersion.RESP3 ? RESP3_NULL.length : headerSize(marker, -1);
+    }
+
+    static int headerSize(char marker, long count) {
+        return 1 + stringSize(count) + CRLF.length;
+    }
+
+    static void write(ByteBuf out, char marker, long count, Reply[] elements, RespVersion version) {
+        if (elements == null) {
+            writeNull(out, ARRAY_MARKER, version);
+            return;
+        }
+        ReplyHeaders.writeLine(out, marker, count);
+        for (Reply element : elements) {
+            element.write(out, version);
+        }
+    }
+
+    static int encodedSize(char marker, long count, Reply[] elements, RespVersion version) {
+        if (elements == null) {
+            return nullSize(ARRAY_MARKER, version);
+        }
+        int size = headerSize(marker, count);
+        for (Reply element : elements) {
+            size += element.encodedSize(version);
+        }
+        return size;
+    }
+
+    /**
+     * Consecutive small elements (along with the header) are written to exactly sized buffers, huge ones are
+     * written as components on their own.
+     */
+    static void writeComponents(CompositeByteBuf out, int hugeThreshold,
+                                char marker, long count, Reply[] elements, RespVersion version) {
+        if (elements == null) {
+            ByteBuf buf = out.alloc().ioBuffer(nullSize(ARRAY_MARKER, version));
+            writeNull(buf, ARRAY_MARKER, version);
+            out.addComponent(true, buf);
+            return;
+        }
+        int len = elements.length;
+        int i = 0;
+        int runSize = headerSize(marker, count);
+        boolean writeHeader = true;
+        while (i < len || runSize > 0) {
+            int runStart = i;
+            for (; i < len; i++) {
+                int size = elements[i].encodedSize(version);
+                if (size >= hugeThreshold) {
+                    break;
+                }
+                runSize += size;
+            }
+            if (runSize > 0) {
+                ByteBuf buf = out.alloc().ioBuffer(runSize);
+                if (writeHeader) {
+                    ReplyHeaders.writeLine(buf, marker, count);
+                    writeHeader = false;
+                }
+                for (int j = runStart; j < i; j++) {
+                    elements[j].write(buf, version);
+                }
+                out.addComponent(true, buf);
+                runSize = 0;
+            }
+            if (i < len) {
+                elements[i++].writeComponents(out, hugeThreshold, version);
+            }
+        }
+    }
+}
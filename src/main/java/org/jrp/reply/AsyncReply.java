@@ -1,6 +1,7 @@
 package org.jrp.reply;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
 
 import java.util.function.Supplier;
 
@@ -29,4 +30,24 @@ public class AsyncReply<T extends Reply> implements Reply {
     public void write(ByteBuf out) {
         getReply().write(out);
     }
+
+    @Override
+    public int encodedSize() {
+        return getReply().encodedSize();
+    }
+
+    @Override
+    public void write(ByteBuf out, RespVersion version) {
+        getReply().write(out, version);
+    }
+
+    @Override
+    public int encodedSize(RespVersion version) {
+        return getReply().encodedSize(version);
+    }
+
+    @Override
+    public void writeComponents(CompositeByteBuf out, int hugeThreshold, RespVersion version) {
+        getReply().writeComponents(out, hugeThreshold, version);
+    }
 }
@@ -0,0 +1,61 @@
+package org.jrp.reply;
+
+import io.netty.buffer.ByteBuf;
+
+import java.math.BigInteger;
+
+import static org.jrp.utils.BytesUtils.bytes;
+import static org.jrp.utils.BytesUtils.stringSize;
+
+/**
+ * A big number of RESP3, written as a bulk string in RESP2.
+ */
+public class BigNumberReply implements Reply {
+
+    private static final char MARKER = '(';
+
+    private final BigInteger value;
+    private final byte[] digits;
+
+    public BigNumberReply(BigInteger value) {
+        this.value = value;
+        this.digits = bytes(value.toString());
+    }
+
+    public BigInteger value() {
+        return value;
+    }
+
+    @Override
+    public void write(ByteBuf out) {
+        ReplyHeaders.writeLine(out, '$', digits.length);
+        out.writeBytes(digits);
+        out.writeBytes(CRLF);
+    }
+
+    @Override
+    public int encodedSize() {
+        return 1 + stringSize(digits.length) + CRLF.length + digits.length + CRLF.length;
+    }
+
+    @Override
+    public void write(ByteBuf out, RespVersion version) {
+        if (version == RespVersion.RESP3) {
+            out.writeByte(MARKER);
+            out.writeBytes(digits);
+            out.writeBytes(CRLF);
+        } else {
+            write(out);
+        }
+    }
+
+    @Override
+    public int encodedSize(RespVersion version) {
+        return version == RespVersion.RESP3 ? 1 + digits.length + CRLF.length : encodedSize();
+    }
+
+    @Override
+    public String toString() {
+        return value.toString();
+    }
+}
@@ -0,0 +1,59 @@
+package org.jrp.reply;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * A boolean of RESP3, written as integer 1 or 0 in RESP2.
+ */
+public class BooleanReply implements Reply {
+
+    private static final char MARKER = '#';
+
+    public static final BooleanReply TRUE = new BooleanReply(true);
+    public static final BooleanReply FALSE = new BooleanReply(false);
+
+    private final boolean value;
+    private final byte[] resp3;
+
+    private BooleanReply(boolean value) {
+        this.value = value;
+        this.resp3 = new byte[]{MARKER, (byte) (value ? 't' : 'f'), '\r', '\n'};
+    }
+
+    public static BooleanReply booleanReply(boolean b) {
+        return b ? TRUE : FALSE;
+    }
+
+    public boolean value() {
+        return value;
+    }
+
+    @Override
+    public void write(ByteBuf out) {
+        IntegerReply.integer(value).write(out);
+    }
+
+    @Override
+    public int encodedSize() {
+        return IntegerReply.integer(value).encodedSize();
+    }
+
+    @Override
+    public void write(ByteBuf out, RespVersion version) {
+        if (version == RespVersion.RESP3) {
+            out.writeBytes(resp3);
+        } else {
+            write(out);
+        }
+    }
+
+    @Override
+    public int encodedSize(RespVersion version) {
+        return version == RespVersion.RESP3 ? resp3.length : encodedSize();
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(value);
+    }
+}
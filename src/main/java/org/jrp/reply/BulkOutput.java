@@ -0,0 +1,19 @@
+package org.jrp.reply;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes the bulk string (or null) replied by commands like "GET" into one pooled buffer as it arrives, which is
+ * released if the command fails, like a timed out one replied late (see {@link ReplyCommand}).
+ */
+public class BulkOutput extends EncodingOutput {
+
+    public BulkOutput(RespVersion version) {
+        super(version);
+    }
+
+    @Override
+    public void set(ByteBuffer bytes) {
+        writeBulk(bytes);
+    }
+}
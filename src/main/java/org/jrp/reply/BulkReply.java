@@ -1,22 +1,27 @@
 package org.jrp.reply;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.buffer.Unpooled;
 
 import java.nio.charset.StandardCharsets;
 import java.text.DecimalFormat;
 
 import static org.jrp.utils.BytesUtils.bytes;
+import static org.jrp.utils.BytesUtils.stringSize;
 
 public class BulkReply implements Reply {
 
     public static final BulkReply NIL_REPLY = new BulkReply();
 
-    private static final char MARKER = '$';
+    public static final char MARKER = '$';
 
     private static final DecimalFormat DECIMAL_FORMAT = new DecimalFormat("#.########");
 
-    private final ByteBuf bytes;
+    private static final ByteBuf CRLF_BUF = Unpooled.unreleasableBuffer(
+            Unpooled.directBuffer(CRLF.length).writeBytes(CRLF).asReadOnly());
+
+    final ByteBuf bytes;
 
     final int capacity;
 
@@ -30,6 +35,18 @@ public class BulkReply implements Reply {
         capacity = bytes.length;
     }
 
+    BulkReply(ByteBuf bytes) {
+        this.bytes = bytes;
+        capacity = bytes.readableBytes();
+    }
+
+    /**
+     * @param reply a pooled buffer, which the reply takes, and releases once it's written (or dropped)
+     */
+    public static BulkReply bulkReply(ByteBuf reply) {
+        return reply == null ? NIL_REPLY : new PooledBulkReply(reply);
+    }
+
     public static BulkReply bulkReply(String reply) {
         return reply == null ? NIL_REPLY : new BulkReply(bytes(reply));
     }
@@ -44,17 +61,48 @@ public class BulkReply implements Reply {
 
     @Override
     public void write(ByteBuf out) {
-        out.writeByte(MARKER);
-        out.writeBytes(bytes(String.valueOf(capacity)));
-        out.writeBytes(CRLF);
+        ReplyHeaders.writeLine(out, MARKER, capacity);
         if (capacity > 0) {
-            out.writeBytes(bytes);
+            out.writeBytes(bytes, bytes.readerIndex(), capacity);
             out.writeBytes(CRLF);
         } else if (capacity == 0) {
             out.writeBytes(CRLF);
         }
     }
 
+    @Override
+    public int encodedSize() {
+        return 1 + stringSize(capacity) + CRLF.length + (capacity >= 0 ? capacity + CRLF.length : 0);
+    }
+
+    @Override
+    public void write(ByteBuf out, RespVersion version) {
+        if (capacity < 0) {
+            Aggregates.writeNull(out, MARKER, version);
+        } else {
+            write(out);
+        }
+    }
+
+    @Override
+    public int encodedSize(RespVersion version) {
+        return capacity < 0 ? Aggregates.nullSize(MARKER, version) : encodedSize();
+    }
+
+    @Override
+    public void writeComponents(CompositeByteBuf out, int hugeThreshold, RespVersion version) {
+        if (capacity < hugeThreshold) {
+            Reply.super.writeComponents(out, hugeThreshold, version);
+            return;
+        }
+        int headerSize = 1 + stringSize(capacity) + CRLF.length;
+        ByteBuf header = out.alloc().ioBuffer(headerSize);
+        ReplyHeaders.writeLine(header, MARKER, capacity);
+        out.addComponent(true, header);
+        out.addComponent(true, bytes.retainedDuplicate());
+        out.addComponent(true, CRLF_BUF.duplicate());
+    }
+
     @Override
     public String toString() {
         return bytes == null ? "null" : (bytes.hasArray()
@@ -0,0 +1,71 @@
+package org.jrp.reply;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.Consumer;
+
+/**
+ * A reply completed explicitly by whoever gets it, like a backend connection reading the raw reply frame.
+ * <p>
+ * The reply may be completed before the handler gives its sink, so both sides publish first and then check the
+ * other, and whoever sees both delivers, once.
+ */
+public class CompletableReply implements DeferredReply {
+
+    private static final AtomicIntegerFieldUpdater<CompletableReply> DELIVERED_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(CompletableReply.class, "delivered");
+
+    private volatile Reply reply;
+    private volatile Consumer<Reply> sink;
+    private volatile int delivered;
+
+    @Override
+    public void onComplete(Consumer<Reply> sink) {
+        this.sink = sink;
+        Reply r = reply;
+        if (r != null) {
+            deliver(sink, r);
+        }
+    }
+
+    public void complete(Reply reply) {
+        this.reply = reply;
+        Consumer<Reply> s = sink;
+        if (s != null) {
+            deliver(s, reply);
+        }
+    }
+
+    private void deliver(Consumer<Reply> sink, Reply reply) {
+        if (DELIVERED_UPDATER.compareAndSet(this, 0, 1)) {
+            sink.accept(reply);
+        }
+    }
+
+    @Override
+    public void write(ByteBuf out) {
+        reply.write(out);
+    }
+
+    @Override
+    public int encodedSize() {
+        return reply.encodedSize();
+    }
+
+    @Override
+    public void write(ByteBuf out, RespVersion version) {
+        reply.write(out, version);
+    }
+
+    @Override
+    public int encodedSize(RespVersion version) {
+        return reply.encodedSize(version);
+    }
+
+    @Override
+    public void writeComponents(CompositeByteBuf out, int hugeThreshold, RespVersion version) {
+        reply.writeComponents(out, hugeThreshold, version);
+    }
+}
@@ -0,0 +1,15 @@
+package org.jrp.reply;
+
+import java.util.function.Consumer;
+
+/**
+ * A reply that's known later, like the reply of a command sent to Redis.
+ */
+public interface DeferredReply extends Reply {
+
+    /**
+     * Give the reply to 'sink' once it's known, in the thread completing it (or right now if it's known already).
+     * Must be called once.
+     */
+    void onComplete(Consumer<Reply> sink);
+}
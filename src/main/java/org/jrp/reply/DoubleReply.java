@@ -0,0 +1,90 @@
+package org.jrp.reply;
+
+import io.netty.buffer.ByteBuf;
+
+import static org.jrp.utils.BytesUtils.bytes;
+
+/**
+ * A double of RESP3, written as a bulk string in RESP2.
+ */
+public class DoubleReply implements Reply {
+
+    private static final char MARKER = ',';
+
+    private final double value;
+
+    // the encoded forms are computed when the reply is written, by a single thread
+    private BulkReply resp2;
+    private byte[] resp3;
+
+    public DoubleReply(double value) {
+        this.value = value;
+    }
+
+    /**
+     * @return the reply of 'd', or the nil reply if 'd' is null
+     */
+    public static Reply doubleReply(Double d) {
+        return d == null ? BulkReply.NIL_REPLY : new DoubleReply(d);
+    }
+
+    public double value() {
+        return value;
+    }
+
+    @Override
+    public void write(ByteBuf out) {
+        resp2().write(out);
+    }
+
+    @Override
+    public int encodedSize() {
+        return resp2().encodedSize();
+    }
+
+    @Override
+    public void write(ByteBuf out, RespVersion version) {
+        if (version == RespVersion.RESP3) {
+            out.writeByte(MARKER);
+            out.writeBytes(resp3());
+            out.writeBytes(CRLF);
+        } else {
+            write(out);
+        }
+    }
+
+    @Override
+    public int encodedSize(RespVersion version) {
+        return version == RespVersion.RESP3 ? 1 + resp3().length + CRLF.length : encodedSize();
+    }
+
+    private BulkReply resp2() {
+        if (resp2 == null) {
+            resp2 = BulkReply.bulkReply(value);
+        }
+        return resp2;
+    }
+
+    private byte[] resp3() {
+        if (resp3 == null) {
+            resp3 = bytes(format(value));
+        }
+        return resp3;
+    }
+
+    static String format(double d) {
+        if (Double.isNaN(d)) {
+            return "nan";
+        } else if (Double.isInfinite(d)) {
+            return d > 0 ? "inf" : "-inf";
+        } else if (d == Math.rint(d) && Math.abs(d) < 1e17) {
+            return Long.toString((long) d);
+        }
+        return Double.toString(d);
+    }
+
+    @Override
+    public String toString() {
+        return format(value);
+    }
+}
@@ -0,0 +1,86 @@
+package org.jrp.reply;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.util.ReferenceCounted;
+
+/**
+ * A reply already encoded in the protocol of the client, like a collection encoded by an {@link EncodingOutput}
+ * as it arrived from Redis.
+ * <p>
+ * The reply owns the buffer: it's released by the encoder after being written, or by the handler if the reply is
+ * dropped.
+ */
+public record EncodedReply(ByteBuf buf) implements Reply, ReferenceCounted {
+
+    @Override
+    public void write(ByteBuf out) {
+        out.writeBytes(buf, buf.readerIndex(), buf.readableBytes());
+    }
+
+    @Override
+    public int encodedSize() {
+        return buf.readableBytes();
+    }
+
+    @Override
+    public void write(ByteBuf out, RespVersion version) {
+        write(out);
+    }
+
+    @Override
+    public int encodedSize(RespVersion version) {
+        return encodedSize();
+    }
+
+    @Override
+    public void writeComponents(CompositeByteBuf out, int hugeThreshold, RespVersion version) {
+        out.addComponent(true, buf.retainedDuplicate());
+    }
+
+    @Override
+    public int refCnt() {
+        return buf.refCnt();
+    }
+
+    @Override
+    public EncodedReply retain() {
+        buf.retain();
+        return this;
+    }
+
+    @Override
+    public EncodedReply retain(int increment) {
+        buf.retain(increment);
+        return this;
+    }
+
+    @Override
+    public EncodedReply touch() {
+        buf.touch();
+        return this;
+    }
+
+    @Override
+    public EncodedReply touch(Object hint) {
+        buf.touch(hint);
+        return this;
+    }
+
+    @Override
+    public boolean release() {
+        return buf.release();
+    }
+
+    @Override
+    public boolean release(int decrement) {
+        return buf.release(decrement);
+    }
+
+    @Override
+    public String toString() {
+        return "EncodedReply{" +
+                "bytes=" + buf.readableBytes() +
+                '}';
+    }
+}
@@ -0,0 +1,138 @@
+package org.jrp.reply;
+
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.output.CommandOutput;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.util.ReferenceCountUtil;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * A Lettuce command output that encodes the result in RESP, in the protocol of the client, into one pooled buffer
+ * as the frames arrive from Redis. No object is created per element, and the result is an {@link EncodedReply}.
+ * <p>
+ * Like any command output, it's only accessed by the thread decoding the connection of Redis, but for
+ * {@link #releaseOnFailure}.
+ */
+public abstract class EncodingOutput extends CommandOutput<byte[], byte[], Reply> {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private static final int PENDING = 0;
+    private static final int TAKEN = 1;
+    private static final int ABANDONED = 2;
+    private static final AtomicIntegerFieldUpdater<EncodingOutput> STATE_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(EncodingOutput.class, "state");
+
+    final RespVersion version;
+    private ByteBuf buf;
+    private volatile int state;
+
+    EncodingOutput(RespVersion version) {
+        super(ByteArrayCodec.INSTANCE, null);
+        this.version = version;
+    }
+
+    ByteBuf buf() {
+        if (buf == null) {
+            buf = ByteBufAllocator.DEFAULT.ioBuffer(INITIAL_CAPACITY);
+        }
+        return buf;
+    }
+
+    void writeBulk(ByteBuffer bytes) {
+        ByteBuf out = buf();
+        if (bytes == null) {
+            Aggregates.writeNull(out, BulkReply.MARKER, version);
+            return;
+        }
+        ReplyHeaders.writeLine(out, BulkReply.MARKER, bytes.remaining());
+        out.writeBytes(bytes);
+        out.writeBytes(Reply.CRLF);
+    }
+
+    /**
+     * Called before the result is taken, to finish the encoding.
+     */
+    void finish() {
+    }
+
+    @Override
+    public Reply get() {
+        if (output == null && !hasError()) {
+            if (state == ABANDONED) {
+                // the command timed out before Redis replied
+                releaseBuf();
+                return null;
+            }
+            finish();
+            EncodedReply reply = new EncodedReply(buf());
+            buf = null;
+            if (!STATE_UPDATER.compareAndSet(this, PENDING, TAKEN)) {
+                reply.release();
+                return null;
+            }
+            output = reply;
+        }
+        return output;
+    }
+
+    /**
+     * Release the buffer when the command completes exceptionally, must be called with the future of the command
+     * right after it's dispatched.
+     * <p>
+     * A command cancelled (as its connection is reset) is completed in the thread decoding the connection, so the
+     * buffer is released right away. A command timed out is completed by a timer while Redis may still be replying
+     * to it, so the buffer is released by {@link #get()} once the reply is decoded, or right away if it already was
+     * and Lettuce failed to complete the command with it.
+     */
+    public void releaseOnFailure(CompletionStage<?> future) {
+        future.whenComplete((result, e) -> {
+            if (e != null) {
+                failed(e);
+            }
+        });
+    }
+
+    /**
+     * Release the buffer as the command completed exceptionally, see {@link #releaseOnFailure}.
+     */
+    void failed(Throwable e) {
+        if (STATE_UPDATER.getAndSet(this, ABANDONED) == TAKEN) {
+            ReferenceCountUtil.release(output);
+        } else if (e instanceof CancellationException) {
+            releaseBuf();
+        }
+    }
+
+    /**
+     * Release the reply decoded after the command failed, which is never taken by {@link #get()}. Must be called by the
+     * thread decoding the connection.
+     */
+    void releaseLate() {
+        releaseBuf();
+    }
+
+    @Override
+    public void setError(ByteBuffer error) {
+        releaseBuf();
+        super.setError(error);
+    }
+
+    @Override
+    public void setError(String error) {
+        releaseBuf();
+        super.setError(error);
+    }
+
+    private void releaseBuf() {
+        if (buf != null) {
+            buf.release();
+            buf = null;
+        }
+    }
+}
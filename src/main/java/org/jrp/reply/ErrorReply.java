@@ -1,6 +1,7 @@
 package org.jrp.reply;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 import org.jrp.utils.BytesUtils;
 
 public record ErrorReply(String error) implements Reply {
@@ -11,6 +12,11 @@ public record ErrorReply(String error) implements Reply {
     public static final ErrorReply BUSY_ERROR = new ErrorReply("Busy");
     public static final ErrorReply READONLY_ERROR = new ErrorReply("Readonly");
 
+    // the standard Redis errors of invalid arguments
+    public static final ErrorReply NOT_INTEGER_ERROR = new ErrorReply("ERR value is not an integer or out of range");
+    public static final ErrorReply NOT_FLOAT_ERROR = new ErrorReply("ERR value is not a valid float");
+    public static final ErrorReply ERR_SYNTAX_ERROR = new ErrorReply("ERR syntax error");
+
     private static final char MARKER = '-';
 
     @Override
@@ -20,6 +26,11 @@ public record ErrorReply(String error) implements Reply {
         out.writeBytes(CRLF);
     }
 
+    @Override
+    public int encodedSize() {
+        return 1 + ByteBufUtil.utf8Bytes(error) + CRLF.length;
+    }
+
     @Override
     public String toString() {
         return error;
@@ -4,38 +4,62 @@ import com.google.common.annotations.VisibleForTesting;
 import io.lettuce.core.RedisCommandExecutionException;
 import io.lettuce.core.RedisFuture;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 
-import java.util.concurrent.CompletionStage;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
-public class FutureReply<T> implements Reply {
+/**
+ * A reply to be converted from the result of a Redis future.
+ * <p>
+ * This is itself the one {@link BiConsumer} registered on the future per command, which converts the result
+ * once and hands the reply to the sink given by {@link #onComplete(Consumer)}, instead of a chain of lambdas
+ * each allocating a stage of its own. A {@link ReplyCommand} calls it straight from its completion, without even
+ * the one stage.
+ */
+public class FutureReply<T> implements DeferredReply, BiConsumer<T, Throwable> {
 
-    private final CompletionStage<Reply> stage;
-    private volatile Reply reply;
+    private final RedisFuture<T> future;
+    private final Function<T, Reply> converter;
+    private Consumer<Reply> sink;
+    // written before the reply is given to the sink, which publishes it to the writer
+    private Reply reply;
 
     public FutureReply(RedisFuture<T> future, Function<T, Reply> converter) {
-        stage = future.handle((t, ex) -> {
-            Reply reply;
-            if (ex == null) {
-                reply = converter.apply(t);
-            } else {
-                if (ex instanceof RedisCommandExecutionException e) {
-                    reply = new ErrorReply(e.getMessage());
-                } else {
-                    reply = new ErrorReply(ExceptionUtils.getRootCauseMessage(ex));
-                }
-            }
-            return reply;
-        });
+        this.future = future;
+        this.converter = converter;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void onComplete(Consumer<Reply> sink) {
+        this.sink = sink;
+        if (future instanceof ReplyCommand command) {
+            // the result of the command is a reply
+            command.onReply((BiConsumer<Reply, Throwable>) (BiConsumer<?, Throwable>) this);
+        } else {
+            future.whenComplete(this);
+        }
     }
 
-    public void onComplete(Consumer<Reply> consumer) {
-        stage.thenAccept(reply -> {
-            FutureReply.this.reply = reply;
-            consumer.accept(reply);
-        });
+    @Override
+    public void accept(T t, Throwable ex) {
+        Reply reply;
+        if (ex == null) {
+            try {
+                reply = converter.apply(t);
+            } catch (RuntimeException e) {
+                reply = new ErrorReply(ExceptionUtils.getRootCauseMessage(e));
+            }
+        } else if (ex instanceof RedisCommandExecutionException e) {
+            reply = new ErrorReply(e.getMessage());
+        } else {
+            reply = new ErrorReply(ExceptionUtils.getRootCauseMessage(ex));
+        }
+        this.reply = reply;
+        sink.accept(reply);
     }
 
     @Override
@@ -43,9 +67,24 @@ public class FutureReply<T> implements Reply {
         reply.write(out);
     }
 
-    @VisibleForTesting
-    CompletionStage<Reply> getStage() {
-        return stage;
+    @Override
+    public int encodedSize() {
+        return reply.encodedSize();
+    }
+
+    @Override
+    public void write(ByteBuf out, RespVersion version) {
+        reply.write(out, version);
+    }
+
+    @Override
+    public int encodedSize(RespVersion version) {
+        return reply.encodedSize(version);
+    }
+
+    @Override
+    public void writeComponents(CompositeByteBuf out, int hugeThreshold, RespVersion version) {
+        reply.writeComponents(out, hugeThreshold, version);
     }
 
     @VisibleForTesting
@@ -0,0 +1,45 @@
+package org.jrp.reply;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+
+/**
+ * The reply of "HELLO", which switches the RESP version of the channel's replies when it's encoded, rather than
+ * when "HELLO" is executed, so that the pending replies to the commands pipelined before it are still encoded in
+ * the RESP version they were sent in.
+ *
+ * @param protocol the negotiated RESP version, which this reply and the replies after it are encoded in
+ * @param reply    the properties of the connection
+ */
+public record HelloReply(RespVersion protocol, MapReply reply) implements Reply {
+
+    @Override
+    public void write(ByteBuf out) {
+        reply.write(out);
+    }
+
+    @Override
+    public int encodedSize() {
+        return reply.encodedSize();
+    }
+
+    @Override
+    public void write(ByteBuf out, RespVersion version) {
+        reply.write(out, version);
+    }
+
+    @Override
+    public int encodedSize(RespVersion version) {
+        return reply.encodedSize(version);
+    }
+
+    @Override
+    public void writeComponents(CompositeByteBuf out, int hugeThreshold, RespVersion version) {
+        reply.writeComponents(out, hugeThreshold, version);
+    }
+
+    @Override
+    public String toString() {
+        return reply.toString();
+    }
+}
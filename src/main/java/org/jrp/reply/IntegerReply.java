@@ -2,13 +2,30 @@ package org.jrp.reply;
 
 import io.netty.buffer.ByteBuf;
 
-import static org.jrp.utils.BytesUtils.bytes;
+import static org.jrp.utils.BytesUtils.stringSize;
 
 public record IntegerReply(long integer) implements Reply {
 
     public static final char MARKER = ':';
 
+    private static final int CACHE_LOW = -2;
+    private static final int CACHE_HIGH = 1024;
+    private static final IntegerReply[] CACHE = new IntegerReply[CACHE_HIGH - CACHE_LOW];
+
+    static {
+        for (int i = 0; i < CACHE.length; i++) {
+            CACHE[i] = new IntegerReply(i + CACHE_LOW);
+        }
+    }
+
+    /**
+     * @return the cached reply for small integers (like the -2/-1 of TTL, 0/1 of EXISTS/DEL and short lengths),
+     * or a new one
+     */
     public static IntegerReply integer(long integer) {
+        if (integer >= CACHE_LOW && integer < CACHE_HIGH) {
+            return CACHE[(int) integer - CACHE_LOW];
+        }
         return new IntegerReply(integer);
     }
 
@@ -18,9 +35,12 @@ public record IntegerReply(long integer) implements Reply {
 
     @Override
     public void write(ByteBuf out) {
-        out.writeByte(MARKER);
-        out.writeBytes(bytes(String.valueOf(integer)));
-        out.writeBytes(CRLF);
+        ReplyHeaders.writeLine(out, MARKER, integer);
+    }
+
+    @Override
+    public int encodedSize() {
+        return 1 + stringSize(integer) + CRLF.length;
     }
 
     public String toString() {
@@ -0,0 +1,91 @@
+package org.jrp.reply;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * A map of RESP3, written as a flat array of keys and values in RESP2.
+ *
+ * @param entries keys and values interleaved
+ */
+public record MapReply(Reply[] entries) implements Reply {
+
+    static final char MARKER = '%';
+
+    public static MapReply fromBytesMap(Map<byte[], byte[]> map) {
+        if (map == null || map.size() < 1) {
+            return new MapReply(new Reply[0]);
+        }
+        BulkReply[] entries = new BulkReply[map.size() * 2];
+        int i = 0;
+        for (Map.Entry<byte[], byte[]> entry : map.entrySet()) {
+            entries[i++] = BulkReply.bulkReply(entry.getKey());
+            entries[i++] = BulkReply.bulkReply(entry.getValue());
+        }
+        return new MapReply(entries);
+    }
+
+    public static MapReply fromStringMap(Map<String, String> map) {
+        if (map == null || map.size() < 1) {
+            return new MapReply(new Reply[0]);
+        }
+        BulkReply[] entries = new BulkReply[map.size() * 2];
+        int i = 0;
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            entries[i++] = BulkReply.bulkReply(entry.getKey());
+            entries[i++] = BulkReply.bulkReply(entry.getValue());
+        }
+        return new MapReply(entries);
+    }
+
+    @Override
+    public void write(ByteBuf out) {
+        write(out, RespVersion.RESP2);
+    }
+
+    @Override
+    public int encodedSize() {
+        return encodedSize(RespVersion.RESP2);
+    }
+
+    @Override
+    public void write(ByteBuf out, RespVersion version) {
+        Aggregates.write(out, marker(version), count(version), entries, version);
+    }
+
+    @Override
+    public int encodedSize(RespVersion version) {
+        return Aggregates.encodedSize(marker(version), count(version), entries, version);
+    }
+
+    @Override
+    public void writeComponents(CompositeByteBuf out, int hugeThreshold, RespVersion version) {
+        Aggregates.writeComponents(out, hugeThreshold, marker(version), count(version), entries, version);
+    }
+
+    private static char marker(RespVersion version) {
+        return version == RespVersion.RESP3 ? MARKER : Aggregates.ARRAY_MARKER;
+    }
+
+    private int count(RespVersion version) {
+        if (entries == null) {
+            return -1;
+        }
+        return version == RespVersion.RESP3 ? entries.length / 2 : entries.length;
+    }
+
+    @Override
+    public String toString() {
+        if (entries == null) {
+            return "null";
+        }
+        return Arrays.stream(entries)
+                .map(reply -> "\"" + reply + "\"")
+                .limit(10)
+                .collect(Collectors.joining(" "));
+    }
+}
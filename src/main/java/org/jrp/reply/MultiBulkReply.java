@@ -3,6 +3,7 @@ package org.jrp.reply;
 import io.lettuce.core.KeyValue;
 import io.lettuce.core.ScoredValue;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
 
 import java.util.Arrays;
 import java.util.Collection;
@@ -10,11 +11,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
-import static org.jrp.utils.BytesUtils.bytes;
-
 public record MultiBulkReply(Reply[] replies) implements Reply {
 
-    private static final char MARKER = '*';
+    private static final char MARKER = Aggregates.ARRAY_MARKER;
 
     public static MultiBulkReply fromBytesMap(Map<byte[], byte[]> map) {
         if (map == null || map.size() < 1) {
@@ -66,8 +65,12 @@ public record MultiBulkReply(Reply[] replies) implements Reply {
     }
 
     public static MultiBulkReply from(Collection<?> objects) {
+        return new MultiBulkReply(toReplies(objects));
+    }
+
+    static Reply[] toReplies(Collection<?> objects) {
         if (objects == null || objects.isEmpty()) {
-            return new MultiBulkReply(new Reply[0]);
+            return new Reply[0];
         }
         Reply[] replies = new Reply[objects.size()];
         int i = 0;
@@ -87,20 +90,36 @@ public record MultiBulkReply(Reply[] replies) implements Reply {
             }
             i += 1;
         }
-        return new MultiBulkReply(replies);
+        return replies;
     }
 
     @Override
     public void write(ByteBuf out) {
-        out.writeByte(MARKER);
-        int len = replies == null ? -1 : replies.length;
-        out.writeBytes(bytes(String.valueOf(len)));
-        out.writeBytes(CRLF);
-        if (replies != null) {
-            for (Reply reply : replies) {
-                reply.write(out);
-            }
-        }
+        write(out, RespVersion.RESP2);
+    }
+
+    @Override
+    public int encodedSize() {
+        return encodedSize(RespVersion.RESP2);
+    }
+
+    @Override
+    public void write(ByteBuf out, RespVersion version) {
+        Aggregates.write(out, MARKER, length(), replies, version);
+    }
+
+    @Override
+    public int encodedSize(RespVersion version) {
+        return Aggregates.encodedSize(MARKER, length(), replies, version);
+    }
+
+    @Override
+    public void writeComponents(CompositeByteBuf out, int hugeThreshold, RespVersion version) {
+        Aggregates.writeComponents(out, hugeThreshold, MARKER, length(), replies, version);
+    }
+
+    private int length() {
+        return replies == null ? -1 : replies.length;
     }
 
     @Override
@@ -0,0 +1,57 @@
+package org.jrp.reply;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.ReferenceCounted;
+
+/**
+ * A bulk reply owning a pooled buffer, like a value Lettuce decoded with
+ * {@link org.jrp.client.lettuce.ByteBufCodec}. It's released by the encoder after being written, or by the handler
+ * if it's dropped, like an {@link EncodedReply}.
+ * <p>
+ * Only top level replies may own buffers, as the elements of an aggregate are not released.
+ */
+final class PooledBulkReply extends BulkReply implements ReferenceCounted {
+
+    PooledBulkReply(ByteBuf bytes) {
+        super(bytes);
+    }
+
+    @Override
+    public int refCnt() {
+        return bytes.refCnt();
+    }
+
+    @Override
+    public PooledBulkReply retain() {
+        bytes.retain();
+        return this;
+    }
+
+    @Override
+    public PooledBulkReply retain(int increment) {
+        bytes.retain(increment);
+        return this;
+    }
+
+    @Override
+    public PooledBulkReply touch() {
+        bytes.touch();
+        return this;
+    }
+
+    @Override
+    public PooledBulkReply touch(Object hint) {
+        bytes.touch(hint);
+        return this;
+    }
+
+    @Override
+    public boolean release() {
+        return bytes.release();
+    }
+
+    @Override
+    public boolean release(int decrement) {
+        return bytes.release(decrement);
+    }
+}
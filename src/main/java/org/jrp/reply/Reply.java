@@ -1,10 +1,47 @@
 package org.jrp.reply;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
 
 public interface Reply {
 
     byte[] CRLF = new byte[]{'\r', '\n'};
 
+    /**
+     * Write the reply in RESP2.
+     */
     void write(ByteBuf out);
+
+    /**
+     * @return the exact number of bytes {@link #write(ByteBuf)} writes
+     */
+    int encodedSize();
+
+    /**
+     * Write the reply in the protocol of the client. Replies that have no RESP3 specific form write their RESP2 form.
+     */
+    default void write(ByteBuf out, RespVersion version) {
+        write(out);
+    }
+
+    /**
+     * @return the exact number of bytes {@link #write(ByteBuf, RespVersion)} writes
+     */
+    default int encodedSize(RespVersion version) {
+        return encodedSize();
+    }
+
+    default void writeComponents(CompositeByteBuf out, int hugeThreshold) {
+        writeComponents(out, hugeThreshold, RespVersion.RESP2);
+    }
+
+    /**
+     * Write the reply as components of 'out', payloads not smaller than 'hugeThreshold' are added as they are,
+     * instead of being copied.
+     */
+    default void writeComponents(CompositeByteBuf out, int hugeThreshold, RespVersion version) {
+        ByteBuf buf = out.alloc().ioBuffer(encodedSize(version));
+        write(buf, version);
+        out.addComponent(true, buf);
+    }
 }
@@ -0,0 +1,104 @@
+package org.jrp.reply;
+
+import io.lettuce.core.protocol.AsyncCommand;
+import io.lettuce.core.protocol.Command;
+import io.lettuce.core.protocol.CommandArgs;
+import io.lettuce.core.protocol.ProtocolKeyword;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.BiConsumer;
+
+/**
+ * A command to Redis whose result is encoded by an {@link EncodingOutput}, and handed by Lettuce's completion of the
+ * command straight to the one action registered by {@link #onReply(BiConsumer)}, like a {@link FutureReply}, rather
+ * than through a stage chained on the future. ({@link #onComplete(BiConsumer)} is left to Lettuce, which registers
+ * its own actions, like cancelling the timeout of the command.) The buffer of the output is released if the command fails, as by
+ * {@link EncodingOutput#releaseOnFailure}.
+ * <p>
+ * It must be dispatched to the connection as it is, not wrapped in another command by the Lettuce API.
+ */
+public class ReplyCommand extends AsyncCommand<byte[], byte[], Reply> {
+
+    private static final AtomicIntegerFieldUpdater<ReplyCommand> NOTIFIED_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(ReplyCommand.class, "notified");
+
+    private final EncodingOutput output;
+    private volatile BiConsumer<? super Reply, Throwable> action;
+    private volatile int notified;
+
+    public ReplyCommand(ProtocolKeyword type, EncodingOutput output, CommandArgs<byte[], byte[]> args) {
+        super(new Command<>(type, output, args));
+        this.output = output;
+    }
+
+    /**
+     * Register the action called once the command completes, right away if it already did. Only one action may be
+     * registered.
+     */
+    public void onReply(BiConsumer<? super Reply, Throwable> action) {
+        this.action = action;
+        notifyCompleted();
+    }
+
+    /**
+     * Called by Lettuce once the reply is decoded, even if the command already failed, like one timed out replied late,
+     * whose reply is then dropped.
+     */
+    @Override
+    public void complete() {
+        super.complete();
+        if (isCompletedExceptionally()) {
+            output.releaseLate();
+        }
+    }
+
+    @Override
+    protected void completeResult() {
+        super.completeResult();
+        notifyCompleted();
+    }
+
+    @Override
+    public boolean completeExceptionally(Throwable ex) {
+        boolean completed = super.completeExceptionally(ex);
+        if (completed) {
+            output.failed(ex);
+            notifyCompleted();
+        }
+        return completed;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        if (cancelled) {
+            output.failed(new CancellationException());
+            notifyCompleted();
+        }
+        return cancelled;
+    }
+
+    /**
+     * Called by both the completing thread and the registering one, the action is called by whichever sees the other
+     * done, and only once.
+     */
+    private void notifyCompleted() {
+        BiConsumer<? super Reply, Throwable> action = this.action;
+        if (action == null || !isDone() || !NOTIFIED_UPDATER.compareAndSet(this, 0, 1)) {
+            return;
+        }
+        Reply reply;
+        try {
+            reply = getNow(null);
+        } catch (CancellationException e) {
+            action.accept(null, e);
+            return;
+        } catch (CompletionException e) {
+            action.accept(null, e.getCause());
+            return;
+        }
+        action.accept(reply, null);
+    }
+}
@@ -0,0 +1,71 @@
+package org.jrp.reply;
+
+import io.netty.buffer.ByteBuf;
+
+import static org.jrp.reply.Reply.CRLF;
+import static org.jrp.utils.BytesUtils.bytes;
+import static org.jrp.utils.BytesUtils.stringSize;
+
+/**
+ * Writes RESP lines made of a type marker and a number, like ":1\r\n", "$5\r\n" or "*2\r\n", without allocation.
+ * <p>
+ * The numbers in [0, {@link #CACHED_NUMBERS}) along with the trailing CRLF are pre-encoded in one shared table
+ * (about 700KB), larger or negative numbers are encoded digit by digit.
+ */
+public final class ReplyHeaders {
+
+    static final int CACHED_NUMBERS = 65536;
+
+    // "0\r\n1\r\n2\r\n...", the line of number n is in range [OFFSETS[n], OFFSETS[n + 1])
+    private static final byte[] LINES;
+    private static final int[] OFFSETS = new int[CACHED_NUMBERS + 1];
+
+    static {
+        for (int i = 0; i < CACHED_NUMBERS; i++) {
+            OFFSETS[i + 1] = OFFSETS[i] + stringSize(i) + CRLF.length;
+        }
+        LINES = new byte[OFFSETS[CACHED_NUMBERS]];
+        for (int i = 0; i < CACHED_NUMBERS; i++) {
+            byte[] line = bytes(i + "\r\n");
+            System.arraycopy(line, 0, LINES, OFFSETS[i], line.length);
+        }
+    }
+
+    private ReplyHeaders() {
+    }
+
+    /**
+     * Write the marker, the number and CRLF.
+     */
+    public static void writeLine(ByteBuf out, char marker, long n) {
+        out.writeByte(marker);
+        if (n >= 0 && n < CACHED_NUMBERS) {
+            int i = (int) n;
+            out.writeBytes(LINES, OFFSETS[i], OFFSETS[i + 1] - OFFSETS[i]);
+        } else {
+            writeNumber(out, n);
+            out.writeBytes(CRLF);
+        }
+    }
+
+    /**
+     * Write the decimal representation of 'n' as ASCII.
+     */
+    public static void writeNumber(ByteBuf out, long n) {
+        int size = stringSize(n);
+        out.ensureWritable(size);
+        int writerIndex = out.writerIndex();
+        int i = writerIndex + size;
+        // work on the negative value, as Long.MIN_VALUE has no positive counterpart
+        long v = n < 0 ? n : -n;
+        do {
+            long q = v / 10;
+            out.setByte(--i, (int) ('0' + q * 10 - v));
+            v = q;
+        } while (v != 0);
+        if (n < 0) {
+            out.setByte(--i, '-');
+        }
+        out.writerIndex(writerIndex + size);
+    }
+}
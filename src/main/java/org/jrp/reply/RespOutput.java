@@ -0,0 +1,77 @@
+package org.jrp.reply;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes any result as it arrives, keeping the types Redis replied with, for the commands the proxy knows
+ * nothing about. The RESP3 types are written in their RESP2 forms to RESP2 clients, like a map as a flat array.
+ */
+public class RespOutput extends EncodingOutput {
+
+    public RespOutput(RespVersion version) {
+        super(version);
+    }
+
+    @Override
+    public void multi(int count) {
+        if (count < 0) {
+            Aggregates.writeNull(buf(), Aggregates.ARRAY_MARKER, version);
+        } else {
+            ReplyHeaders.writeLine(buf(), Aggregates.ARRAY_MARKER, count);
+        }
+    }
+
+    @Override
+    public void multiMap(int count) {
+        if (version == RespVersion.RESP3) {
+            ReplyHeaders.writeLine(buf(), MapReply.MARKER, count);
+        } else {
+            multi(count * 2);
+        }
+    }
+
+    @Override
+    public void multiSet(int count) {
+        if (version == RespVersion.RESP3) {
+            ReplyHeaders.writeLine(buf(), SetReply.MARKER, count);
+        } else {
+            multi(count);
+        }
+    }
+
+    @Override
+    public void set(ByteBuffer bytes) {
+        writeBulk(bytes);
+    }
+
+    @Override
+    public void setSingle(ByteBuffer bytes) {
+        if (bytes == null) {
+            writeBulk(null);
+            return;
+        }
+        buf().writeByte(SimpleStringReply.MARKER).writeBytes(bytes).writeBytes(Reply.CRLF);
+    }
+
+    @Override
+    public void setBigNumber(ByteBuffer bytes) {
+        new BigNumberReply(new BigInteger(StandardCharsets.US_ASCII.decode(bytes).toString())).write(buf(), version);
+    }
+
+    @Override
+    public void set(long integer) {
+        ReplyHeaders.writeLine(buf(), IntegerReply.MARKER, integer);
+    }
+
+    @Override
+    public void set(double number) {
+        new DoubleReply(number).write(buf(), version);
+    }
+
+    @Override
+    public void set(boolean value) {
+        BooleanReply.booleanReply(value).write(buf(), version);
+    }
+}
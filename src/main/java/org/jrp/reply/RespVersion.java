@@ -0,0 +1,28 @@
+package org.jrp.reply;
+
+/**
+ * The RESP protocol version spoken with a client, negotiated by "HELLO".
+ */
+public enum RespVersion {
+
+    RESP2(2),
+    RESP3(3);
+
+    public final int version;
+
+    RespVersion(int version) {
+        this.version = version;
+    }
+
+    /**
+     * @return the protocol of the version, or null if it's not supported
+     */
+    public static RespVersion of(long version) {
+        if (version == 2) {
+            return RESP2;
+        } else if (version == 3) {
+            return RESP3;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,90 @@
+package org.jrp.reply;
+
+import java.nio.ByteBuffer;
+
+import static org.jrp.utils.BytesUtils.bytes;
+
+/**
+ * Encodes members with scores, like the result of "ZRANGE ... WITHSCORES", as they arrive, in the same form as
+ * {@link ScoredValuesReply}.
+ * <p>
+ * Redis sends a flat array of members and scores in RESP2, and an array of [member, double] pairs in RESP3. They're
+ * told apart by whether a nested array comes before the first member, so the header is written only then.
+ */
+public class ScoredValuesOutput extends EncodingOutput {
+
+    private static final char DOUBLE_MARKER = ',';
+
+    private int count = -1;
+    private boolean pairsNested;
+    private boolean headerWritten;
+    private boolean scoreExpected;
+
+    public ScoredValuesOutput(RespVersion version) {
+        super(version);
+    }
+
+    @Override
+    public void multi(int count) {
+        if (this.count < 0) {
+            this.count = count;
+        } else {
+            pairsNested = true;
+        }
+    }
+
+    @Override
+    public void set(ByteBuffer bytes) {
+        writeHeader();
+        if (scoreExpected) {
+            if (version == RespVersion.RESP3) {
+                buf().writeByte(DOUBLE_MARKER);
+                buf().writeBytes(bytes);
+                buf().writeBytes(Reply.CRLF);
+            } else {
+                writeBulk(bytes);
+            }
+            scoreExpected = false;
+        } else {
+            writeMember(bytes);
+        }
+    }
+
+    @Override
+    public void set(double number) {
+        writeHeader();
+        if (version == RespVersion.RESP3) {
+            buf().writeByte(DOUBLE_MARKER);
+            buf().writeBytes(bytes(DoubleReply.format(number)));
+            buf().writeBytes(Reply.CRLF);
+        } else {
+            BulkReply.bulkReply(number).write(buf());
+        }
+        scoreExpected = false;
+    }
+
+    private void writeMember(ByteBuffer bytes) {
+        if (version == RespVersion.RESP3) {
+            ReplyHeaders.writeLine(buf(), Aggregates.ARRAY_MARKER, 2);
+        }
+        writeBulk(bytes);
+        scoreExpected = true;
+    }
+
+    private void writeHeader() {
+        if (headerWritten) {
+            return;
+        }
+        headerWritten = true;
+        long pairs = pairsNested ? count : count / 2;
+        ReplyHeaders.writeLine(buf(), Aggregates.ARRAY_MARKER, version == RespVersion.RESP3 ? pairs : pairs * 2);
+    }
+
+    @Override
+    void finish() {
+        if (count < 0) {
+            count = 0;
+        }
+        writeHeader();
+    }
+}
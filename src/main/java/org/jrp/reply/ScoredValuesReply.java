@@ -0,0 +1,89 @@
+package org.jrp.reply;
+
+import io.lettuce.core.ScoredValue;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Members with scores, like the result of "ZRANGE ... WITHSCORES". It's an array of [member, score] pairs in RESP3,
+ * and a flat array of members and scores in RESP2.
+ */
+public record ScoredValuesReply(MultiBulkReply[] pairs) implements Reply {
+
+    private static final char MARKER = Aggregates.ARRAY_MARKER;
+
+    public static ScoredValuesReply from(List<ScoredValue<byte[]>> scoredValues) {
+        if (scoredValues == null || scoredValues.size() < 1) {
+            return new ScoredValuesReply(new MultiBulkReply[0]);
+        }
+        MultiBulkReply[] pairs = new MultiBulkReply[scoredValues.size()];
+        int i = 0;
+        for (ScoredValue<byte[]> scoredValue : scoredValues) {
+            pairs[i++] = new MultiBulkReply(new Reply[]{
+                    BulkReply.bulkReply(scoredValue.getValue()), new DoubleReply(scoredValue.getScore())});
+        }
+        return new ScoredValuesReply(pairs);
+    }
+
+    @Override
+    public void write(ByteBuf out) {
+        write(out, RespVersion.RESP2);
+    }
+
+    @Override
+    public int encodedSize() {
+        return encodedSize(RespVersion.RESP2);
+    }
+
+    @Override
+    public void write(ByteBuf out, RespVersion version) {
+        if (version == RespVersion.RESP3) {
+            Aggregates.write(out, MARKER, pairs.length, pairs, version);
+            return;
+        }
+        ReplyHeaders.writeLine(out, MARKER, pairs.length * 2L);
+        for (MultiBulkReply pair : pairs) {
+            for (Reply reply : pair.replies()) {
+                reply.write(out, version);
+            }
+        }
+    }
+
+    @Override
+    public int encodedSize(RespVersion version) {
+        if (version == RespVersion.RESP3) {
+            return Aggregates.encodedSize(MARKER, pairs.length, pairs, version);
+        }
+        int size = Aggregates.headerSize(MARKER, pairs.length * 2L);
+        for (MultiBulkReply pair : pairs) {
+            for (Reply reply : pair.replies()) {
+                size += reply.encodedSize(version);
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public void writeComponents(CompositeByteBuf out, int hugeThreshold, RespVersion version) {
+        if (version == RespVersion.RESP3) {
+            Aggregates.writeComponents(out, hugeThreshold, MARKER, pairs.length, pairs, version);
+            return;
+        }
+        Reply[] flattened = Arrays.stream(pairs)
+                .flatMap(pair -> Arrays.stream(pair.replies()))
+                .toArray(Reply[]::new);
+        Aggregates.writeComponents(out, hugeThreshold, MARKER, flattened.length, flattened, version);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.stream(pairs)
+                .map(pair -> "\"" + pair.replies()[0] + "\" \"" + pair.replies()[1] + "\"")
+                .limit(10)
+                .collect(Collectors.joining(" "));
+    }
+}
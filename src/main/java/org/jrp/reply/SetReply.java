@@ -0,0 +1,64 @@
+package org.jrp.reply;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.stream.Collectors;
+
+/**
+ * A set of RESP3, written as an array in RESP2.
+ */
+public record SetReply(Reply[] replies) implements Reply {
+
+    static final char MARKER = '~';
+
+    public static SetReply from(Collection<?> objects) {
+        return new SetReply(MultiBulkReply.toReplies(objects));
+    }
+
+    @Override
+    public void write(ByteBuf out) {
+        write(out, RespVersion.RESP2);
+    }
+
+    @Override
+    public int encodedSize() {
+        return encodedSize(RespVersion.RESP2);
+    }
+
+    @Override
+    public void write(ByteBuf out, RespVersion version) {
+        Aggregates.write(out, marker(version), length(), replies, version);
+    }
+
+    @Override
+    public int encodedSize(RespVersion version) {
+        return Aggregates.encodedSize(marker(version), length(), replies, version);
+    }
+
+    @Override
+    public void writeComponents(CompositeByteBuf out, int hugeThreshold, RespVersion version) {
+        Aggregates.writeComponents(out, hugeThreshold, marker(version), length(), replies, version);
+    }
+
+    private static char marker(RespVersion version) {
+        return version == RespVersion.RESP3 ? MARKER : Aggregates.ARRAY_MARKER;
+    }
+
+    private int length() {
+        return replies == null ? -1 : replies.length;
+    }
+
+    @Override
+    public String toString() {
+        if (replies == null) {
+            return "null";
+        }
+        return Arrays.stream(replies)
+                .map(reply -> "\"" + reply + "\"")
+                .limit(10)
+                .collect(Collectors.joining(" "));
+    }
+}
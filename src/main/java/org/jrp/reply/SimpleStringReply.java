@@ -38,6 +38,11 @@ public class SimpleStringReply implements Reply {
         out.writeBytes(CRLF);
     }
 
+    @Override
+    public int encodedSize() {
+        return 1 + status.length + CRLF.length;
+    }
+
     @Override
     public String toString() {
         return BytesUtils.string(status);
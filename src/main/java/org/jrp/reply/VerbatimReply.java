@@ -0,0 +1,79 @@
+package org.jrp.reply;
+
+import io.netty.buffer.ByteBuf;
+import org.jrp.utils.BytesUtils;
+
+import static org.jrp.utils.BytesUtils.bytes;
+import static org.jrp.utils.BytesUtils.stringSize;
+
+/**
+ * A verbatim string of RESP3, which is prefixed by a 3 bytes format ("txt" or "mkd") and a colon, written as a
+ * plain bulk string in RESP2.
+ */
+public class VerbatimReply implements Reply {
+
+    private static final char MARKER = '=';
+
+    private static final byte[] TXT = bytes("txt:");
+    private static final byte[] MKD = bytes("mkd:");
+
+    private final byte[] format;
+    private final byte[] text;
+
+    private VerbatimReply(byte[] format, byte[] text) {
+        this.format = format;
+        this.text = text;
+    }
+
+    /**
+     * @return the plain text reply of 'text', or the nil reply if 'text' is null
+     */
+    public static Reply txt(String text) {
+        return text == null ? BulkReply.NIL_REPLY : new VerbatimReply(TXT, bytes(text));
+    }
+
+    /**
+     * @return the markdown reply of 'text', or the nil reply if 'text' is null
+     */
+    public static Reply mkd(String text) {
+        return text == null ? BulkReply.NIL_REPLY : new VerbatimReply(MKD, bytes(text));
+    }
+
+    @Override
+    public void write(ByteBuf out) {
+        ReplyHeaders.writeLine(out, '$', text.length);
+        out.writeBytes(text);
+        out.writeBytes(CRLF);
+    }
+
+    @Override
+    public int encodedSize() {
+        return 1 + stringSize(text.length) + CRLF.length + text.length + CRLF.length;
+    }
+
+    @Override
+    public void write(ByteBuf out, RespVersion version) {
+        if (version == RespVersion.RESP3) {
+            ReplyHeaders.writeLine(out, MARKER, format.length + text.length);
+            out.writeBytes(format);
+            out.writeBytes(text);
+            out.writeBytes(CRLF);
+        } else {
+            write(out);
+        }
+    }
+
+    @Override
+    public int encodedSize(RespVersion version) {
+        if (version == RespVersion.RESP3) {
+            int len = format.length + text.length;
+            return 1 + stringSize(len) + CRLF.length + len + CRLF.length;
+        }
+        return encodedSize();
+    }
+
+    @Override
+    public String toString() {
+        return BytesUtils.string(text);
+    }
+}
@@ -6,7 +6,10 @@ import org.apache.commons.beanutils.BeanUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.jrp.cmd.Command;
+import org.jrp.cmd.CommandProcessor;
 import org.jrp.cmd.CommandProcessors;
+import org.jrp.cmd.KeyExtractor;
 import org.jrp.cmd.RedisKeyword;
 import org.jrp.config.ProxyConfig;
 import org.jrp.exception.RedisException;
@@ -14,7 +17,9 @@ import org.jrp.monitor.ClientStat;
 import org.jrp.reply.*;
 
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import static org.jrp.exception.RedisException.NOT_IMPLEMENTED_ERROR;
 import static org.jrp.reply.SimpleStringReply.OK;
@@ -24,6 +29,16 @@ public abstract class AbstractRedisServer implements RedisServer {
 
     private static final Logger LOGGER = LogManager.getLogger(AbstractRedisServer.class);
 
+    // the version of Redis whose commands the proxy speaks, reported by "HELLO"
+    static final String HELLO_REDIS_VERSION = "6.2.0";
+
+    private static final ErrorReply NOPROTO_ERROR = new ErrorReply("NOPROTO unsupported protocol version");
+    private static final ErrorReply INVALID_COMMAND_ERROR = new ErrorReply("ERR Invalid command specified");
+    private static final ErrorReply INVALID_NUMBER_OF_ARGUMENTS_ERROR =
+            new ErrorReply("ERR Invalid number of arguments specified for command");
+    private static final ErrorReply NO_KEY_ARGUMENTS_ERROR = new ErrorReply("ERR The command has no key arguments");
+    private static final ErrorReply DB_INDEX_OUT_OF_RANGE = new ErrorReply("ERR DB index is out of range");
+
     final ProxyConfig proxyConfig;
 
     public AbstractRedisServer(ProxyConfig proxyConfig) {
@@ -38,6 +53,9 @@ public abstract class AbstractRedisServer implements RedisServer {
     @Override
     public final Reply select(byte[] index) {
         int db = toInt(index);
+        if (db < 0 || db >= proxyConfig.getDatabases()) {
+            return DB_INDEX_OUT_OF_RANGE;
+        }
         ClientStat stat = ClientStat.getStat(RedisServerContext.getChannel());
         stat.setDb(db);
         return OK;
@@ -50,7 +68,7 @@ public abstract class AbstractRedisServer implements RedisServer {
             case LIST:
                 LOGGER.warn("start handling \"CLIENT LIST\" command from {}",
                         RedisServerContext.getCommand().getClientAddress());
-                return new AsyncReply<>(() -> BulkReply.bulkReply(ClientStat.list()));
+                return new AsyncReply<>(() -> VerbatimReply.txt(ClientStat.list()));
             case GETNAME:
                 return BulkReply.bulkReply(stat.getName());
             case SETNAME:
@@ -60,7 +78,7 @@ public abstract class AbstractRedisServer implements RedisServer {
             case ID:
                 return IntegerReply.integer(stat.id);
             case INFO:
-                return BulkReply.bulkReply(stat.dump());
+                return VerbatimReply.txt(stat.dump());
             case KILL:
             case PAUSE:
             case UNPAUSE:
@@ -75,6 +93,54 @@ public abstract class AbstractRedisServer implements RedisServer {
         }
     }
 
+    /**
+     * Switch the protocol of the client, the reply (and the following ones) is in the new protocol.
+     * <p>
+     * "AUTH" is accepted but ignored, as the proxy has no authentication of its own.
+     */
+    @Override
+    public final Reply hello(byte[] protover, byte[][] options) {
+        ClientStat stat = ClientStat.getStat(RedisServerContext.getChannel());
+        RespVersion protocol = stat.getProtocol();
+        if (protover != null) {
+            try {
+                protocol = RespVersion.of(toLong(protover));
+            } catch (NumberFormatException e) {
+                return new ErrorReply("ERR Protocol version is not an integer or out of range");
+            }
+            if (protocol == null) {
+                return NOPROTO_ERROR;
+            }
+        }
+        String clientName = null;
+        if (options != null) {
+            for (int i = 0; i < options.length; i++) {
+                RedisKeyword keyword = RedisKeyword.convert(options[i]);
+                if (keyword == RedisKeyword.AUTH && i + 2 < options.length) {
+                    i += 2;
+                } else if (keyword == RedisKeyword.SETNAME && i + 1 < options.length) {
+                    clientName = string(options[++i]);
+                } else {
+                    return new ErrorReply("ERR Syntax error in HELLO option '" + string(options[i]) + "'");
+                }
+            }
+        }
+        if (clientName != null) {
+            stat.setName(clientName);
+        }
+        // the commands after it are executed in the new protocol, while their replies are encoded in it from the
+        // reply of HELLO on
+        stat.setProtocol(protocol);
+        return new HelloReply(protocol, new MapReply(new Reply[]{
+                BulkReply.bulkReply("server"), BulkReply.bulkReply("redis"),
+                BulkReply.bulkReply("version"), BulkReply.bulkReply(HELLO_REDIS_VERSION),
+                BulkReply.bulkReply("proto"), IntegerReply.integer(protocol.version),
+                BulkReply.bulkReply("id"), IntegerReply.integer(stat.id),
+                BulkReply.bulkReply("mode"), BulkReply.bulkReply("standalone"),
+                BulkReply.bulkReply("role"), BulkReply.bulkReply("master"),
+                BulkReply.bulkReply("modules"), new MultiBulkReply(new Reply[0])}));
+    }
+
     @Override
     public final Reply config(byte[][] args) {
         return switch (RedisKeyword.convert(args[0])) {
@@ -142,26 +208,89 @@ public abstract class AbstractRedisServer implements RedisServer {
 
     @Override
     public Reply info(byte[] section) {
-        String sb = "# Proxy Config\n" + getProxyConfig() + "\n" + doInfo(section) + "\n";
-        return BulkReply.bulkReply(sb);
+        return infoReply(null);
     }
 
-    protected String doInfo(byte[] section) {
-        return null;
+    /**
+     * @return the reply of "INFO", the proxy config followed by the info of Redis
+     */
+    protected Reply infoReply(String redisInfo) {
+        String sb = "# Proxy Config\n" + getProxyConfig() + "\n" + redisInfo + "\n";
+        return VerbatimReply.txt(sb);
     }
 
     @Override
     public final Reply command(byte[] subcommand, byte[][] options) {
         if (subcommand == null) {
-            return ErrorReply.NOT_IMPL;
+            return commandInfos(CommandProcessors.getCommandProcessors());
         }
         return switch (RedisKeyword.convert(subcommand)) {
             case COUNT -> IntegerReply.integer(CommandProcessors.count());
-            case DOCS, GETKEYS, GETKEYSANDFLAGS, INFO, LIST -> throw NOT_IMPLEMENTED_ERROR;
+            case INFO -> commandInfo(options);
+            case GETKEYS -> commandGetKeys(options);
+            case DOCS, GETKEYSANDFLAGS, LIST -> throw NOT_IMPLEMENTED_ERROR;
             default -> ErrorReply.SYNTAX_ERROR;
         };
     }
 
+    private static Reply commandInfo(byte[][] commandNames) {
+        if (commandNames == null || commandNames.length == 0) {
+            return commandInfos(CommandProcessors.getCommandProcessors());
+        }
+        Reply[] replies = new Reply[commandNames.length];
+        for (int i = 0; i < commandNames.length; i++) {
+            CommandProcessor processor = CommandProcessors.get(commandNames[i]);
+            replies[i] = processor == null ? BulkReply.NIL_REPLY : commandInfo(processor);
+        }
+        return new MultiBulkReply(replies);
+    }
+
+    private static Reply commandInfos(List<CommandProcessor> processors) {
+        return new MultiBulkReply(processors.stream()
+                .map(AbstractRedisServer::commandInfo)
+                .toArray(Reply[]::new));
+    }
+
+    /**
+     * @return the command's name, arity, flags, first key, last key and step, as Redis' COMMAND INFO
+     */
+    private static Reply commandInfo(CommandProcessor processor) {
+        KeyExtractor keyExtractor = processor.getKeyExtractor();
+        List<Reply> flags = new ArrayList<>(2);
+        switch (processor.getRWType()) {
+            case READ -> flags.add(SimpleStringReply.from("readonly"));
+            case WRITE -> flags.add(SimpleStringReply.from("write"));
+        }
+        if (keyExtractor.getNumKeys() > 0) {
+            flags.add(SimpleStringReply.from("movablekeys"));
+        }
+        return new MultiBulkReply(new Reply[]{
+                BulkReply.bulkReply(processor.getCommandName().toLowerCase()),
+                IntegerReply.integer(processor.getArity()),
+                new MultiBulkReply(flags.toArray(new Reply[0])),
+                IntegerReply.integer(keyExtractor.getFirstKey()),
+                IntegerReply.integer(keyExtractor.getLastKey()),
+                IntegerReply.integer(keyExtractor.getStep())
+        });
+    }
+
+    private static Reply commandGetKeys(byte[][] tokens) {
+        CommandProcessor processor = tokens == null || tokens.length == 0 ?
+                null : CommandProcessors.get(tokens[0]);
+        if (processor == null) {
+            return INVALID_COMMAND_ERROR;
+        }
+        int arity = processor.getArity();
+        if ((arity > 0 && tokens.length != arity) || tokens.length < -arity) {
+            return INVALID_NUMBER_OF_ARGUMENTS_ERROR;
+        }
+        List<byte[]> keys = processor.getKeyExtractor().keys(new Command(tokens));
+        if (keys.isEmpty()) {
+            return NO_KEY_ARGUMENTS_ERROR;
+        }
+        return MultiBulkReply.from(keys);
+    }
+
     Range<Double> newDoubleRange(byte[] min, byte[] max) {
         return Range.from(newDoubleBoundary(min), newDoubleBoundary(max));
     }
@@ -1,5 +1,7 @@
 package org.jrp.server;
 
+import org.jrp.cmd.KeySpec;
+import org.jrp.cmd.OptionalParameters;
 import org.jrp.cmd.RWType;
 import org.jrp.reply.ErrorReply;
 import org.jrp.reply.Reply;
@@ -11,37 +13,46 @@ import static org.jrp.cmd.RWType.Type.WRITE;
 public interface RedisBitmapServer {
 
     @RWType(type = READ)
+    @KeySpec
+    @OptionalParameters(2)
     default Reply bitcount(byte[] key, byte[] start, byte[] end) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
+    @KeySpec
     default Reply bitfield(byte[] key, byte[][] options) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = READ)
+    @KeySpec
     default Reply bitfield_ro(byte[] key, byte[][] options) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
+    @KeySpec(firstKey = 2, lastKey = -1)
     default Reply bitop(byte[] operation, byte[] destkey, byte[][] keys) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = READ)
+    @KeySpec
+    @OptionalParameters(2)
     default Reply bitpos(byte[] key, byte[] bit, byte[] start, byte[] end) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = READ)
-    default Reply getbit(byte[] key, byte[] offset) {
+    @KeySpec
+    default Reply getbit(byte[] key, long offset) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
-    default Reply setbit(byte[] key, byte[] offset, byte[] value) {
+    @KeySpec
+    default Reply setbit(byte[] key, long offset, int value) {
         return ErrorReply.NOT_IMPL;
     }
 }
@@ -1,27 +1,32 @@
 package org.jrp.server;
 
 import io.netty.channel.Channel;
-import io.netty.channel.ChannelId;
-import org.apache.commons.lang3.tuple.MutablePair;
-import org.apache.commons.lang3.tuple.Pair;
+import io.netty.channel.EventLoop;
+import io.netty.util.AttributeKey;
+import io.netty.util.ReferenceCountUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jrp.cmd.Command;
 import org.jrp.reply.Reply;
 import org.jrp.server.handler.RedisCommandHandler;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
-// TODO use something like Disruptor
+/**
+ * Keeps the replies of a channel in the order of its commands.
+ * <p>
+ * Every channel has a ring of commands, appended by the thread executing the channel's commands (one thread at a
+ * time, see {@link org.jrp.server.handler.LocalCommandHandler}), completed by any thread (typically Lettuce's), and
+ * drained on the channel's event loop.
+ */
 public class RedisCommandsQueue {
 
     private static final Logger LOGGER = LogManager.getLogger(RedisCommandsQueue.class);
 
-    private final ConcurrentMap<ChannelId, ConcurrentSkipListMap<Long, Pair<Command, Reply>>> reqRespQueues =
-            new ConcurrentHashMap<>();
+    private static final AttributeKey<ReplyRing> REPLY_RING = AttributeKey.valueOf(ReplyRing.class, "REPLY_RING");
+
+    static final int SEGMENT_SIZE = 64;
 
     final RedisCommandHandler redisCommandHandler;
 
@@ -30,62 +35,184 @@ public class RedisCommandsQueue {
     }
 
     public void onChannelActive(Channel channel) {
-        ConcurrentSkipListMap<Long, Pair<Command, Reply>> queue = new ConcurrentSkipListMap<>();
-        ChannelId id = channel.id();
-        reqRespQueues.put(id, queue);
+        channel.attr(REPLY_RING).set(new ReplyRing(channel));
     }
 
+    /**
+     * Drop the ready replies of the channel on its event loop, the only consumer of the ring, as the handler may be
+     * called in its own threads. The replies still pending are dropped as they are set.
+     */
     public void onChannelInactive(Channel channel) {
-        ChannelId id = channel.id();
-        reqRespQueues.remove(id);
+        EventLoop eventLoop = channel.eventLoop();
+        if (!eventLoop.inEventLoop()) {
+            eventLoop.execute(() -> onChannelInactive(channel));
+            return;
+        }
+        ReplyRing ring = channel.attr(REPLY_RING).getAndSet(null);
+        if (ring != null) {
+            ring.discarded = true;
+            ring.discard();
+        }
     }
 
+    /**
+     * Append a pending command, must be called by the thread executing the channel's commands.
+     */
     public void add(Channel channel, Command command) {
-        ConcurrentSkipListMap<Long, Pair<Command, Reply>> queue = reqRespQueues.get(channel.id());
-        queue.put(command.id, MutablePair.of(command, null));
+        ReplyRing ring = channel.attr(REPLY_RING).get();
+        if (ring == null) {
+            return;
+        }
+        ring.offer(command);
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("channel {} add pending command '{}'", channel, command);
         }
     }
 
-    public void set(Channel channel, long commandId, Reply reply) {
-        ConcurrentSkipListMap<Long, Pair<Command, Reply>> queue = reqRespQueues.get(channel.id());
-        if (queue == null) {
+    /**
+     * Complete the command with its reply, and drain the ready replies on the channel's event loop.
+     */
+    public void set(Channel channel, Command command, Reply reply) {
+        ReplyRing ring = channel.attr(REPLY_RING).get();
+        if (ring == null) {
+            // the channel is gone, so is the reply
+            ReferenceCountUtil.release(reply);
+            command.recycle();
             return;
         }
-        queue.get(commandId).setValue(reply);
+        command.setReply(reply);
         if (LOGGER.isDebugEnabled()) {
-            LOGGER.debug("channel {} set reply '{}' to command id {}", channel, reply, commandId);
+            LOGGER.debug("channel {} set reply '{}' to command '{}'", channel, reply, command);
         }
+        drain(channel, ring);
     }
 
+    /**
+     * Drain the ready replies held back while the channel was not writable, on the channel's event loop.
+     */
     public void flushReadyReplies(Channel channel) {
-        ConcurrentSkipListMap<Long, Pair<Command, Reply>> queue = reqRespQueues.get(channel.id());
-        if (queue == null) {
-            return;
+        ReplyRing ring = channel.attr(REPLY_RING).get();
+        if (ring != null) {
+            drain(channel, ring);
+        }
+    }
+
+    private static void drain(Channel channel, ReplyRing ring) {
+        EventLoop eventLoop = channel.eventLoop();
+        if (eventLoop.inEventLoop()) {
+            ring.drain();
+        } else if (ring.drainScheduled.compareAndSet(false, true)) {
+            // one drain task is enough for all completions before it runs
+            eventLoop.execute(ring.drainTask);
+        }
+    }
+
+    private static final class Segment {
+
+        final AtomicReferenceArray<Command> commands = new AtomicReferenceArray<>(SEGMENT_SIZE);
+
+        volatile Segment next;
+    }
+
+    /**
+     * An unbounded single-producer single-consumer queue made of linked segments.
+     */
+    private final class ReplyRing {
+
+        private final Channel channel;
+
+        final AtomicBoolean drainScheduled = new AtomicBoolean();
+        // set once the channel is inactive, when a reply set to a command still in the ring is dropped
+        volatile boolean discarded;
+        final Runnable drainTask = () -> {
+            drainScheduled.set(false);
+            drain();
+        };
+
+        // accessed by the producer only
+        private Segment producerSegment;
+        private int producerOffset;
+
+        // accessed by the consumer only
+        private Segment consumerSegment;
+        private int consumerOffset;
+
+        ReplyRing(Channel channel) {
+            this.channel = channel;
+            Segment segment = new Segment();
+            this.producerSegment = segment;
+            this.consumerSegment = segment;
         }
-        synchronized (channel.id()) {
-            while (!Thread.currentThread().isInterrupted()) {
-                Map.Entry<Long, Pair<Command, Reply>> firstEntry = queue.firstEntry();
-                if (firstEntry == null) {
+
+        void offer(Command command) {
+            if (producerOffset == SEGMENT_SIZE) {
+                Segment segment = new Segment();
+                producerSegment.next = segment;
+                producerSegment = segment;
+                producerOffset = 0;
+            }
+            producerSegment.commands.lazySet(producerOffset++, command);
+        }
+
+        void drain() {
+            if (discarded) {
+                // a reply set by a thread that got the ring before the channel was inactive
+                discard();
+                return;
+            }
+            boolean written = false;
+            while (true) {
+                if (consumerOffset == SEGMENT_SIZE) {
+                    Segment next = consumerSegment.next;
+                    if (next == null) {
+                        break;
+                    }
+                    consumerSegment = next;
+                    consumerOffset = 0;
+                }
+                if (!channel.isWritable()) {
+                    // hold the rest back until the channel is writable again, see flushReadyReplies()
+                    break;
+                }
+                Command command = consumerSegment.commands.get(consumerOffset);
+                if (command == null) {
                     break;
                 }
-                Pair<Command, Reply> pair = firstEntry.getValue();
-                Reply readyReply = pair.getValue();
+                Reply readyReply = command.getReply();
                 if (readyReply == null) {
                     break;
                 }
-                Command command = pair.getKey();
                 if (LOGGER.isDebugEnabled()) {
                     LOGGER.debug("channel {} flushing reply '{}' to command '{}'", channel, readyReply, command);
                 }
-                redisCommandHandler.flush(channel, command, readyReply);
-                Map.Entry<Long, Pair<Command, Reply>> _firstEntry = queue.pollFirstEntry();
-                // safe because command id is strictly increment
-                // and a command is handled by only one thread, i.e. the Lettuce thread
-                if (!firstEntry.getKey().equals(_firstEntry.getKey())) {
-                    throw new AssertionError("command is not handled single-threaded?");
+                redisCommandHandler.write(channel, command, readyReply);
+                written = true;
+                consumerSegment.commands.lazySet(consumerOffset++, null);
+            }
+            if (written) {
+                channel.flush();
+            }
+        }
+
+        /**
+         * Drop all the ready replies left in the ring, not only the contiguous ones, as the commands before them
+         * may never be replied to the channel. The ones not ready are left to be dropped when they are set.
+         */
+        void discard() {
+            Segment segment = consumerSegment;
+            int offset = consumerOffset;
+            while (segment != null) {
+                for (int i = offset; i < SEGMENT_SIZE; i++) {
+                    Command command = segment.commands.get(i);
+                    Reply reply = command == null ? null : command.getReply();
+                    if (reply != null) {
+                        segment.commands.lazySet(i, null);
+                        // the channel is inactive, so the reply is released and the command recycled
+                        redisCommandHandler.write(channel, command, reply);
+                    }
                 }
+                segment = segment.next;
+                offset = 0;
             }
         }
     }
@@ -1,5 +1,6 @@
 package org.jrp.server;
 
+import org.jrp.cmd.KeySpec;
 import org.jrp.cmd.RWType;
 import org.jrp.reply.ErrorReply;
 import org.jrp.reply.Reply;
@@ -11,66 +12,79 @@ import static org.jrp.cmd.RWType.Type.WRITE;
 public interface RedisGenericServer {
 
     @RWType(type = WRITE)
+    @KeySpec(lastKey = -1)
     default Reply del(byte[][] keys) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = READ)
+    @KeySpec(lastKey = -1)
     default Reply exists(byte[][] keys) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
-    default Reply expire(byte[] key, byte[] seconds) {
+    @KeySpec
+    default Reply expire(byte[] key, long seconds) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
-    default Reply expireat(byte[] key, byte[] timestamp) {
+    @KeySpec
+    default Reply expireat(byte[] key, long timestamp) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
+    @KeySpec
     default Reply persist(byte[] key) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
-    default Reply pexpire(byte[] key, byte[] milliseconds) {
+    @KeySpec
+    default Reply pexpire(byte[] key, long milliseconds) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
-    default Reply pexpireat(byte[] key, byte[] millisecondsTimestamp) {
+    @KeySpec
+    default Reply pexpireat(byte[] key, long millisecondsTimestamp) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = READ)
+    @KeySpec
     default Reply pttl(byte[] key) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
+    @KeySpec(lastKey = 2)
     default Reply rename(byte[] key, byte[] newkey) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
+    @KeySpec(lastKey = 2)
     default Reply renamenx(byte[] key, byte[] newkey) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
+    @KeySpec
     default Reply sort(byte[] key, byte[][] args) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = READ)
+    @KeySpec
     default Reply ttl(byte[] key) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = READ)
+    @KeySpec
     default Reply type(byte[] key) {
         return ErrorReply.NOT_IMPL;
     }
@@ -1,5 +1,7 @@
 package org.jrp.server;
 
+import io.netty.buffer.ByteBuf;
+import org.jrp.cmd.KeySpec;
 import org.jrp.cmd.RWType;
 import org.jrp.reply.ErrorReply;
 import org.jrp.reply.Reply;
@@ -11,71 +13,85 @@ import static org.jrp.cmd.RWType.Type.WRITE;
 public interface RedisHashServer {
 
     @RWType(type = WRITE)
+    @KeySpec
     default Reply hdel(byte[] key, byte[][] fields) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = READ)
+    @KeySpec
     default Reply hexists(byte[] key, byte[] field) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = READ)
+    @KeySpec
     default Reply hget(byte[] key, byte[] field) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = READ)
+    @KeySpec
     default Reply hgetall(byte[] key) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
-    default Reply hincrby(byte[] key, byte[] field, byte[] increment) {
+    @KeySpec
+    default Reply hincrby(byte[] key, byte[] field, long increment) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
-    default Reply hincrbyfloat(byte[] key, byte[] field, byte[] increment) {
+    @KeySpec
+    default Reply hincrbyfloat(byte[] key, byte[] field, double increment) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = READ)
+    @KeySpec
     default Reply hkeys(byte[] key) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = READ)
+    @KeySpec
     default Reply hlen(byte[] key) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = READ)
+    @KeySpec
     default Reply hmget(byte[] key, byte[][] fields) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
-    default Reply hset(byte[] key, byte[][] fieldsAndValues) {
+    @KeySpec
+    default Reply hset(byte[] key, ByteBuf[] fieldsAndValues) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
-    default Reply hmset(byte[] key, byte[][] fieldsAndValues) {
+    @KeySpec
+    default Reply hmset(byte[] key, ByteBuf[] fieldsAndValues) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = READ)
+    @KeySpec
     default Reply hscan(byte[] key, byte[] cursor, byte[][] args) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
-    default Reply hsetnx(byte[] key, byte[] field, byte[] value) {
+    @KeySpec
+    default Reply hsetnx(byte[] key, byte[] field, ByteBuf value) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = READ)
+    @KeySpec
     default Reply hvals(byte[] key) {
         return ErrorReply.NOT_IMPL;
     }
@@ -1,5 +1,6 @@
 package org.jrp.server;
 
+import org.jrp.cmd.KeySpec;
 import org.jrp.cmd.RWType;
 import org.jrp.reply.ErrorReply;
 import org.jrp.reply.Reply;
@@ -10,16 +11,19 @@ import static org.jrp.cmd.RWType.Type.WRITE;
 public interface RedisHyperLogLogServer {
 
     @RWType(type = WRITE)
+    @KeySpec
     default Reply pfadd(byte[] key, byte[][] elements) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
+    @KeySpec(lastKey = -1)
     default Reply pfcount(byte[][] keys) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
+    @KeySpec(lastKey = -1)
     default Reply pfmerge(byte[] destkey, byte[][] sourceKeys) {
         return ErrorReply.NOT_IMPL;
     }
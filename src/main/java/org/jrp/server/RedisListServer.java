@@ -1,93 +1,114 @@
 package org.jrp.server;
 
+import io.netty.buffer.ByteBuf;
+import org.jrp.cmd.KeySpec;
+import org.jrp.cmd.OptionalParameters;
 import org.jrp.cmd.RWType;
+import org.jrp.cmd.RedisKeyword;
 import org.jrp.reply.ErrorReply;
 import org.jrp.reply.Reply;
 
 import static org.jrp.cmd.RWType.Type.READ;
 import static org.jrp.cmd.RWType.Type.WRITE;
-import static org.jrp.utils.BytesUtils.bytes;
 
 @SuppressWarnings("unused")
 public interface RedisListServer {
 
     @RWType(type = READ)
-    default Reply lindex(byte[] key, byte[] index) {
+    @KeySpec
+    default Reply lindex(byte[] key, long index) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
-    default Reply linsert(byte[] key, byte[] where, byte[] pivot, byte[] value) {
+    @KeySpec
+    default Reply linsert(byte[] key, RedisKeyword where, byte[] pivot, byte[] value) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = READ)
+    @KeySpec
     default Reply llen(byte[] key) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
-    default Reply lmove(byte[] source, byte[] destination, byte[] whereFrom, byte[] whereTo) {
+    @KeySpec(lastKey = 2)
+    default Reply lmove(byte[] source, byte[] destination, RedisKeyword whereFrom, RedisKeyword whereTo) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
+    @KeySpec
+    @OptionalParameters
     default Reply lpop(byte[] key, byte[] count) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
+    @KeySpec
+    @OptionalParameters
     default Reply rpop(byte[] key, byte[] count) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = READ)
+    @KeySpec
     default Reply lpos(byte[] key, byte[] element, byte[][] args) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
-    default Reply lpush(byte[] key, byte[][] elements) {
+    @KeySpec
+    default Reply lpush(byte[] key, ByteBuf[] elements) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
-    default Reply rpush(byte[] key, byte[][] elements) {
+    @KeySpec
+    default Reply rpush(byte[] key, ByteBuf[] elements) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
-    default Reply lpushx(byte[] key, byte[][] elements) {
+    @KeySpec
+    default Reply lpushx(byte[] key, ByteBuf[] elements) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
-    default Reply rpushx(byte[] key, byte[][] elements) {
+    @KeySpec
+    default Reply rpushx(byte[] key, ByteBuf[] elements) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = READ)
-    default Reply lrange(byte[] key, byte[] start, byte[] stop) {
+    @KeySpec
+    default Reply lrange(byte[] key, long start, long stop) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
-    default Reply lrem(byte[] key, byte[] count, byte[] element) {
+    @KeySpec
+    default Reply lrem(byte[] key, long count, byte[] element) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
-    default Reply lset(byte[] key, byte[] index, byte[] element) {
+    @KeySpec
+    default Reply lset(byte[] key, long index, byte[] element) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
-    default Reply ltrim(byte[] key, byte[] start, byte[] stop) {
+    @KeySpec
+    default Reply ltrim(byte[] key, long start, long stop) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
+    @KeySpec(lastKey = 2)
     default Reply rpoplpush(byte[] source, byte[] destination) {
-        return lmove(source, destination, bytes("RIGHT"), bytes("LEFT"));
+        return lmove(source, destination, RedisKeyword.RIGHT, RedisKeyword.LEFT);
     }
 }
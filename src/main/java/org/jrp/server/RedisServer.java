@@ -1,5 +1,8 @@
 package org.jrp.server;
 
+import org.jrp.cmd.CommandTable;
+import org.jrp.cmd.Local;
+import org.jrp.cmd.OptionalParameters;
 import org.jrp.config.ProxyConfig;
 import org.jrp.monitor.Monitor;
 import org.jrp.reply.*;
@@ -9,28 +12,40 @@ import java.util.Arrays;
 
 import static org.jrp.reply.SimpleStringReply.*;
 
+@CommandTable
 @SuppressWarnings("unused")
 public interface RedisServer extends RedisStringServer, RedisBitmapServer, RedisGenericServer, RedisHyperLogLogServer,
         RedisListServer, RedisHashServer, RedisSetServer, RedisSortedSetServer {
 
     ProxyConfig getProxyConfig();
 
+    @Local
     default Reply client(byte[][] args) {
         return ErrorReply.NOT_IMPL;
     }
 
+    @Local
     default BulkReply echo(byte[] message) {
         return BulkReply.bulkReply(message);
     }
 
+    @Local
+    default Reply hello(byte[] protover, byte[][] options) {
+        return ErrorReply.NOT_IMPL;
+    }
+
+    @Local
+    @OptionalParameters
     default Reply ping(byte[] message) {
         return message == null ? PONG : BulkReply.bulkReply(message);
     }
 
+    @Local
     default SimpleStringReply quit() {
         return QUIT;
     }
 
+    @Local
     default Reply select(byte[] index) {
         return ErrorReply.NOT_IMPL;
     }
@@ -43,6 +58,7 @@ public interface RedisServer extends RedisStringServer, RedisBitmapServer, Redis
         return ErrorReply.NOT_IMPL;
     }
 
+    @Local
     default Reply command(byte[] subcommand, byte[][] options) {
         return ErrorReply.NOT_IMPL;
     }
@@ -55,14 +71,17 @@ public interface RedisServer extends RedisStringServer, RedisBitmapServer, Redis
         return ErrorReply.NOT_IMPL;
     }
 
+    @OptionalParameters
     default Reply flushall(byte[] option) {
         return ErrorReply.NOT_IMPL;
     }
 
+    @OptionalParameters
     default Reply flushdb(byte[] option) {
         return ErrorReply.NOT_IMPL;
     }
 
+    @OptionalParameters
     default Reply info(byte[] section) {
         return ErrorReply.NOT_IMPL;
     }
@@ -72,10 +91,12 @@ public interface RedisServer extends RedisStringServer, RedisBitmapServer, Redis
         return OK;
     }
 
+    @OptionalParameters
     default Reply slowlog(byte[] subcommand, byte[] argument) {
         return ErrorReply.NOT_IMPL;
     }
 
+    @Local
     default MultiBulkReply time() {
         Instant now = Instant.now();
         long epochSecond = now.getEpochSecond();
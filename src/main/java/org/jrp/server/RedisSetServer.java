@@ -1,5 +1,7 @@
 package org.jrp.server;
 
+import org.jrp.cmd.KeySpec;
+import org.jrp.cmd.OptionalParameters;
 import org.jrp.cmd.RWType;
 import org.jrp.reply.ErrorReply;
 import org.jrp.reply.Reply;
@@ -11,71 +13,87 @@ import static org.jrp.cmd.RWType.Type.WRITE;
 public interface RedisSetServer {
 
     @RWType(type = WRITE)
+    @KeySpec
     default Reply sadd(byte[] key, byte[][] members) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = READ)
+    @KeySpec
     default Reply scard(byte[] key) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = READ)
+    @KeySpec(lastKey = -1)
     default Reply sdiff(byte[][] keys) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
+    @KeySpec(lastKey = -1)
     default Reply sdiffstore(byte[] destination, byte[][] keys) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = READ)
+    @KeySpec(lastKey = -1)
     default Reply sinter(byte[][] keys) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
+    @KeySpec(lastKey = -1)
     default Reply sinterstore(byte[] destination, byte[][] keys) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = READ)
+    @KeySpec
     default Reply sismember(byte[] key, byte[] member) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = READ)
+    @KeySpec
     default Reply smembers(byte[] key) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
+    @KeySpec(lastKey = 2)
     default Reply smove(byte[] source, byte[] destination, byte[] member) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
+    @KeySpec
+    @OptionalParameters
     default Reply spop(byte[] key, byte[] count) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = READ)
+    @KeySpec
+    @OptionalParameters
     default Reply srandmember(byte[] key, byte[] count) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
+    @KeySpec
     default Reply srem(byte[] key, byte[][] members) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = READ)
+    @KeySpec(lastKey = -1)
     default Reply sunion(byte[][] keys) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
+    @KeySpec(lastKey = -1)
     default Reply sunionstore(byte[] destination, byte[][] keys) {
         return ErrorReply.NOT_IMPL;
     }
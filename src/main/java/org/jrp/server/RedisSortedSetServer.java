@@ -1,5 +1,7 @@
 package org.jrp.server;
 
+import org.jrp.cmd.KeySpec;
+import org.jrp.cmd.OptionalParameters;
 import org.jrp.cmd.RWType;
 import org.jrp.reply.ErrorReply;
 import org.jrp.reply.Reply;
@@ -11,86 +13,104 @@ import static org.jrp.cmd.RWType.Type.WRITE;
 public interface RedisSortedSetServer {
 
     @RWType(type = WRITE)
+    @KeySpec
     default Reply zadd(byte[] key, byte[][] args) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = READ)
+    @KeySpec
     default Reply zcard(byte[] key) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = READ)
+    @KeySpec
     default Reply zcount(byte[] key, byte[] min, byte[] max) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
-    default Reply zincrby(byte[] key, byte[] increment, byte[] member) {
+    @KeySpec
+    default Reply zincrby(byte[] key, double increment, byte[] member) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
+    @KeySpec(numKeys = 2)
     default Reply zinterstore(byte[] destination, byte[] numkeys, byte[][] keys) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = READ)
+    @KeySpec
     default Reply zrange(byte[] key, byte[] min, byte[] max, byte[][] args) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = READ)
+    @KeySpec
     default Reply zrangebyscore(byte[] key, byte[] min, byte[] max, byte[][] args) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = READ)
+    @KeySpec
     default Reply zrank(byte[] key, byte[] member) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
+    @KeySpec
     default Reply zrem(byte[] key, byte[][] members) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
-    default Reply zremrangebyrank(byte[] key, byte[] start, byte[] stop) {
+    @KeySpec
+    default Reply zremrangebyrank(byte[] key, long start, long stop) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
+    @KeySpec
     default Reply zremrangebyscore(byte[] key, byte[] min, byte[] max) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = READ)
+    @KeySpec
     default Reply zrevrank(byte[] key, byte[] member) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = READ)
+    @KeySpec
+    @OptionalParameters
     default Reply zrevrange(byte[] key, byte[] start, byte[] stop, byte[] withscores) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = READ)
+    @KeySpec
     default Reply zrevrangebyscore(byte[] key, byte[] max, byte[] min, byte[][] args) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = READ)
+    @KeySpec
     default Reply zscan(byte[] key, byte[] cursor, byte[][] args) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = READ)
+    @KeySpec
     default Reply zscore(byte[] key, byte[] member) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
+    @KeySpec(numKeys = 2)
     default Reply zunionstore(byte[] destination, byte[] numkeys, byte[][] keys) {
         return ErrorReply.NOT_IMPL;
     }
@@ -1,5 +1,7 @@
 package org.jrp.server;
 
+import io.netty.buffer.ByteBuf;
+import org.jrp.cmd.KeySpec;
 import org.jrp.cmd.RWType;
 import org.jrp.reply.ErrorReply;
 import org.jrp.reply.Reply;
@@ -11,107 +13,128 @@ import static org.jrp.cmd.RWType.Type.WRITE;
 public interface RedisStringServer {
 
     @RWType(type = WRITE)
-    default Reply append(byte[] key, byte[] value) {
+    @KeySpec
+    default Reply append(byte[] key, ByteBuf value) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
+    @KeySpec
     default Reply decr(byte[] key) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
-    default Reply decrby(byte[] key, byte[] decrement) {
+    @KeySpec
+    default Reply decrby(byte[] key, long decrement) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = READ)
+    @KeySpec
     default Reply get(byte[] key) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
+    @KeySpec
     default Reply getdel(byte[] key) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
+    @KeySpec
     default Reply getex(byte[] key, byte[][] options) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = READ)
-    default Reply getrange(byte[] key, byte[] start, byte[] end) {
+    @KeySpec
+    default Reply getrange(byte[] key, long start, long end) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
+    @KeySpec
     default Reply getset(byte[] key, byte[] value) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
+    @KeySpec
     default Reply incr(byte[] key) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
-    default Reply incrby(byte[] key, byte[] increment) {
+    @KeySpec
+    default Reply incrby(byte[] key, long increment) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
-    default Reply incrbyfloat(byte[] key, byte[] increment) {
+    @KeySpec
+    default Reply incrbyfloat(byte[] key, double increment) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = READ)
+    @KeySpec(lastKey = -1)
     default Reply mget(byte[][] keys) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
+    @KeySpec(lastKey = -1, step = 2)
     default Reply mset(byte[][] keysAndValues) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
+    @KeySpec(lastKey = -1, step = 2)
     default Reply msetnx(byte[][] keysAndValues) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
-    default Reply psetex(byte[] key, byte[] milliseconds, byte[] value) {
+    @KeySpec
+    default Reply psetex(byte[] key, long milliseconds, ByteBuf value) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
-    default Reply set(byte[] key, byte[] value, byte[][] options) {
+    @KeySpec
+    default Reply set(byte[] key, ByteBuf value, byte[][] options) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
-    default Reply setex(byte[] key, byte[] seconds, byte[] value) {
+    @KeySpec
+    default Reply setex(byte[] key, long seconds, ByteBuf value) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
-    default Reply setnx(byte[] key, byte[] value) {
+    @KeySpec
+    default Reply setnx(byte[] key, ByteBuf value) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = WRITE)
-    default Reply setrange(byte[] key, byte[] offset, byte[] value) {
+    @KeySpec
+    default Reply setrange(byte[] key, long offset, byte[] value) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = READ)
+    @KeySpec
     default Reply strlen(byte[] key) {
         return ErrorReply.NOT_IMPL;
     }
 
     @RWType(type = READ)
-    default Reply substr(byte[] key, byte[] start, byte[] end) {
+    @KeySpec
+    default Reply substr(byte[] key, long start, long end) {
         return getrange(key, start, end);
     }
 }
@@ -2,22 +2,33 @@ package org.jrp.server;
 
 import io.lettuce.core.*;
 import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.protocol.CommandArgs;
+import io.lettuce.core.protocol.CommandType;
+import io.lettuce.core.protocol.ProtocolKeyword;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoopGroup;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jrp.client.lettuce.LettuceRedisClient;
+import org.jrp.client.passthrough.PassThroughClient;
+import org.jrp.cmd.Command;
+import org.jrp.cmd.CommandProcessor;
 import org.jrp.cmd.RedisKeyword;
 import org.jrp.config.ProxyConfig;
 import org.jrp.exception.RedisException;
+import org.jrp.monitor.ClientStat;
 import org.jrp.reply.*;
 import org.jrp.utils.BytesUtils;
 
 import java.util.Set;
 import java.util.*;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static io.lettuce.core.BitFieldArgs.*;
@@ -29,14 +40,161 @@ public class RedisproxyAsyncServer extends AbstractRedisServer {
     private static final Logger LOGGER = LogManager.getLogger(RedisproxyAsyncServer.class);
 
     private final LettuceRedisClient lettuceRedisClient;
+    private final PassThroughClient passThroughClient;
 
     public RedisproxyAsyncServer(ProxyConfig proxyConfig, LettuceRedisClient lettuceRedisClient) {
+        this(proxyConfig, lettuceRedisClient, null);
+    }
+
+    /**
+     * @param passThroughClient the client the handler forwards commands through as they are, or null
+     */
+    public RedisproxyAsyncServer(ProxyConfig proxyConfig, LettuceRedisClient lettuceRedisClient,
+                                 PassThroughClient passThroughClient) {
         super(proxyConfig);
         this.lettuceRedisClient = lettuceRedisClient;
+        this.passThroughClient = passThroughClient;
+    }
+
+    public PassThroughClient getPassThroughClient() {
+        return passThroughClient;
+    }
+
+    /**
+     * Connect to DB 0 on each of the event loops, so that in the thread-per-core mode the commands of DB 0 are
+     * executed all in the event loops of their client channels.
+     *
+     * @throws RedisException if any connection fails
+     */
+    public void pinConnections(EventLoopGroup eventLoops) throws RedisException {
+        lettuceRedisClient.pin(eventLoops, 0);
+    }
+
+    /**
+     * Start connecting to the DB the channel selected, if it's not connected yet, without waiting for it.
+     *
+     * @return the connecting, or null if the connections are made
+     */
+    public CompletionStage<?> connecting(Channel channel) {
+        ClientStat stat = ClientStat.getStat(channel);
+        int db = stat == null ? 0 : stat.getDb();
+        LettuceRedisClient client = lettuceRedisClient.pinnedTo(channel.eventLoop(), db);
+        return client.isConnected(db) ? null : client.connectAsync(db);
     }
 
     private RedisAsyncCommands<byte[], byte[]> getRedisClient() {
-        return lettuceRedisClient.getClient();
+        int db = clientDb();
+        return redisClient(db).getClient(db, routingHash());
+    }
+
+    private RedisAsyncCommands<byte[], ByteBuf> getRedisBufClient() {
+        int db = clientDb();
+        return redisClient(db).getBufClient(db, routingHash());
+    }
+
+    /**
+     * @return in the thread-per-core mode, the client whose connections are made on the event loop of the client
+     * channel, if they are pinned
+     */
+    private LettuceRedisClient redisClient(int db) {
+        if (proxyConfig.isThreadPerCore()) {
+            Channel channel = RedisServerContext.getChannel();
+            if (channel != null) {
+                return lettuceRedisClient.pinnedTo(channel.eventLoop(), db);
+            }
+        }
+        return lettuceRedisClient;
+    }
+
+    /**
+     * @return the DB selected by the client of the command being executed
+     */
+    private static int clientDb() {
+        Channel channel = RedisServerContext.getChannel();
+        ClientStat stat = channel == null ? null : ClientStat.getStat(channel);
+        return stat == null ? 0 : stat.getDb();
+    }
+
+    /**
+     * @return the hash routing the command being executed to a backend connection: of its client channel, so the
+     * commands of a client are executed in order, or if routing by key is enabled, of its first key, so only the
+     * commands of a key are
+     */
+    private int routingHash() {
+        if (lettuceRedisClient.getConnections() == 1) {
+            return 0;
+        }
+        if (!proxyConfig.isBackendRoutingByKey()) {
+            Channel channel = RedisServerContext.getChannel();
+            return channel == null ? 0 : channel.hashCode();
+        }
+        Command command = RedisServerContext.getCommand();
+        CommandProcessor processor = command == null ? null : command.getCommandProcessor();
+        byte[] key = processor == null ? null : processor.getKeyExtractor().firstKey(command);
+        if (key != null) {
+            return Arrays.hashCode(key);
+        }
+        Channel channel = RedisServerContext.getChannel();
+        return channel == null ? 0 : channel.hashCode();
+    }
+
+    /**
+     * Dispatch a command whose (collection) result is encoded as it arrives, instead of being converted from the
+     * objects Lettuce builds.
+     */
+    private Reply dispatch(ProtocolKeyword type, EncodingOutput output, CommandArgs<byte[], byte[]> args) {
+        ReplyCommand command = new ReplyCommand(type, output, args);
+        getRedisClient().getStatefulConnection().dispatch(command);
+        return new FutureReply<>(command, Function.identity());
+    }
+
+    /**
+     * Dispatch a command replying one bulk string, which is encoded as it arrives into a buffer released if the
+     * command fails, rather than decoded into a value no one releases if the command timed out.
+     */
+    private Reply bulk(ProtocolKeyword type, CommandArgs<byte[], byte[]> args) {
+        return dispatch(type, new BulkOutput(clientProtocol()), args);
+    }
+
+    /**
+     * Send the command to Redis as it is under 'name', for the commands the proxy doesn't implement. The result is
+     * encoded as Redis replied it, in the protocol of the client.
+     */
+    public Reply forward(Command command, byte[] name) {
+        CommandArgs<byte[], byte[]> args = new CommandArgs<>(ByteArrayCodec.INSTANCE);
+        for (int i = 1, n = command.getTokenCount(); i < n; i++) {
+            args.add(command.getToken(i));
+        }
+        return dispatch(new RawKeyword(name), new RespOutput(clientProtocol()), args);
+    }
+
+    /**
+     * The keyword of a command that's sent as it is, named in upper case for Lettuce's latency metrics.
+     */
+    private record RawKeyword(byte[] bytes) implements ProtocolKeyword {
+
+        @Override
+        public byte[] getBytes() {
+            return bytes;
+        }
+
+        @Override
+        public String name() {
+            return string(bytes).toUpperCase();
+        }
+    }
+
+    private static CommandArgs<byte[], byte[]> keyArgs(byte[] key) {
+        return new CommandArgs<>(ByteArrayCodec.INSTANCE).addKey(key);
+    }
+
+    /**
+     * @return the protocol of the client of the command being executed, in which the encoding outputs write
+     */
+    private static RespVersion clientProtocol() {
+        Channel channel = RedisServerContext.getChannel();
+        ClientStat stat = channel == null ? null : ClientStat.getStat(channel);
+        return stat == null ? RespVersion.RESP2 : stat.getProtocol();
     }
 
     @Override
@@ -56,7 +214,7 @@ public class RedisproxyAsyncServer extends AbstractRedisServer {
     @Override
     protected Reply doConfigGet(String parameter) {
         RedisFuture<Map<String, String>> future = getRedisClient().configGet(parameter);
-        return new FutureReply<>(future, MultiBulkReply::fromStringMap);
+        return new FutureReply<>(future, MapReply::fromStringMap);
     }
 
     @Override
@@ -109,15 +267,28 @@ public class RedisproxyAsyncServer extends AbstractRedisServer {
         return new FutureReply<>(future, SimpleStringReply::from);
     }
 
+    /**
+     * Asynchronous like any other command, as waiting for the reply in the event loop the connection is pinned to
+     * (in the thread-per-core mode) would never see it.
+     */
     @Override
-    protected String doInfo(byte[] section) {
+    public Reply info(byte[] section) {
         RedisAsyncCommands<byte[], byte[]> client = getRedisClient();
         RedisFuture<String> future = section == null ? client.info() : client.info(string(section));
-        try {
-            return future.get(2, TimeUnit.SECONDS);
-        } catch (InterruptedException | ExecutionException | TimeoutException e) {
-            throw new RedisException(e);
-        }
+        String backendInfo = backendInfo();
+        return new FutureReply<>(future, redisInfo -> infoReply(backendInfo + redisInfo));
+    }
+
+    /**
+     * @return the commands in flight on each connection to the DB selected by the client, so that a connection
+     * taking the keys of too many commands can be told
+     */
+    private String backendInfo() {
+        int db = clientDb();
+        String inFlight = Arrays.stream(redisClient(db).getInFlightCommands(db))
+                .mapToObj(String::valueOf)
+                .collect(Collectors.joining(","));
+        return "# Proxy Backend\nbackend_db:" + db + "\nbackend_in_flight:" + inFlight + "\n";
     }
 
     @Override
@@ -145,9 +316,9 @@ public class RedisproxyAsyncServer extends AbstractRedisServer {
     }
 
     @Override
-    public Reply append(byte[] key, byte[] value) {
-        RedisFuture<Long> future = getRedisClient().append(key, value);
-        return new FutureReply<>(future, IntegerReply::new);
+    public Reply append(byte[] key, ByteBuf value) {
+        RedisFuture<Long> future = getRedisBufClient().append(key, value);
+        return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
@@ -155,7 +326,7 @@ public class RedisproxyAsyncServer extends AbstractRedisServer {
         long start = startBytes == null ? 0 : toLong(startBytes);
         long end = endBytes == null ? -1 : toLong(endBytes);
         RedisFuture<Long> future = getRedisClient().bitcount(key, start, end);
-        return new FutureReply<>(future, IntegerReply::new);
+        return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
@@ -226,37 +397,37 @@ public class RedisproxyAsyncServer extends AbstractRedisServer {
             case "XOR" -> client.bitopXor(destination, keys);
             default -> throw new IllegalArgumentException(op);
         };
-        return new FutureReply<>(future, IntegerReply::new);
+        return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
     public Reply bitpos(byte[] key, byte[] bit, byte[] start, byte[] end) {
         RedisFuture<Long> future = getRedisClient().bitpos(key, bit[0] == '1',
                 start == null ? 0 : toLong(start), end == null ? -1 : toLong(end));
-        return new FutureReply<>(future, IntegerReply::new);
+        return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
     public Reply decr(byte[] key) {
         RedisFuture<Long> future = getRedisClient().decr(key);
-        return new FutureReply<>(future, IntegerReply::new);
+        return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
-    public Reply decrby(byte[] key, byte[] decrement) {
-        RedisFuture<Long> future = getRedisClient().decrby(key, toLong(decrement));
-        return new FutureReply<>(future, IntegerReply::new);
+    public Reply decrby(byte[] key, long decrement) {
+        RedisFuture<Long> future = getRedisClient().decrby(key, decrement);
+        return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
-    public Reply getbit(byte[] key, byte[] offset) {
-        RedisFuture<Long> future = getRedisClient().getbit(key, toLong(offset));
-        return new FutureReply<>(future, IntegerReply::new);
+    public Reply getbit(byte[] key, long offset) {
+        RedisFuture<Long> future = getRedisClient().getbit(key, offset);
+        return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
-    public Reply incrbyfloat(byte[] key, byte[] increment) {
-        RedisFuture<Double> future = getRedisClient().incrbyfloat(key, toDouble(increment));
+    public Reply incrbyfloat(byte[] key, double increment) {
+        RedisFuture<Double> future = getRedisClient().incrbyfloat(key, increment);
         return new FutureReply<>(future, BulkReply::bulkReply);
     }
 
@@ -295,14 +466,14 @@ public class RedisproxyAsyncServer extends AbstractRedisServer {
     }
 
     @Override
-    public Reply psetex(byte[] rawkey, byte[] milliseconds, byte[] value) {
-        RedisFuture<String> future = getRedisClient().psetex(rawkey, toLong(milliseconds), value);
+    public Reply psetex(byte[] rawkey, long milliseconds, ByteBuf value) {
+        RedisFuture<String> future = getRedisBufClient().psetex(rawkey, milliseconds, value);
         return new FutureReply<>(future, BulkReply::bulkReply);
     }
 
     @Override
-    public Reply set(byte[] key, byte[] value, byte[][] options) throws RedisException {
-        RedisAsyncCommands<byte[], byte[]> client = getRedisClient();
+    public Reply set(byte[] key, ByteBuf value, byte[][] options) throws RedisException {
+        RedisAsyncCommands<byte[], ByteBuf> client = getRedisBufClient();
         RedisFuture<String> future;
         if (options == null) {
             future = client.set(key, value);
@@ -344,83 +515,80 @@ public class RedisproxyAsyncServer extends AbstractRedisServer {
     }
 
     @Override
-    public Reply setbit(byte[] key, byte[] offset, byte[] value) {
-        RedisFuture<Long> future = getRedisClient().setbit(key, toLong(offset), toInt(value));
-        return new FutureReply<>(future, IntegerReply::new);
+    public Reply setbit(byte[] key, long offset, int value) {
+        RedisFuture<Long> future = getRedisClient().setbit(key, offset, value);
+        return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
-    public Reply setex(byte[] key, byte[] seconds, byte[] value) {
-        RedisFuture<String> future = getRedisClient().setex(key, toLong(seconds), value);
+    public Reply setex(byte[] key, long seconds, ByteBuf value) {
+        RedisFuture<String> future = getRedisBufClient().setex(key, seconds, value);
         return new FutureReply<>(future, SimpleStringReply::from);
     }
 
     @Override
-    public Reply setnx(byte[] key, byte[] value) {
-        RedisFuture<Boolean> future = getRedisClient().setnx(key, value);
+    public Reply setnx(byte[] key, ByteBuf value) {
+        RedisFuture<Boolean> future = getRedisBufClient().setnx(key, value);
         return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
-    public Reply setrange(byte[] key, byte[] offset, byte[] value) {
-        RedisFuture<Long> future = getRedisClient().setrange(key, toLong(offset), value);
-        return new FutureReply<>(future, IntegerReply::new);
+    public Reply setrange(byte[] key, long offset, byte[] value) {
+        RedisFuture<Long> future = getRedisClient().setrange(key, offset, value);
+        return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
     public Reply strlen(byte[] key) {
         RedisFuture<Long> future = getRedisClient().strlen(key);
-        return new FutureReply<>(future, IntegerReply::new);
+        return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
-    public Reply lindex(byte[] key, byte[] index) {
-        RedisFuture<byte[]> future = getRedisClient().lindex(key, toLong(index));
-        return new FutureReply<>(future, BulkReply::bulkReply);
+    public Reply lindex(byte[] key, long index) {
+        return bulk(CommandType.LINDEX, keyArgs(key).add(index));
     }
 
     @Override
-    public Reply linsert(byte[] key, byte[] where, byte[] pivot, byte[] value) throws RedisException {
-        boolean before = switch (RedisKeyword.convert(where)) {
+    public Reply linsert(byte[] key, RedisKeyword where, byte[] pivot, byte[] value) throws RedisException {
+        boolean before = switch (where) {
             case BEFORE -> true;
             case AFTER -> false;
             default -> throw RedisException.SYNTAX_ERROR;
         };
         RedisFuture<Long> future = getRedisClient().linsert(key, before, pivot, value);
-        return new FutureReply<>(future, IntegerReply::new);
+        return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
     public Reply llen(byte[] key) {
         RedisFuture<Long> future = getRedisClient().llen(key);
-        return new FutureReply<>(future, IntegerReply::new);
+        return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
-    public Reply lmove(byte[] source, byte[] destination, byte[] whereFrom, byte[] whereTo) {
-        RedisKeyword from = RedisKeyword.convert(whereFrom);
-        RedisKeyword to = RedisKeyword.convert(whereTo);
+    public Reply lmove(byte[] source, byte[] destination, RedisKeyword whereFrom, RedisKeyword whereTo) {
         LMoveArgs args;
-        if (from == LEFT && to == LEFT) {
+        if (whereFrom == LEFT && whereTo == LEFT) {
             args = LMoveArgs.Builder.leftLeft();
-        } else if (from == LEFT && to == RIGHT) {
+        } else if (whereFrom == LEFT && whereTo == RIGHT) {
             args = LMoveArgs.Builder.leftRight();
-        } else if (from == RIGHT && to == LEFT) {
+        } else if (whereFrom == RIGHT && whereTo == LEFT) {
             args = LMoveArgs.Builder.rightLeft();
-        } else if (from == RIGHT && to == RIGHT) {
+        } else if (whereFrom == RIGHT && whereTo == RIGHT) {
             args = LMoveArgs.Builder.rightRight();
         } else {
             return ErrorReply.SYNTAX_ERROR;
         }
-        RedisFuture<byte[]> future = getRedisClient().lmove(source, destination, args);
-        return new FutureReply<>(future, BulkReply::bulkReply);
+        CommandArgs<byte[], byte[]> commandArgs = keyArgs(source).addKey(destination);
+        args.build(commandArgs);
+        return bulk(CommandType.LMOVE, commandArgs);
     }
 
     @Override
     public Reply lpop(byte[] key, byte[] count) {
         if (count == null) {
-            RedisFuture<byte[]> future = getRedisClient().lpop(key);
-            return new FutureReply<>(future, BulkReply::bulkReply);
+            return bulk(CommandType.LPOP, keyArgs(key));
         } else {
             RedisFuture<List<byte[]>> future = getRedisClient().lpop(key, toLong(count));
             return new FutureReply<>(future, MultiBulkReply::from);
@@ -430,8 +598,7 @@ public class RedisproxyAsyncServer extends AbstractRedisServer {
     @Override
     public Reply rpop(byte[] key, byte[] count) {
         if (count == null) {
-            RedisFuture<byte[]> future = getRedisClient().rpop(key);
-            return new FutureReply<>(future, BulkReply::bulkReply);
+            return bulk(CommandType.RPOP, keyArgs(key));
         } else {
             RedisFuture<List<byte[]>> future = getRedisClient().rpop(key, toLong(count));
             return new FutureReply<>(future, MultiBulkReply::from);
@@ -473,7 +640,7 @@ public class RedisproxyAsyncServer extends AbstractRedisServer {
             RedisFuture<Long> future = lPosArgs.isPresent() ?
                     client.lpos(key, element, lPosArgs.get()) :
                     client.lpos(key, element);
-            return new FutureReply<>(future, IntegerReply::new);
+            return new FutureReply<>(future, IntegerReply::integer);
         } else {
             RedisFuture<List<Long>> future = lPosArgs.isPresent() ?
                     client.lpos(key, element, count, lPosArgs.get()) :
@@ -483,87 +650,86 @@ public class RedisproxyAsyncServer extends AbstractRedisServer {
     }
 
     @Override
-    public Reply lpush(byte[] key, byte[][] elements) {
-        RedisFuture<Long> future = getRedisClient().lpush(key, elements);
-        return new FutureReply<>(future, IntegerReply::new);
+    public Reply lpush(byte[] key, ByteBuf[] elements) {
+        RedisFuture<Long> future = getRedisBufClient().lpush(key, elements);
+        return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
-    public Reply rpush(byte[] key, byte[][] elements) {
-        RedisFuture<Long> future = getRedisClient().rpush(key, elements);
-        return new FutureReply<>(future, IntegerReply::new);
+    public Reply rpush(byte[] key, ByteBuf[] elements) {
+        RedisFuture<Long> future = getRedisBufClient().rpush(key, elements);
+        return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
-    public Reply lpushx(byte[] key, byte[][] elements) {
-        RedisFuture<Long> future = getRedisClient().lpushx(key, elements);
-        return new FutureReply<>(future, IntegerReply::new);
+    public Reply lpushx(byte[] key, ByteBuf[] elements) {
+        RedisFuture<Long> future = getRedisBufClient().lpushx(key, elements);
+        return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
-    public Reply rpushx(byte[] key, byte[][] elements) {
-        RedisFuture<Long> future = getRedisClient().rpushx(key, elements);
-        return new FutureReply<>(future, IntegerReply::new);
+    public Reply rpushx(byte[] key, ByteBuf[] elements) {
+        RedisFuture<Long> future = getRedisBufClient().rpushx(key, elements);
+        return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
-    public Reply lrange(byte[] key, byte[] start, byte[] stop) {
-        RedisFuture<List<byte[]>> future = getRedisClient().lrange(key, toLong(start), toLong(stop));
-        return new FutureReply<>(future, MultiBulkReply::from);
+    public Reply lrange(byte[] key, long start, long stop) {
+        return dispatch(CommandType.LRANGE, new AggregateOutput(AggregateOutput.Kind.ARRAY, clientProtocol()),
+                keyArgs(key).add(start).add(stop));
     }
 
     @Override
-    public Reply lrem(byte[] key, byte[] count, byte[] element) {
-        RedisFuture<Long> future = getRedisClient().lrem(key, toLong(count), element);
-        return new FutureReply<>(future, IntegerReply::new);
+    public Reply lrem(byte[] key, long count, byte[] element) {
+        RedisFuture<Long> future = getRedisClient().lrem(key, count, element);
+        return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
-    public Reply lset(byte[] key, byte[] index, byte[] element) {
-        RedisFuture<String> future = getRedisClient().lset(key, toLong(index), element);
+    public Reply lset(byte[] key, long index, byte[] element) {
+        RedisFuture<String> future = getRedisClient().lset(key, index, element);
         return new FutureReply<>(future, SimpleStringReply::from);
     }
 
     @Override
-    public Reply ltrim(byte[] key, byte[] start, byte[] stop) {
-        RedisFuture<String> future = getRedisClient().ltrim(key, toLong(start), toLong(stop));
+    public Reply ltrim(byte[] key, long start, long stop) {
+        RedisFuture<String> future = getRedisClient().ltrim(key, start, stop);
         return new FutureReply<>(future, SimpleStringReply::from);
     }
 
     @Override
     public Reply rpoplpush(byte[] source, byte[] destination) {
-        RedisFuture<byte[]> future = getRedisClient().rpoplpush(source, destination);
-        return new FutureReply<>(future, BulkReply::new);
+        return bulk(CommandType.RPOPLPUSH, keyArgs(source).addKey(destination));
     }
 
     @Override
     public Reply del(byte[][] keys) {
         RedisFuture<Long> future = getRedisClient().del(keys);
-        return new FutureReply<>(future, IntegerReply::new);
+        return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
     public Reply exists(byte[][] keys) {
         RedisFuture<Long> future = getRedisClient().exists(keys);
-        return new FutureReply<>(future, IntegerReply::new);
+        return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
-    public Reply expire(byte[] key, byte[] seconds) {
-        RedisFuture<Boolean> future = getRedisClient().expire(key, toLong(seconds));
+    public Reply expire(byte[] key, long seconds) {
+        RedisFuture<Boolean> future = getRedisClient().expire(key, seconds);
         return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
-    public Reply expireat(byte[] key, byte[] timestamp) {
-        RedisFuture<Boolean> future = getRedisClient().expireat(key, toLong(timestamp));
+    public Reply expireat(byte[] key, long timestamp) {
+        RedisFuture<Boolean> future = getRedisClient().expireat(key, timestamp);
         return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
     public Reply hdel(byte[] key, byte[][] fields) {
         RedisFuture<Long> future = getRedisClient().hdel(key, fields);
-        return new FutureReply<>(future, IntegerReply::new);
+        return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
@@ -574,20 +740,19 @@ public class RedisproxyAsyncServer extends AbstractRedisServer {
 
     @Override
     public Reply hget(byte[] key, byte[] field) {
-        RedisFuture<byte[]> future = getRedisClient().hget(key, field);
-        return new FutureReply<>(future, BulkReply::bulkReply);
+        return bulk(CommandType.HGET, keyArgs(key).add(field));
     }
 
     @Override
     public Reply hgetall(byte[] key) {
-        RedisFuture<Map<byte[], byte[]>> future = getRedisClient().hgetall(key);
-        return new FutureReply<>(future, MultiBulkReply::fromBytesMap);
+        return dispatch(CommandType.HGETALL, new AggregateOutput(AggregateOutput.Kind.MAP, clientProtocol()),
+                keyArgs(key));
     }
 
     @Override
-    public Reply hincrby(byte[] key, byte[] field, byte[] increment) {
-        RedisFuture<Long> future = getRedisClient().hincrby(key, field, toLong(increment));
-        return new FutureReply<>(future, IntegerReply::new);
+    public Reply hincrby(byte[] key, byte[] field, long increment) {
+        RedisFuture<Long> future = getRedisClient().hincrby(key, field, increment);
+        return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
@@ -597,21 +762,21 @@ public class RedisproxyAsyncServer extends AbstractRedisServer {
     }
 
     @Override
-    public Reply pexpire(byte[] key, byte[] milliseconds) {
-        RedisFuture<Boolean> future = getRedisClient().pexpire(key, toLong(milliseconds));
+    public Reply pexpire(byte[] key, long milliseconds) {
+        RedisFuture<Boolean> future = getRedisClient().pexpire(key, milliseconds);
         return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
-    public Reply pexpireat(byte[] key, byte[] millisecondsTimestamp) {
-        RedisFuture<Boolean> future = getRedisClient().pexpireat(key, toLong(millisecondsTimestamp));
+    public Reply pexpireat(byte[] key, long millisecondsTimestamp) {
+        RedisFuture<Boolean> future = getRedisClient().pexpireat(key, millisecondsTimestamp);
         return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
     public Reply pttl(byte[] key) {
         RedisFuture<Long> future = getRedisClient().pttl(key);
-        return new FutureReply<>(future, IntegerReply::new);
+        return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
@@ -641,7 +806,7 @@ public class RedisproxyAsyncServer extends AbstractRedisServer {
                 return new FutureReply<>(future, MultiBulkReply::from);
             } else {
                 RedisFuture<Long> future = client.sortStore(key, sortArgs, destination);
-                return new FutureReply<>(future, IntegerReply::new);
+                return new FutureReply<>(future, IntegerReply::integer);
             }
         }
     }
@@ -693,7 +858,7 @@ public class RedisproxyAsyncServer extends AbstractRedisServer {
     @Override
     public Reply ttl(byte[] key) {
         RedisFuture<Long> future = getRedisClient().ttl(key);
-        return new FutureReply<>(future, IntegerReply::new);
+        return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
@@ -705,25 +870,25 @@ public class RedisproxyAsyncServer extends AbstractRedisServer {
     @Override
     public Reply sdiff(byte[][] keys) {
         RedisFuture<Set<byte[]>> future = getRedisClient().sdiff(keys);
-        return new FutureReply<>(future, MultiBulkReply::from);
+        return new FutureReply<>(future, SetReply::from);
     }
 
     @Override
     public Reply sdiffstore(byte[] destination, byte[][] keys) {
         RedisFuture<Long> future = getRedisClient().sdiffstore(destination, keys);
-        return new FutureReply<>(future, IntegerReply::new);
+        return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
     public Reply sinter(byte[][] keys) {
         RedisFuture<Set<byte[]>> future = getRedisClient().sinter(keys);
-        return new FutureReply<>(future, MultiBulkReply::from);
+        return new FutureReply<>(future, SetReply::from);
     }
 
     @Override
     public Reply sinterstore(byte[] destination, byte[][] keys) {
         RedisFuture<Long> future = getRedisClient().sinterstore(destination, keys);
-        return new FutureReply<>(future, IntegerReply::new);
+        return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
@@ -734,8 +899,8 @@ public class RedisproxyAsyncServer extends AbstractRedisServer {
 
     @Override
     public Reply smembers(byte[] key) {
-        RedisFuture<Set<byte[]>> future = getRedisClient().smembers(key);
-        return new FutureReply<>(future, MultiBulkReply::from);
+        return dispatch(CommandType.SMEMBERS, new AggregateOutput(AggregateOutput.Kind.SET, clientProtocol()),
+                keyArgs(key));
     }
 
     @Override
@@ -747,19 +912,17 @@ public class RedisproxyAsyncServer extends AbstractRedisServer {
     @Override
     public Reply spop(byte[] key, byte[] count) {
         if (count == null) {
-            RedisFuture<byte[]> future = getRedisClient().spop(key);
-            return new FutureReply<>(future, BulkReply::bulkReply);
+            return bulk(CommandType.SPOP, keyArgs(key));
         } else {
             RedisFuture<Set<byte[]>> future = getRedisClient().spop(key, toLong(count));
-            return new FutureReply<>(future, MultiBulkReply::from);
+            return new FutureReply<>(future, SetReply::from);
         }
     }
 
     @Override
     public Reply srandmember(byte[] key, byte[] count) {
         if (count == null) {
-            RedisFuture<byte[]> future = getRedisClient().srandmember(key);
-            return new FutureReply<>(future, BulkReply::bulkReply);
+            return bulk(CommandType.SRANDMEMBER, keyArgs(key));
         } else {
             RedisFuture<List<byte[]>> future = getRedisClient().srandmember(key, toLong(count));
             return new FutureReply<>(future, MultiBulkReply::from);
@@ -769,19 +932,19 @@ public class RedisproxyAsyncServer extends AbstractRedisServer {
     @Override
     public Reply srem(byte[] key, byte[][] members) {
         RedisFuture<Long> future = getRedisClient().srem(key, members);
-        return new FutureReply<>(future, IntegerReply::new);
+        return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
     public Reply sunion(byte[][] keys) {
         RedisFuture<Set<byte[]>> future = getRedisClient().sunion(keys);
-        return new FutureReply<>(future, MultiBulkReply::from);
+        return new FutureReply<>(future, SetReply::from);
     }
 
     @Override
     public Reply sunionstore(byte[] destination, byte[][] keys) {
         RedisFuture<Long> future = getRedisClient().sunionstore(destination, keys);
-        return new FutureReply<>(future, IntegerReply::new);
+        return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
@@ -840,26 +1003,26 @@ public class RedisproxyAsyncServer extends AbstractRedisServer {
         //noinspection unchecked
         ScoredValue<byte[]>[] scoredValuesArr = scoreValues.toArray(ScoredValue[]::new);
         RedisFuture<Long> future = getRedisClient().zadd(key, zAddArgs, scoredValuesArr);
-        return new FutureReply<>(future, IntegerReply::new);
+        return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
     public Reply zcard(byte[] key) {
         RedisFuture<Long> future = getRedisClient().zcard(key);
-        return new FutureReply<>(future, IntegerReply::new);
+        return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
     public Reply zcount(byte[] key, byte[] min, byte[] max) {
         Range<Double> range = newDoubleRange(min, max);
         RedisFuture<Long> future = getRedisClient().zcount(key, range);
-        return new FutureReply<>(future, IntegerReply::new);
+        return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
-    public Reply zincrby(byte[] key, byte[] increment, byte[] member) {
-        RedisFuture<Double> future = getRedisClient().zincrby(key, toDouble(increment), member);
-        return new FutureReply<>(future, BulkReply::bulkReply);
+    public Reply zincrby(byte[] key, double increment, byte[] member) {
+        RedisFuture<Double> future = getRedisClient().zincrby(key, increment, member);
+        return new FutureReply<>(future, DoubleReply::doubleReply);
     }
 
     @Override
@@ -869,7 +1032,7 @@ public class RedisproxyAsyncServer extends AbstractRedisServer {
         byte[][] keys = new byte[numkeys][];
         System.arraycopy(args, 0, keys, 0, numkeys);
         RedisFuture<Long> future = getRedisClient().zinterstore(destination, zStoreArgs, keys);
-        return new FutureReply<>(future, IntegerReply::new);
+        return new FutureReply<>(future, IntegerReply::integer);
     }
 
     private ZStoreArgs getZStoreArgs(int numkeys, byte[][] args) throws RedisException {
@@ -957,7 +1120,7 @@ public class RedisproxyAsyncServer extends AbstractRedisServer {
                 } else {
                     future = client.zrangebyscoreWithScores(key, newDoubleRange(min, max), limit);
                 }
-                return new FutureReply<>(future, MultiBulkReply::fromScoreValues);
+                return new FutureReply<>(future, ScoredValuesReply::from);
             } else {
                 RedisFuture<List<byte[]>> future;
                 if (isRev) {
@@ -976,24 +1139,13 @@ public class RedisproxyAsyncServer extends AbstractRedisServer {
             }
             return new FutureReply<>(future, MultiBulkReply::from);
         } else {
-            long start = toLong(min);
-            long stop = toLong(max);
+            CommandArgs<byte[], byte[]> commandArgs = keyArgs(key).add(toLong(min)).add(toLong(max));
+            CommandType type = isRev ? CommandType.ZREVRANGE : CommandType.ZRANGE;
             if (isWithScores) {
-                RedisFuture<List<ScoredValue<byte[]>>> future;
-                if (isRev) {
-                    future = client.zrevrangeWithScores(key, start, stop);
-                } else {
-                    future = client.zrangeWithScores(key, start, stop);
-                }
-                return new FutureReply<>(future, MultiBulkReply::fromScoreValues);
+                return dispatch(type, new ScoredValuesOutput(clientProtocol()), commandArgs.add(WITHSCORES.name()));
             } else {
-                RedisFuture<List<byte[]>> future;
-                if (isRev) {
-                    future = client.zrevrange(key, start, stop);
-                } else {
-                    future = client.zrange(key, start, stop);
-                }
-                return new FutureReply<>(future, MultiBulkReply::from);
+                return dispatch(type, new AggregateOutput(AggregateOutput.Kind.ARRAY, clientProtocol()),
+                        commandArgs);
             }
         }
     }
@@ -1012,20 +1164,20 @@ public class RedisproxyAsyncServer extends AbstractRedisServer {
     @Override
     public Reply zrem(byte[] key, byte[][] members) {
         RedisFuture<Long> future = getRedisClient().zrem(key, members);
-        return new FutureReply<>(future, IntegerReply::new);
+        return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
-    public Reply zremrangebyrank(byte[] key, byte[] start, byte[] stop) {
-        RedisFuture<Long> future = getRedisClient().zremrangebyrank(key, toLong(start), toLong(stop));
-        return new FutureReply<>(future, IntegerReply::new);
+    public Reply zremrangebyrank(byte[] key, long start, long stop) {
+        RedisFuture<Long> future = getRedisClient().zremrangebyrank(key, start, stop);
+        return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
     public Reply zremrangebyscore(byte[] key, byte[] min, byte[] max) {
         Range<Double> range = newDoubleRange(min, max);
         RedisFuture<Long> future = getRedisClient().zremrangebyscore(key, range);
-        return new FutureReply<>(future, IntegerReply::new);
+        return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
@@ -1039,21 +1191,21 @@ public class RedisproxyAsyncServer extends AbstractRedisServer {
     }
 
     @Override
-    public Reply hincrbyfloat(byte[] key, byte[] field, byte[] increment) {
-        RedisFuture<Double> future = getRedisClient().hincrbyfloat(key, field, toDouble(increment));
+    public Reply hincrbyfloat(byte[] key, byte[] field, double increment) {
+        RedisFuture<Double> future = getRedisClient().hincrbyfloat(key, field, increment);
         return new FutureReply<>(future, BulkReply::bulkReply);
     }
 
     @Override
     public Reply hkeys(byte[] key) {
-        RedisFuture<List<byte[]>> future = getRedisClient().hkeys(key);
-        return new FutureReply<>(future, MultiBulkReply::from);
+        return dispatch(CommandType.HKEYS, new AggregateOutput(AggregateOutput.Kind.ARRAY, clientProtocol()),
+                keyArgs(key));
     }
 
     @Override
     public Reply hlen(byte[] key) {
         RedisFuture<Long> future = getRedisClient().hlen(key);
-        return new FutureReply<>(future, IntegerReply::new);
+        return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
@@ -1063,46 +1215,44 @@ public class RedisproxyAsyncServer extends AbstractRedisServer {
     }
 
     @Override
-    public Reply hmset(byte[] key, byte[][] fieldsAndValues) {
-        Map<byte[], byte[]> map = new HashMap<>();
-        for (int i = 0; i < fieldsAndValues.length; i += 2) {
-            map.put(fieldsAndValues[i], fieldsAndValues[i + 1]);
-        }
-        RedisFuture<String> future = getRedisClient().hmset(key, map);
+    public Reply hmset(byte[] key, ByteBuf[] fieldsAndValues) {
+        RedisFuture<String> future = getRedisBufClient().hmset(key, toFieldValueMap(fieldsAndValues));
         return new FutureReply<>(future, SimpleStringReply::from);
     }
 
     @Override
-    public Reply hset(byte[] key, byte[][] fieldsAndValues) {
-        Map<byte[], byte[]> map = new HashMap<>();
+    public Reply hset(byte[] key, ByteBuf[] fieldsAndValues) {
+        RedisFuture<Long> future = getRedisBufClient().hset(key, toFieldValueMap(fieldsAndValues));
+        return new FutureReply<>(future, IntegerReply::integer);
+    }
+
+    private static Map<byte[], ByteBuf> toFieldValueMap(ByteBuf[] fieldsAndValues) {
+        Map<byte[], ByteBuf> map = new HashMap<>();
         for (int i = 0; i < fieldsAndValues.length; i += 2) {
-            map.put(fieldsAndValues[i], fieldsAndValues[i + 1]);
+            map.put(ByteBufUtil.getBytes(fieldsAndValues[i]), fieldsAndValues[i + 1]);
         }
-        RedisFuture<Long> future = getRedisClient().hset(key, map);
-        return new FutureReply<>(future, IntegerReply::integer);
+        return map;
     }
 
     @Override
-    public Reply hsetnx(byte[] key, byte[] field, byte[] value) {
-        RedisFuture<Boolean> future = getRedisClient().hsetnx(key, field, value);
+    public Reply hsetnx(byte[] key, byte[] field, ByteBuf value) {
+        RedisFuture<Boolean> future = getRedisBufClient().hsetnx(key, field, value);
         return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
     public Reply hvals(byte[] key) {
-        RedisFuture<List<byte[]>> future = getRedisClient().hvals(key);
-        return new FutureReply<>(future, MultiBulkReply::from);
+        return dispatch(CommandType.HVALS, new AggregateOutput(AggregateOutput.Kind.ARRAY, clientProtocol()),
+                keyArgs(key));
     }
 
     @Override
     public Reply hscan(byte[] key, byte[] cursor, byte[][] args) throws RedisException {
-        ScanCursor scanCursor = new ScanCursor(string(cursor), false);
-        ScanArgs scanArgs = getScanArgs(args);
-        RedisFuture<MapScanCursor<byte[], byte[]>> future =
-                getRedisClient().hscan(key, scanCursor, scanArgs);
-        return new FutureReply<>(future, mapScanCursor -> new MultiBulkReply(new Reply[]{
-                BulkReply.bulkReply(mapScanCursor.getCursor()),
-                MultiBulkReply.fromBytesMap(mapScanCursor.getMap())}));
+        CommandArgs<byte[], byte[]> commandArgs = keyArgs(key).add(cursor);
+        getScanArgs(args).build(commandArgs);
+        // [cursor, [field, value, ...]] in both protocols
+        return dispatch(CommandType.HSCAN, new AggregateOutput(AggregateOutput.Kind.ARRAY, clientProtocol()),
+                commandArgs);
     }
 
     private ScanArgs getScanArgs(byte[][] attributes) throws RedisException {
@@ -1137,13 +1287,13 @@ public class RedisproxyAsyncServer extends AbstractRedisServer {
     @Override
     public Reply sadd(byte[] key, byte[][] members) {
         RedisFuture<Long> future = getRedisClient().sadd(key, members);
-        return new FutureReply<>(future, IntegerReply::new);
+        return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
     public Reply scard(byte[] key) {
         RedisFuture<Long> future = getRedisClient().scard(key);
-        return new FutureReply<>(future, IntegerReply::new);
+        return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
@@ -1155,7 +1305,7 @@ public class RedisproxyAsyncServer extends AbstractRedisServer {
     @Override
     public Reply zscore(byte[] key, byte[] member) {
         RedisFuture<Double> future = getRedisClient().zscore(key, member);
-        return new FutureReply<>(future, BulkReply::bulkReply);
+        return new FutureReply<>(future, DoubleReply::doubleReply);
     }
 
     @Override
@@ -1165,7 +1315,7 @@ public class RedisproxyAsyncServer extends AbstractRedisServer {
         byte[][] keys = new byte[numkeys][];
         System.arraycopy(args, 0, keys, 0, numkeys);
         RedisFuture<Long> future = getRedisClient().zunionstore(destination, zStoreArgs, keys);
-        return new FutureReply<>(future, IntegerReply::new);
+        return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
@@ -1179,9 +1329,8 @@ public class RedisproxyAsyncServer extends AbstractRedisServer {
     }
 
     @Override
-    public Reply getrange(byte[] key, byte[] start, byte[] end) {
-        RedisFuture<byte[]> future = getRedisClient().getrange(key, toLong(start), toLong(end));
-        return new FutureReply<>(future, BulkReply::new);
+    public Reply getrange(byte[] key, long start, long end) {
+        return bulk(CommandType.GETRANGE, keyArgs(key).add(start).add(end));
     }
 
     @Override
@@ -1193,25 +1342,25 @@ public class RedisproxyAsyncServer extends AbstractRedisServer {
     @Override
     public Reply incr(byte[] key) {
         RedisFuture<Long> future = getRedisClient().incr(key);
-        return new FutureReply<>(future, IntegerReply::new);
+        return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
-    public Reply incrby(byte[] key, byte[] increment) {
-        RedisFuture<Long> future = getRedisClient().incrby(key, toLong(increment));
-        return new FutureReply<>(future, IntegerReply::new);
+    public Reply incrby(byte[] key, long increment) {
+        RedisFuture<Long> future = getRedisClient().incrby(key, increment);
+        return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
     public Reply pfadd(byte[] key, byte[][] elements) {
         RedisFuture<Long> future = getRedisClient().pfadd(key, elements);
-        return new FutureReply<>(future, IntegerReply::new);
+        return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
     public Reply pfcount(byte[][] keys) {
         RedisFuture<Long> future = getRedisClient().pfcount(keys);
-        return new FutureReply<>(future, IntegerReply::new);
+        return new FutureReply<>(future, IntegerReply::integer);
     }
 
     @Override
@@ -1222,14 +1371,12 @@ public class RedisproxyAsyncServer extends AbstractRedisServer {
 
     @Override
     public Reply get(byte[] key) {
-        RedisFuture<byte[]> future = getRedisClient().get(key);
-        return new FutureReply<>(future, BulkReply::bulkReply);
+        return bulk(CommandType.GET, keyArgs(key));
     }
 
     @Override
     public Reply getdel(byte[] key) {
-        RedisFuture<byte[]> future = getRedisClient().getdel(key);
-        return new FutureReply<>(future, BulkReply::bulkReply);
+        return bulk(CommandType.GETDEL, keyArgs(key));
     }
 
     @Override
@@ -1255,7 +1402,8 @@ public class RedisproxyAsyncServer extends AbstractRedisServer {
                 return ErrorReply.SYNTAX_ERROR;
             }
         }
-        RedisFuture<byte[]> future = getRedisClient().getex(key, args);
-        return new FutureReply<>(future, BulkReply::bulkReply);
+        CommandArgs<byte[], byte[]> commandArgs = keyArgs(key);
+        args.build(commandArgs);
+        return bulk(CommandType.GETEX, commandArgs);
     }
 }
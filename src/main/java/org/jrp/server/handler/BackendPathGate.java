@@ -0,0 +1,213 @@
+package org.jrp.server.handler;
+
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+import org.jrp.cmd.Command;
+import org.jrp.reply.CompletableReply;
+import org.jrp.reply.DeferredReply;
+import org.jrp.reply.Reply;
+import org.jrp.server.RedisServerContext;
+
+import java.util.ArrayDeque;
+
+import static org.jrp.reply.ErrorReply.NIL_REPLY;
+
+/**
+ * Keeps the commands of a channel in order while they go to Redis through two paths: the pass-through connection
+ * and the proxy's own (Lettuce) connections. Redis executes the commands of one connection in order, so a channel
+ * only switches path once all its commands on the other path are replied, and the commands after the switch wait
+ * until then, in order.
+ * <p>
+ * The path of a command is decided right before it's executed, since a waiting "SELECT" or "HELLO" may change it.
+ */
+final class BackendPathGate {
+
+    enum Path {
+        PROXY,
+        PASS_THROUGH
+    }
+
+    interface Execution {
+
+        /**
+         * @return the path the command goes to Redis through, or null if it's executed by the proxy alone
+         */
+        Path pathOf(Channel channel, Command cmd);
+
+        /**
+         * Execute the command in the calling thread through the path.
+         */
+        Reply execute(Channel channel, Command cmd, Path path);
+    }
+
+    private static final AttributeKey<State> STATE = AttributeKey.valueOf(BackendPathGate.class, "STATE");
+
+    private final Execution execution;
+
+    BackendPathGate(Execution execution) {
+        this.execution = execution;
+    }
+
+    void onChannelActive(Channel channel) {
+        channel.attr(STATE).set(new State(channel));
+    }
+
+    /**
+     * Must be called by the thread handling the channel's commands, in the order of the commands.
+     *
+     * @return the reply of the command executed right now, or the deferred reply of the command waiting for the
+     * switch of path
+     */
+    Reply submit(Channel channel, Command cmd) {
+        State state = channel.attr(STATE).get();
+        if (state == null) {
+            return execution.execute(channel, cmd, execution.pathOf(channel, cmd));
+        }
+        Path path;
+        synchronized (state) {
+            if (!state.waiting.isEmpty() || state.draining) {
+                return state.wait(cmd);
+            }
+            path = execution.pathOf(channel, cmd);
+            if (path != null) {
+                if (state.inFlight > 0 && path != state.path) {
+                    return state.wait(cmd);
+                }
+                state.path = path;
+                state.inFlight++;
+            }
+        }
+        return state.execute(cmd, path);
+    }
+
+    private final class State {
+
+        private final Channel channel;
+
+        // guarded by this
+        private final ArrayDeque<Waiting> waiting = new ArrayDeque<>();
+        private Path path;
+        private int inFlight;
+        private boolean draining;
+
+        State(Channel channel) {
+            this.channel = channel;
+        }
+
+        // must be called holding the lock
+        private Reply wait(Command cmd) {
+            Waiting w = new Waiting(cmd);
+            waiting.add(w);
+            LocalCommandHandler.handOff(channel);
+            return w.reply;
+        }
+
+        /**
+         * Execute the command, and count it in flight on the path until it's replied.
+         */
+        private Reply execute(Command cmd, Path path) {
+            Reply reply;
+            try {
+                reply = execution.execute(channel, cmd, path);
+            } catch (RuntimeException e) {
+                if (path != null) {
+                    replied();
+                }
+                throw e;
+            }
+            if (path == null) {
+                return reply;
+            }
+            if (reply instanceof DeferredReply deferredReply) {
+                CompletableReply tracked = new CompletableReply();
+                deferredReply.onComplete(r -> {
+                    replied();
+                    tracked.complete(r);
+                });
+                return tracked;
+            }
+            replied();
+            return reply;
+        }
+
+        private void replied() {
+            boolean drain;
+            synchronized (this) {
+                inFlight--;
+                drain = inFlight == 0 && !waiting.isEmpty() && !draining;
+                if (drain) {
+                    draining = true;
+                }
+            }
+            if (drain) {
+                drain();
+            }
+        }
+
+        /**
+         * Execute the waiting commands in order, until one has to wait for the switch of path again.
+         */
+        private void drain() {
+            while (true) {
+                Waiting w;
+                Path p;
+                synchronized (this) {
+                    w = waiting.peek();
+                    if (w == null) {
+                        draining = false;
+                        return;
+                    }
+                    RedisServerContext.fill(w.cmd, channel);
+                    try {
+                        p = execution.pathOf(channel, w.cmd);
+                    } finally {
+                        RedisServerContext.clear();
+                    }
+                    if (p != null) {
+                        if (inFlight > 0 && p != path) {
+                            draining = false;
+                            return;
+                        }
+                        path = p;
+                        inFlight++;
+                    }
+                    waiting.poll();
+                }
+                w.execute(p);
+            }
+        }
+
+        private final class Waiting {
+
+            private final Command cmd;
+            final CompletableReply reply = new CompletableReply();
+
+            Waiting(Command cmd) {
+                this.cmd = cmd;
+            }
+
+            void execute(Path p) {
+                RedisServerContext.fill(cmd, channel);
+                try {
+                    Reply r;
+                    try {
+                        r = State.this.execute(cmd, p);
+                    } catch (RuntimeException e) {
+                        r = RedisCommandHandler.unableToHandle(cmd, e);
+                    }
+                    if (r == null) {
+                        r = NIL_REPLY;
+                    }
+                    if (r instanceof DeferredReply deferredReply) {
+                        deferredReply.onComplete(reply::complete);
+                    } else {
+                        reply.complete(r);
+                    }
+                } finally {
+                    RedisServerContext.clear();
+                    LocalCommandHandler.handedOffExecuted(channel);
+                }
+            }
+        }
+    }
+}
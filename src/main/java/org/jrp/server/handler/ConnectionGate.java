@@ -0,0 +1,163 @@
+package org.jrp.server.handler;
+
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+import org.jrp.cmd.Command;
+import org.jrp.cmd.CommandProcessor;
+import org.jrp.reply.CompletableReply;
+import org.jrp.reply.DeferredReply;
+import org.jrp.reply.Reply;
+import org.jrp.server.RedisServerContext;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+import static org.jrp.reply.ErrorReply.NIL_REPLY;
+
+/**
+ * Holds the commands of a channel back while the connections to its DB are being made, in the thread-per-core mode,
+ * where the commands are executed in the IO thread of their channel, which must never wait for the connecting. The
+ * commands after one held back wait as well, in order, and are executed in the IO thread once the connecting is done.
+ * <p>
+ * The connecting is checked right before each waiting command is executed, since a waiting "SELECT" may change the
+ * DB. All the methods must be called in the IO thread of the channel.
+ */
+final class ConnectionGate {
+
+    interface Execution {
+
+        /**
+         * @return the connecting to the DB the commands of the channel go to, or null if it's done
+         */
+        CompletionStage<?> connecting(Channel channel);
+
+        /**
+         * Execute the command in the calling thread.
+         */
+        Reply execute(Channel channel, Command cmd);
+    }
+
+    private static final AttributeKey<State> STATE = AttributeKey.valueOf(ConnectionGate.class, "STATE");
+
+    private final Execution execution;
+
+    ConnectionGate(Execution execution) {
+        this.execution = execution;
+    }
+
+    void onChannelActive(Channel channel) {
+        channel.attr(STATE).set(new State(channel));
+    }
+
+    /**
+     * @return the reply of the command executed right now, or the deferred reply of the command waiting for the
+     * connecting
+     */
+    Reply submit(Channel channel, Command cmd) {
+        State state = channel.attr(STATE).get();
+        if (state == null) {
+            return execution.execute(channel, cmd);
+        }
+        if (!state.waiting.isEmpty()) {
+            return state.wait(cmd);
+        }
+        CompletionStage<?> connecting = isLocal(cmd) ? null : execution.connecting(channel);
+        if (connecting == null) {
+            return execution.execute(channel, cmd);
+        }
+        Reply reply = state.wait(cmd);
+        state.drainWhenDone(connecting);
+        return reply;
+    }
+
+    private static boolean isLocal(Command cmd) {
+        CommandProcessor processor = cmd.getCommandProcessor();
+        return processor != null && processor.isLocal();
+    }
+
+    private final class State {
+
+        private final Channel channel;
+        private final ArrayDeque<Waiting> waiting = new ArrayDeque<>();
+
+        State(Channel channel) {
+            this.channel = channel;
+        }
+
+        private Reply wait(Command cmd) {
+            Waiting w = new Waiting(cmd);
+            waiting.add(w);
+            LocalCommandHandler.handOff(channel);
+            return w.reply;
+        }
+
+        private void drainWhenDone(CompletionStage<?> connecting) {
+            connecting.whenComplete((v, e) -> {
+                Throwable failure = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                channel.eventLoop().execute(() -> drain(failure));
+            });
+        }
+
+        /**
+         * Execute the waiting commands in order, until one has to wait for another connecting. If the connecting
+         * failed, the commands to Redis fail as well until a local command, which may select another DB.
+         */
+        private void drain(Throwable failure) {
+            while (true) {
+                Waiting w = waiting.peek();
+                if (w == null) {
+                    return;
+                }
+                if (isLocal(w.cmd)) {
+                    failure = null;
+                } else if (failure == null) {
+                    CompletionStage<?> connecting = execution.connecting(channel);
+                    if (connecting != null) {
+                        drainWhenDone(connecting);
+                        return;
+                    }
+                }
+                waiting.poll();
+                w.execute(failure);
+            }
+        }
+
+        private final class Waiting {
+
+            private final Command cmd;
+            final CompletableReply reply = new CompletableReply();
+
+            Waiting(Command cmd) {
+                this.cmd = cmd;
+            }
+
+            void execute(Throwable failure) {
+                RedisServerContext.fill(cmd, channel);
+                try {
+                    Reply r;
+                    if (failure != null) {
+                        r = RedisCommandHandler.unableToHandle(cmd, failure);
+                    } else {
+                        try {
+                            r = execution.execute(channel, cmd);
+                        } catch (RuntimeException e) {
+                            r = RedisCommandHandler.unableToHandle(cmd, e);
+                        }
+                    }
+                    if (r == null) {
+                        r = NIL_REPLY;
+                    }
+                    if (r instanceof DeferredReply deferredReply) {
+                        deferredReply.onComplete(reply::complete);
+                    } else {
+                        reply.complete(r);
+                    }
+                } finally {
+                    RedisServerContext.clear();
+                    LocalCommandHandler.handedOffExecuted(channel);
+                }
+            }
+        }
+    }
+}
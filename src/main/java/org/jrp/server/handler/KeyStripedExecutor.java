@@ -0,0 +1,221 @@
+package org.jrp.server.handler;
+
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorGroup;
+import org.jrp.cmd.Command;
+import org.jrp.reply.CompletableReply;
+import org.jrp.reply.DeferredReply;
+import org.jrp.reply.Reply;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Executes the commands of a channel on a pool of threads, striped by the hash of their key, so that a heavily
+ * pipelined channel isn't capped at the one handler thread it's bound to.
+ * <p>
+ * The commands of a key are executed in order by the same stripe, and go to Redis through the same connection (see
+ * {@link org.jrp.server.RedisproxyAsyncServer}). A command of no key or of multiple keys is a barrier: it's executed
+ * after all the commands before it are replied, and the commands after it are executed after it's replied, as they
+ * may go to Redis through other connections. The replies are still written in the order of the commands, since the
+ * handler thread queues the commands in {@link org.jrp.server.RedisCommandsQueue} before handing them off.
+ */
+final class KeyStripedExecutor {
+
+    @FunctionalInterface
+    interface Execution {
+
+        /**
+         * Execute the command in the calling thread.
+         */
+        Reply execute(Channel channel, Command cmd);
+    }
+
+    private static final AttributeKey<Stripes> STRIPES = AttributeKey.valueOf(KeyStripedExecutor.class, "STRIPES");
+
+    private final EventExecutorGroup group;
+    private final EventExecutor[] executors;
+    private final Execution execution;
+    private final Execution inlineExecution;
+
+    /**
+     * @param execution       executes a command handed off to a stripe, with an error reply if it fails
+     * @param inlineExecution executes a barrier in the thread handling the channel's commands, when nothing is
+     *                        running
+     */
+    KeyStripedExecutor(int threads, Execution execution, Execution inlineExecution) {
+        this.group = new DefaultEventExecutorGroup(threads, new DefaultThreadFactory("KeyStripe", true));
+        this.executors = new EventExecutor[threads];
+        int i = 0;
+        for (EventExecutor executor : group) {
+            executors[i++] = executor;
+        }
+        this.execution = execution;
+        this.inlineExecution = inlineExecution;
+    }
+
+    /**
+     * Shut the stripes down once the channels are closed, letting the commands handed off already finish.
+     */
+    void shutdown() {
+        group.shutdownGracefully();
+    }
+
+    void onChannelActive(Channel channel) {
+        channel.attr(STRIPES).set(new Stripes(channel));
+    }
+
+    /**
+     * Must be called by the thread handling the channel's commands, in the order of the commands.
+     *
+     * @param key the only key of the command, or null if it's a barrier
+     * @return the reply of the command executed right now (a barrier while nothing is running), or the deferred reply
+     * of the command handed off
+     */
+    Reply submit(Channel channel, Command cmd, byte[] key) {
+        Stripes stripes = channel.attr(STRIPES).get();
+        return stripes == null ? inlineExecution.execute(channel, cmd) : stripes.submit(cmd, key);
+    }
+
+    private EventExecutor executorOf(byte[] key) {
+        return executors[Math.floorMod(Arrays.hashCode(key), executors.length)];
+    }
+
+    private final class Stripes {
+
+        private final Channel channel;
+
+        // guarded by this
+        private final ArrayDeque<Task> backlog = new ArrayDeque<>();
+        private int running;
+        private boolean barrierRunning;
+
+        Stripes(Channel channel) {
+            this.channel = channel;
+        }
+
+        Reply submit(Command cmd, byte[] key) {
+            Task task;
+            synchronized (this) {
+                if (backlog.isEmpty() && !barrierRunning) {
+                    if (key == null && running == 0) {
+                        // nothing is running, and nothing is started but by this thread
+                        barrierRunning = true;
+                        task = null;
+                    } else if (key != null) {
+                        task = new Task(this, cmd, key);
+                        running++;
+                        executorOf(key).execute(task);
+                    } else {
+                        task = new Task(this, cmd, null);
+                        backlog.add(task);
+                    }
+                } else {
+                    task = new Task(this, cmd, key);
+                    backlog.add(task);
+                }
+            }
+            if (task == null) {
+                return executeInline(cmd);
+            }
+            LocalCommandHandler.handOff(channel);
+            return task.reply;
+        }
+
+        private Reply executeInline(Command cmd) {
+            Reply reply;
+            try {
+                reply = inlineExecution.execute(channel, cmd);
+            } catch (RuntimeException e) {
+                finish(true);
+                throw e;
+            }
+            if (reply instanceof DeferredReply deferredReply) {
+                CompletableReply tracked = new CompletableReply();
+                deferredReply.onComplete(r -> {
+                    tracked.complete(r);
+                    finish(true);
+                });
+                return tracked;
+            }
+            finish(true);
+            return reply;
+        }
+
+        /**
+         * Called once a command started is replied.
+         */
+        void finish(boolean barrier) {
+            synchronized (this) {
+                if (barrier) {
+                    barrierRunning = false;
+                } else {
+                    running--;
+                }
+                drain();
+            }
+        }
+
+        /**
+         * Start the commands in the backlog in order, until a barrier has to wait for the running commands, or is
+         * started. Must be called holding the lock, so two threads draining can't reorder the commands.
+         */
+        private void drain() {
+            Task task;
+            while ((task = backlog.peek()) != null && !barrierRunning && (task.key != null || running == 0)) {
+                backlog.poll();
+                if (task.key != null) {
+                    running++;
+                    executorOf(task.key).execute(task);
+                } else {
+                    barrierRunning = true;
+                    // not in the thread that's replying, which may be an IO thread
+                    executors[Math.floorMod(channel.hashCode(), executors.length)].execute(task);
+                }
+            }
+        }
+    }
+
+    private final class Task implements Runnable {
+
+        private final Stripes stripes;
+        private final Command cmd;
+        private final byte[] key;
+        final CompletableReply reply = new CompletableReply();
+
+        Task(Stripes stripes, Command cmd, byte[] key) {
+            this.stripes = stripes;
+            this.cmd = cmd;
+            this.key = key;
+        }
+
+        @Override
+        public void run() {
+            Channel channel = stripes.channel;
+            try {
+                Reply r;
+                try {
+                    r = execution.execute(channel, cmd);
+                } catch (RuntimeException e) {
+                    r = RedisCommandHandler.unableToHandle(cmd, e);
+                }
+                if (r instanceof DeferredReply deferredReply) {
+                    deferredReply.onComplete(this::complete);
+                } else {
+                    complete(r);
+                }
+            } finally {
+                LocalCommandHandler.handedOffExecuted(channel);
+            }
+        }
+
+        private void complete(Reply r) {
+            reply.complete(r);
+            stripes.finish(key == null);
+        }
+    }
+}
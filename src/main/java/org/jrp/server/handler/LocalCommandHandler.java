@@ -0,0 +1,82 @@
+package org.jrp.server.handler;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.util.AttributeKey;
+import org.jrp.cmd.Command;
+import org.jrp.cmd.CommandProcessor;
+import org.jrp.cmd.Local;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executes the {@link Local} commands in the IO thread, rather than handing them off to the handler threads like the
+ * others.
+ * <p>
+ * A local command is executed in place only if all the commands handed off before it are executed (queued for their
+ * replies), since its reply is queued after theirs by {@link org.jrp.server.RedisCommandsQueue}, whichever thread
+ * executes it. So it's only for {@link RedisCommandAsyncHandler}, placed in the IO thread right before it.
+ */
+@ChannelHandler.Sharable
+public class LocalCommandHandler extends ChannelInboundHandlerAdapter {
+
+    private static final AttributeKey<AtomicInteger> HANDED_OFF =
+            AttributeKey.valueOf(LocalCommandHandler.class, "HANDED_OFF");
+
+    private final RedisCommandAsyncHandler handler;
+
+    public LocalCommandHandler(RedisCommandAsyncHandler handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    public void channelRegistered(ChannelHandlerContext ctx) throws Exception {
+        // the channel activation is handed off as well, the reply queue isn't there until it's handled
+        ctx.channel().attr(HANDED_OFF).set(new AtomicInteger(1));
+        super.channelRegistered(ctx);
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        Channel channel = ctx.channel();
+        AtomicInteger handedOff = channel.attr(HANDED_OFF).get();
+        if (msg instanceof Command cmd && handedOff != null) {
+            CommandProcessor processor = cmd.getCommandProcessor();
+            if (processor != null && processor.isLocal() && handedOff.get() == 0) {
+                handler.handle(channel, cmd);
+                return;
+            }
+            handedOff.incrementAndGet();
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+    @VisibleForTesting
+    static int handedOff(Channel channel) {
+        AtomicInteger handedOff = channel.attr(HANDED_OFF).get();
+        return handedOff == null ? -1 : handedOff.get();
+    }
+
+    /**
+     * Called when the execution of a command is handed off further, like to {@link KeyStripedExecutor}.
+     */
+    static void handOff(Channel channel) {
+        AtomicInteger handedOff = channel.attr(HANDED_OFF).get();
+        if (handedOff != null) {
+            handedOff.incrementAndGet();
+        }
+    }
+
+    /**
+     * Called when a handed-off command (or the channel activation) is executed.
+     */
+    static void handedOffExecuted(Channel channel) {
+        AtomicInteger handedOff = channel.attr(HANDED_OFF).get();
+        if (handedOff != null) {
+            handedOff.decrementAndGet();
+        }
+    }
+}
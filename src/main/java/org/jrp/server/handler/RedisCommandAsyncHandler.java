@@ -3,26 +3,137 @@ package org.jrp.server.handler;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jrp.client.passthrough.PassThroughClient;
 import org.jrp.cmd.Command;
+import org.jrp.cmd.CommandLifecycle;
+import org.jrp.cmd.CommandProcessor;
+import org.jrp.cmd.KeyExtractor;
+import org.jrp.cmd.RWType;
+import org.jrp.cmd.RedisKeyword;
 import org.jrp.config.ProxyConfig;
 import org.jrp.exception.IllegalCommandException;
+import org.jrp.exception.RedisException;
+import org.jrp.monitor.ClientStat;
+import org.jrp.reply.ErrorReply;
 import org.jrp.reply.Reply;
+import org.jrp.reply.RespVersion;
 import org.jrp.server.RedisCommandsQueue;
 import org.jrp.server.RedisServer;
+import org.jrp.server.RedisServerContext;
+import org.jrp.server.RedisproxyAsyncServer;
+import org.jrp.utils.BytesUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+
+import static org.jrp.cmd.CommandLifecycle.STATE.FINISH;
+import static org.jrp.cmd.CommandLifecycle.STATE.READY;
 
 @ChannelHandler.Sharable
 public class RedisCommandAsyncHandler extends RedisCommandHandler {
 
+    private static final Logger LOGGER = LogManager.getLogger(RedisCommandAsyncHandler.class);
+
+    // commands that change the state of the connection they are sent through, or block it, which is shared
+    private static final Set<String> NEVER_FORWARDED = Set.of(
+            "auth", "hello", "select", "reset", "quit", "monitor", "sync", "psync", "replconf",
+            "multi", "exec", "discard", "watch", "unwatch", "readonly", "readwrite",
+            "subscribe", "unsubscribe", "psubscribe", "punsubscribe", "ssubscribe", "sunsubscribe",
+            "blpop", "brpop", "blmove", "blmpop", "brpoplpush", "bzpopmin", "bzpopmax", "bzmpop", "wait");
+    private static final Set<String> NEVER_FORWARDED_CLIENT_SUBCOMMANDS =
+            Set.of("reply", "tracking", "caching", "setname");
+    // commands that block the connection with the option "BLOCK"
+    private static final Set<String> BLOCKING_WITH_OPTION = Set.of("xread", "xreadgroup");
+
     private final RedisCommandsQueue redisCommandsQueue;
+    private final RedisproxyAsyncServer asyncServer;
+    private final PassThroughClient passThroughClient;
+    private final boolean forwardUnimplemented;
+    private final Map<String, RWType.Type> forwardedCommandTypes = new HashMap<>();
+    private final KeyStripedExecutor keyStripedExecutor;
+    private final BackendPathGate backendPathGate;
+    private final ConnectionGate connectionGate;
 
     public RedisCommandAsyncHandler(RedisServer redisServer, ProxyConfig config) throws IllegalCommandException {
         super(redisServer, config);
         redisCommandsQueue = new RedisCommandsQueue(this);
+        asyncServer = redisServer instanceof RedisproxyAsyncServer s ? s : null;
+        passThroughClient = asyncServer == null ? null : asyncServer.getPassThroughClient();
+        forwardUnimplemented = asyncServer != null && config.isForwardUnimplementedCommands();
+        Map<String, String> types = config.getForwardedCommandTypes();
+        if (types != null) {
+            for (Map.Entry<String, String> entry : types.entrySet()) {
+                try {
+                    forwardedCommandTypes.put(entry.getKey().toLowerCase(),
+                            RWType.Type.valueOf(entry.getValue().toUpperCase()));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalCommandException(String.format(
+                            "Error for forwarded command %s : unknown RW type %s", entry.getKey(), entry.getValue()));
+                }
+            }
+        }
+        if (config.getKeyStripedThreads() > 0 && passThroughClient != null) {
+            // the pass-through and proxy paths of a channel are switched by its handler thread alone
+            LOGGER.warn("keyStripedThreads is ignored as passThroughConnections is set");
+        }
+        keyStripedExecutor = config.getKeyStripedThreads() > 0 && passThroughClient == null ?
+                new KeyStripedExecutor(config.getKeyStripedThreads(), this::executeHandedOff, this::executeInline) :
+                null;
+        backendPathGate = passThroughClient == null ? null : new BackendPathGate(new BackendPathGate.Execution() {
+            @Override
+            public BackendPathGate.Path pathOf(Channel channel, Command cmd) {
+                return backendPathOf(channel, cmd);
+            }
+
+            @Override
+            public Reply execute(Channel channel, Command cmd, BackendPathGate.Path path) {
+                return executeThrough(channel, cmd, path);
+            }
+        });
+        connectionGate = asyncServer == null || !config.isThreadPerCore() ? null :
+                new ConnectionGate(new ConnectionGate.Execution() {
+                    @Override
+                    public CompletionStage<?> connecting(Channel channel) {
+                        return asyncServer.connecting(channel);
+                    }
+
+                    @Override
+                    public Reply execute(Channel channel, Command cmd) {
+                        CommandProcessor processor = cmd.getCommandProcessor();
+                        return processor == null ?
+                                executeUnknownConnected(channel, cmd) :
+                                executeConnected(channel, processor, cmd);
+                    }
+                });
+    }
+
+    /**
+     * Release the threads of the handler, once the server is closed.
+     */
+    public void shutdown() {
+        if (keyStripedExecutor != null) {
+            keyStripedExecutor.shutdown();
+        }
     }
 
     @Override
     public void channelActive(ChannelHandlerContext ctx) throws Exception {
         redisCommandsQueue.onChannelActive(ctx.channel());
+        if (keyStripedExecutor != null) {
+            keyStripedExecutor.onChannelActive(ctx.channel());
+        }
+        if (backendPathGate != null) {
+            backendPathGate.onChannelActive(ctx.channel());
+        }
+        if (connectionGate != null) {
+            connectionGate.onChannelActive(ctx.channel());
+        }
+        // the channel's commands may be executed in the IO thread from now on
+        LocalCommandHandler.handedOffExecuted(ctx.channel());
         super.channelActive(ctx);
     }
 
@@ -32,15 +143,202 @@ public class RedisCommandAsyncHandler extends RedisCommandHandler {
         super.channelInactive(ctx);
     }
 
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        if (ctx.channel().isWritable()) {
+            redisCommandsQueue.flushReadyReplies(ctx.channel());
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, Command cmd) {
+        try {
+            super.channelRead0(ctx, cmd);
+        } finally {
+            LocalCommandHandler.handedOffExecuted(ctx.channel());
+        }
+    }
+
     @Override
     protected Reply executeCommand(Channel channel, Command cmd) {
         redisCommandsQueue.add(channel, cmd);
         return super.executeCommand(channel, cmd);
     }
 
+    /**
+     * Hold the command back while the connections to its DB are being made (in the thread-per-core mode).
+     */
+    @Override
+    protected Reply execute(Channel channel, CommandProcessor processor, Command cmd) throws RedisException {
+        if (connectionGate != null) {
+            return connectionGate.submit(channel, cmd);
+        }
+        return executeConnected(channel, processor, cmd);
+    }
+
+    /**
+     * Hand the command off to the key stripes (if enabled), unless it's a barrier that can be executed right now.
+     */
+    private Reply executeConnected(Channel channel, CommandProcessor processor, Command cmd) throws RedisException {
+        if (keyStripedExecutor != null) {
+            KeyExtractor keyExtractor = processor.getKeyExtractor();
+            byte[] key = keyExtractor.isSingleKey() ? keyExtractor.firstKey(cmd) : null;
+            return keyStripedExecutor.submit(channel, cmd, key);
+        }
+        return executeNow(channel, processor, cmd);
+    }
+
+    /**
+     * Execute the barrier of the key stripes in the handler thread, in the context already filled.
+     */
+    private Reply executeInline(Channel channel, Command cmd) throws RedisException {
+        CommandProcessor processor = cmd.getCommandProcessor();
+        return processor == null ? executeUnknownNow(channel, cmd) : executeNow(channel, processor, cmd);
+    }
+
+    /**
+     * Execute the command handed off to a key stripe, in the context of the command.
+     */
+    private Reply executeHandedOff(Channel channel, Command cmd) {
+        RedisServerContext.fill(cmd, channel);
+        try {
+            CommandProcessor processor = cmd.getCommandProcessor();
+            Reply reply = processor == null ?
+                    executeUnknownNow(channel, cmd) :
+                    executeNow(channel, processor, cmd);
+            return reply == null ? ErrorReply.NIL_REPLY : reply;
+        } catch (RedisException e) {
+            return unableToHandle(cmd, e);
+        } finally {
+            RedisServerContext.clear();
+        }
+    }
+
+    private Reply executeNow(Channel channel, CommandProcessor processor, Command cmd) throws RedisException {
+        if (backendPathGate != null) {
+            return backendPathGate.submit(channel, cmd);
+        }
+        return executeOrForward(channel, processor, cmd);
+    }
+
+    /**
+     * The keyed commands of RESP2 clients on DB 0 go through the pass-through client, as Redis' reply is then
+     * exactly what the client expects. Connection, server and admin commands, and the commands the proxy doesn't
+     * know, still go through the proxy.
+     */
+    private BackendPathGate.Path backendPathOf(Channel channel, Command cmd) {
+        CommandProcessor processor = cmd.getCommandProcessor();
+        if (processor == null) {
+            return BackendPathGate.Path.PROXY;
+        }
+        if (processor.isLocal()) {
+            return null;
+        }
+        if (!processor.getKeyExtractor().hasKeys()) {
+            return BackendPathGate.Path.PROXY;
+        }
+        ClientStat stat = ClientStat.getStat(channel);
+        if (stat.getProtocol() != RespVersion.RESP2 || stat.getDb() != 0) {
+            return BackendPathGate.Path.PROXY;
+        }
+        return BackendPathGate.Path.PASS_THROUGH;
+    }
+
+    private Reply executeThrough(Channel channel, Command cmd, BackendPathGate.Path path) throws RedisException {
+        CommandProcessor processor = cmd.getCommandProcessor();
+        if (processor == null) {
+            return executeUnknownNow(channel, cmd);
+        }
+        if (path != BackendPathGate.Path.PASS_THROUGH) {
+            return executeOrForward(channel, processor, cmd);
+        }
+        CommandLifecycle lifecycle = cmd.getCommandLifecycle();
+        lifecycle.setState(READY);
+        Reply reply = passThroughClient.forward(cmd, processor.getMethodNameBytes(), channel);
+        lifecycle.setState(FINISH);
+        return reply;
+    }
+
+    /**
+     * Forward the command to Redis if the command method isn't implemented (and forwarding is enabled).
+     */
+    private Reply executeOrForward(Channel channel, CommandProcessor processor, Command cmd) throws RedisException {
+        Reply reply = super.execute(channel, processor, cmd);
+        if (reply == ErrorReply.NOT_IMPL && forwardUnimplemented && isForwardable(processor.getMethodName(), cmd)) {
+            return forward(cmd, processor.getMethodNameBytes());
+        }
+        return reply;
+    }
+
+    @Override
+    protected Reply executeUnknownCommand(Channel channel, Command cmd) {
+        if (connectionGate != null) {
+            return connectionGate.submit(channel, cmd);
+        }
+        return executeUnknownConnected(channel, cmd);
+    }
+
+    /**
+     * The command the proxy doesn't know is a barrier of the key stripes (if enabled), as its keys are unknown, and
+     * goes to Redis through the proxy.
+     */
+    private Reply executeUnknownConnected(Channel channel, Command cmd) {
+        if (keyStripedExecutor != null) {
+            return keyStripedExecutor.submit(channel, cmd, null);
+        }
+        if (backendPathGate != null) {
+            return backendPathGate.submit(channel, cmd);
+        }
+        return executeUnknownNow(channel, cmd);
+    }
+
+    /**
+     * Forward the command the proxy doesn't know to Redis (if enabled), classified by the configured RW type.
+     */
+    private Reply executeUnknownNow(Channel channel, Command cmd) {
+        if (!forwardUnimplemented) {
+            return super.executeUnknownCommand(channel, cmd);
+        }
+        byte[] name = cmd.getToken(0);
+        String lowerName = BytesUtils.string(name).toLowerCase();
+        if (!isForwardable(lowerName, cmd)) {
+            return super.executeUnknownCommand(channel, cmd);
+        }
+        RWType.Type rwType = forwardedCommandTypes.getOrDefault(lowerName, RWType.Type.WRITE);
+        countCommand(rwType);
+        if (rwType == RWType.Type.WRITE && proxyConfig.isReadOnly()) {
+            return ErrorReply.READONLY_ERROR;
+        }
+        return forward(cmd, name);
+    }
+
+    private static boolean isForwardable(String lowerName, Command cmd) {
+        if (NEVER_FORWARDED.contains(lowerName)) {
+            return false;
+        }
+        if (BLOCKING_WITH_OPTION.contains(lowerName)) {
+            for (int i = 1; i < cmd.getTokenCount(); i++) {
+                if (RedisKeyword.convert(cmd.getToken(i)) == RedisKeyword.BLOCK) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return !lowerName.equals("client") || cmd.getTokenCount() < 2 ||
+                !NEVER_FORWARDED_CLIENT_SUBCOMMANDS.contains(BytesUtils.string(cmd.getToken(1)).toLowerCase());
+    }
+
+    private Reply forward(Command cmd, byte[] name) {
+        CommandLifecycle lifecycle = cmd.getCommandLifecycle();
+        lifecycle.setState(READY);
+        Reply reply = asyncServer.forward(cmd, name);
+        lifecycle.setState(FINISH);
+        return reply;
+    }
+
     @Override
     protected void doRespond(Channel channel, Command command, Reply reply) {
-        redisCommandsQueue.set(channel, command.id, reply);
-        redisCommandsQueue.flushReadyReplies(channel);
+        redisCommandsQueue.set(channel, command, reply);
     }
 }
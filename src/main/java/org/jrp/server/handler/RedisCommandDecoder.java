@@ -4,8 +4,11 @@ import com.google.common.annotations.VisibleForTesting;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.ReplayingDecoder;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.util.ByteProcessor;
 import org.jrp.cmd.Command;
+import org.jrp.cmd.CommandProcessor;
+import org.jrp.cmd.CommandProcessors;
 import org.jrp.cmd.InvalidCommand;
 import org.jrp.config.ProxyConfig;
 import org.jrp.exception.RedisCodecException;
@@ -13,102 +16,178 @@ import org.jrp.monitor.ClientStat;
 import org.jrp.monitor.metrics.RedisproxyMetrics;
 import org.jrp.monitor.metrics.RedisproxyStatusMetrics;
 import org.jrp.reply.ErrorReply;
+import org.jrp.utils.BytesUtils;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
-// TODO ReplayingDecoder is not efficient, use Netty's RedisDecoder.
-public class RedisCommandDecoder extends ReplayingDecoder<Void> {
+/**
+ * An incremental RESP command decoder.
+ * <p>
+ * Unlike {@link io.netty.handler.codec.ReplayingDecoder}, partially received commands are never re-parsed:
+ * the decoder remembers the array length, the index of the bulk string being decoded, its length and how
+ * many bytes of it have been read, and resumes from there when more bytes arrive. Lines (inline commands
+ * and RESP headers) are scanned for the delimiter only once, too.
+ * <p>
+ * With zero-copy tokens enabled, arguments that are not shorter than {@link #MIN_SLICED_BULK_STRING_LENGTH} are
+ * not copied into byte arrays but kept as retained slices of the inbound buffer, they are released when the
+ * command is finalized (see {@link Command#release()}).
+ * <p>
+ * Arguments not shorter than {@link ProxyConfig#getHugeCommandThreshold()} are accumulated into a pooled direct
+ * buffer of the exact length as their bytes arrive, so huge values are neither kept on the heap nor pinning the
+ * inbound buffer, and are handed to the backend as a single buffer without ever becoming a {@code byte[]}.
+ */
+public class RedisCommandDecoder extends ByteToMessageDecoder {
 
     private static final byte CR = '\r';
     private static final byte LF = '\n';
 
+    private static final int MAX_ARRAY_LENGTH = 1048576;
+
+    // copying a few bytes is cheaper than slicing and reference counting them
+    static final int MIN_SLICED_BULK_STRING_LENGTH = 64;
+
+    private enum State {
+        DECODE_TYPE,
+        DECODE_INLINE,
+        DECODE_ARRAY_LENGTH,
+        DECODE_BULK_STRING_LENGTH,
+        DECODE_BULK_STRING_CONTENT,
+    }
+
     private final int maxQueuedCommands;
+    private final boolean zeroCopyTokens;
+    private final boolean pooledCommands;
+    private final int hugeBulkStringThreshold;
+    private final int maxBulkStringLength;
+
+    private State state = State.DECODE_TYPE;
+
+    // bytes after reader index that are known to contain no CR, so that a line is never rescanned
+    private int lineScannedBytes;
 
+    // with zero copy tokens, the processor of the command being decoded, once its name is
+    private CommandProcessor processor;
     private byte[][] bulkStrings;
+    private ByteBuf[] bulkStringBufs;
     private int currBulkStringIndex;
+    private int currBulkStringLength = -1;
+    private int currBulkStringReadBytes;
 
     public RedisCommandDecoder() {
-        this(ProxyConfig.DEFAULT_MAX_QUEUED_COMMANDS);
+        this(new ProxyConfig());
     }
 
     public RedisCommandDecoder(int maxQueuedCommands) {
-        this.maxQueuedCommands = maxQueuedCommands;
+        this(newProxyConfig(maxQueuedCommands));
+    }
+
+    public RedisCommandDecoder(ProxyConfig config) {
+        this.maxQueuedCommands = config.getMaxQueuedCommands();
+        this.zeroCopyTokens = config.isZeroCopyTokens();
+        this.pooledCommands = config.isPooledCommands();
+        this.hugeBulkStringThreshold = config.getHugeCommandThreshold();
+        this.maxBulkStringLength = config.getMaxBulkStringLength();
+    }
+
+    private static ProxyConfig newProxyConfig(int maxQueuedCommands) {
+        ProxyConfig config = new ProxyConfig();
+        config.setMaxQueuedCommands(maxQueuedCommands);
+        return config;
     }
 
     @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
-        if (bulkStrings != null) {
-            Command command = decodeBulkStrings(in);
-            pushHandlerQueue(ctx, command, out);
-        } else if (in.getByte(in.readerIndex()) == '*') {
-            decodeArray(in);
-            decode(ctx, in, out);
-        } else {
-            Command command = decodeInline(in);
-            pushHandlerQueue(ctx, command, out);
+        int lastReaderIndex = in.readerIndex();
+        try {
+            Command command = decodeCommand(in);
+            if (command != null) {
+                pushHandlerQueue(ctx, command, out);
+            }
+        } finally {
+            // TODO use Netty's traffic handler to record bytesIn
+            RedisproxyMetrics.getCurrent().bytesIn.incrBy(in.readerIndex() - lastReaderIndex);
         }
     }
 
+    /**
+     * @return the decoded command, or null if more bytes are needed
+     */
     @VisibleForTesting
-    Command decodeInline(ByteBuf in) {
-        int lastReaderIndex = in.readerIndex();
+    Command decodeCommand(ByteBuf in) throws RedisCodecException {
+        if (state == State.DECODE_TYPE) {
+            state = in.getByte(in.readerIndex()) == '*' ? State.DECODE_ARRAY_LENGTH : State.DECODE_INLINE;
+        }
+        return switch (state) {
+            case DECODE_INLINE -> decodeInline(in);
+            case DECODE_ARRAY_LENGTH -> decodeArray(in) ? decodeBulkStrings(in) : null;
+            default -> decodeBulkStrings(in);
+        };
+    }
 
-        int len = in.bytesBefore(CR);
+    @VisibleForTesting
+    Command decodeInline(ByteBuf in) {
+        int len = findLineLength(in);
+        if (len < 0) {
+            return null;
+        }
         byte[] line = new byte[len];
         in.readBytes(line);
         in.skipBytes(2);
-
-        int currReaderIndex = in.readerIndex();
-        checkpoint(lastReaderIndex, currReaderIndex);
+        state = State.DECODE_TYPE;
 
         List<byte[]> tokens = new ArrayList<>();
-        int i = 0, j = -1;
-        for (; i < line.length; i++) {
-            byte b = line[i];
-            if (b != ' ') {
-                if (j == -1) {
-                    j = i;
-                }
-            } else {
-                if (j != -1) {
-                    tokens.add(Arrays.copyOfRange(line, j, i));
-                    j = -1;
-                }
+        int i = 0;
+        while (i < len) {
+            if (line[i] == ' ') {
+                i++;
+                continue;
             }
+            int j = BytesUtils.indexOf(line, i, len, (byte) ' ');
+            if (j < 0) {
+                j = len;
+            }
+            tokens.add(Arrays.copyOfRange(line, i, j));
+            i = j;
         }
-        if (j != -1) {
-            tokens.add(Arrays.copyOfRange(line, j, i));
-        }
-        return new Command(tokens.toArray(byte[][]::new));
+        return newCommand(tokens.toArray(byte[][]::new), null);
     }
 
+    /**
+     * @return true if the array header is decoded, false if more bytes are needed
+     */
     @VisibleForTesting
-    void decodeArray(ByteBuf in) throws RedisCodecException {
-        int lastReaderIndex = in.readerIndex();
+    boolean decodeArray(ByteBuf in) throws RedisCodecException {
+        if (findLineLength(in) < 0) {
+            return false;
+        }
         in.skipBytes(1);
 
         int bulkStringsNum = readNum(in);
-        if (bulkStringsNum > 1048576 || bulkStringsNum < 0) {
+        if (bulkStringsNum > MAX_ARRAY_LENGTH || bulkStringsNum < 0) {
+            state = State.DECODE_TYPE;
             throw new IllegalArgumentException(String.format(
-                    "Array length %s is not valid, must in range [0, 1048576)", bulkStringsNum));
+                    "Array length %s is not valid, must in range [0, %d)", bulkStringsNum, MAX_ARRAY_LENGTH));
         }
-        bulkStrings = new byte[bulkStringsNum][];
-        currBulkStringIndex = 0;
-
-        int currReaderIndex = in.readerIndex();
-        checkpoint(lastReaderIndex, currReaderIndex);
+        setBulkStrings(new byte[bulkStringsNum][]);
+        return true;
     }
 
+    /**
+     * @return the decoded command, or null if more bytes are needed
+     */
     @VisibleForTesting
     Command decodeBulkStrings(ByteBuf in) {
         try {
             while (currBulkStringIndex < bulkStrings.length) {
-                decodeBulkString(in);
+                if (!decodeBulkString(in)) {
+                    return null;
+                }
                 currBulkStringIndex += 1;
             }
-            Command command = new Command(bulkStrings);
+            Command command = newCommand(bulkStrings, bulkStringBufs);
+            bulkStringBufs = null;
             reset();
             return command;
         } catch (Exception e) {
@@ -117,49 +196,193 @@ public class RedisCommandDecoder extends ReplayingDecoder<Void> {
         }
     }
 
+    private Command newCommand(byte[][] tokens, ByteBuf[] tokenBufs) {
+        if (pooledCommands) {
+            return Command.newInstance(tokens, tokenBufs);
+        }
+        return tokenBufs == null ? new Command(tokens) : new Command(tokens, tokenBufs);
+    }
+
     private void reset() {
+        state = State.DECODE_TYPE;
+        lineScannedBytes = 0;
+        processor = null;
         bulkStrings = null;
+        releaseBulkStringBufs();
         currBulkStringIndex = 0;
+        currBulkStringLength = -1;
+        currBulkStringReadBytes = 0;
     }
 
-    private void decodeBulkString(ByteBuf in) throws RedisCodecException {
-        int lastReaderIndex = in.readerIndex();
-        byte b = in.readByte();
+    /**
+     * @return true if current bulk string is fully decoded, false if more bytes are needed
+     */
+    private boolean decodeBulkString(ByteBuf in) throws RedisCodecException {
+        if (currBulkStringLength < 0) {
+            if (!decodeBulkStringLength(in)) {
+                return false;
+            }
+        }
+
+        byte[] rawBulkString = bulkStrings[currBulkStringIndex];
+        ByteBuf bulkStringBuf = bulkStringBufs == null ? null : bulkStringBufs[currBulkStringIndex];
+        int remaining = currBulkStringLength - currBulkStringReadBytes;
+        if (remaining > 0) {
+            if (rawBulkString != null || bulkStringBuf != null) {
+                int readable = Math.min(remaining, in.readableBytes());
+                if (rawBulkString != null) {
+                    in.readBytes(rawBulkString, currBulkStringReadBytes, readable);
+                } else {
+                    bulkStringBuf.writeBytes(in, readable);
+                }
+                currBulkStringReadBytes += readable;
+                if (readable < remaining) {
+                    return false;
+                }
+            } else {
+                // wait for the whole bulk string to slice it
+                if (in.readableBytes() < remaining) {
+                    return false;
+                }
+                ensureBulkStringBufs()[currBulkStringIndex] = in.readRetainedSlice(remaining);
+                currBulkStringReadBytes = currBulkStringLength;
+            }
+        }
+
+        if (in.readableBytes() < 2) {
+            return false;
+        }
+        if (in.getByte(in.readerIndex()) != CR) {
+            int bytesBefore = in.bytesBefore(CR);
+            int actual = currBulkStringLength + (bytesBefore < 0 ? in.readableBytes() : bytesBefore);
+            in.skipBytes(in.readableBytes());
+            throw new RedisCodecException(String.format(
+                    "Expecting %s bytes before \\r, actual %d", currBulkStringLength, actual));
+        }
+        byte b = in.getByte(in.readerIndex() + 1);
+        if (b != LF) {
+            in.skipBytes(in.readableBytes());
+            throw new RedisCodecException(String.format(
+                    "expect '\\n' after '\\r' as RESP delimiter, actual %s", b));
+        }
+        in.skipBytes(2);
+
+        currBulkStringLength = -1;
+        currBulkStringReadBytes = 0;
+        return true;
+    }
+
+    private boolean decodeBulkStringLength(ByteBuf in) throws RedisCodecException {
+        state = State.DECODE_BULK_STRING_LENGTH;
+        if (!in.isReadable()) {
+            return false;
+        }
+        byte b = in.getByte(in.readerIndex());
         if (b != '$') {
             in.skipBytes(in.readableBytes());
             throw new RedisCodecException(String.format(
                     "Expecting '$' as bulk string start, got '%s'", (char) b));
         }
+        if (findLineLength(in) < 0) {
+            return false;
+        }
+        in.skipBytes(1);
 
         int len = readNum(in);
-        if (len > 1048576 || len < 0) {
-            in.skipBytes(len + 2);
-            throw new RedisCodecException(String.format(
-                    "Bulk string size %s is not valid, must in range [0, 1048576)", len));
-        }
-        int bytesBefore = in.bytesBefore(CR);
-        if (bytesBefore != len) {
+        if (len > maxBulkStringLength || len < 0) {
             in.skipBytes(in.readableBytes());
             throw new RedisCodecException(String.format(
-                    "Expecting %s bytes before \\r, actual %d", len, bytesBefore));
+                    "Bulk string size %s is not valid, must in range [0, %d)", len, maxBulkStringLength));
+        }
+        if (currBulkStringIndex > 0 && len >= hugeBulkStringThreshold && isByteBufToken(currBulkStringIndex)) {
+            // grown as the bytes arrive up to the length, rather than reserved upfront by the header alone
+            ensureBulkStringBufs()[currBulkStringIndex] =
+                    in.alloc().directBuffer(Math.min(len, in.readableBytes()), len);
+        } else if (!zeroCopyTokens || currBulkStringIndex == 0 || len < MIN_SLICED_BULK_STRING_LENGTH) {
+            bulkStrings[currBulkStringIndex] = new byte[len];
         }
+        currBulkStringLength = len;
+        currBulkStringReadBytes = 0;
+        state = State.DECODE_BULK_STRING_CONTENT;
+        return true;
+    }
 
-        byte[] rawBulkString = new byte[len];
-        in.readBytes(rawBulkString);
-        bulkStrings[currBulkStringIndex] = rawBulkString;
-        in.skipBytes(2);
+    /**
+     * @return true if the token is taken by the command as a {@link ByteBuf}, which is never the case without
+     * zero copy tokens, as then a byte[] token would be copied again
+     */
+    private boolean isByteBufToken(int index) {
+        if (!zeroCopyTokens) {
+            return false;
+        }
+        if (processor == null) {
+            processor = CommandProcessors.get(bulkStrings[0]);
+            if (processor == null) {
+                return false;
+            }
+        }
+        return processor.isByteBufParameter(index - 1);
+    }
+
+    /**
+     * Find the length of the line starting at reader index, excluding the trailing CRLF.
+     *
+     * @return the line length, or -1 if the line is not completely received yet
+     */
+    private int findLineLength(ByteBuf in) {
+        int readerIndex = in.readerIndex();
+        int readableBytes = in.readableBytes();
+        int i = indexOfCR(in, readerIndex + lineScannedBytes, readableBytes - lineScannedBytes);
+        if (i < 0) {
+            lineScannedBytes = readableBytes;
+            return -1;
+        }
+        // the CR is found, but the LF is not received yet
+        if (i + 1 >= readerIndex + readableBytes) {
+            lineScannedBytes = i - readerIndex;
+            return -1;
+        }
+        lineScannedBytes = 0;
+        return i - readerIndex;
+    }
 
-        int currReaderIndex = in.readerIndex();
-        checkpoint(lastReaderIndex, currReaderIndex);
+    private ByteBuf[] ensureBulkStringBufs() {
+        if (bulkStringBufs == null) {
+            bulkStringBufs = new ByteBuf[bulkStrings.length];
+        }
+        return bulkStringBufs;
+    }
+
+    private static int indexOfCR(ByteBuf in, int index, int length) {
+        if (in.hasArray()) {
+            // heap buffers can be scanned with SIMD
+            int arrayOffset = in.arrayOffset();
+            int i = BytesUtils.indexOf(in.array(), arrayOffset + index, arrayOffset + index + length, CR);
+            return i < 0 ? -1 : i - arrayOffset;
+        }
+        return in.forEachByte(index, length, ByteProcessor.FIND_CR);
+    }
+
+    private void releaseBulkStringBufs() {
+        if (bulkStringBufs != null) {
+            for (ByteBuf buf : bulkStringBufs) {
+                if (buf != null) {
+                    buf.release();
+                }
+            }
+            bulkStringBufs = null;
+        }
     }
 
     private void pushHandlerQueue(ChannelHandlerContext ctx, Command command, List<Object> out) {
         RedisproxyMetrics.getCurrent().recv.incr();
 
         if (RedisproxyStatusMetrics.INSTANCE.queued.get() > maxQueuedCommands) {
+            command.discard();
             ctx.channel().writeAndFlush(ErrorReply.BUSY_ERROR);
         } else {
             RedisproxyStatusMetrics.INSTANCE.queued.incr();
+            command.setQueued(true);
 
             out.add(command);
         }
@@ -179,10 +402,11 @@ public class RedisCommandDecoder extends ReplayingDecoder<Void> {
         }
     }
 
-    private void checkpoint(int lastReaderIndex, int currReaderIndex) {
-        // TODO use Netty's traffic handler to record bytesIn
-        RedisproxyMetrics.getCurrent().bytesIn.incrBy(currReaderIndex - lastReaderIndex);
-        super.checkpoint();
+    @Override
+    protected void handlerRemoved0(ChannelHandlerContext ctx) throws Exception {
+        // drop the partially decoded command
+        reset();
+        super.handlerRemoved0(ctx);
     }
 
     @Override
@@ -242,7 +466,12 @@ public class RedisCommandDecoder extends ReplayingDecoder<Void> {
 
     @VisibleForTesting
     void setBulkStrings(byte[][] bulkStrings) {
+        releaseBulkStringBufs();
         this.bulkStrings = bulkStrings;
+        this.currBulkStringIndex = 0;
+        this.currBulkStringLength = -1;
+        this.currBulkStringReadBytes = 0;
+        this.state = State.DECODE_BULK_STRING_LENGTH;
     }
 
     @VisibleForTesting
@@ -1,10 +1,12 @@
 package org.jrp.server.handler;
 
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.util.ReferenceCountUtil;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.commons.lang3.exception.ExceptionUtils;
@@ -23,7 +25,7 @@ import org.jrp.monitor.metrics.RedisproxyMetrics;
 import org.jrp.monitor.metrics.RedisproxyStatusMetrics;
 import org.jrp.reply.AsyncReply;
 import org.jrp.reply.ErrorReply;
-import org.jrp.reply.FutureReply;
+import org.jrp.reply.DeferredReply;
 import org.jrp.reply.Reply;
 import org.jrp.server.RedisServer;
 import org.jrp.server.RedisServerContext;
@@ -59,8 +61,27 @@ public class RedisCommandHandler extends SimpleChannelInboundHandler<Command> {
                 }
             });
 
+    private static final ChannelFutureListener WRITE_LISTENER = future -> {
+        if (!future.isSuccess()) {
+            Channel channel = future.channel();
+            Throwable cause = future.cause();
+            if (cause instanceof ClosedChannelException) {
+                LOGGER.warn("Remote channel {} was closed when trying to write reply", channel);
+            } else if (cause instanceof IOException) {
+                if (cause.getMessage().contains("Connection reset by peer")) {
+                    RedisproxyMetrics.getCurrent().connReset.incr();
+                } else {
+                    LOGGER.warn("IOException {} for channel {}",
+                            ExceptionUtils.getRootCauseMessage(cause), channel);
+                }
+            } else {
+                LOGGER.error("caught unexpected exception for channel " + channel, cause);
+            }
+        }
+    };
+
     private final RedisServer redisServer;
-    private final ProxyConfig proxyConfig;
+    protected final ProxyConfig proxyConfig;
 
     public RedisCommandHandler(RedisServer redisServer, ProxyConfig config) throws IllegalCommandException {
         this.redisServer = redisServer;
@@ -72,14 +93,14 @@ public class RedisCommandHandler extends SimpleChannelInboundHandler<Command> {
         }
     }
 
-    private void processRenameCommands(Map<String, String> renameCommands) throws IllegalCommandException {
+    private void processRenameCommands(Map<String, String> renameCommands) {
         for (Map.Entry<String, String> entry : renameCommands.entrySet()) {
             String originCommand = entry.getKey();
             CommandProcessor command = CommandProcessors.remove(bytes(originCommand));
 
             String renameCommand = entry.getValue();
             if (StringUtils.isNotBlank(renameCommand)) {
-                CommandProcessor newCommand = new CommandProcessor(renameCommand, command.getCommandMethod());
+                CommandProcessor newCommand = command.rename(renameCommand);
                 CommandProcessors.add(newCommand);
                 LOGGER.info("rename command " + originCommand + " to " + renameCommand);
             } else {
@@ -98,18 +119,33 @@ public class RedisCommandHandler extends SimpleChannelInboundHandler<Command> {
 
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, Command cmd) {
-        RedisproxyStatusMetrics.INSTANCE.queued.decr();
+        handle(ctx.channel(), cmd);
+    }
+
+    /**
+     * Execute the command and respond to it, in the thread calling it.
+     */
+    void handle(Channel channel, Command cmd) {
+        // only the decoded commands are counted as queued, whichever path they come through
+        if (cmd.isQueued()) {
+            cmd.setQueued(false);
+            RedisproxyStatusMetrics.INSTANCE.queued.decr();
+        }
         RedisproxyStatusMetrics.INSTANCE.threads.incr();
 
-        Channel channel = ctx.channel();
         RedisServerContext.fill(cmd, channel);
         try {
             Reply reply = handleCommand(channel, cmd);
             if (reply != null) {
                 handleReply(channel, cmd, reply);
+            } else {
+                // the command is dropped, so there will be no writer to recycle it
+                cmd.release();
+                cmd.recycle();
             }
         } finally {
             RedisServerContext.clear();
+            cmd.recycle();
 
             RedisproxyStatusMetrics.INSTANCE.threads.decr();
         }
@@ -166,33 +202,58 @@ public class RedisCommandHandler extends SimpleChannelInboundHandler<Command> {
     protected Reply executeCommand(Channel channel, Command cmd) {
         CommandProcessor processor = cmd.getCommandProcessor();
         if (processor == null) {
-            return new ErrorReply("unknown command " + cmd.toPrettyString());
+            return executeUnknownCommand(channel, cmd);
         }
 
-        RedisproxyMetrics metrics = RedisproxyMetrics.getCurrent();
-        LongCounter counter = switch (processor.getRWType()) {
-            case READ -> metrics.procRead;
-            case WRITE -> metrics.procWrite;
-            case OTHER -> metrics.procOther;
-        };
-        counter.incr();
+        countCommand(processor.getRWType());
 
         Reply reply;
         if (processor.getRWType() == RWType.Type.WRITE && proxyConfig.isReadOnly()) {
             reply = ErrorReply.READONLY_ERROR;
         } else {
             try {
-                reply = processor.execute(cmd, redisServer);
+                reply = execute(channel, processor, cmd);
             } catch (RedisException e) {
-                LOGGER.error("unable to handle command " + cmd.toShortString(), e);
-                reply = new ErrorReply(String.format(
-                        "unable to handle command %s, error: %s",
-                        cmd.toPrettyString(), ExceptionUtils.getRootCauseMessage(e)));
+                reply = unableToHandle(cmd, e);
             }
         }
         return reply == null ? NIL_REPLY : reply;
     }
 
+    /**
+     * @return the error replied to the command that failed to be executed
+     */
+    protected static ErrorReply unableToHandle(Command cmd, Throwable e) {
+        LOGGER.error("unable to handle command " + cmd.toShortString(), e);
+        return new ErrorReply(String.format(
+                "unable to handle command %s, error: %s",
+                cmd.toPrettyString(), ExceptionUtils.getRootCauseMessage(e)));
+    }
+
+    /**
+     * Execute a command that has no processor, which is an error unless a subclass executes it in another way.
+     */
+    protected Reply executeUnknownCommand(Channel channel, Command cmd) {
+        return new ErrorReply("unknown command " + cmd.toPrettyString());
+    }
+
+    protected static void countCommand(RWType.Type rwType) {
+        RedisproxyMetrics metrics = RedisproxyMetrics.getCurrent();
+        LongCounter counter = switch (rwType) {
+            case READ -> metrics.procRead;
+            case WRITE -> metrics.procWrite;
+            case OTHER -> metrics.procOther;
+        };
+        counter.incr();
+    }
+
+    /**
+     * Execute the command by the processor, unless it's executed in another way by a subclass.
+     */
+    protected Reply execute(Channel channel, CommandProcessor processor, Command cmd) throws RedisException {
+        return processor.execute(cmd, redisServer);
+    }
+
     private void handleReply(Channel channel, Command cmd, Reply reply) {
         if (reply instanceof AsyncReply asyncReply) {
             ASYNC_CMD_EXECUTOR.execute(() -> {
@@ -203,18 +264,13 @@ public class RedisCommandHandler extends SimpleChannelInboundHandler<Command> {
                     asyncReply.getReply();
                     respond(channel, cmd, asyncReply);
                 } catch (Throwable e) {
-                    LOGGER.error("unable to handle command " + cmd.toShortString(), e);
-                    ErrorReply errorReply = new ErrorReply(String.format(
-                            "unable to handle command %s, error: %s",
-                            cmd.toPrettyString(), ExceptionUtils.getRootCauseMessage(e)));
-                    respond(channel, cmd, errorReply);
+                    respond(channel, cmd, unableToHandle(cmd, e));
                 } finally {
                     thread.setName(threadName);
                 }
             });
-        } else if (reply instanceof FutureReply futureReply) {
-            //noinspection unchecked
-            futureReply.onComplete((r) -> respond(channel, cmd, (Reply) r));
+        } else if (reply instanceof DeferredReply deferredReply) {
+            deferredReply.onComplete(r -> respond(channel, cmd, r));
         } else {
             respond(channel, cmd, reply);
         }
@@ -231,6 +287,7 @@ public class RedisCommandHandler extends SimpleChannelInboundHandler<Command> {
 
     private void recordCommandExecution(Command cmd) {
         cmd.getCommandLifecycle().setState(FINALIZE);
+        cmd.release();
 
         long elapsed = cmd.getCommandLifecycle().getTimeCostsBetweenInMicroseconds(NEW, FINALIZE);
         if (elapsed > proxyConfig.getSlowlogLogSlowerThan()) {
@@ -245,41 +302,34 @@ public class RedisCommandHandler extends SimpleChannelInboundHandler<Command> {
     }
 
     public void flush(Channel channel, Command command, Reply reply) {
-        if (channel.isActive()) {
-            if (channel.isWritable()) {
-                channel.writeAndFlush(reply).addListener(future -> {
-                    if (!future.isSuccess()) {
-                        Throwable cause = future.cause();
-                        if (cause instanceof ClosedChannelException) {
-                            LOGGER.warn("Remote channel {} was closed when trying to write reply {}",
-                                    channel, reply);
-                        } else if (cause instanceof IOException) {
-                            if (cause.getMessage().contains("Connection reset by peer")) {
-                                RedisproxyMetrics.getCurrent().connReset.incr();
-                            } else {
-                                LOGGER.warn("IOException {} for channel {}",
-                                        ExceptionUtils.getRootCauseMessage(cause), channel);
-                            }
-                        } else {
-                            LOGGER.error("caught unexpected exception for channel " + channel, cause);
-                        }
-                    }
-                });
-            } else {
-                RedisproxyMetrics.getCurrent().dropReply.incr();
-            }
+        write(channel, command, reply);
+        channel.flush();
+    }
+
+    /**
+     * Write the reply without flushing it, unless the channel is going to be closed after the reply.
+     * The command is recycled (if it's pooled), so it must not be touched afterwards.
+     */
+    public void write(Channel channel, Command command, Reply reply) {
+        if (channel.isActive() && channel.isWritable()) {
+            channel.write(reply).addListener(WRITE_LISTENER);
         } else {
             RedisproxyMetrics.getCurrent().dropReply.incr();
+            // the encoder releases the replies it writes, like an EncodedReply
+            ReferenceCountUtil.release(reply);
         }
         if (reply == QUIT) {
             if (Monitor.hasMonitor()) {
                 Monitor.stopMonitor(channel);
             }
+            channel.flush();
             channel.close();
         }
         if (command instanceof InvalidCommand) {
+            channel.flush();
             channel.close();
         }
+        command.recycle();
     }
 
     @Override
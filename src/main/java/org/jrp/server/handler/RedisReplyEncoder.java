@@ -1,18 +1,56 @@
 package org.jrp.server.handler;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.MessageToByteEncoder;
+import io.netty.handler.codec.MessageToMessageEncoder;
+import org.jrp.config.ProxyConfig;
 import org.jrp.monitor.metrics.RedisproxyMetrics;
+import org.jrp.reply.HelloReply;
 import org.jrp.reply.Reply;
+import org.jrp.reply.RespVersion;
 
-public class RedisReplyEncoder extends MessageToByteEncoder<Reply> {
+import java.util.List;
+
+/**
+ * Encodes a reply into a buffer of its exact encoded size, so the buffer is never reallocated. Replies not
+ * smaller than the huge reply threshold are encoded as a composite buffer, in which large payloads are not copied.
+ * <p>
+ * Replies are encoded in the RESP version the client negotiated by "HELLO", from the reply of "HELLO" on, as the
+ * replies are encoded in the order of the commands.
+ */
+public class RedisReplyEncoder extends MessageToMessageEncoder<Reply> {
+
+    private final int hugeReplyThreshold;
+
+    // the encoder is per channel, so is the RESP version
+    private RespVersion version = RespVersion.RESP2;
+
+    public RedisReplyEncoder() {
+        this(new ProxyConfig().getHugeReplyThreshold());
+    }
+
+    public RedisReplyEncoder(int hugeReplyThreshold) {
+        this.hugeReplyThreshold = hugeReplyThreshold;
+    }
 
     @Override
-    public void encode(ChannelHandlerContext ctx, Reply msg, ByteBuf out) {
-        msg.write(out);
+    public void encode(ChannelHandlerContext ctx, Reply msg, List<Object> out) {
+        if (msg instanceof HelloReply helloReply) {
+            version = helloReply.protocol();
+        }
+        int size = msg.encodedSize(version);
+        if (size < hugeReplyThreshold) {
+            ByteBuf buf = ctx.alloc().ioBuffer(size);
+            msg.write(buf, version);
+            out.add(buf);
+        } else {
+            CompositeByteBuf buf = ctx.alloc().compositeBuffer(Integer.MAX_VALUE);
+            msg.writeComponents(buf, hugeReplyThreshold, version);
+            out.add(buf);
+        }
 
         RedisproxyMetrics.getCurrent().sent.incr();
-        RedisproxyMetrics.getCurrent().bytesOut.incrBy(out.readableBytes());
+        RedisproxyMetrics.getCurrent().bytesOut.incrBy(size);
     }
 }
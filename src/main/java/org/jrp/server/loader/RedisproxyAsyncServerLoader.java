@@ -1,17 +1,34 @@
 package org.jrp.server.loader;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.jrp.client.lettuce.LettuceRedisClient;
 import org.jrp.client.lettuce.LettuceRedisClientBuilder;
+import org.jrp.client.passthrough.PassThroughClient;
 import org.jrp.config.ProxyConfig;
 import org.jrp.server.RedisServer;
 import org.jrp.server.RedisproxyAsyncServer;
 
 public class RedisproxyAsyncServerLoader extends RedisServerLoader {
 
+    private static final Logger LOGGER = LogManager.getLogger(RedisproxyAsyncServerLoader.class);
+
     @Override
     public RedisServer load(ProxyConfig proxyConfig) {
         // TODO Set backend Redis host and port in proxy-config.yaml
-        LettuceRedisClient dao = new LettuceRedisClientBuilder().build();
-        return new RedisproxyAsyncServer(proxyConfig, dao);
+        LettuceRedisClientBuilder builder = new LettuceRedisClientBuilder()
+                .withConnections(proxyConfig.getBackendConnections())
+                .withIoThreads(proxyConfig.getBackendIoThreads());
+        LettuceRedisClient dao = builder.build();
+        try {
+            dao.warmUp(0);
+        } catch (Exception e) {
+            // the connections will be made on the first command instead
+            LOGGER.error("unable to warm up the connections to Redis", e);
+        }
+        int passThroughConnections = proxyConfig.getPassThroughConnections();
+        PassThroughClient passThroughClient = passThroughConnections > 0 ? new PassThroughClient(
+                builder.getHost(), builder.getPort(), builder.getPassword(), passThroughConnections) : null;
+        return new RedisproxyAsyncServer(proxyConfig, dao, passThroughClient);
     }
 }
@@ -0,0 +1,45 @@
+package org.jrp.utils;
+
+import org.apache.commons.lang3.BooleanUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Scans byte arrays for delimiters and ASCII digit runs.
+ * <p>
+ * The SIMD implementation on top of {@code jdk.incubator.vector} is picked when the module is resolved (the JVM is
+ * started with "--add-modules jdk.incubator.vector") and the preferred vector species is at least 128 bits wide,
+ * otherwise it falls back to the scalar one.
+ */
+abstract class ByteScanner {
+
+    private static final Logger LOGGER = LogManager.getLogger(ByteScanner.class);
+
+    static final ByteScanner INSTANCE = create();
+
+    /**
+     * @return index of the first 'b' in range [fromIndex, toIndex) of 'bytes', or -1 if not found
+     */
+    abstract int indexOf(byte[] bytes, int fromIndex, int toIndex, byte b);
+
+    /**
+     * @return length of the ASCII digits run starting at 'fromIndex', which won't go beyond 'toIndex'
+     */
+    abstract int digitsLength(byte[] bytes, int fromIndex, int toIndex);
+
+    private static ByteScanner create() {
+        if (BooleanUtils.toBoolean(System.getProperty("redisproxy.internal.vector.disabled"))) {
+            return new ScalarByteScanner();
+        }
+        try {
+            if (VectorByteScanner.isSupported()) {
+                LOGGER.info("using vectorized byte scanner, species {}", VectorByteScanner.speciesName());
+                return new VectorByteScanner();
+            }
+        } catch (Throwable e) {
+            // the incubator module is not resolved
+            LOGGER.info("Vector API is unavailable, using scalar byte scanner: {}", e.toString());
+        }
+        return new ScalarByteScanner();
+    }
+}
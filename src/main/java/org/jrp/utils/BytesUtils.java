@@ -7,6 +7,15 @@ public final class BytesUtils {
     private static final String NEG_INF = "-inf";
     private static final String POS_INF = "+inf";
 
+    // below 2^53, so the significand is an exact double
+    private static final int MAX_EXACT_DIGITS = 15;
+
+    // the powers of ten that are exact doubles
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
     public static String string(byte[] bytes) {
         return bytes == null ? "null" : new String(bytes, StandardCharsets.UTF_8);
     }
@@ -23,22 +32,79 @@ public final class BytesUtils {
         if (bytes == null) {
             throw new IllegalArgumentException("unable to convert null bytes to int");
         }
-        return Integer.parseInt(string(bytes));
+        return toInt(bytes, 0, bytes.length);
+    }
+
+    public static int toInt(byte[] bytes, int offset, int length) {
+        long l = parseLong(bytes, offset, length);
+        if (l < Integer.MIN_VALUE || l > Integer.MAX_VALUE) {
+            throw numberFormatException(bytes, offset, length);
+        }
+        return (int) l;
     }
 
     public static long toLong(byte[] bytes) {
         if (bytes == null) {
             throw new IllegalArgumentException("unable to convert null bytes to long");
         }
-        return Long.parseLong(string(bytes));
+        return parseLong(bytes, 0, bytes.length);
+    }
+
+    public static long toLong(byte[] bytes, int offset, int length) {
+        return parseLong(bytes, offset, length);
+    }
+
+    /**
+     * Same as {@link Long#parseLong(String)}, without decoding the bytes to string first.
+     */
+    private static long parseLong(byte[] bytes, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        boolean negative = false;
+        if (length > 0 && (bytes[i] == '-' || bytes[i] == '+')) {
+            negative = bytes[i] == '-';
+            i++;
+        }
+        if (i == end || ByteScanner.INSTANCE.digitsLength(bytes, i, end) != end - i) {
+            throw numberFormatException(bytes, offset, length);
+        }
+
+        // accumulate negatively, as Long.MIN_VALUE has no positive counterpart
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long multmin = limit / 10;
+        long result = 0;
+        for (; i < end; i++) {
+            int digit = bytes[i] - '0';
+            if (result < multmin) {
+                throw numberFormatException(bytes, offset, length);
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                throw numberFormatException(bytes, offset, length);
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    private static NumberFormatException numberFormatException(byte[] bytes, int offset, int length) {
+        return new NumberFormatException("For input string: \"" + string(bytes, offset, length) + "\"");
     }
 
     public static double toDouble(byte[] bytes) {
-        return toDouble(string(bytes));
+        if (bytes == null) {
+            throw new IllegalArgumentException("unable to convert null bytes to double");
+        }
+        return toDouble(bytes, 0, bytes.length);
     }
 
+    /**
+     * Same as {@link Double#parseDouble(String)} (plus "inf", "+inf" and "-inf" in any case), common decimals are
+     * parsed without decoding the bytes to string first.
+     */
     public static double toDouble(byte[] bytes, int offset, int length) {
-        return toDouble(string(bytes, offset, length));
+        double d = parseDecimal(bytes, offset, length);
+        return Double.isNaN(d) ? toDouble(string(bytes, offset, length)) : d;
     }
 
     private static double toDouble(String s) {
@@ -51,6 +117,122 @@ public final class BytesUtils {
         }
     }
 
+    /**
+     * Parse decimals like "-12.5" or "1e-3" of at most {@link #MAX_EXACT_DIGITS} significant digits and a decimal
+     * exponent within [-22, 22]: the significand and the power of ten are then both exact doubles, so one
+     * multiplication or division gives the correctly rounded result.
+     *
+     * @return the value, or NaN if the bytes are not such a decimal (they may still be a valid double)
+     */
+    private static double parseDecimal(byte[] bytes, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        if (i == end) {
+            return Double.NaN;
+        }
+        boolean negative = false;
+        if (bytes[i] == '-' || bytes[i] == '+') {
+            negative = bytes[i] == '-';
+            i++;
+        }
+        if (end - i == 3 &&
+                (bytes[i] | 0x20) == 'i' && (bytes[i + 1] | 0x20) == 'n' && (bytes[i + 2] | 0x20) == 'f') {
+            return negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        }
+
+        long significand = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean hasDigit = false;
+        boolean hasDot = false;
+        for (; i < end; i++) {
+            byte b = bytes[i];
+            if (b >= '0' && b <= '9') {
+                hasDigit = true;
+                if (hasDot) {
+                    exponent--;
+                }
+                if (significand == 0 && b == '0') {
+                    // leading zeros are not significant
+                    continue;
+                }
+                if (++digits > MAX_EXACT_DIGITS) {
+                    return Double.NaN;
+                }
+                significand = significand * 10 + (b - '0');
+            } else if (b == '.' && !hasDot) {
+                hasDot = true;
+            } else {
+                break;
+            }
+        }
+        if (!hasDigit) {
+            return Double.NaN;
+        }
+        if (i < end) {
+            if ((bytes[i] | 0x20) != 'e' || ++i == end) {
+                return Double.NaN;
+            }
+            boolean negativeExponent = false;
+            if (bytes[i] == '-' || bytes[i] == '+') {
+                negativeExponent = bytes[i] == '-';
+                i++;
+            }
+            if (i == end || end - i > 3) {
+                return Double.NaN;
+            }
+            int e = 0;
+            for (; i < end; i++) {
+                byte b = bytes[i];
+                if (b < '0' || b > '9') {
+                    return Double.NaN;
+                }
+                e = e * 10 + (b - '0');
+            }
+            exponent += negativeExponent ? -e : e;
+        }
+
+        double value;
+        if (significand == 0) {
+            value = 0;
+        } else if (exponent >= 0 && exponent < POWERS_OF_TEN.length) {
+            value = significand * POWERS_OF_TEN[exponent];
+        } else if (exponent < 0 && -exponent < POWERS_OF_TEN.length) {
+            value = significand / POWERS_OF_TEN[-exponent];
+        } else {
+            return Double.NaN;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * @return number of chars of the decimal representation of 'l', including the minus sign
+     */
+    public static int stringSize(long l) {
+        int sign = 0;
+        if (l < 0) {
+            sign = 1;
+        } else {
+            l = -l;
+        }
+        // compare negatively, as Long.MIN_VALUE has no positive counterpart
+        long p = -10;
+        for (int i = 1; i < 19; i++) {
+            if (l > p) {
+                return i + sign;
+            }
+            p *= 10;
+        }
+        return 19 + sign;
+    }
+
+    /**
+     * @return index of the first 'b' in range [fromIndex, toIndex) of 'bytes', or -1 if not found
+     */
+    public static int indexOf(byte[] bytes, int fromIndex, int toIndex, byte b) {
+        return ByteScanner.INSTANCE.indexOf(bytes, fromIndex, toIndex, b);
+    }
+
     public static void toAsciiUppercase(byte[] name) {
         for (int i = 0, l = name.length; i < l; i++) {
             byte b = name[i];
@@ -0,0 +1,154 @@
+package org.jrp.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * An immutable, ASCII case-insensitive table from byte keys (like command names and keywords) to values.
+ * <p>
+ * The hash seed and the table size are searched on construction so that no two keys share a slot, so a lookup is
+ * one hash of the case-folded key plus one comparison, without mutating the key.
+ */
+public final class PerfectHashTable<V> {
+
+    private static final int SEEDS_PER_SIZE = 256;
+
+    private final byte[][] keys;
+    private final Object[] values;
+    private final int mask;
+    private final int seed;
+    private final List<V> valueList;
+
+    /**
+     * @param values the values, whose keys (given by 'keyOf') must be distinct case-insensitively
+     */
+    public PerfectHashTable(Collection<V> values, Function<V, byte[]> keyOf) {
+        List<byte[]> upperKeys = new ArrayList<>(values.size());
+        for (V value : values) {
+            byte[] key = keyOf.apply(value).clone();
+            BytesUtils.toAsciiUppercase(key);
+            upperKeys.add(key);
+        }
+
+        int size = Integer.highestOneBit(Math.max(16, values.size() * 8) - 1) << 1;
+        while (true) {
+            for (int s = 0; s < SEEDS_PER_SIZE; s++) {
+                int[] slots = slots(upperKeys, size, s);
+                if (slots != null) {
+                    this.keys = new byte[size][];
+                    this.values = new Object[size];
+                    this.mask = size - 1;
+                    this.seed = s;
+                    int i = 0;
+                    for (V value : values) {
+                        this.keys[slots[i]] = upperKeys.get(i);
+                        this.values[slots[i]] = value;
+                        i++;
+                    }
+                    this.valueList = Collections.unmodifiableList(new ArrayList<>(values));
+                    return;
+                }
+            }
+            if (size >= 1 << 24) {
+                throw new IllegalArgumentException("unable to build a perfect hash table of " + values.size() +
+                        " keys, are there duplicated keys?");
+            }
+            size <<= 1;
+        }
+    }
+
+    /**
+     * @return the slot of each key, or null if any two keys collide
+     */
+    private static int[] slots(List<byte[]> keys, int size, int seed) {
+        int[] slots = new int[keys.size()];
+        boolean[] used = new boolean[size];
+        for (int i = 0; i < slots.length; i++) {
+            byte[] key = keys.get(i);
+            int slot = hash(key, seed) & (size - 1);
+            if (used[slot]) {
+                return null;
+            }
+            used[slot] = true;
+            slots[i] = slot;
+        }
+        return slots;
+    }
+
+    private static int hash(byte[] key, int seed) {
+        return hash(key, 0, key.length, seed);
+    }
+
+    /**
+     * FNV-1a over the bytes with the 0x20 bit set, i.e. letters folded to lower case.
+     */
+    private static int hash(byte[] key, int offset, int length, int seed) {
+        int h = 0x811c9dc5 ^ seed;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            h = (h ^ (key[i] | 0x20)) * 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * @return the value of 'key' (case-insensitively), or null if there is none
+     */
+    public V get(byte[] key) {
+        return key == null ? null : get(key, 0, key.length);
+    }
+
+    /**
+     * @return the value of the key in range [offset, offset + length) of 'bytes' (case-insensitively),
+     * or null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    public V get(byte[] bytes, int offset, int length) {
+        int slot = hash(bytes, offset, length, seed) & mask;
+        byte[] k = keys[slot];
+        return k != null && equalsIgnoreCase(k, bytes, offset, length) ? (V) values[slot] : null;
+    }
+
+    /**
+     * @param upper the key in upper case
+     */
+    private static boolean equalsIgnoreCase(byte[] upper, byte[] bytes, int offset, int length) {
+        int l = upper.length;
+        if (l != length) {
+            return false;
+        }
+        for (int i = 0; i < l; i++) {
+            byte c = upper[i];
+            byte b = bytes[offset + i];
+            if (c != b && (c != (b & 0b11011111) || c < 'A' || c > 'Z')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int size() {
+        return valueList.size();
+    }
+
+    /**
+     * @return the values in the order they were given
+     */
+    public List<V> values() {
+        return valueList;
+    }
+
+    @Override
+    public String toString() {
+        return "PerfectHashTable{" +
+                "size=" + size() +
+                ", slots=" + keys.length +
+                ", seed=" + seed +
+                ", keys=" + Arrays.stream(keys).filter(Objects::nonNull).map(BytesUtils::string).toList() +
+                '}';
+    }
+}
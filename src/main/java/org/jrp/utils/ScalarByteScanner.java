@@ -0,0 +1,27 @@
+package org.jrp.utils;
+
+final class ScalarByteScanner extends ByteScanner {
+
+    @Override
+    int indexOf(byte[] bytes, int fromIndex, int toIndex, byte b) {
+        for (int i = fromIndex; i < toIndex; i++) {
+            if (bytes[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    int digitsLength(byte[] bytes, int fromIndex, int toIndex) {
+        int i = fromIndex;
+        while (i < toIndex && isDigit(bytes[i])) {
+            i++;
+        }
+        return i - fromIndex;
+    }
+
+    static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+}
@@ -0,0 +1,57 @@
+package org.jrp.utils;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import static org.jrp.utils.ScalarByteScanner.isDigit;
+
+/**
+ * Compares a whole vector of bytes at a time, the tail shorter than a vector is scanned one byte at a time.
+ */
+final class VectorByteScanner extends ByteScanner {
+
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+
+    static boolean isSupported() {
+        return SPECIES.vectorBitSize() >= 128;
+    }
+
+    static String speciesName() {
+        return SPECIES.toString();
+    }
+
+    @Override
+    int indexOf(byte[] bytes, int fromIndex, int toIndex, byte b) {
+        int i = fromIndex;
+        for (int bound = toIndex - SPECIES.length(); i <= bound; i += SPECIES.length()) {
+            VectorMask<Byte> found = ByteVector.fromArray(SPECIES, bytes, i).eq(b);
+            if (found.anyTrue()) {
+                return i + found.firstTrue();
+            }
+        }
+        for (; i < toIndex; i++) {
+            if (bytes[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    int digitsLength(byte[] bytes, int fromIndex, int toIndex) {
+        int i = fromIndex;
+        for (int bound = toIndex - SPECIES.length(); i <= bound; i += SPECIES.length()) {
+            ByteVector v = ByteVector.fromArray(SPECIES, bytes, i);
+            VectorMask<Byte> nonDigits = v.lt((byte) '0').or(v.compare(VectorOperators.GT, (byte) '9'));
+            if (nonDigits.anyTrue()) {
+                return i + nonDigits.firstTrue() - fromIndex;
+            }
+        }
+        while (i < toIndex && isDigit(bytes[i])) {
+            i++;
+        }
+        return i - fromIndex;
+    }
+}
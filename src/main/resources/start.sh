@@ -27,6 +27,10 @@ case ${i} in
   HEAP_SET="${i#*=}"
   shift
   ;;
+  -cds=*)
+  CDS="${i#*=}"
+  shift
+  ;;
   *)
   ;;
 esac
@@ -38,6 +42,7 @@ if [ -z ${REDISPROXY_PORT} ] || [ -z ${REDISPROXY_CONFIG} ]; then
   echo "  -redisproxy.logpath=redis-proxy日志目录路径"
   echo "  -redisproxy.config=redis-proxy配置文件"
   echo "  -env=local/test/production"
+  echo "  -cds=on/off"
   exit 0
 fi
 if [ -z ${REDISPROXY_LOGPATH} ]; then
@@ -104,7 +109,8 @@ esac
 
 JVM_PROPS="${JVM_PROPS} \
   -XX:+UseCondCardMark \
-  -XX:+ShowCodeDetailsInExceptionMessages"
+  -XX:+ShowCodeDetailsInExceptionMessages \
+  --add-modules jdk.incubator.vector"
 echo "JVM_PROPS=${JVM_PROPS}"
 
 APP_ARGS="-c ${REDISPROXY_CONFIG}"
@@ -139,5 +145,36 @@ if [ ! -z ${JAVA_HOME} ]; then
 fi
 ${JAVA} -version
 
-exec ${JAVA} ${JVM_PROPS} ${SYSTEM_PROPS} -cp ${DIR}/config/*:${DIR}/lib/* \
+CLASSPATH="${DIR}/config/*:${DIR}/lib/*"
+
+# AppCDS: the classes loaded by a training run are dumped into an archive, which is mapped by later starts
+# instead of loading and verifying the classes from the jars again. The archive is keyed by the jars and the JVM,
+# so a deploy with new jars (or a new JVM) trains a new one.
+if [ -z ${CDS} ]; then
+  CDS="on"
+fi
+echo "CDS=${CDS}"
+if [ "${CDS}" = "on" ]; then
+  CDS_DIR=${DIR}/cds
+  if [ ! -d ${CDS_DIR} ]; then
+    mkdir -p ${CDS_DIR}
+  fi
+  CDS_KEY=`(ls -l ${DIR}/lib; ${JAVA} -version 2>&1) | cksum | cut -d' ' -f1`
+  CDS_ARCHIVE=${CDS_DIR}/redisproxy-${CDS_KEY}.jsa
+  if [ ! -f ${CDS_ARCHIVE} ]; then
+    echo "training AppCDS archive ${CDS_ARCHIVE}"
+    rm -f ${CDS_DIR}/redisproxy-*.jsa
+    timeout 120 ${JAVA} -XX:ArchiveClassesAtExit=${CDS_ARCHIVE} --add-modules jdk.incubator.vector ${SYSTEM_PROPS} \
+      -cp ${CLASSPATH} org.jrp.Bootstrap ${APP_ARGS} -cdstrain \
+      > ${REDISPROXY_LOGPATH}/${REDISPROXY_PORT}/cds-training.log 2>&1
+  fi
+  if [ -f ${CDS_ARCHIVE} ]; then
+    JVM_PROPS="${JVM_PROPS} -XX:SharedArchiveFile=${CDS_ARCHIVE} -Xshare:auto"
+  else
+    echo "unable to train AppCDS archive, see ${REDISPROXY_LOGPATH}/${REDISPROXY_PORT}/cds-training.log"
+  fi
+fi
+echo "JVM_PROPS=${JVM_PROPS}"
+
+exec ${JAVA} ${JVM_PROPS} ${SYSTEM_PROPS} -cp ${CLASSPATH} \
   org.jrp.Bootstrap ${APP_ARGS} "$@"
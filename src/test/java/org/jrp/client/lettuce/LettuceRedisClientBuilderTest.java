@@ -4,6 +4,7 @@ import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class LettuceRedisClientBuilderTest {
 
@@ -14,7 +15,8 @@ public class LettuceRedisClientBuilderTest {
                 .withPort(6379)
                 .withPassword("hello".toCharArray())
                 .withTimeoutMillis(1000)
-                .withRequestQueueSize(2022);
+                .withRequestQueueSize(2022)
+                .withConnections(3);
         LettuceRedisClient client = builder.build();
 
         LettuceRedisClientBuilder clientBuilder = client.getBuilder();
@@ -23,6 +25,7 @@ public class LettuceRedisClientBuilderTest {
         assertEquals(builder.getPassword(), clientBuilder.getPassword());
         assertEquals(builder.getTimeoutMillis(), clientBuilder.getTimeoutMillis());
         assertEquals(builder.getRequestQueueSize(), clientBuilder.getRequestQueueSize());
+        assertEquals(3, clientBuilder.getConnections());
     }
 
     @Test
@@ -34,5 +37,7 @@ public class LettuceRedisClientBuilderTest {
         assertEquals(LettuceRedisClientBuilder.DEFAULT_TIMEOUT_MILLIS, builder.getTimeoutMillis());
         assertEquals(LettuceRedisClientBuilder.DEFAULT_REQUEST_QUEUE_SIZE, builder.getRequestQueueSize());
         assertNull(builder.getPassword());
+        assertEquals(LettuceRedisClientBuilder.DEFAULT_CONNECTIONS, builder.getConnections());
+        assertThrows(IllegalArgumentException.class, () -> builder.withConnections(0));
     }
 }
@@ -1,12 +1,25 @@
 package org.jrp.client.lettuce;
 
+import io.lettuce.core.RedisFuture;
 import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.resource.ClientResources;
+import io.lettuce.core.resource.Transports;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
+import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.*;
 
+import static org.jrp.utils.BytesUtils.bytes;
 import static org.junit.jupiter.api.Assertions.*;
 
 public class LettuceRedisClientTest {
@@ -61,9 +74,10 @@ public class LettuceRedisClientTest {
         startLatch.countDown();
         stopLatch.await();
 
-        ConcurrentMap<Integer, RedisAsyncCommands<byte[], byte[]>> dbClients = lettuceRedisClient.getDbClients();
-        RedisAsyncCommands<byte[], byte[]> expectedClient = dbClients.get(1);
-        assertNotNull(expectedClient);
+        ConcurrentMap<Integer, CompletableFuture<BackendConnections>> dbConnections =
+                lettuceRedisClient.getDbConnections();
+        assertNotNull(dbConnections.get(1));
+        RedisAsyncCommands<byte[], byte[]> expectedClient = dbConnections.get(1).join().client(0);
 
         for (RedisAsyncCommands<byte[], byte[]> thread1GotClient : thread1GotClients) {
             assertSame(expectedClient, thread1GotClient);
@@ -72,4 +86,98 @@ public class LettuceRedisClientTest {
             assertSame(expectedClient, thread2GotClient);
         }
     }
+
+    @Test
+    public void testConnectionPool() throws Exception {
+        LettuceRedisClient lettuceRedisClient = new LettuceRedisClientBuilder().withConnections(4).build();
+        assertEquals(4, lettuceRedisClient.getConnections());
+        lettuceRedisClient.warmUp(0);
+        assertEquals(4, lettuceRedisClient.getDbConnections().get(0).join().size());
+
+        Set<RedisAsyncCommands<byte[], byte[]>> clients = new HashSet<>();
+        for (int hash = 0; hash < 4; hash++) {
+            RedisAsyncCommands<byte[], byte[]> client = lettuceRedisClient.getClient(0, hash);
+            assertSame(client, lettuceRedisClient.getClient(0, hash + 4));
+            assertSame(client, lettuceRedisClient.getClient(0, hash - 4));
+            // the buf client shares the connection
+            assertSame(client.getStatefulConnection(),
+                    lettuceRedisClient.getBufClient(0, hash).getStatefulConnection());
+            clients.add(client);
+        }
+        assertEquals(4, clients.size());
+        assertSame(lettuceRedisClient.getClient(0, 0), lettuceRedisClient.getClient(0));
+
+        byte[] key = bytes(RandomStringUtils.randomAlphabetic(10));
+        RedisAsyncCommands<byte[], byte[]> client = lettuceRedisClient.getClient(0, 1);
+        List<RedisFuture<Long>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            futures.add(client.incr(key));
+        }
+        assertEquals(100L, futures.get(99).get(1, TimeUnit.SECONDS));
+        client.del(key).get(1, TimeUnit.SECONDS);
+
+        // the listener is notified right after the future is completed
+        long deadline = System.currentTimeMillis() + 1000;
+        long[] inFlight = lettuceRedisClient.getInFlightCommands(0);
+        while (Arrays.stream(inFlight).sum() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            inFlight = lettuceRedisClient.getInFlightCommands(0);
+        }
+        assertArrayEquals(new long[4], inFlight);
+        assertArrayEquals(new long[0], lettuceRedisClient.getInFlightCommands(15));
+    }
+
+    @Test
+    public void testSharedClientResources() throws Exception {
+        LettuceRedisClient lettuceRedisClient = new LettuceRedisClientBuilder().withIoThreads(2).build();
+        lettuceRedisClient.warmUp(0);
+        ClientResources clientResources = lettuceRedisClient.getClientResources();
+        assertEquals(2, clientResources.ioThreadPoolSize());
+
+        lettuceRedisClient.warmUp(1);
+        assertSame(clientResources, lettuceRedisClient.getClientResources());
+        assertEquals(Set.of(0, 1), lettuceRedisClient.getDbConnections().keySet());
+    }
+
+    @Test
+    public void testPin() throws Exception {
+        LettuceRedisClient lettuceRedisClient = new LettuceRedisClientBuilder().build();
+        // of the transport Lettuce chooses
+        EventLoopGroup eventLoops = Transports.eventLoopGroupClass() == EpollEventLoopGroup.class ?
+                new EpollEventLoopGroup(2) : new NioEventLoopGroup(2);
+        try {
+            lettuceRedisClient.pin(eventLoops, 0);
+            byte[] key = bytes(RandomStringUtils.randomAlphabetic(10));
+            for (EventExecutor executor : eventLoops) {
+                EventLoop eventLoop = (EventLoop) executor;
+                LettuceRedisClient pinned = lettuceRedisClient.pinnedTo(eventLoop, 0);
+                assertNotSame(lettuceRedisClient, pinned);
+                assertSame(pinned, lettuceRedisClient.pinnedTo(eventLoop, 0));
+                assertSame(lettuceRedisClient, lettuceRedisClient.pinnedTo(eventLoop, 1));
+
+                // issued in the event loop, the command is completed in it too
+                CompletableFuture<Boolean> completedInEventLoop = eventLoop.submit(() ->
+                                pinned.getClient(0).get(key).thenApply(v -> eventLoop.inEventLoop()))
+                        .get(1, TimeUnit.SECONDS)
+                        .toCompletableFuture();
+                assertTrue(completedInEventLoop.get(1, TimeUnit.SECONDS));
+
+                // waiting in the event loop for the reply read by it would never finish
+                ExecutionException e = assertThrows(ExecutionException.class, () -> eventLoop.submit(() ->
+                        pinned.await(pinned.getClient(0).get(key))).get(1, TimeUnit.SECONDS));
+                assertInstanceOf(IllegalStateException.class, e.getCause());
+                assertThrows(ExecutionException.class, () -> eventLoop.submit(() ->
+                        lettuceRedisClient.await(lettuceRedisClient.getClient(0).get(key))).get(1, TimeUnit.SECONDS));
+            }
+            assertNull(lettuceRedisClient.await(lettuceRedisClient.getClient(0).get(key)));
+        } finally {
+            eventLoops.shutdownGracefully();
+        }
+    }
+
+    @Test
+    public void testWarmUpUnreachable() {
+        LettuceRedisClient lettuceRedisClient = new LettuceRedisClientBuilder().withPort(1).build();
+        assertThrows(Exception.class, () -> lettuceRedisClient.warmUp(0));
+    }
 }
@@ -0,0 +1,201 @@
+package org.jrp.client.passthrough;
+
+import org.apache.commons.lang3.RandomStringUtils;
+import org.jrp.Bootstrap;
+import org.jrp.cmd.Command;
+import org.jrp.cmd.CommandProcessors;
+import org.jrp.config.ProxyConfig;
+import org.jrp.exception.IllegalCommandException;
+import org.jrp.reply.CompletableReply;
+import org.jrp.reply.EncodedReply;
+import org.jrp.reply.ErrorReply;
+import org.jrp.reply.Reply;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.jrp.utils.BytesUtils.bytes;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PassThroughClientTest {
+
+    private static final int PORT = 6381;
+
+    private final Jedis redis = new Jedis("127.0.0.1", 6379);
+    private final Jedis proxy = new Jedis("127.0.0.1", PORT);
+
+    @BeforeAll
+    public static void startRedisproxy() throws IllegalCommandException, IOException, InterruptedException {
+        CommandProcessors.initWithCommandTable();
+
+        ProxyConfig config = new ProxyConfig();
+        config.setPort(PORT);
+        config.setRedisServerLoader("org.jrp.server.loader.RedisproxyAsyncServerLoader");
+        config.setZeroCopyTokens(true);
+        config.setPassThroughConnections(2);
+        Bootstrap bootstrap = new Bootstrap(config, true);
+        bootstrap.start();
+    }
+
+    private static String randomKey() {
+        return RandomStringUtils.randomAlphabetic(10);
+    }
+
+    @Test
+    public void testForward() {
+        String k1 = randomKey();
+        String k2 = randomKey();
+        assertEquals("OK", proxy.set(k1, "v1"));
+        assertEquals("v1", redis.get(k1));
+        assertEquals("v1", proxy.get(k1));
+        assertNull(proxy.get(k2));
+        assertEquals(Arrays.asList("v1", null), proxy.mget(k1, k2));
+
+        assertEquals(2, proxy.hset(k2, Map.of("f1", "a", "f2", "b")));
+        assertEquals(Map.of("f1", "a", "f2", "b"), proxy.hgetAll(k2));
+
+        JedisDataException e = assertThrows(JedisDataException.class, () -> proxy.incr(k1));
+        assertEquals("ERR value is not an integer or out of range", e.getMessage());
+        e = assertThrows(JedisDataException.class, () -> proxy.lpush(k2, "x"));
+        assertTrue(e.getMessage().startsWith("WRONGTYPE"));
+
+        assertEquals(2, proxy.del(k1, k2));
+    }
+
+    @Test
+    public void testForwardPipeline() {
+        String key = randomKey();
+        Pipeline pipeline = proxy.pipelined();
+        for (int i = 0; i < 1000; i++) {
+            pipeline.incr(key);
+        }
+        pipeline.dbSize();
+        pipeline.get(key);
+        List<Object> replies = pipeline.syncAndReturnAll();
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i + 1L, replies.get(i));
+        }
+        assertInstanceOf(Long.class, replies.get(1000));
+        assertEquals("1000", replies.get(1001));
+        proxy.del(key);
+    }
+
+    @Test
+    public void testOrderAcrossPaths() {
+        // "SET" goes through the pass-through connection and "DBSIZE" through the proxy, each sees the ones before it
+        redis.flushDB();
+        String prefix = randomKey();
+        Pipeline pipeline = proxy.pipelined();
+        for (int i = 0; i < 200; i++) {
+            pipeline.set(prefix + i, "v");
+            pipeline.dbSize();
+        }
+        List<Object> replies = pipeline.syncAndReturnAll();
+        long dbSize = (Long) replies.get(1);
+        for (int i = 1; i < 200; i++) {
+            assertEquals("OK", replies.get(2 * i));
+            assertEquals(dbSize + i, replies.get(2 * i + 1));
+        }
+        for (int i = 0; i < 200; i++) {
+            redis.del(prefix + i);
+        }
+    }
+
+    @Test
+    public void testForwardLargeValue() {
+        String key = randomKey();
+        String value = RandomStringUtils.randomAlphanumeric(1024 * 1024);
+        assertEquals("OK", proxy.set(key, value));
+        assertEquals(value, proxy.get(key));
+        proxy.del(key);
+    }
+
+    @Test
+    public void testNotForwardResp3() throws IOException {
+        String key = randomKey();
+        redis.hset(key, "f", "v");
+        try (Socket socket = new Socket("127.0.0.1", PORT)) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            InputStream in = socket.getInputStream();
+
+            out.write(bytes("HELLO 3\r\n"));
+            readUntil(in, "$7\r\nmodules\r\n*0\r\n");
+
+            // a RESP3 client gets the map the proxy converts to, not Redis' RESP2 reply
+            out.write(bytes("HGETALL " + key + "\r\n"));
+            assertEquals("%1\r\n$1\r\nf\r\n$1\r\nv\r\n", readUntil(in, "$1\r\nv\r\n"));
+        }
+        redis.del(key);
+    }
+
+    @Test
+    public void testConnectAsynchronously() throws InterruptedException, ExecutionException, TimeoutException {
+        PassThroughClient client = new PassThroughClient("127.0.0.1", 6379, null, 1);
+        try {
+            // the commands sent while connecting are written in order once connected
+            List<CompletableFuture<Reply>> replies = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                replies.add(forward(client, "ECHO", String.valueOf(i)));
+            }
+            for (int i = 0; i < 10; i++) {
+                EncodedReply reply = (EncodedReply) replies.get(i).get(5, TimeUnit.SECONDS);
+                assertEquals("$1\r\n" + i + "\r\n", reply.buf().toString(StandardCharsets.UTF_8));
+                reply.release();
+            }
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    @Test
+    public void testUnableToConnect() throws InterruptedException, ExecutionException, TimeoutException {
+        PassThroughClient client = new PassThroughClient("127.0.0.1", 1, null, 1);
+        try {
+            Reply reply = forward(client, "ECHO", "x").get(5, TimeUnit.SECONDS);
+            assertInstanceOf(ErrorReply.class, reply);
+            assertTrue(reply.toString().startsWith("ERR unable to connect to Redis"));
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    private static CompletableFuture<Reply> forward(PassThroughClient client, String... tokens) {
+        byte[][] bytes = new byte[tokens.length][];
+        for (int i = 0; i < tokens.length; i++) {
+            bytes[i] = bytes(tokens[i]);
+        }
+        CompletableFuture<Reply> future = new CompletableFuture<>();
+        CompletableReply reply = (CompletableReply) client.forward(new Command(bytes), bytes[0], null);
+        reply.onComplete(future::complete);
+        return future;
+    }
+
+    private static String readUntil(InputStream in, String end) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        while (!sb.toString().endsWith(end)) {
+            int b = in.read();
+            if (b < 0) {
+                break;
+            }
+            sb.append((char) b);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,70 @@
+package org.jrp.client.passthrough;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.DecoderException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.jrp.utils.BytesUtils.bytes;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RespFrameDecoderTest {
+
+    private static String readFrame(EmbeddedChannel channel) {
+        ByteBuf frame = channel.readInbound();
+        assertNotNull(frame);
+        try {
+            return frame.toString(StandardCharsets.UTF_8);
+        } finally {
+            frame.release();
+        }
+    }
+
+    @Test
+    public void testDecodeFrames() {
+        EmbeddedChannel channel = new EmbeddedChannel(new RespFrameDecoder());
+        String[] frames = {
+                "+OK\r\n",
+                "-ERR value is not an integer or out of range\r\n",
+                ":-42\r\n",
+                "$5\r\nhello\r\n",
+                "$-1\r\n",
+                "$0\r\n\r\n",
+                "*-1\r\n",
+                "*0\r\n",
+                "*3\r\n$1\r\na\r\n$-1\r\n:1\r\n",
+                "*2\r\n*2\r\n$1\r\na\r\n$3\r\n1.5\r\n*0\r\n",
+                "*2\r\n$1\r\n0\r\n*1\r\n*1\r\n+x\r\n",
+        };
+        channel.writeInbound(Unpooled.wrappedBuffer(bytes(String.join("", frames))));
+        for (String frame : frames) {
+            assertEquals(frame, readFrame(channel));
+        }
+        assertNull(channel.readInbound());
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testDecodeSplitFrames() {
+        EmbeddedChannel channel = new EmbeddedChannel(new RespFrameDecoder());
+        String frames = "*3\r\n$5\r\nhello\r\n*2\r\n:1\r\n$-1\r\n+OK\r\n$10\r\n0123456789\r\n";
+        // one byte at a time, so every header and payload is split somewhere
+        for (byte b : bytes(frames)) {
+            channel.writeInbound(Unpooled.wrappedBuffer(new byte[]{b}));
+        }
+        assertEquals("*3\r\n$5\r\nhello\r\n*2\r\n:1\r\n$-1\r\n+OK\r\n", readFrame(channel));
+        assertEquals("$10\r\n0123456789\r\n", readFrame(channel));
+        assertNull(channel.readInbound());
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testDecodeUnexpectedType() {
+        EmbeddedChannel channel = new EmbeddedChannel(new RespFrameDecoder());
+        assertThrows(DecoderException.class, () -> channel.writeInbound(Unpooled.wrappedBuffer(bytes("%1\r\n"))));
+        channel.finishAndReleaseAll();
+    }
+}
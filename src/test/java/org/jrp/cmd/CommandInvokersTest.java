@@ -0,0 +1,87 @@
+package org.jrp.cmd;
+
+import io.netty.buffer.ByteBuf;
+import org.jrp.exception.IllegalCommandException;
+import org.jrp.exception.RedisException;
+import org.jrp.reply.BulkReply;
+import org.jrp.reply.Reply;
+import org.jrp.server.AbstractRedisServer;
+import org.jrp.server.RedisServer;
+import org.jrp.utils.BytesUtils;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import static org.jrp.utils.BytesUtils.string;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CommandInvokersTest {
+
+    @SuppressWarnings("unused")
+    public static class MyRedisServer extends AbstractRedisServer {
+
+        public MyRedisServer() {
+            super(null);
+        }
+
+        @Override
+        public Reply get(byte[] key) {
+            return BulkReply.bulkReply("get " + string(key));
+        }
+
+        public Reply foo(byte[] a, ByteBuf b, byte[][] rest) {
+            return BulkReply.bulkReply(string(a) + " " + (b == null ? null : b.toString(StandardCharsets.UTF_8)) + " " + (rest == null ? null : rest.length));
+        }
+
+        public Reply many(byte[] a0, byte[] a1, byte[] a2, byte[] a3, byte[] a4, byte[] a5, byte[] a6) {
+            return BulkReply.bulkReply(Arrays.stream(new byte[][]{a0, a1, a2, a3, a4, a5, a6})
+                    .map(a -> a == null ? "null" : string(a))
+                    .collect(Collectors.joining(",")));
+        }
+
+        public Reply fail() {
+            throw RedisException.SYNTAX_ERROR;
+        }
+    }
+
+    private final RedisServer server = new MyRedisServer();
+
+    private Reply invoke(String methodName, Class<?>[] types, String... tokens) throws Throwable {
+        Method method = MyRedisServer.class.getMethod(methodName, types);
+        byte[][] bytes = Arrays.stream(tokens).map(BytesUtils::bytes).toArray(byte[][]::new);
+        return CommandInvokers.create(method).invoke(server, new Command(bytes));
+    }
+
+    @Test
+    public void testInvokeInterfaceMethods() throws IllegalCommandException {
+        for (Method method : RedisServer.class.getMethods()) {
+            assertNotNull(CommandInvokers.create(method));
+        }
+    }
+
+    @Test
+    public void testInvoke() throws Throwable {
+        assertEquals("get k", invoke("get", new Class<?>[]{byte[].class}, "GET", "k").toString());
+
+        Class<?>[] fooTypes = {byte[].class, ByteBuf.class, byte[][].class};
+        assertEquals("a b 2", invoke("foo", fooTypes, "FOO", "a", "b", "c", "d").toString());
+        assertEquals("a null null", invoke("foo", fooTypes, "FOO", "a").toString());
+    }
+
+    @Test
+    public void testInvokeWithMoreParametersThanMaxArity() throws Throwable {
+        Class<?>[] types = new Class<?>[CommandInvokers.MAX_ARITY + 1];
+        Arrays.fill(types, byte[].class);
+        assertEquals("0,1,2,3,4,5,6", invoke("many", types, "MANY", "0", "1", "2", "3", "4", "5", "6").toString());
+        assertEquals("0,null,null,null,null,null,null", invoke("many", types, "MANY", "0").toString());
+    }
+
+    @Test
+    public void testInvokeWithException() {
+        RedisException e = assertThrows(RedisException.class, () -> invoke("fail", new Class<?>[0], "FAIL"));
+        assertSame(RedisException.SYNTAX_ERROR, e);
+    }
+}
@@ -5,6 +5,8 @@ import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.jrp.exception.IllegalCommandException;
 import org.jrp.exception.RedisException;
 import org.jrp.reply.BulkReply;
+import org.jrp.reply.ErrorReply;
+import org.jrp.reply.IntegerReply;
 import org.jrp.reply.Reply;
 import org.jrp.server.AbstractRedisServer;
 import org.jrp.server.RedisServer;
@@ -82,6 +84,42 @@ public class CommandProcessorTest {
         assertEquals("GET key " + randomString + " from myRedisServer", reply.toString());
     }
 
+    @Test
+    public void testExecuteWithParsedArguments() throws NoSuchMethodException, IllegalCommandException {
+        RedisServer myRedisServer = new AbstractRedisServer(null) {
+            @Override
+            public Reply incrby(byte[] key, long increment) {
+                return IntegerReply.integer(increment + 1);
+            }
+
+            @Override
+            public Reply linsert(byte[] key, RedisKeyword where, byte[] pivot, byte[] value) {
+                return BulkReply.bulkReply(where.name());
+            }
+        };
+
+        Method incrbyMethod = myRedisServer.getClass().getDeclaredMethod("incrby", byte[].class, long.class);
+        CommandProcessor incrbyProcessor = new CommandProcessor("INCRBY", incrbyMethod);
+        Reply reply = incrbyProcessor.execute(
+                new Command(new byte[][]{bytes("INCRBY"), bytes("key"), bytes("41")}), myRedisServer);
+        assertEquals("42", reply.toString());
+
+        // invalid arguments are replied with the standard errors, instead of thrown
+        reply = incrbyProcessor.execute(
+                new Command(new byte[][]{bytes("INCRBY"), bytes("key"), bytes("a")}), myRedisServer);
+        assertSame(ErrorReply.NOT_INTEGER_ERROR, reply);
+
+        Method linsertMethod = myRedisServer.getClass().getDeclaredMethod(
+                "linsert", byte[].class, RedisKeyword.class, byte[].class, byte[].class);
+        CommandProcessor linsertProcessor = new CommandProcessor("LINSERT", linsertMethod);
+        reply = linsertProcessor.execute(new Command(new byte[][]{
+                bytes("LINSERT"), bytes("key"), bytes("after"), bytes("pivot"), bytes("value")}), myRedisServer);
+        assertEquals("AFTER", reply.toString());
+        reply = linsertProcessor.execute(new Command(new byte[][]{
+                bytes("LINSERT"), bytes("key"), bytes("under"), bytes("pivot"), bytes("value")}), myRedisServer);
+        assertSame(ErrorReply.ERR_SYNTAX_ERROR, reply);
+    }
+
     @Test
     public void testExecuteWithException() throws NoSuchMethodException, IllegalCommandException {
         RedisServer myRedisServer = new AbstractRedisServer(null) {
@@ -150,7 +188,62 @@ public class CommandProcessorTest {
         IllegalCommandException ex = assertThrows(IllegalCommandException.class,
                 () -> new CommandProcessor("FOO", fooCommand));
         assertEquals(
-                "Error for method foo : only byte[] or byte[][] parameter types are allowed!",
+                "Error for method foo : only byte[], byte[][], ByteBuf, ByteBuf[], long, int, double " +
+                        "or RedisKeyword parameter types are allowed!",
+                ex.getMessage());
+    }
+
+    @Test
+    public void testIsByteBufParameter() throws IllegalCommandException {
+        CommandProcessors.initWithCommandTable();
+        CommandProcessor set = CommandProcessors.get(bytes("SET"));
+        assertFalse(set.isByteBufParameter(0));
+        assertTrue(set.isByteBufParameter(1));
+        assertFalse(set.isByteBufParameter(2));
+        CommandProcessor lpush = CommandProcessors.get(bytes("LPUSH"));
+        assertFalse(lpush.isByteBufParameter(0));
+        assertTrue(lpush.isByteBufParameter(1));
+        assertTrue(lpush.isByteBufParameter(5));
+        CommandProcessor sadd = CommandProcessors.get(bytes("SADD"));
+        assertFalse(sadd.isByteBufParameter(1));
+    }
+
+    @Test
+    public void testArity() throws IllegalCommandException {
+        CommandProcessors.initWithCommandTable();
+        assertEquals(2, CommandProcessors.get(bytes("GET")).getArity());
+        assertEquals(-3, CommandProcessors.get(bytes("SET")).getArity());
+        assertEquals(-2, CommandProcessors.get(bytes("LPOP")).getArity());
+        assertEquals(-2, CommandProcessors.get(bytes("BITCOUNT")).getArity());
+        assertEquals(-3, CommandProcessors.get(bytes("BITPOS")).getArity());
+        assertEquals(-4, CommandProcessors.get(bytes("ZREVRANGE")).getArity());
+        assertEquals(-1, CommandProcessors.get(bytes("PING")).getArity());
+    }
+
+    interface IllegalRedisServer extends RedisServer {
+
+        @OptionalParameters
+        Reply optionalLong(byte[] key, long count);
+
+        @KeySpec(firstKey = 1, lastKey = -1, step = 0)
+        Reply zeroStep(byte[][] keys);
+    }
+
+    @Test
+    public void testCheckValidForIllegalOptionalParameter() throws NoSuchMethodException {
+        Method method = IllegalRedisServer.class.getDeclaredMethod("optionalLong", byte[].class, long.class);
+        IllegalCommandException ex = assertThrows(IllegalCommandException.class,
+                () -> new CommandProcessor("FOO", method));
+        assertEquals("Error for method optionalLong : only byte[] or ByteBuf parameters can be optional!",
+                ex.getMessage());
+    }
+
+    @Test
+    public void testCheckValidForIllegalKeyStep() throws NoSuchMethodException {
+        Method method = IllegalRedisServer.class.getDeclaredMethod("zeroStep", byte[][].class);
+        IllegalCommandException ex = assertThrows(IllegalCommandException.class,
+                () -> new CommandProcessor("FOO", method));
+        assertEquals("Error for method zeroStep : the key step must be positive for multiple keys!",
                 ex.getMessage());
     }
 }
@@ -6,9 +6,10 @@ import org.jrp.server.RedisServer;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
+import java.lang.reflect.Method;
 import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
-import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.jrp.utils.BytesUtils.bytes;
 import static org.jrp.utils.BytesUtils.string;
@@ -19,7 +20,7 @@ public class CommandProcessorsTest {
     // 'AfterEach' will be called even some tests throw exceptions.
     @AfterEach
     public void restoreRedisServerCommandProcessors() throws IllegalCommandException {
-        CommandProcessors.initWith(RedisServer.class.getMethods());
+        CommandProcessors.initWithCommandTable();
     }
 
     @Test
@@ -45,45 +46,59 @@ public class CommandProcessorsTest {
         }
 
         CommandProcessors.initWith(MyRedisServer.class.getMethods());
-        CommandProcessor[][] processors = CommandProcessors.getCommandProcessors();
-        for (int i = 0; i < 26; i++) {
-            switch ((char) ('A' + i)) {
-                case 'G':
-                case 'S':
-                case 'Z':
-                    continue;
-                default:
-                    assertNull(processors[i]);
-            }
-        }
+        assertEquals(8, CommandProcessors.count());
+        List<String> names = CommandProcessors.getCommandProcessors().stream()
+                .map(processor -> processor.getCommandMethod().getName())
+                .sorted()
+                .collect(Collectors.toList());
+        assertEquals(List.of("get", "set", "setex", "setnx",
+                "zadd", "zrange", "zrangeWithScores", "zrangeWithScoresByScores"), names);
+
+        assertEquals("get", CommandProcessors.get(bytes("get")).getCommandMethod().getName());
+        assertEquals("zrangeWithScores",
+                CommandProcessors.get(bytes("zrangewithscores")).getCommandMethod().getName());
+        assertNull(CommandProcessors.get(bytes("del")));
+    }
+
+    @Test
+    public void testCommandTable() throws IllegalCommandException {
+        List<String> generated = CommandProcessors.getCommandProcessors().stream()
+                .map(CommandProcessor::toString)
+                .sorted()
+                .collect(Collectors.toList());
+
+        CommandProcessors.initWith(RedisServer.class.getMethods());
+        List<String> reflected = CommandProcessors.getCommandProcessors().stream()
+                .map(CommandProcessor::toString)
+                .sorted()
+                .collect(Collectors.toList());
+        assertEquals(reflected, generated);
+
+        CommandProcessors.initWithCommandTable();
+        Method method = CommandProcessors.get(bytes("zadd")).getCommandMethod();
+        assertEquals("zadd", method.getName());
+        assertTrue(method.getDeclaringClass().isAssignableFrom(RedisServer.class));
+    }
 
-        CommandProcessor[] getProcessors = processors['G' - 'A'];
-        assertEquals(1, getProcessors.length);
-        CommandProcessor getProcessor = getProcessors[0];
-        assertEquals("get", getProcessor.getCommandMethod().getName());
-
-        CommandProcessor[] setProcessors = processors['S' - 'A'];
-        Arrays.sort(setProcessors, Comparator.comparing(CommandProcessor::getCommandName));
-        assertEquals(3, setProcessors.length);
-        CommandProcessor setProcessor = setProcessors[0];
-        assertEquals("set", setProcessor.getCommandMethod().getName());
-        CommandProcessor setexProcessor = setProcessors[1];
-        assertEquals("setex", setexProcessor.getCommandMethod().getName());
-        CommandProcessor setnxProcessor = setProcessors[2];
-        assertEquals("setnx", setnxProcessor.getCommandMethod().getName());
-
-        CommandProcessor[] zsetProcessors = processors['Z' - 'A'];
-        Arrays.sort(zsetProcessors, Comparator.comparing(CommandProcessor::getCommandName));
-        assertEquals(4, zsetProcessors.length);
-        CommandProcessor zaddProcessor = zsetProcessors[0];
-        assertEquals("zadd", zaddProcessor.getCommandMethod().getName());
-        CommandProcessor zrangeProcessor = zsetProcessors[1];
-        assertEquals("zrange", zrangeProcessor.getCommandMethod().getName());
-        CommandProcessor zrangeWithScoresProcessor = zsetProcessors[2];
-        assertEquals("zrangeWithScores", zrangeWithScoresProcessor.getCommandMethod().getName());
-        CommandProcessor zrangeWithScoresByScoresProcessor = zsetProcessors[3];
-        assertEquals("zrangeWithScoresByScores",
-                zrangeWithScoresByScoresProcessor.getCommandMethod().getName());
+    @Test
+    public void testRename() {
+        CommandProcessor getProcessor = CommandProcessors.get(bytes("get"));
+        CommandProcessor renamed = getProcessor.rename("what");
+        assertEquals("what", renamed.getCommandName());
+        assertArrayEquals(bytes("what"), renamed.getCommandNameBytes());
+        assertEquals(getProcessor.getRWType(), renamed.getRWType());
+        assertEquals(getProcessor.getCommandMethod(), renamed.getCommandMethod());
+        assertTrue(CommandProcessors.get(bytes("ping")).rename("hi").isLocal());
+    }
+
+    @Test
+    public void testLocal() {
+        for (String name : List.of("ping", "echo", "time", "quit", "select", "client", "command", "hello")) {
+            assertTrue(CommandProcessors.get(bytes(name)).isLocal(), name);
+        }
+        for (String name : List.of("get", "set", "info", "monitor", "dbsize")) {
+            assertFalse(CommandProcessors.get(bytes(name)).isLocal(), name);
+        }
     }
 
     @Test
@@ -92,7 +107,11 @@ public class CommandProcessorsTest {
         assertArrayEquals(command1, CommandProcessors.get(command1).getCommandNameBytes());
 
         byte[] command2 = "get".getBytes(StandardCharsets.UTF_8);
-        assertArrayEquals(command2, CommandProcessors.get(command2).getCommandNameBytes());
+        assertArrayEquals(command1, CommandProcessors.get(command2).getCommandNameBytes());
+        // the command name is not modified
+        assertEquals("get", string(command2));
+
+        assertEquals("GET", CommandProcessors.get(bytes("gEt")).getCommandName());
 
         byte[] command3 = "YY".getBytes(StandardCharsets.UTF_8);
         assertNull(CommandProcessors.get(command3));
@@ -101,6 +120,7 @@ public class CommandProcessorsTest {
         assertNull(CommandProcessors.get(command4));
 
         assertNull(CommandProcessors.get(null));
+        assertNull(CommandProcessors.get(new byte[0]));
     }
 
     @Test
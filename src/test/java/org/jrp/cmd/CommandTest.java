@@ -1,11 +1,16 @@
 package org.jrp.cmd;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.apache.commons.lang3.RandomUtils;
+import org.jrp.exception.InvalidArgumentException;
+import org.jrp.reply.ErrorReply;
 import org.jrp.utils.BytesUtils;
 import org.junit.jupiter.api.Test;
 
 import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.StringJoiner;
@@ -40,24 +45,26 @@ public class CommandTest {
         byte[] methodWithLessArgs(byte[] key, byte[] value);
 
         byte[] methodWithOtherTypesThanBytesArray(byte[] key, String value);
+
+        byte[] methodWithByteBufs(byte[] key, ByteBuf value, ByteBuf[] values);
     }
 
     @Test
     public void testNewCommand() {
         Command cmd1 = new Command();
-        assertTrue(cmd1.id > 0);
+        assertTrue(cmd1.getId() > 0);
         assertNull(cmd1.getTokens());
         assertNull(cmd1.getCommandProcessor());
 
         long randomId = RandomUtils.nextLong();
         Command cmd2 = new Command(randomId);
-        assertEquals(randomId, cmd2.id);
+        assertEquals(randomId, cmd2.getId());
         assertNull(cmd2.getTokens());
         assertNull(cmd2.getCommandProcessor());
 
         byte[][] tokens = {bytes("GET"), bytes(RandomStringUtils.randomAscii(10))};
         Command cmd3 = new Command(tokens);
-        assertTrue(cmd3.id > 0);
+        assertTrue(cmd3.getId() > 0);
         assertArrayEquals(tokens, cmd3.getTokens());
         assertSame(CommandProcessors.get(bytes("GET")), cmd3.getCommandProcessor());
     }
@@ -228,7 +235,79 @@ public class CommandTest {
                 .getDeclaredMethod("methodWithOtherTypesThanBytesArray", byte[].class, String.class);
         IllegalStateException ex = assertThrows(IllegalStateException.class,
                 () -> cmd.toArguments(methodWithOtherTypesThanBytesArray.getParameterTypes()));
-        assertEquals("parameter type can only be one of 'byte[]' or 'byte[][]', got String", ex.getMessage());
+        assertEquals("parameter type can only be one of " +
+                "'byte[]', 'byte[][]', 'ByteBuf', 'ByteBuf[]', 'long', 'int', 'double' or 'RedisKeyword', " +
+                "got String", ex.getMessage());
+    }
+
+    @Test
+    public void testToParsedArguments() {
+        ByteBuf slice = Unpooled.wrappedBuffer(bytes("-42"));
+        Command cmd = new Command(
+                new byte[][]{bytes("SET"), bytes("9223372036854775807"), null, bytes("1.5e3"), bytes("before"),
+                        bytes("inf")},
+                new ByteBuf[]{null, null, slice, null, null, null});
+
+        assertEquals(Long.MAX_VALUE, cmd.toLong(0));
+        assertEquals(Long.MAX_VALUE, cmd.toArgument(0, long.class));
+        assertEquals(-42, cmd.toInt(1));
+        assertEquals(-42L, cmd.toLong(1));
+        assertEquals(1500.0, cmd.toDouble(2));
+        assertEquals(RedisKeyword.BEFORE, cmd.toKeyword(3));
+        assertEquals(RedisKeyword.BEFORE, cmd.toArgument(3, RedisKeyword.class));
+        assertEquals(Double.POSITIVE_INFINITY, cmd.toDouble(4));
+
+        // the slice is parsed without being materialized
+        assertNull(cmd.getTokens()[2]);
+    }
+
+    @Test
+    public void testToInvalidParsedArguments() {
+        Command cmd = new Command(new byte[][]{bytes("INCRBY"), bytes("9223372036854775808"), bytes("1.5"),
+                bytes("nan"), bytes("nowhere")});
+
+        InvalidArgumentException ex = assertThrows(InvalidArgumentException.class, () -> cmd.toLong(0));
+        assertEquals(ErrorReply.NOT_INTEGER_ERROR, ex.getErrorReply());
+        assertThrows(InvalidArgumentException.class, () -> cmd.toInt(0));
+        assertEquals(ErrorReply.NOT_INTEGER_ERROR,
+                assertThrows(InvalidArgumentException.class, () -> cmd.toInt(1)).getErrorReply());
+        assertEquals(ErrorReply.NOT_FLOAT_ERROR,
+                assertThrows(InvalidArgumentException.class, () -> cmd.toDouble(2)).getErrorReply());
+        assertEquals(ErrorReply.NOT_FLOAT_ERROR,
+                assertThrows(InvalidArgumentException.class, () -> cmd.toDouble(3)).getErrorReply());
+        assertEquals(ErrorReply.ERR_SYNTAX_ERROR,
+                assertThrows(InvalidArgumentException.class, () -> cmd.toKeyword(3)).getErrorReply());
+        assertEquals("ERR wrong number of arguments for 'incrby' command",
+                assertThrows(InvalidArgumentException.class, () -> cmd.toLong(4)).getErrorReply().error());
+        assertThrows(InvalidArgumentException.class, () -> cmd.toArgument(4, double.class));
+    }
+
+    @Test
+    public void testToArgumentsForMethodWithByteBufs() throws NoSuchMethodException {
+        String randomString1 = RandomStringUtils.randomAscii(10);
+        String randomString2 = RandomStringUtils.randomAscii(10);
+        String randomString3 = RandomStringUtils.randomAscii(10);
+        ByteBuf slice = Unpooled.wrappedBuffer(bytes(randomString1));
+        Command cmd = new Command(new byte[][]{bytes("SET"), null, bytes(randomString2), bytes(randomString3)},
+                new ByteBuf[]{null, slice, null, null});
+
+        Method methodWithByteBufs = RedisMethods.class
+                .getDeclaredMethod("methodWithByteBufs", byte[].class, ByteBuf.class, ByteBuf[].class);
+        Object[] arguments = cmd.toArguments(methodWithByteBufs.getParameterTypes());
+        assertEquals(3, arguments.length);
+
+        // the slice is materialized for byte[] parameter
+        assertEquals(randomString1, string((byte[]) arguments[0]));
+        assertEquals(randomString2, ((ByteBuf) arguments[1]).toString(StandardCharsets.UTF_8));
+        ByteBuf[] varargs = (ByteBuf[]) arguments[2];
+        assertEquals(1, varargs.length);
+        assertEquals(randomString3, varargs[0].toString(StandardCharsets.UTF_8));
+
+        assertEquals(1, slice.refCnt());
+        cmd.release();
+        assertEquals(0, slice.refCnt());
+        assertNull(cmd.getTokenBufs());
+        assertEquals(randomString1, string(cmd.getTokens()[1]));
     }
 
     @Test
@@ -283,4 +362,47 @@ public class CommandTest {
                         randomStrings.subList(0, MAX_PRINTED_ARGS).toArray(String[]::new)),
                 cmdShortString);
     }
+
+    @Test
+    public void testPooledCommand() {
+        long inUse = Command.pooledInUse();
+        ByteBuf buf = Unpooled.copiedBuffer(bytes("v"));
+        Command command = Command.newInstance(
+                new byte[][]{bytes("SET"), bytes("k"), null}, new ByteBuf[]{null, null, buf});
+        assertTrue(command.isPooled());
+        assertEquals("SET", command.getCommandProcessor().getCommandName());
+        assertEquals(inUse + 1, Command.pooledInUse());
+        command.setClientAddress("127.0.0.1:6379");
+        command.setReply(ErrorReply.NIL_REPLY);
+
+        // held by both the handler and the writer
+        command.recycle();
+        assertEquals(inUse + 1, Command.pooledInUse());
+        assertEquals(1, buf.refCnt());
+        command.recycle();
+        assertEquals(inUse, Command.pooledInUse());
+        assertEquals(0, buf.refCnt());
+        assertNull(command.getReply());
+        assertNull(command.getClientAddress());
+
+        assertThrows(IllegalStateException.class, command::recycle);
+
+        long id = command.getId();
+        Command reused = Command.newInstance(new byte[][]{bytes("GET"), bytes("k")}, null);
+        assertEquals("\"GET\" \"k\"(unknown, NEW)", reused.toString());
+        assertTrue(reused.getId() > id);
+        reused.recycle();
+        reused.recycle();
+        assertEquals(inUse, Command.pooledInUse());
+    }
+
+    @Test
+    public void testRecycleUnpooledCommand() {
+        Command command = new Command(new byte[][]{bytes("GET"), bytes("k")});
+        assertFalse(command.isPooled());
+        command.recycle();
+        command.recycle();
+        command.recycle();
+        assertEquals("\"GET\" \"k\"(unknown, NEW)", command.toString());
+    }
 }
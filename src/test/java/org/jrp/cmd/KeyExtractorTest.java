@@ -0,0 +1,84 @@
+package org.jrp.cmd;
+
+import org.jrp.server.RedisServer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.jrp.utils.BytesUtils.bytes;
+import static org.jrp.utils.BytesUtils.string;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KeyExtractorTest {
+
+    private static List<String> keys(String... tokens) {
+        Command command = new Command(Stream.of(tokens).map(t -> bytes(t)).toArray(byte[][]::new));
+        return command.getCommandProcessor().getKeyExtractor().keys(command).stream()
+                .map(k -> string(k))
+                .toList();
+    }
+
+    private static String firstKey(String... tokens) {
+        Command command = new Command(Stream.of(tokens).map(t -> bytes(t)).toArray(byte[][]::new));
+        byte[] key = command.getCommandProcessor().getKeyExtractor().firstKey(command);
+        return key == null ? null : string(key);
+    }
+
+    @Test
+    public void testKeys() {
+        assertEquals(List.of("k"), keys("GET", "k"));
+        assertEquals(List.of("k"), keys("SET", "k", "v", "EX", "10"));
+        assertEquals(List.of("k1", "k2", "k3"), keys("DEL", "k1", "k2", "k3"));
+        assertEquals(List.of("k1", "k2"), keys("MSET", "k1", "v1", "k2", "v2"));
+        assertEquals(List.of("src", "dst"), keys("RPOPLPUSH", "src", "dst"));
+        assertEquals(List.of("dst", "k1", "k2"), keys("BITOP", "AND", "dst", "k1", "k2"));
+        assertEquals(List.of("dst", "k1", "k2"), keys("ZUNIONSTORE", "dst", "2", "k1", "k2", "WEIGHTS", "1", "2"));
+        assertEquals(List.of("dst"), keys("ZINTERSTORE", "dst", "x", "k1"));
+        assertEquals(List.of(), keys("PING"));
+        assertEquals(List.of(), keys("DEL"));
+    }
+
+    @Test
+    public void testFirstKey() {
+        assertEquals("k", firstKey("GET", "k"));
+        assertEquals("k1", firstKey("MGET", "k1", "k2"));
+        assertEquals("dst", firstKey("BITOP", "OR", "dst", "k1"));
+        assertNull(firstKey("GET"));
+        assertNull(firstKey("ECHO", "m"));
+    }
+
+    @Test
+    public void testSingleKey() {
+        assertTrue(new Command(new byte[][]{bytes("GET"), bytes("k")})
+                .getCommandProcessor().getKeyExtractor().isSingleKey());
+        assertTrue(new Command(new byte[][]{bytes("SET"), bytes("k"), bytes("v")})
+                .getCommandProcessor().getKeyExtractor().isSingleKey());
+        assertFalse(new Command(new byte[][]{bytes("MGET"), bytes("k1")})
+                .getCommandProcessor().getKeyExtractor().isSingleKey());
+        assertFalse(new Command(new byte[][]{bytes("RENAME"), bytes("k1"), bytes("k2")})
+                .getCommandProcessor().getKeyExtractor().isSingleKey());
+        assertFalse(new KeyExtractor(0, 0, 0, 1).isSingleKey());
+        assertFalse(KeyExtractor.NO_KEYS.isSingleKey());
+    }
+
+    @Test
+    public void testNumKeysOnly() {
+        KeyExtractor keyExtractor = new KeyExtractor(0, 0, 0, 1);
+        assertTrue(keyExtractor.hasKeys());
+        Command command = new Command(new byte[][]{bytes("GET"), bytes("2"), bytes("k1"), bytes("k2"), bytes("x")});
+        assertEquals("k1", string(keyExtractor.firstKey(command)));
+        assertEquals(List.of("k1", "k2"), keyExtractor.keys(command).stream().map(k -> string(k)).toList());
+        assertFalse(KeyExtractor.NO_KEYS.hasKeys());
+    }
+
+    @Test
+    public void testKeySpecs() throws NoSuchMethodException {
+        for (CommandProcessor processor : CommandProcessors.getCommandProcessors()) {
+            KeyExtractor keyExtractor = processor.getKeyExtractor();
+            RWType.Type rwType = processor.getRWType();
+            assertEquals(rwType != RWType.Type.OTHER, keyExtractor.hasKeys(), processor.toString());
+        }
+        assertSame(KeyExtractor.NO_KEYS, KeyExtractor.of(RedisServer.class.getMethod("ping", byte[].class)));
+    }
+}
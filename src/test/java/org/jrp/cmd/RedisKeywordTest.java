@@ -8,7 +8,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
-import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class RedisKeywordTest {
 
@@ -21,6 +21,22 @@ public class RedisKeywordTest {
 
         for (String keyword : keywords) {
             assertSame(RedisKeyword.valueOf(keyword), RedisKeyword.convert(BytesUtils.bytes(keyword)));
+
+            byte[] lowercase = BytesUtils.bytes(keyword.toLowerCase());
+            assertSame(RedisKeyword.valueOf(keyword), RedisKeyword.convert(lowercase));
+            assertEquals(keyword.toLowerCase(), BytesUtils.string(lowercase));
         }
     }
+
+    @Test
+    public void testConvertNotKeyword() {
+        assertNull(RedisKeyword.convert(null));
+        assertNull(RedisKeyword.convert(new byte[0]));
+        assertNull(RedisKeyword.convert(BytesUtils.bytes("NOTAKEYWORD")));
+        assertNull(RedisKeyword.convert(BytesUtils.bytes("GETT")));
+        assertNull(RedisKeyword.convert(BytesUtils.bytes("GE")));
+        // '@' and '`' differ from 'A' and 'a' only by the case bit
+        assertNull(RedisKeyword.convert(BytesUtils.bytes("@SC")));
+        assertNull(RedisKeyword.convert(BytesUtils.bytes("`sc")));
+    }
 }
@@ -8,6 +8,7 @@ import java.util.Map;
 import java.util.Objects;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class ProxyConfigTest {
@@ -31,9 +32,40 @@ public class ProxyConfigTest {
         assertTrue(proxyConfig.isUseIdleStateHandler());
         assertEquals("org.jrp.server.loader.RedisproxyAsyncServerLoader", proxyConfig.getRedisServerLoader());
         assertEquals(1024, proxyConfig.getMaxQueuedCommands());
+        assertFalse(proxyConfig.isZeroCopyTokens());
+        assertEquals(0, proxyConfig.getExplicitFlushAfterFlushes());
+        assertFalse(proxyConfig.isPooledCommands());
+        assertFalse(proxyConfig.isForwardUnimplementedCommands());
+        assertEquals(1, proxyConfig.getBackendConnections());
+        assertFalse(proxyConfig.isBackendRoutingByKey());
+        assertEquals(0, proxyConfig.getBackendIoThreads());
 
         Map<String, String> renameCommands = proxyConfig.getRenameCommands();
         assertEquals("whatareyoudoing", renameCommands.get("monitor"));
         assertEquals("", renameCommands.get("keys"));
     }
+
+    @Test
+    public void testLoadProxyConfigOptions() throws IOException {
+        URL confRes = ProxyConfigTest.class.getResource("/redisproxy-options.yaml");
+        String confFile = Objects.requireNonNull(confRes).getPath();
+        ProxyConfig proxyConfig = ProxyConfig.loadProxyConfig(confFile);
+
+        assertEquals(16380, proxyConfig.getPort());
+        assertEquals(2097152, proxyConfig.getMaxBulkStringLength());
+        assertTrue(proxyConfig.isZeroCopyTokens());
+        assertEquals(64, proxyConfig.getExplicitFlushAfterFlushes());
+        assertTrue(proxyConfig.isConsolidateWhenNoReadInProgress());
+        assertTrue(proxyConfig.isPooledCommands());
+        assertEquals(2, proxyConfig.getBackendConnections());
+        assertTrue(proxyConfig.isBackendRoutingByKey());
+        assertEquals(2, proxyConfig.getBackendIoThreads());
+        assertEquals(4, proxyConfig.getKeyStripedThreads());
+        assertFalse(proxyConfig.isLocalCommandsInIoThreads());
+        assertTrue(proxyConfig.isThreadPerCore());
+        assertEquals(4, proxyConfig.getDatabases());
+        assertEquals(2, proxyConfig.getPassThroughConnections());
+        assertTrue(proxyConfig.isForwardUnimplementedCommands());
+        assertEquals(Map.of("scan", "READ", "unlink", "WRITE"), proxyConfig.getForwardedCommandTypes());
+    }
 }
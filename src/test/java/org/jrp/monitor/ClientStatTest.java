@@ -69,7 +69,8 @@ public class ClientStatTest {
                     "events= {2}" +
                     "cmd=null " +
                     "user=null " +
-                    "redir=0"));
+                    "redir=0 " +
+                    "resp=2"));
         }
     }
 
@@ -118,6 +119,7 @@ public class ClientStatTest {
                 "events=r " +
                 "cmd=ping " +
                 "user=root " +
-                "redir=-1"));
+                "redir=-1 " +
+                "resp=2"));
     }
 }
@@ -17,6 +17,6 @@ public class RedisproxyStatusMetricsTest {
 
     @Test
     public void testGetTitle() {
-        assertEquals("THREADS  CMD_QUEUED  ACTIVE_CONN", RedisproxyStatusMetrics.INSTANCE.getTitle());
+        assertEquals("THREADS  CMD_QUEUED  ACTIVE_CONN  BACKEND_INFLIGHT", RedisproxyStatusMetrics.INSTANCE.getTitle());
     }
 }
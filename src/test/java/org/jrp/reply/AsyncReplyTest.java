@@ -24,6 +24,11 @@ public class AsyncReplyTest {
         public void write(ByteBuf out) {
             out.writeBytes(bytes(randomString));
         }
+
+        @Override
+        public int encodedSize() {
+            return bytes(randomString).length;
+        }
     }
 
     @Test
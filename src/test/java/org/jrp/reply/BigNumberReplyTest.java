@@ -0,0 +1,35 @@
+package org.jrp.reply;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+
+import static org.jrp.reply.RespVersion.RESP2;
+import static org.jrp.reply.RespVersion.RESP3;
+import static org.jrp.utils.BytesUtils.string;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class BigNumberReplyTest {
+
+    @Test
+    public void testWrite() {
+        BigInteger n = new BigInteger("3492890328409238509324850943850943825024385");
+        BigNumberReply reply = new BigNumberReply(n);
+        assertEquals(n, reply.value());
+        assertEquals(n.toString(), reply.toString());
+
+        assertWrite("$43\r\n3492890328409238509324850943850943825024385\r\n", reply, RESP2);
+        assertWrite("(3492890328409238509324850943850943825024385\r\n", reply, RESP3);
+        assertWrite("(-1\r\n", new BigNumberReply(BigInteger.ONE.negate()), RESP3);
+    }
+
+    private static void assertWrite(String expected, Reply reply, RespVersion version) {
+        ByteBuf buffer = Unpooled.buffer();
+        reply.write(buffer, version);
+        assertEquals(expected, string(ByteBufUtil.getBytes(buffer)));
+        assertEquals(buffer.readableBytes(), reply.encodedSize(version));
+    }
+}
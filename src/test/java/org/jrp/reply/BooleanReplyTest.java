@@ -0,0 +1,37 @@
+package org.jrp.reply;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import static org.jrp.reply.RespVersion.RESP2;
+import static org.jrp.reply.RespVersion.RESP3;
+import static org.jrp.utils.BytesUtils.string;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BooleanReplyTest {
+
+    @Test
+    public void testBooleanReply() {
+        assertSame(BooleanReply.TRUE, BooleanReply.booleanReply(true));
+        assertSame(BooleanReply.FALSE, BooleanReply.booleanReply(false));
+        assertTrue(BooleanReply.TRUE.value());
+        assertFalse(BooleanReply.FALSE.value());
+    }
+
+    @Test
+    public void testWrite() {
+        assertWrite(":1\r\n", BooleanReply.TRUE, RESP2);
+        assertWrite(":0\r\n", BooleanReply.FALSE, RESP2);
+        assertWrite("#t\r\n", BooleanReply.TRUE, RESP3);
+        assertWrite("#f\r\n", BooleanReply.FALSE, RESP3);
+    }
+
+    private static void assertWrite(String expected, Reply reply, RespVersion version) {
+        ByteBuf buffer = Unpooled.buffer();
+        reply.write(buffer, version);
+        assertEquals(expected, string(ByteBufUtil.getBytes(buffer)));
+        assertEquals(buffer.readableBytes(), reply.encodedSize(version));
+    }
+}
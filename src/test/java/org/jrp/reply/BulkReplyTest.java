@@ -2,7 +2,10 @@ package org.jrp.reply;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.buffer.Unpooled;
+import io.netty.util.ReferenceCountUtil;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.jupiter.api.Test;
 
@@ -55,6 +58,27 @@ public class BulkReplyTest {
         assertEquals(s2, reply7.toString());
     }
 
+    @Test
+    public void testPooledBulkReply() {
+        assertSame(BulkReply.NIL_REPLY, BulkReply.bulkReply((ByteBuf) null));
+
+        ByteBuf value = PooledByteBufAllocator.DEFAULT.ioBuffer().writeBytes(bytes("hello"));
+        BulkReply reply = BulkReply.bulkReply(value);
+        assertEquals("hello", reply.toString());
+        ByteBuf buffer = Unpooled.buffer();
+        reply.write(buffer);
+        assertEquals("$5\r\nhello\r\n", string(ByteBufUtil.getBytes(buffer)));
+
+        // huge, so the value is added as a component, which outlives the reply
+        CompositeByteBuf composite = Unpooled.compositeBuffer();
+        reply.writeComponents(composite, 1, RespVersion.RESP2);
+        assertFalse(ReferenceCountUtil.release(reply));
+        assertEquals(1, value.refCnt());
+        assertEquals("$5\r\nhello\r\n", string(ByteBufUtil.getBytes(composite)));
+        composite.release();
+        assertEquals(0, value.refCnt());
+    }
+
     @Test
     public void testWrite() {
         String randomString = RandomStringUtils.randomAlphabetic(10);
@@ -74,6 +98,21 @@ public class BulkReplyTest {
             ByteBuf buffer = Unpooled.buffer();
             reply.write(buffer);
             assertEquals(expects.get(i), string(ByteBufUtil.getBytes(buffer)));
+            assertEquals(expects.get(i).length(), reply.encodedSize());
         }
     }
+
+    @Test
+    public void testWriteResp3() {
+        ByteBuf buffer = Unpooled.buffer();
+        BulkReply.NIL_REPLY.write(buffer, RespVersion.RESP3);
+        assertEquals("_\r\n", string(ByteBufUtil.getBytes(buffer)));
+        assertEquals(3, BulkReply.NIL_REPLY.encodedSize(RespVersion.RESP3));
+
+        BulkReply reply = BulkReply.bulkReply("a");
+        ByteBuf buffer2 = Unpooled.buffer();
+        reply.write(buffer2, RespVersion.RESP3);
+        assertEquals("$1\r\na\r\n", string(ByteBufUtil.getBytes(buffer2)));
+        assertEquals(7, reply.encodedSize(RespVersion.RESP3));
+    }
 }
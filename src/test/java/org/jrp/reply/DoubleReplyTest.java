@@ -0,0 +1,50 @@
+package org.jrp.reply;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import static org.jrp.reply.RespVersion.RESP2;
+import static org.jrp.reply.RespVersion.RESP3;
+import static org.jrp.utils.BytesUtils.string;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class DoubleReplyTest {
+
+    @Test
+    public void testWrite() {
+        assertWrite("$3\r\n1.5\r\n", new DoubleReply(1.5), RESP2);
+        assertWrite(",1.5\r\n", new DoubleReply(1.5), RESP3);
+
+        assertWrite("$2\r\n10\r\n", new DoubleReply(10), RESP2);
+        assertWrite(",10\r\n", new DoubleReply(10), RESP3);
+        assertWrite(",-0.125\r\n", new DoubleReply(-0.125), RESP3);
+        assertWrite(",1.0E20\r\n", new DoubleReply(1e20), RESP3);
+
+        assertWrite(",inf\r\n", new DoubleReply(Double.POSITIVE_INFINITY), RESP3);
+        assertWrite(",-inf\r\n", new DoubleReply(Double.NEGATIVE_INFINITY), RESP3);
+        assertWrite(",nan\r\n", new DoubleReply(Double.NaN), RESP3);
+
+        DoubleReply reply = new DoubleReply(3.25);
+        ByteBuf buffer = Unpooled.buffer();
+        reply.write(buffer);
+        assertEquals(reply.encodedSize(), buffer.readableBytes());
+        assertEquals("3.25", reply.toString());
+    }
+
+    @Test
+    public void testDoubleReply() {
+        assertSame(BulkReply.NIL_REPLY, DoubleReply.doubleReply(null));
+        assertWrite("_\r\n", DoubleReply.doubleReply(null), RESP3);
+        assertEquals(2.5, ((DoubleReply) DoubleReply.doubleReply(2.5)).value());
+    }
+
+    private static void assertWrite(String expected, Reply reply, RespVersion version) {
+        ByteBuf buffer = Unpooled.buffer();
+        reply.write(buffer, version);
+        assertEquals(expected, string(ByteBufUtil.getBytes(buffer)));
+        assertEquals(buffer.readableBytes(), reply.encodedSize(version));
+    }
+}
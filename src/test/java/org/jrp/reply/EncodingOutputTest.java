@@ -0,0 +1,234 @@
+package org.jrp.reply;
+
+import io.netty.buffer.ByteBuf;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+import static org.jrp.utils.BytesUtils.bytes;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EncodingOutputTest {
+
+    private static String encode(Reply reply) {
+        assertTrue(reply instanceof EncodedReply);
+        ByteBuf buf = ((EncodedReply) reply).buf();
+        String s = buf.toString(StandardCharsets.UTF_8);
+        assertEquals(s.length(), reply.encodedSize());
+        assertTrue(((EncodedReply) reply).release());
+        return s;
+    }
+
+    private static void set(EncodingOutput output, String... elements) {
+        for (String element : elements) {
+            output.set(ByteBuffer.wrap(bytes(element)));
+        }
+    }
+
+    @Test
+    public void testArray() {
+        for (RespVersion version : RespVersion.values()) {
+            AggregateOutput output = new AggregateOutput(AggregateOutput.Kind.ARRAY, version);
+            output.multi(2);
+            set(output, "a", "bc");
+            assertEquals("*2\r\n$1\r\na\r\n$2\r\nbc\r\n", encode(output.get()));
+        }
+    }
+
+    @Test
+    public void testMap() {
+        AggregateOutput output = new AggregateOutput(AggregateOutput.Kind.MAP, RespVersion.RESP2);
+        // a map of RESP3 from Redis, which is counted in elements
+        output.multiMap(1);
+        set(output, "f", "v");
+        assertEquals("*2\r\n$1\r\nf\r\n$1\r\nv\r\n", encode(output.get()));
+
+        output = new AggregateOutput(AggregateOutput.Kind.MAP, RespVersion.RESP3);
+        output.multi(2);
+        set(output, "f", "v");
+        assertEquals("%1\r\n$1\r\nf\r\n$1\r\nv\r\n", encode(output.get()));
+    }
+
+    @Test
+    public void testSet() {
+        AggregateOutput output = new AggregateOutput(AggregateOutput.Kind.SET, RespVersion.RESP3);
+        output.multiSet(1);
+        set(output, "m");
+        assertEquals("~1\r\n$1\r\nm\r\n", encode(output.get()));
+
+        output = new AggregateOutput(AggregateOutput.Kind.SET, RespVersion.RESP2);
+        output.multi(0);
+        assertEquals("*0\r\n", encode(output.get()));
+    }
+
+    @Test
+    public void testNested() {
+        AggregateOutput output = new AggregateOutput(AggregateOutput.Kind.ARRAY, RespVersion.RESP3);
+        output.multi(2);
+        set(output, "0");
+        output.multi(2);
+        set(output, "f", "v");
+        assertEquals("*2\r\n$1\r\n0\r\n*2\r\n$1\r\nf\r\n$1\r\nv\r\n", encode(output.get()));
+    }
+
+    @Test
+    public void testScoredValues() {
+        // flat members and scores from Redis speaking RESP2
+        ScoredValuesOutput output = new ScoredValuesOutput(RespVersion.RESP3);
+        output.multi(4);
+        set(output, "a", "1.5", "b", "2");
+        assertEquals("*2\r\n*2\r\n$1\r\na\r\n,1.5\r\n*2\r\n$1\r\nb\r\n,2\r\n", encode(output.get()));
+
+        output = new ScoredValuesOutput(RespVersion.RESP2);
+        output.multi(4);
+        set(output, "a", "1.5", "b", "2");
+        assertEquals("*4\r\n$1\r\na\r\n$3\r\n1.5\r\n$1\r\nb\r\n$1\r\n2\r\n", encode(output.get()));
+
+        // [member, double] pairs from Redis speaking RESP3
+        output = new ScoredValuesOutput(RespVersion.RESP3);
+        output.multi(1);
+        output.multi(2);
+        set(output, "a");
+        output.set(1.5);
+        assertEquals("*1\r\n*2\r\n$1\r\na\r\n,1.5\r\n", encode(output.get()));
+
+        output = new ScoredValuesOutput(RespVersion.RESP2);
+        output.multi(1);
+        output.multi(2);
+        set(output, "a");
+        output.set(1.5);
+        assertEquals("*2\r\n$1\r\na\r\n$3\r\n1.5\r\n", encode(output.get()));
+
+        output = new ScoredValuesOutput(RespVersion.RESP3);
+        output.multi(0);
+        assertEquals("*0\r\n", encode(output.get()));
+    }
+
+    @Test
+    public void testError() {
+        AggregateOutput output = new AggregateOutput(AggregateOutput.Kind.ARRAY, RespVersion.RESP2);
+        output.multi(2);
+        set(output, "a");
+        output.setError("ERR oops");
+        assertTrue(output.hasError());
+        assertNull(output.get());
+    }
+
+    @Test
+    public void testGetOnce() {
+        AggregateOutput output = new AggregateOutput(AggregateOutput.Kind.ARRAY, RespVersion.RESP2);
+        output.multi(1);
+        set(output, "a");
+        Reply reply = output.get();
+        assertSame(reply, output.get());
+        assertEquals("*1\r\n$1\r\na\r\n", encode(reply));
+    }
+
+    @Test
+    public void testRespOutput() {
+        RespOutput output = new RespOutput(RespVersion.RESP3);
+        output.multi(6);
+        output.multiMap(1);
+        set(output, "f", "v");
+        output.multiSet(1);
+        set(output, "m");
+        output.setSingle(ByteBuffer.wrap(bytes("OK")));
+        output.set(1.5);
+        output.set(true);
+        output.set((ByteBuffer) null);
+        assertEquals("*6\r\n%1\r\n$1\r\nf\r\n$1\r\nv\r\n~1\r\n$1\r\nm\r\n+OK\r\n,1.5\r\n#t\r\n_\r\n",
+                encode(output.get()));
+
+        output = new RespOutput(RespVersion.RESP2);
+        output.multi(6);
+        output.multiMap(1);
+        set(output, "f", "v");
+        output.multiSet(1);
+        set(output, "m");
+        output.setSingle(ByteBuffer.wrap(bytes("OK")));
+        output.set(1.5);
+        output.set(true);
+        output.set((ByteBuffer) null);
+        assertEquals("*6\r\n*2\r\n$1\r\nf\r\n$1\r\nv\r\n*1\r\n$1\r\nm\r\n+OK\r\n$3\r\n1.5\r\n:1\r\n$-1\r\n",
+                encode(output.get()));
+    }
+
+    @Test
+    public void testRespOutputNull() {
+        RespOutput output = new RespOutput(RespVersion.RESP2);
+        output.multi(-1);
+        assertEquals("*-1\r\n", encode(output.get()));
+    }
+
+    @Test
+    public void testBulkOutput() {
+        BulkOutput output = new BulkOutput(RespVersion.RESP2);
+        set(output, "v");
+        assertEquals("$1\r\nv\r\n", encode(output.get()));
+
+        output = new BulkOutput(RespVersion.RESP2);
+        output.set((ByteBuffer) null);
+        assertEquals("$-1\r\n", encode(output.get()));
+
+        output = new BulkOutput(RespVersion.RESP3);
+        output.set((ByteBuffer) null);
+        assertEquals("_\r\n", encode(output.get()));
+    }
+
+    @Test
+    public void testReleaseBulkRepliedLate() {
+        BulkOutput output = new BulkOutput(RespVersion.RESP2);
+        CompletableFuture<Reply> future = new CompletableFuture<>();
+        output.releaseOnFailure(future);
+        future.completeExceptionally(new TimeoutException());
+        // the value arrives after the command timed out
+        set(output, "v");
+        ByteBuf buf = output.buf();
+        assertNull(output.get());
+        assertEquals(0, buf.refCnt());
+    }
+
+    @Test
+    public void testReleaseOnTimeout() {
+        AggregateOutput output = new AggregateOutput(AggregateOutput.Kind.ARRAY, RespVersion.RESP2);
+        CompletableFuture<Reply> future = new CompletableFuture<>();
+        output.releaseOnFailure(future);
+        output.multi(2);
+        set(output, "a");
+        ByteBuf buf = output.buf();
+        future.completeExceptionally(new TimeoutException());
+        // Redis keeps replying to the command timed out
+        assertEquals(1, buf.refCnt());
+        set(output, "b");
+        assertNull(output.get());
+        assertEquals(0, buf.refCnt());
+    }
+
+    @Test
+    public void testReleaseOnTimeoutAfterDecoded() {
+        AggregateOutput output = new AggregateOutput(AggregateOutput.Kind.ARRAY, RespVersion.RESP2);
+        CompletableFuture<Reply> future = new CompletableFuture<>();
+        output.releaseOnFailure(future);
+        output.multi(1);
+        set(output, "a");
+        EncodedReply reply = (EncodedReply) output.get();
+        future.completeExceptionally(new TimeoutException());
+        assertFalse(future.complete(reply));
+        assertEquals(0, reply.refCnt());
+    }
+
+    @Test
+    public void testReleaseOnCancel() {
+        AggregateOutput output = new AggregateOutput(AggregateOutput.Kind.ARRAY, RespVersion.RESP2);
+        CompletableFuture<Reply> future = new CompletableFuture<>();
+        output.releaseOnFailure(future);
+        output.multi(2);
+        set(output, "a");
+        ByteBuf buf = output.buf();
+        future.cancel(false);
+        assertEquals(0, buf.refCnt());
+    }
+}
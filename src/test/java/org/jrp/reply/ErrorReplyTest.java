@@ -18,5 +18,6 @@ public class ErrorReplyTest {
         ByteBuf buffer = Unpooled.buffer();
         reply.write(buffer);
         assertEquals("-" + s + "\r\n", BytesUtils.string(ByteBufUtil.getBytes(buffer)));
+        assertEquals(buffer.readableBytes(), reply.encodedSize());
     }
 }
@@ -10,7 +10,6 @@ import org.apache.commons.lang3.RandomStringUtils;
 import org.jrp.utils.BytesUtils;
 import org.junit.jupiter.api.Test;
 
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -24,6 +23,11 @@ public class FutureReplyTest {
             out.writeBytes(BytesUtils.bytes(content));
         }
 
+        @Override
+        public int encodedSize() {
+            return BytesUtils.bytes(content).length;
+        }
+
         @Override
         public String toString() {
             return "MyReply{" +
@@ -33,27 +37,31 @@ public class FutureReplyTest {
     }
 
     @Test
-    public void testFutureReplyCompleteNormally() throws ExecutionException, InterruptedException {
+    public void testFutureReplyCompleteNormally() {
         AsyncCommand<String, String, String> asyncCommand = createAsyncCommand();
         FutureReply<String> futureReply = new FutureReply<>(asyncCommand, MyReply::new);
+        AtomicReference<Reply> completedReply = new AtomicReference<>(null);
+        futureReply.onComplete(completedReply::set);
 
         String s = RandomStringUtils.randomAlphabetic(10);
         assertTrue(asyncCommand.complete(s));
 
-        Reply reply = futureReply.getStage().toCompletableFuture().get();
+        Reply reply = completedReply.get();
         assertTrue(reply instanceof MyReply);
         assertEquals(s, ((MyReply) reply).content);
     }
 
     @Test
-    public void testFutureReplyCompleteExceptionally() throws ExecutionException, InterruptedException {
+    public void testFutureReplyCompleteExceptionally() {
         AsyncCommand<String, String, String> asyncCommand = createAsyncCommand();
         FutureReply<String> futureReply = new FutureReply<>(asyncCommand, MyReply::new);
+        AtomicReference<Reply> completedReply = new AtomicReference<>(null);
+        futureReply.onComplete(completedReply::set);
 
         String s = RandomStringUtils.randomAlphabetic(10);
         assertTrue(asyncCommand.completeExceptionally(new Exception("not root cause", new Exception(s))));
 
-        Reply reply = futureReply.getStage().toCompletableFuture().get();
+        Reply reply = completedReply.get();
         assertTrue(reply instanceof ErrorReply);
         assertEquals("Exception: " + s, reply.toString());
     }
@@ -64,17 +72,20 @@ public class FutureReplyTest {
         FutureReply<String> futureReply = new FutureReply<>(asyncCommand, s -> {
             throw new RuntimeException(s);
         });
+        AtomicReference<Reply> completedReply = new AtomicReference<>(null);
+        futureReply.onComplete(completedReply::set);
 
         String s = RandomStringUtils.randomAlphabetic(10);
         assertTrue(asyncCommand.complete(s));
 
-        ExecutionException e = assertThrows(ExecutionException.class,
-                () -> futureReply.getStage().toCompletableFuture().get());
-        assertEquals("java.lang.RuntimeException: " + s, e.getMessage());
+        // the sink still gets a reply, so that the replies after it are not blocked
+        Reply reply = completedReply.get();
+        assertTrue(reply instanceof ErrorReply);
+        assertEquals("RuntimeException: " + s, reply.toString());
     }
 
     @Test
-    public void testOnComplete() throws ExecutionException, InterruptedException {
+    public void testOnComplete() {
         AsyncCommand<String, String, String> asyncCommand = createAsyncCommand();
         FutureReply<String> futureReply = new FutureReply<>(asyncCommand, MyReply::new);
         assertNull(futureReply.getReply());
@@ -85,7 +96,6 @@ public class FutureReplyTest {
         String s = RandomStringUtils.randomAlphabetic(10);
         assertTrue(asyncCommand.complete(s));
 
-        futureReply.getStage().toCompletableFuture().get();
         assertEquals("MyReply{content='" + s + "'}", completedReply.get());
 
         Reply reply = futureReply.getReply();
@@ -93,6 +103,21 @@ public class FutureReplyTest {
         assertEquals(s, ((MyReply) reply).content());
     }
 
+    @Test
+    public void testOnCompleteAfterCompleted() {
+        AsyncCommand<String, String, String> asyncCommand = createAsyncCommand();
+        String s = RandomStringUtils.randomAlphabetic(10);
+        assertTrue(asyncCommand.complete(s));
+
+        FutureReply<String> futureReply = new FutureReply<>(asyncCommand, MyReply::new);
+        AtomicReference<Reply> completedReply = new AtomicReference<>(null);
+        futureReply.onComplete(completedReply::set);
+
+        // given to the sink right away, in the calling thread
+        assertEquals(new MyReply(s), completedReply.get());
+        assertSame(completedReply.get(), futureReply.getReply());
+    }
+
     AsyncCommand<String, String, String> createAsyncCommand() {
         return new AsyncCommand<>(new Command<>(CommandType.GET, new ValueOutput<>(new StringCodec())));
     }
@@ -7,7 +7,7 @@ import org.apache.commons.lang3.RandomUtils;
 import org.jrp.utils.BytesUtils;
 import org.junit.jupiter.api.Test;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class IntegerReplyTest {
 
@@ -28,6 +28,15 @@ public class IntegerReplyTest {
         assertEquals(1, reply4.integer());
     }
 
+    @Test
+    public void testCachedIntegerReply() {
+        assertSame(IntegerReply.integer(-2), IntegerReply.integer(-2));
+        assertSame(IntegerReply.integer(true), IntegerReply.integer(1));
+        assertSame(IntegerReply.integer(1023), IntegerReply.integer(1023));
+        assertEquals(1024, IntegerReply.integer(1024).integer());
+        assertNotSame(IntegerReply.integer(1024), IntegerReply.integer(1024));
+    }
+
     @Test
     public void testWrite() {
         long l = RandomUtils.nextLong(0, Long.MAX_VALUE);
@@ -35,5 +44,6 @@ public class IntegerReplyTest {
         ByteBuf buffer = Unpooled.buffer();
         reply.write(buffer);
         assertEquals(":" + l + "\r\n", BytesUtils.string(ByteBufUtil.getBytes(buffer)));
+        assertEquals(buffer.readableBytes(), reply.encodedSize());
     }
 }
@@ -0,0 +1,50 @@
+package org.jrp.reply;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.jrp.reply.RespVersion.RESP2;
+import static org.jrp.reply.RespVersion.RESP3;
+import static org.jrp.utils.BytesUtils.bytes;
+import static org.jrp.utils.BytesUtils.string;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class MapReplyTest {
+
+    @Test
+    public void testWrite() {
+        Map<byte[], byte[]> map = new LinkedHashMap<>();
+        map.put(bytes("k1"), bytes("v1"));
+        map.put(bytes("k2"), null);
+        MapReply reply = MapReply.fromBytesMap(map);
+        assertEquals("\"k1\" \"v1\" \"k2\" \"null\"", reply.toString());
+
+        assertWrite("*4\r\n$2\r\nk1\r\n$2\r\nv1\r\n$2\r\nk2\r\n$-1\r\n", reply, RESP2);
+        assertWrite("%2\r\n$2\r\nk1\r\n$2\r\nv1\r\n$2\r\nk2\r\n_\r\n", reply, RESP3);
+
+        ByteBuf buffer = Unpooled.buffer();
+        reply.write(buffer);
+        assertEquals(reply.encodedSize(), buffer.readableBytes());
+    }
+
+    @Test
+    public void testFromStringMap() {
+        Map<String, String> map = new LinkedHashMap<>();
+        assertWrite("%0\r\n", MapReply.fromStringMap(map), RESP3);
+
+        map.put("k", "v");
+        assertWrite("%1\r\n$1\r\nk\r\n$1\r\nv\r\n", MapReply.fromStringMap(map), RESP3);
+    }
+
+    private static void assertWrite(String expected, Reply reply, RespVersion version) {
+        ByteBuf buffer = Unpooled.buffer();
+        reply.write(buffer, version);
+        assertEquals(expected, string(ByteBufUtil.getBytes(buffer)));
+        assertEquals(buffer.readableBytes(), reply.encodedSize(version));
+    }
+}
@@ -0,0 +1,109 @@
+package org.jrp.reply;
+
+import io.lettuce.core.RedisCommandExecutionException;
+import io.lettuce.core.RedisCommandTimeoutException;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.protocol.CommandArgs;
+import io.lettuce.core.protocol.CommandType;
+import io.netty.buffer.ByteBuf;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import static org.jrp.utils.BytesUtils.bytes;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReplyCommandTest {
+
+    private static ReplyCommand get(BulkOutput output) {
+        return new ReplyCommand(CommandType.GET, output, new CommandArgs<>(ByteArrayCodec.INSTANCE).addKey(bytes("k")));
+    }
+
+    private static String encoded(Reply reply) {
+        return ((EncodedReply) reply).buf().toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testCompleteToReply() {
+        BulkOutput output = new BulkOutput(RespVersion.RESP2);
+        ReplyCommand command = get(output);
+        List<Reply> replies = new ArrayList<>();
+        new FutureReply<>(command, r -> r).onComplete(replies::add);
+        assertTrue(replies.isEmpty());
+
+        output.set(ByteBuffer.wrap(bytes("v")));
+        command.complete();
+        assertEquals(1, replies.size());
+        assertEquals("$1\r\nv\r\n", encoded(replies.get(0)));
+        assertTrue(((EncodedReply) command.join()).release());
+    }
+
+    @Test
+    public void testCompletedBeforeRegistered() {
+        BulkOutput output = new BulkOutput(RespVersion.RESP2);
+        ReplyCommand command = get(output);
+        output.set(null);
+        command.complete();
+
+        List<Reply> replies = new ArrayList<>();
+        new FutureReply<>(command, r -> r).onComplete(replies::add);
+        assertEquals(1, replies.size());
+        assertEquals("$-1\r\n", encoded(replies.get(0)));
+        assertTrue(((EncodedReply) command.join()).release());
+    }
+
+    @Test
+    public void testErrorReply() {
+        BulkOutput output = new BulkOutput(RespVersion.RESP2);
+        ReplyCommand command = get(output);
+        List<Reply> replies = new ArrayList<>();
+        new FutureReply<>(command, r -> r).onComplete(replies::add);
+
+        output.setError("WRONGTYPE Operation against a key holding the wrong kind of value");
+        command.complete();
+        assertTrue(command.isCompletedExceptionally());
+        assertEquals(1, replies.size());
+        assertEquals("WRONGTYPE Operation against a key holding the wrong kind of value", replies.get(0).toString());
+        assertThrows(RedisCommandExecutionException.class, () -> {
+            throw command.exceptionNow();
+        });
+    }
+
+    @Test
+    public void testReleaseOnTimeout() {
+        BulkOutput output = new BulkOutput(RespVersion.RESP2);
+        ReplyCommand command = get(output);
+        List<Reply> replies = new ArrayList<>();
+        new FutureReply<>(command, r -> r).onComplete(replies::add);
+
+        assertTrue(command.completeExceptionally(new RedisCommandTimeoutException("timed out")));
+        assertEquals(1, replies.size());
+        assertTrue(replies.get(0) instanceof ErrorReply);
+        // the value arrives after the command timed out, and is dropped as Lettuce completes the command again
+        output.set(ByteBuffer.wrap(bytes("v")));
+        ByteBuf buf = output.buf();
+        command.complete();
+        assertEquals(0, buf.refCnt());
+        assertEquals(1, replies.size());
+    }
+
+    @Test
+    public void testReleaseOnCancel() {
+        BulkOutput output = new BulkOutput(RespVersion.RESP2);
+        ReplyCommand command = get(output);
+        output.set(ByteBuffer.wrap(bytes("v")));
+        ByteBuf buf = output.buf();
+
+        command.cancel();
+        assertEquals(0, buf.refCnt());
+        List<Reply> replies = new ArrayList<>();
+        new FutureReply<>(command, r -> r).onComplete(replies::add);
+        assertEquals(1, replies.size());
+        assertTrue(replies.get(0).toString().startsWith(CancellationException.class.getSimpleName()),
+                replies.get(0).toString());
+    }
+}
@@ -0,0 +1,35 @@
+package org.jrp.reply;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.apache.commons.lang3.RandomUtils;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.jrp.reply.ReplyHeaders.CACHED_NUMBERS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ReplyHeadersTest {
+
+    @Test
+    public void testWriteLine() {
+        long[] numbers = {0, 1, -1, -2, 9, 10, CACHED_NUMBERS - 1, CACHED_NUMBERS, Integer.MAX_VALUE,
+                Long.MAX_VALUE, Long.MIN_VALUE, RandomUtils.nextLong(0, CACHED_NUMBERS),
+                RandomUtils.nextLong(), -RandomUtils.nextLong()};
+        for (long n : numbers) {
+            ByteBuf out = Unpooled.buffer(1);
+            ReplyHeaders.writeLine(out, '*', n);
+            assertEquals("*" + n + "\r\n", out.toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testWriteNumber() {
+        ByteBuf out = Unpooled.buffer(1);
+        out.writeByte('[');
+        ReplyHeaders.writeNumber(out, Long.MIN_VALUE);
+        out.writeByte(']');
+        assertEquals("[" + Long.MIN_VALUE + "]", out.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,58 @@
+package org.jrp.reply;
+
+import io.lettuce.core.ScoredValue;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.jrp.reply.RespVersion.RESP2;
+import static org.jrp.reply.RespVersion.RESP3;
+import static org.jrp.utils.BytesUtils.bytes;
+import static org.jrp.utils.BytesUtils.string;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ScoredValuesReplyTest {
+
+    @Test
+    public void testWrite() {
+        List<ScoredValue<byte[]>> scoredValues = new ArrayList<>();
+        assertWrite("*0\r\n", ScoredValuesReply.from(scoredValues), RESP3);
+
+        scoredValues.add(ScoredValue.just(1.0, bytes("v1")));
+        scoredValues.add(ScoredValue.just(2.5, bytes("v2")));
+        ScoredValuesReply reply = ScoredValuesReply.from(scoredValues);
+        assertEquals("\"v1\" \"1\" \"v2\" \"2.5\"", reply.toString());
+
+        // the same as MultiBulkReply.fromScoreValues
+        assertWrite("*4\r\n$2\r\nv1\r\n$1\r\n1\r\n$2\r\nv2\r\n$3\r\n2.5\r\n", reply, RESP2);
+        assertWrite("*2\r\n*2\r\n$2\r\nv1\r\n,1\r\n*2\r\n$2\r\nv2\r\n,2.5\r\n", reply, RESP3);
+    }
+
+    @Test
+    public void testWriteComponents() {
+        List<ScoredValue<byte[]>> scoredValues = new ArrayList<>();
+        scoredValues.add(ScoredValue.just(1.0, bytes("v1")));
+        scoredValues.add(ScoredValue.just(2.0, bytes("v".repeat(100))));
+        ScoredValuesReply reply = ScoredValuesReply.from(scoredValues);
+        for (RespVersion version : RespVersion.values()) {
+            ByteBuf expected = Unpooled.buffer();
+            reply.write(expected, version);
+            CompositeByteBuf buffer = Unpooled.compositeBuffer();
+            reply.writeComponents(buffer, 50, version);
+            assertEquals(string(ByteBufUtil.getBytes(expected)), string(ByteBufUtil.getBytes(buffer)));
+            buffer.release();
+        }
+    }
+
+    private static void assertWrite(String expected, Reply reply, RespVersion version) {
+        ByteBuf buffer = Unpooled.buffer();
+        reply.write(buffer, version);
+        assertEquals(expected, string(ByteBufUtil.getBytes(buffer)));
+        assertEquals(buffer.readableBytes(), reply.encodedSize(version));
+    }
+}
@@ -0,0 +1,44 @@
+package org.jrp.reply;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.jrp.reply.RespVersion.RESP2;
+import static org.jrp.reply.RespVersion.RESP3;
+import static org.jrp.utils.BytesUtils.bytes;
+import static org.jrp.utils.BytesUtils.string;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SetReplyTest {
+
+    @Test
+    public void testWrite() {
+        SetReply reply = SetReply.from(Arrays.asList(bytes("a"), 1L));
+        assertEquals("\"a\" \"1\"", reply.toString());
+
+        assertWrite("*2\r\n$1\r\na\r\n:1\r\n", reply, RESP2);
+        assertWrite("~2\r\n$1\r\na\r\n:1\r\n", reply, RESP3);
+
+        ByteBuf buffer = Unpooled.buffer();
+        reply.write(buffer);
+        assertEquals(reply.encodedSize(), buffer.readableBytes());
+    }
+
+    @Test
+    public void testWriteNull() {
+        SetReply reply = new SetReply(null);
+        assertWrite("*-1\r\n", reply, RESP2);
+        assertWrite("_\r\n", reply, RESP3);
+    }
+
+    private static void assertWrite(String expected, Reply reply, RespVersion version) {
+        ByteBuf buffer = Unpooled.buffer();
+        reply.write(buffer, version);
+        assertEquals(expected, string(ByteBufUtil.getBytes(buffer)));
+        assertEquals(buffer.readableBytes(), reply.encodedSize(version));
+    }
+}
@@ -0,0 +1,38 @@
+package org.jrp.reply;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import static org.jrp.reply.RespVersion.RESP2;
+import static org.jrp.reply.RespVersion.RESP3;
+import static org.jrp.utils.BytesUtils.string;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class VerbatimReplyTest {
+
+    @Test
+    public void testWrite() {
+        Reply txt = VerbatimReply.txt("Some string");
+        assertEquals("Some string", txt.toString());
+        assertWrite("$11\r\nSome string\r\n", txt, RESP2);
+        assertWrite("=15\r\ntxt:Some string\r\n", txt, RESP3);
+
+        assertWrite("=8\r\nmkd:# hi\r\n", VerbatimReply.mkd("# hi"), RESP3);
+    }
+
+    @Test
+    public void testNil() {
+        assertSame(BulkReply.NIL_REPLY, VerbatimReply.txt(null));
+        assertSame(BulkReply.NIL_REPLY, VerbatimReply.mkd(null));
+    }
+
+    private static void assertWrite(String expected, Reply reply, RespVersion version) {
+        ByteBuf buffer = Unpooled.buffer();
+        reply.write(buffer, version);
+        assertEquals(expected, string(ByteBufUtil.getBytes(buffer)));
+        assertEquals(buffer.readableBytes(), reply.encodedSize(version));
+    }
+}
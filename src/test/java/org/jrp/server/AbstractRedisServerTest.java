@@ -2,15 +2,19 @@ package org.jrp.server;
 
 import org.apache.commons.lang3.RandomStringUtils;
 import org.jrp.cmd.CommandProcessors;
+import org.jrp.exception.IllegalCommandException;
 import org.jrp.exception.RedisException;
 import org.jrp.reply.BulkReply;
+import org.jrp.reply.ErrorReply;
 import org.jrp.reply.IntegerReply;
+import org.jrp.reply.MultiBulkReply;
 import org.jrp.reply.Reply;
 import org.jrp.reply.SimpleStringReply;
 import org.junit.jupiter.api.Test;
 
 import static org.jrp.utils.BytesUtils.bytes;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class AbstractRedisServerTest {
@@ -47,6 +51,34 @@ public class AbstractRedisServerTest {
         assertEquals(CommandProcessors.count(), ((IntegerReply) count).integer());
     }
 
+    @Test
+    public void testCommandGetKeysWithOptionalParameters() throws RedisException, IllegalCommandException {
+        CommandProcessors.initWithCommandTable();
+        assertGetKeys("k", "LPOP", "k");
+        assertGetKeys("k", "LPOP", "k", "2");
+        assertGetKeys("k", "SPOP", "k");
+        assertGetKeys("k", "SRANDMEMBER", "k");
+        assertGetKeys("k", "BITCOUNT", "k");
+        assertGetKeys("k", "BITPOS", "k", "1");
+        assertGetKeys("k", "ZREVRANGE", "k", "0", "-1");
+        assertGetKeys("k", "ZREVRANGE", "k", "0", "-1", "WITHSCORES");
+
+        Reply reply = server.command(bytes("GETKEYS"), new byte[][]{bytes("LPOP")});
+        assertInstanceOf(ErrorReply.class, reply);
+    }
+
+    private void assertGetKeys(String key, String... tokens) throws RedisException {
+        byte[][] options = new byte[tokens.length][];
+        for (int i = 0; i < tokens.length; i++) {
+            options[i] = bytes(tokens[i]);
+        }
+        Reply reply = server.command(bytes("GETKEYS"), options);
+        assertInstanceOf(MultiBulkReply.class, reply, reply.toString());
+        Reply[] keys = ((MultiBulkReply) reply).replies();
+        assertEquals(1, keys.length);
+        assertEquals(key, keys[0].toString());
+    }
+
     static class Dummy extends AbstractRedisServer {
         public Dummy() {
             super(null);
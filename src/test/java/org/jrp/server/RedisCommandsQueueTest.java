@@ -1,15 +1,22 @@
 package org.jrp.server;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelId;
-import io.netty.channel.DefaultChannelId;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
 import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.local.LocalChannel;
 import org.apache.commons.lang3.RandomUtils;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
 import org.jrp.cmd.Command;
 import org.jrp.config.ProxyConfig;
 import org.jrp.exception.IllegalCommandException;
+import org.jrp.reply.EncodedReply;
 import org.jrp.reply.IntegerReply;
 import org.jrp.reply.Reply;
 import org.jrp.server.handler.RedisCommandHandler;
@@ -18,49 +25,64 @@ import org.junit.jupiter.api.Test;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class RedisCommandsQueueTest {
 
-    private static final Logger LOGGER = LogManager.getLogger(RedisCommandsQueueTest.class);
-
     @Test
     public void testCommandMatchReplyInSequence() throws InterruptedException, IllegalCommandException {
         int channelCount = 5;
+        int commandsPerChannel = 20_0000;
+        EventLoopGroup eventLoops = new DefaultEventLoopGroup(2);
         Channel[] channels = new Channel[channelCount];
         Map<ChannelId, Integer> channelIndex = new HashMap<>();
         for (int i = 0; i < channelCount; i++) {
-            ChannelId channelId = DefaultChannelId.newInstance();
-            channels[i] = new EmbeddedChannel(channelId);
-            channelIndex.put(channelId, i);
+            channels[i] = new LocalChannel();
+            eventLoops.register(channels[i]).syncUninterruptibly();
+            channelIndex.put(channels[i].id(), i);
         }
 
         AtomicLong[] expectedCommandIds = new AtomicLong[channelCount];
         Arrays.setAll(expectedCommandIds, AtomicLong::new);
+        AtomicReference<String> error = new AtomicReference<>();
+        CountDownLatch repliesLatch = new CountDownLatch(channelCount * commandsPerChannel);
         RedisCommandHandler handler = new RedisCommandHandler(null, new ProxyConfig()) {
             @Override
-            public void flush(Channel channel, Command command, Reply reply) {
-                assertEquals(command.id, ((IntegerReply) reply).integer());
+            public void write(Channel channel, Command command, Reply reply) {
+                if (!channel.eventLoop().inEventLoop()) {
+                    error.compareAndSet(null, "reply written outside of the event loop");
+                }
+                if (command.getId() != ((IntegerReply) reply).integer()) {
+                    error.compareAndSet(null, "command " + command.getId() + " got reply " + reply);
+                }
                 Integer i = channelIndex.get(channel.id());
-                AtomicLong expectedCommandId = expectedCommandIds[i];
-                assertEquals(expectedCommandId.getAndAdd(channelCount), command.id);
+                long expectedCommandId = expectedCommandIds[i].getAndAdd(channelCount);
+                if (expectedCommandId != command.getId()) {
+                    error.compareAndSet(null, "expect command " + expectedCommandId + ", got " + command.getId());
+                }
+                repliesLatch.countDown();
             }
         };
         RedisCommandsQueue queue = new RedisCommandsQueue(handler);
-        int commandHandlersNum = channelCount * 2;
-        CountDownLatch latch = new CountDownLatch(channelCount + commandHandlersNum);
 
-        AtomicLong producedCommandsCount = new AtomicLong(channelCount * 100_0000);
-        AtomicLong[] awaitCommands = new AtomicLong[channelCount];
-        Arrays.setAll(awaitCommands, AtomicLong::new);
-        AtomicLong[] pendingCommands = new AtomicLong[channelCount];
-        Arrays.setAll(pendingCommands, value -> new AtomicLong(0));
+        @SuppressWarnings("unchecked")
+        BlockingQueue<Command>[] pendingCommands = new BlockingQueue[channelCount];
+        Arrays.setAll(pendingCommands, value -> new LinkedBlockingQueue<>());
         ExecutorService commandProducers = Executors.newFixedThreadPool(channelCount);
         for (int i = 0; i < channelCount; i++) {
             int j = i;
@@ -68,57 +90,190 @@ public class RedisCommandsQueueTest {
                 // every channel is bound to a specific thread, simulating Netty's guarantee
                 Channel channel = channels[j];
                 queue.onChannelActive(channel);
-                while (!Thread.currentThread().isInterrupted() &&
-                        producedCommandsCount.getAndDecrement() >= 0) {
-                    queue.add(channel, new Command(awaitCommands[j].getAndAdd(channelCount)));
-                    pendingCommands[j].getAndIncrement();
+                for (long k = 0; k < commandsPerChannel; k++) {
+                    Command command = new Command(j + k * channelCount);
+                    queue.add(channel, command);
+                    pendingCommands[j].add(command);
                 }
-                latch.countDown();
             });
         }
 
-        AtomicLong[] readyCommands = new AtomicLong[channelCount];
-        Arrays.setAll(readyCommands, AtomicLong::new);
-        AtomicLong consumedCommandsCount = new AtomicLong(channelCount * 100_0000);
-        ExecutorService commandHandler = Executors.newFixedThreadPool(commandHandlersNum);
+        // complete the commands out of order in many threads, like Lettuce does with many connections
+        int commandHandlersNum = channelCount * 2;
+        ExecutorService commandHandlers = Executors.newFixedThreadPool(commandHandlersNum);
         for (int i = 0; i < commandHandlersNum; i++) {
-            commandHandler.execute(() -> {
-                while (!Thread.currentThread().isInterrupted() && consumedCommandsCount.get() >= 0) {
+            commandHandlers.execute(() -> {
+                while (!Thread.currentThread().isInterrupted() && repliesLatch.getCount() > 0) {
                     int r = RandomUtils.nextInt(0, channelCount);
-                    if (pendingCommands[r].decrementAndGet() < 0) {
-                        pendingCommands[r].getAndIncrement();
-                        continue;
+                    Command command = pendingCommands[r].poll();
+                    if (command != null) {
+                        queue.set(channels[r], command, new IntegerReply(command.getId()));
                     }
-                    consumedCommandsCount.getAndDecrement();
-                    Channel channel = channels[r];
-                    long commandId = readyCommands[r].getAndAdd(channelCount);
-                    queue.set(channel, commandId, new IntegerReply(commandId));
-                    queue.flushReadyReplies(channel);
                 }
-                latch.countDown();
             });
         }
 
-        new Thread(() -> {
-            while (latch.getCount() > 0) {
-                for (int i = 0; i < channelCount; i++) {
-                    LOGGER.debug("""
-                                                                    
-                                    \tchannel {} max await command {}
-                                    \tchannel {} max ready command {}
-                                    \tchannel {} expecting command {} reply
-                                    """,
-                            i, awaitCommands[i].get(),
-                            i, readyCommands[i].get(),
-                            i, expectedCommandIds[i].get());
+        boolean done = repliesLatch.await(1, TimeUnit.MINUTES);
+        commandProducers.shutdownNow();
+        commandHandlers.shutdownNow();
+        eventLoops.shutdownGracefully();
+        assertNull(error.get());
+        assertTrue(done);
+    }
+
+    @Test
+    public void testFlushReadyRepliesOncePerDrain() throws IllegalCommandException {
+        AtomicInteger flushes = new AtomicInteger();
+        EmbeddedChannel channel = new EmbeddedChannel(new ChannelOutboundHandlerAdapter() {
+            @Override
+            public void flush(ChannelHandlerContext ctx) throws Exception {
+                flushes.incrementAndGet();
+                super.flush(ctx);
+            }
+        });
+        RedisCommandsQueue queue = new RedisCommandsQueue(new RedisCommandHandler(null, new ProxyConfig()));
+        queue.onChannelActive(channel);
+        Command[] commands = new Command[4];
+        for (int i = 0; i < commands.length; i++) {
+            commands[i] = new Command(i);
+            queue.add(channel, commands[i]);
+        }
+
+        // the head of the queue is not ready, nothing is written
+        queue.set(channel, commands[1], new IntegerReply(1));
+        queue.set(channel, commands[2], new IntegerReply(2));
+        queue.flushReadyReplies(channel);
+        assertEquals(0, flushes.get());
+        assertNull(channel.readOutbound());
+
+        queue.set(channel, commands[0], new IntegerReply(0));
+        queue.flushReadyReplies(channel);
+        assertEquals(1, flushes.get());
+        for (long i = 0; i < 3; i++) {
+            assertEquals(i, ((IntegerReply) channel.readOutbound()).integer());
+        }
+        assertNull(channel.readOutbound());
+
+        queue.set(channel, commands[3], new IntegerReply(3));
+        queue.flushReadyReplies(channel);
+        assertEquals(2, flushes.get());
+        assertEquals(3, ((IntegerReply) channel.readOutbound()).integer());
+    }
+
+    @Test
+    public void testReleaseReadyRepliesOnChannelInactive() throws IllegalCommandException {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        RedisCommandsQueue queue = new RedisCommandsQueue(new RedisCommandHandler(null, new ProxyConfig()));
+        queue.onChannelActive(channel);
+        Command[] commands = new Command[3];
+        for (int i = 0; i < commands.length; i++) {
+            commands[i] = new Command(i);
+            queue.add(channel, commands[i]);
+        }
+        // the replies behind the one pending can't be written, and are left in the ring
+        EncodedReply reply1 = new EncodedReply(Unpooled.buffer().writeInt(1));
+        EncodedReply reply2 = new EncodedReply(Unpooled.buffer().writeInt(2));
+        queue.set(channel, commands[1], reply1);
+        queue.set(channel, commands[2], reply2);
+        assertEquals(1, reply1.refCnt());
+
+        channel.close();
+        queue.onChannelInactive(channel);
+        assertEquals(0, reply1.refCnt());
+        assertEquals(0, reply2.refCnt());
+
+        EncodedReply reply0 = new EncodedReply(Unpooled.buffer().writeInt(0));
+        queue.set(channel, commands[0], reply0);
+        assertEquals(0, reply0.refCnt());
+        assertNull(channel.readOutbound());
+    }
+
+    @Test
+    public void testDiscardWhileRepliesAreSet() throws InterruptedException, IllegalCommandException {
+        EventLoopGroup eventLoops = new DefaultEventLoopGroup(1);
+        Set<Long> written = ConcurrentHashMap.newKeySet();
+        AtomicReference<String> error = new AtomicReference<>();
+        RedisCommandHandler handler = new RedisCommandHandler(null, new ProxyConfig()) {
+            @Override
+            public void write(Channel channel, Command command, Reply reply) {
+                if (!channel.eventLoop().inEventLoop()) {
+                    error.compareAndSet(null, "reply written outside of the event loop");
                 }
-                try {
-                    TimeUnit.SECONDS.sleep(1);
-                } catch (InterruptedException e) {
-                    return;
+                if (!written.add(command.getId())) {
+                    error.compareAndSet(null, "reply to command " + command.getId() + " written twice");
                 }
+                super.write(channel, command, reply);
+            }
+        };
+        RedisCommandsQueue queue = new RedisCommandsQueue(handler);
+
+        for (int round = 0; round < 20; round++) {
+            Channel channel = new LocalChannel();
+            eventLoops.register(channel).syncUninterruptibly();
+            queue.onChannelActive(channel);
+            Command[] commands = new Command[2000];
+            for (int i = 0; i < commands.length; i++) {
+                commands[i] = new Command(round * commands.length + i);
+                queue.add(channel, commands[i]);
             }
-        }).start();
-        latch.await();
+            channel.close().syncUninterruptibly();
+
+            // the replies are set out of order, so many of them are ready but not written when the ring is dropped
+            CountDownLatch started = new CountDownLatch(1);
+            Thread completer = new Thread(() -> {
+                started.countDown();
+                for (int i = commands.length - 1; i >= 0; i--) {
+                    queue.set(channel, commands[i], new IntegerReply(i));
+                }
+            });
+            completer.start();
+            started.await();
+            // from a thread other than the event loop, like a handler thread
+            queue.onChannelInactive(channel);
+            completer.join();
+            channel.eventLoop().submit(() -> {
+            }).syncUninterruptibly();
+        }
+        eventLoops.shutdownGracefully();
+        assertNull(error.get());
+    }
+
+    @Test
+    public void testHoldRepliesBackWhileNotWritable() throws IllegalCommandException {
+        RedisCommandsQueue queue = new RedisCommandsQueue(new RedisCommandHandler(null, new ProxyConfig()));
+        EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter() {
+            @Override
+            public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+                if (ctx.channel().isWritable()) {
+                    queue.flushReadyReplies(ctx.channel());
+                }
+                super.channelWritabilityChanged(ctx);
+            }
+        });
+        channel.config().setWriteBufferWaterMark(new WriteBufferWaterMark(1, 8));
+        queue.onChannelActive(channel);
+        Command[] commands = new Command[3];
+        for (int i = 0; i < commands.length; i++) {
+            commands[i] = new Command(i);
+            queue.add(channel, commands[i]);
+        }
+
+        // more than the high water mark pending to be flushed
+        channel.write(Unpooled.buffer().writeLong(0).writeLong(0));
+        assertFalse(channel.isWritable());
+        for (int i = 0; i < commands.length; i++) {
+            queue.set(channel, commands[i], new IntegerReply(i));
+        }
+        assertNull(channel.readOutbound());
+
+        // the replies are written once the channel is writable again
+        channel.flush();
+        ByteBuf pending = channel.readOutbound();
+        assertEquals(16, pending.readableBytes());
+        pending.release();
+        for (long i = 0; i < commands.length; i++) {
+            assertEquals(i, ((IntegerReply) channel.readOutbound()).integer());
+        }
+        assertNull(channel.readOutbound());
     }
 }
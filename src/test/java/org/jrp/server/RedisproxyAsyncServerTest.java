@@ -10,6 +10,7 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisMonitor;
+import redis.clients.jedis.Protocol;
 import redis.clients.jedis.args.BitOP;
 import redis.clients.jedis.args.FlushMode;
 import redis.clients.jedis.args.ListDirection;
@@ -21,6 +22,9 @@ import redis.clients.jedis.resps.Slowlog;
 import redis.clients.jedis.resps.Tuple;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
 import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.*;
 import java.util.concurrent.CountDownLatch;
@@ -45,7 +49,7 @@ public class RedisproxyAsyncServerTest {
 
     @BeforeAll
     public static void startRedisproxy() throws IllegalCommandException, IOException, InterruptedException {
-        CommandProcessors.initWith(RedisServer.class.getMethods());
+        CommandProcessors.initWithCommandTable();
 
         ProxyConfig config = new ProxyConfig();
         config.setPort(6380);
@@ -54,6 +58,29 @@ public class RedisproxyAsyncServerTest {
         bootstrap.start();
     }
 
+    @Test
+    public void testSelect() {
+        String k = getRandomString();
+        try (Jedis proxy1 = createProxyClient(); Jedis redis1 = new Jedis("127.0.0.1", 6379)) {
+            assertEquals("OK", proxy1.select(1));
+            assertEquals("OK", proxy1.set(k, "v"));
+            assertEquals("v", proxy1.get(k));
+            assertNull(proxy.get(k));
+
+            redis1.select(1);
+            assertEquals("v", redis1.get(k));
+            assertNull(redis.get(k));
+
+            JedisDataException e = assertThrows(JedisDataException.class, () -> proxy1.select(16));
+            assertEquals("ERR DB index is out of range", e.getMessage());
+            assertEquals("v", proxy1.get(k));
+
+            assertEquals("OK", proxy1.select(0));
+            assertNull(proxy1.get(k));
+            redis1.del(k);
+        }
+    }
+
     @Test
     public void testTime() {
         List<String> time = proxy.time();
@@ -159,6 +186,77 @@ public class RedisproxyAsyncServerTest {
         }
     }
 
+    @Test
+    public void testHello() throws IOException {
+        String k1 = getRandomString();
+        String k2 = getRandomString();
+        redis.hset(k1, "f", "v");
+        redis.zadd(k2, Map.of("a", 1.5d));
+        String k3 = getRandomString();
+        redis.sadd(k3, "m");
+        try (Socket socket = new Socket("127.0.0.1", 6380)) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            InputStream in = socket.getInputStream();
+
+            out.write(bytes("HELLO 3 SETNAME resp3client\r\n"));
+            String hello = readUntil(in, "$7\r\nmodules\r\n*0\r\n");
+            assertTrue(hello.startsWith("%7\r\n$6\r\nserver\r\n$5\r\nredis\r\n"));
+            assertTrue(hello.contains("$5\r\nproto\r\n:3\r\n"));
+
+            out.write(bytes("CLIENT GETNAME\r\n"));
+            assertEquals("$11\r\nresp3client\r\n", readUntil(in, "resp3client\r\n"));
+
+            out.write(bytes("HGETALL " + k1 + "\r\n"));
+            assertEquals("%1\r\n$1\r\nf\r\n$1\r\nv\r\n", readUntil(in, "$1\r\nv\r\n"));
+
+            out.write(bytes("ZSCORE " + k2 + " a\r\n"));
+            assertEquals(",1.5\r\n", readUntil(in, "\r\n"));
+
+            out.write(bytes("ZRANGE " + k2 + " 0 -1 WITHSCORES\r\n"));
+            assertEquals("*1\r\n*2\r\n$1\r\na\r\n,1.5\r\n", readUntil(in, ",1.5\r\n"));
+
+            out.write(bytes("SMEMBERS " + k3 + "\r\n"));
+            assertEquals("~1\r\n$1\r\nm\r\n", readUntil(in, "$1\r\nm\r\n"));
+
+            out.write(bytes("GET " + getRandomString() + "\r\n"));
+            assertEquals("_\r\n", readUntil(in, "\r\n"));
+
+            out.write(bytes("HELLO 4\r\n"));
+            assertEquals("-NOPROTO unsupported protocol version\r\n", readUntil(in, "\r\n"));
+
+            out.write(bytes("HELLO 2\r\n"));
+            assertTrue(readUntil(in, "$7\r\nmodules\r\n*0\r\n").startsWith("*14\r\n"));
+
+            out.write(bytes("ZSCORE " + k2 + " a\r\n"));
+            assertEquals("$3\r\n1.5\r\n", readUntil(in, "1.5\r\n"));
+
+            out.write(bytes("ZRANGE " + k2 + " 0 -1 WITHSCORES\r\n"));
+            assertEquals("*2\r\n$1\r\na\r\n$3\r\n1.5\r\n", readUntil(in, "1.5\r\n"));
+
+            out.write(bytes("HGETALL " + k1 + "\r\n"));
+            assertEquals("*2\r\n$1\r\nf\r\n$1\r\nv\r\n", readUntil(in, "$1\r\nv\r\n"));
+
+            // the pending reply pipelined before HELLO is still in the protocol it was sent in
+            out.write(bytes("HGETALL " + k1 + "\r\nHELLO 3\r\nHGETALL " + k1 + "\r\n"));
+            assertEquals("*2\r\n$1\r\nf\r\n$1\r\nv\r\n", readUntil(in, "$1\r\nv\r\n"));
+            assertTrue(readUntil(in, "$7\r\nmodules\r\n*0\r\n").startsWith("%7\r\n"));
+            assertEquals("%1\r\n$1\r\nf\r\n$1\r\nv\r\n", readUntil(in, "$1\r\nv\r\n"));
+        }
+    }
+
+    private static String readUntil(InputStream in, String suffix) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        while (!sb.toString().endsWith(suffix)) {
+            int b = in.read();
+            if (b < 0) {
+                break;
+            }
+            sb.append((char) b);
+        }
+        return sb.toString();
+    }
+
     String getRandomString() {
         return RandomStringUtils.randomAlphabetic(10);
     }
@@ -362,6 +460,17 @@ public class RedisproxyAsyncServerTest {
         assertNull(proxy.set(k6, "set with xx", new SetParams().xx()));
         redis.set(k6, "v");
         assertEquals("OK", proxy.set(k6, "set with xx", new SetParams().xx()));
+
+        String k7 = getRandomString();
+        String largeValue = RandomStringUtils.randomAlphanumeric(4096);
+        assertEquals("OK", proxy.set(k7, largeValue));
+        assertEquals(largeValue, redis.get(k7));
+
+        String k8 = getRandomString();
+        String hugeValue = RandomStringUtils.randomAlphanumeric(65536);
+        assertEquals("OK", proxy.set(k8, hugeValue));
+        assertEquals(hugeValue, redis.get(k8));
+        assertEquals(hugeValue, proxy.get(k8));
     }
 
     @Test
@@ -1339,6 +1448,17 @@ public class RedisproxyAsyncServerTest {
         String k = getRandomString();
         redis.set(k, "10");
         assertEquals(15, proxy.incrBy(k, 5));
+
+        // invalid arguments are replied by the proxy itself, in the same errors as Redis
+        JedisDataException e = assertThrows(JedisDataException.class,
+                () -> proxy.sendCommand(Protocol.Command.INCRBY, k, "five"));
+        assertEquals("ERR value is not an integer or out of range", e.getMessage());
+        e = assertThrows(JedisDataException.class,
+                () -> proxy.sendCommand(Protocol.Command.INCRBYFLOAT, k, "1.5.0"));
+        assertEquals("ERR value is not a valid float", e.getMessage());
+        e = assertThrows(JedisDataException.class,
+                () -> proxy.sendCommand(Protocol.Command.LINSERT, k, "UNDER", "a", "b"));
+        assertEquals("ERR syntax error", e.getMessage());
     }
 
     @Test
@@ -0,0 +1,103 @@
+package org.jrp.server;
+
+import org.apache.commons.lang3.RandomStringUtils;
+import org.jrp.Bootstrap;
+import org.jrp.cmd.CommandProcessors;
+import org.jrp.config.ProxyConfig;
+import org.jrp.exception.IllegalCommandException;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RedisproxyBackendConnectionsTest {
+
+    private static final int PORT = 6387;
+
+    private final Jedis redis = new Jedis("127.0.0.1", 6379);
+    private final Jedis proxy = new Jedis("127.0.0.1", PORT);
+
+    @BeforeAll
+    public static void startRedisproxy() throws IllegalCommandException, IOException, InterruptedException {
+        CommandProcessors.initWithCommandTable();
+
+        ProxyConfig config = new ProxyConfig();
+        config.setPort(PORT);
+        config.setRedisServerLoader("org.jrp.server.loader.RedisproxyAsyncServerLoader");
+        config.setBackendConnections(4);
+        Bootstrap bootstrap = new Bootstrap(config, true);
+        bootstrap.start();
+    }
+
+    @Test
+    public void testPipelineAcrossConnections() {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            keys.add(RandomStringUtils.randomAlphabetic(10));
+        }
+        // the replies are in the order of the commands although the keys are spread among the connections
+        Pipeline pipeline = proxy.pipelined();
+        for (int i = 0; i < 100; i++) {
+            for (String key : keys) {
+                pipeline.incr(key);
+            }
+        }
+        List<Object> replies = pipeline.syncAndReturnAll();
+        for (int i = 0; i < replies.size(); i++) {
+            assertEquals(i / keys.size() + 1L, replies.get(i));
+        }
+
+        List<String> values = proxy.mget(keys.toArray(new String[0]));
+        values.forEach(v -> assertEquals("100", v));
+        assertEquals(keys.size(), proxy.del(keys.toArray(new String[0])));
+    }
+
+    @Test
+    public void testPipelineAcrossKeys() {
+        String key = RandomStringUtils.randomAlphabetic(10);
+        String other = RandomStringUtils.randomAlphabetic(10);
+        // the multi-key read is routed by the client as the write before it, so it sees the write
+        Pipeline pipeline = proxy.pipelined();
+        for (int i = 0; i < 100; i++) {
+            pipeline.set(key, String.valueOf(i));
+            pipeline.mget(other, key);
+        }
+        List<Object> replies = pipeline.syncAndReturnAll();
+        for (int i = 0; i < 100; i++) {
+            assertEquals(Arrays.asList(null, String.valueOf(i)), replies.get(i * 2 + 1));
+        }
+        proxy.del(key);
+    }
+
+    @Test
+    public void testSelect() {
+        String k = RandomStringUtils.randomAlphabetic(10);
+        try (Jedis proxy1 = new Jedis("127.0.0.1", PORT); Jedis redis1 = new Jedis("127.0.0.1", 6379)) {
+            assertEquals("OK", proxy1.select(1));
+            assertEquals("OK", proxy1.set(k, "v"));
+            assertNull(proxy.get(k));
+
+            redis1.select(1);
+            assertEquals("v", redis1.get(k));
+            assertNull(redis.get(k));
+            redis1.del(k);
+        }
+    }
+
+    @Test
+    public void testInfo() {
+        String info = proxy.info();
+        assertTrue(info.contains("backend_db:0\n"), info);
+        String inFlight = info.substring(info.indexOf("backend_in_flight:") + "backend_in_flight:".length());
+        String[] counts = inFlight.substring(0, inFlight.indexOf('\n')).split(",");
+        assertEquals(4, counts.length);
+        Arrays.stream(counts).forEach(count -> assertTrue(Long.parseLong(count) >= 0, inFlight));
+    }
+}
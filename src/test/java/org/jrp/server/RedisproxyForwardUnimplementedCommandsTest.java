@@ -0,0 +1,112 @@
+package org.jrp.server;
+
+import org.apache.commons.lang3.RandomStringUtils;
+import org.jrp.Bootstrap;
+import org.jrp.cmd.CommandProcessors;
+import org.jrp.config.ProxyConfig;
+import org.jrp.exception.IllegalCommandException;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.List;
+import java.util.Map;
+
+import static org.jrp.utils.BytesUtils.bytes;
+import static org.jrp.utils.BytesUtils.string;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RedisproxyForwardUnimplementedCommandsTest {
+
+    private static final int PORT = 6386;
+
+    private final Jedis redis = new Jedis("127.0.0.1", 6379);
+    private final Jedis proxy = new Jedis("127.0.0.1", PORT);
+
+    @BeforeAll
+    public static void startRedisproxy() throws IllegalCommandException, IOException, InterruptedException {
+        CommandProcessors.initWithCommandTable();
+
+        ProxyConfig config = new ProxyConfig();
+        config.setPort(PORT);
+        config.setRedisServerLoader("org.jrp.server.loader.RedisproxyAsyncServerLoader");
+        config.setForwardUnimplementedCommands(true);
+        config.setForwardedCommandTypes(Map.of("scan", "READ", "object", "READ"));
+        Bootstrap bootstrap = new Bootstrap(config, true);
+        bootstrap.start();
+    }
+
+    private static String randomKey() {
+        return RandomStringUtils.randomAlphabetic(10);
+    }
+
+    private static String readUntil(InputStream in, String suffix) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        while (!sb.toString().endsWith(suffix)) {
+            int b = in.read();
+            if (b < 0) {
+                break;
+            }
+            sb.append((char) b);
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testForwardUnimplementedCommands() throws IOException {
+        String k1 = randomKey();
+        String k2 = randomKey();
+        redis.set(k1, "hello");
+        redis.sadd(k2, "a", "b");
+
+        // declared but not implemented
+        assertEquals("el", string((byte[]) proxy.sendCommand(() -> bytes("SUBSTR"), k1, "1", "2")));
+        assertEquals(List.of(0L), proxy.sendCommand(() -> bytes("BITFIELD_RO"), k1, "GET", "u1", "0"));
+        assertEquals("OK", string((byte[]) proxy.sendCommand(Protocol.Command.CLIENT, "UNPAUSE")));
+
+        // unknown to the proxy
+        assertEquals("embstr", string((byte[]) proxy.sendCommand(() -> bytes("OBJECT"), "ENCODING", k1)));
+        assertEquals(List.of(1L, 0L, 1L), proxy.sendCommand(() -> bytes("smismember"), k2, "a", "c", "b"));
+        assertEquals(1L, proxy.sendCommand(() -> bytes("UNLINK"), k1));
+        assertNull(redis.get(k1));
+        JedisDataException e = assertThrows(JedisDataException.class,
+                () -> proxy.sendCommand(() -> bytes("OBJECT"), "NOSUCHSUBCOMMAND"));
+        assertTrue(e.getMessage().startsWith("ERR"), e.getMessage());
+
+        // connection state changing commands are never forwarded
+        e = assertThrows(JedisDataException.class, () -> proxy.sendCommand(() -> bytes("MULTI")));
+        assertTrue(e.getMessage().startsWith("unknown command"), e.getMessage());
+        e = assertThrows(JedisDataException.class, () -> proxy.sendCommand(() -> bytes("READONLY")));
+        assertTrue(e.getMessage().startsWith("unknown command"), e.getMessage());
+        // neither are the blocking ones, which would block every client of the connection
+        e = assertThrows(JedisDataException.class, () -> proxy.sendCommand(() -> bytes("BLPOP"), k1, "0"));
+        assertTrue(e.getMessage().startsWith("unknown command"), e.getMessage());
+        e = assertThrows(JedisDataException.class,
+                () -> proxy.sendCommand(() -> bytes("XREAD"), "BLOCK", "0", "STREAMS", k1, "$"));
+        assertTrue(e.getMessage().startsWith("unknown command"), e.getMessage());
+        assertNull(proxy.sendCommand(() -> bytes("XREAD"), "COUNT", "1", "STREAMS", k1, "0"));
+
+        try (Socket socket = new Socket("127.0.0.1", PORT)) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            InputStream in = socket.getInputStream();
+
+            out.write(bytes("SMISMEMBER " + k2 + " a c\r\n"));
+            assertEquals("*2\r\n:1\r\n:0\r\n", readUntil(in, ":0\r\n"));
+
+            out.write(bytes("HELLO 3\r\n"));
+            readUntil(in, "$7\r\nmodules\r\n*0\r\n");
+            out.write(bytes("OBJECT ENCODING " + randomKey() + "\r\n"));
+            assertEquals("_\r\n", readUntil(in, "\r\n"));
+            out.write(bytes("SMISMEMBER " + k2 + " a c\r\n"));
+            assertEquals("*2\r\n:1\r\n:0\r\n", readUntil(in, ":0\r\n"));
+        }
+        redis.del(k2);
+    }
+}
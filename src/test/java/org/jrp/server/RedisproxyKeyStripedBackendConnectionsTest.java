@@ -0,0 +1,40 @@
+package org.jrp.server;
+
+import org.jrp.Bootstrap;
+import org.jrp.cmd.CommandProcessors;
+import org.jrp.config.ProxyConfig;
+import org.jrp.exception.IllegalCommandException;
+import org.junit.jupiter.api.BeforeAll;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * The key stripes with the commands spread among multiple connections to Redis by key, where a barrier must wait for the
+ * replies of the commands before it, not only for them to be sent.
+ */
+public class RedisproxyKeyStripedBackendConnectionsTest extends RedisproxyKeyStripedTest {
+
+    private static final int PORT = 6384;
+
+    @BeforeAll
+    public static void startRedisproxy() throws IllegalCommandException, IOException, InterruptedException {
+        CommandProcessors.initWithCommandTable();
+
+        ProxyConfig config = new ProxyConfig();
+        config.setPort(PORT);
+        config.setRedisServerLoader("org.jrp.server.loader.RedisproxyAsyncServerLoader");
+        config.setKeyStripedThreads(4);
+        config.setBackendConnections(4);
+        config.setBackendRoutingByKey(true);
+        config.setForwardUnimplementedCommands(true);
+        config.setForwardedCommandTypes(Map.of("unlink", "WRITE"));
+        Bootstrap bootstrap = new Bootstrap(config, true);
+        bootstrap.start();
+    }
+
+    @Override
+    protected int port() {
+        return PORT;
+    }
+}
@@ -0,0 +1,102 @@
+package org.jrp.server;
+
+import org.apache.commons.lang3.RandomStringUtils;
+import org.jrp.Bootstrap;
+import org.jrp.cmd.CommandProcessors;
+import org.jrp.config.ProxyConfig;
+import org.jrp.exception.IllegalCommandException;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.util.SafeEncoder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RedisproxyKeyStripedTest {
+
+    private static final int PORT = 6383;
+
+    protected final Jedis redis = new Jedis("127.0.0.1", 6379);
+
+    @BeforeAll
+    public static void startRedisproxy() throws IllegalCommandException, IOException, InterruptedException {
+        CommandProcessors.initWithCommandTable();
+
+        ProxyConfig config = new ProxyConfig();
+        config.setPort(PORT);
+        config.setRedisServerLoader("org.jrp.server.loader.RedisproxyAsyncServerLoader");
+        config.setKeyStripedThreads(4);
+        config.setForwardUnimplementedCommands(true);
+        config.setForwardedCommandTypes(Map.of("unlink", "WRITE"));
+        Bootstrap bootstrap = new Bootstrap(config, true);
+        bootstrap.start();
+    }
+
+    protected int port() {
+        return PORT;
+    }
+
+    private static String randomKey() {
+        return RandomStringUtils.randomAlphabetic(10);
+    }
+
+    @Test
+    public void testPipeline() {
+        List<String> keys = new ArrayList<>();
+        for (int k = 0; k < 8; k++) {
+            keys.add(randomKey());
+        }
+        String[] allKeys = keys.toArray(new String[0]);
+        try (Jedis proxy = new Jedis("127.0.0.1", port())) {
+            Pipeline pipeline = proxy.pipelined();
+            List<Response<Long>> incrs = new ArrayList<>();
+            List<Response<List<String>>> mgets = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                for (String key : keys) {
+                    incrs.add(pipeline.incr(key));
+                }
+                // a barrier sees all the commands before it, and none after it
+                mgets.add(pipeline.mget(allKeys));
+            }
+            pipeline.sync();
+
+            for (int i = 0; i < 20; i++) {
+                for (int k = 0; k < keys.size(); k++) {
+                    assertEquals(i + 1, incrs.get(i * keys.size() + k).get());
+                }
+                List<String> values = mgets.get(i).get();
+                for (String value : values) {
+                    assertEquals(String.valueOf(i + 1), value);
+                }
+            }
+        }
+        redis.del(allKeys);
+    }
+
+    @Test
+    public void testLocalAndUnknownCommands() {
+        String key = randomKey();
+        try (Jedis proxy = new Jedis("127.0.0.1", port())) {
+            Pipeline pipeline = proxy.pipelined();
+            Response<String> set = pipeline.set(key, "v");
+            Response<Object> echo = pipeline.sendCommand(Protocol.Command.ECHO, "m");
+            // UNLINK isn't implemented by the proxy, so it's forwarded as a barrier
+            Response<Object> unlink = pipeline.sendCommand(() -> "UNLINK".getBytes(), key);
+            Response<Boolean> exists = pipeline.exists(key);
+            pipeline.sync();
+
+            assertEquals("OK", set.get());
+            assertEquals("m", SafeEncoder.encode((byte[]) echo.get()));
+            assertEquals(1L, unlink.get());
+            assertFalse(exists.get());
+        }
+    }
+}
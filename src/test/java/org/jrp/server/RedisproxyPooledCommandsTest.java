@@ -0,0 +1,56 @@
+package org.jrp.server;
+
+import org.apache.commons.lang3.RandomStringUtils;
+import org.jrp.Bootstrap;
+import org.jrp.cmd.Command;
+import org.jrp.cmd.CommandProcessors;
+import org.jrp.config.ProxyConfig;
+import org.jrp.exception.IllegalCommandException;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class RedisproxyPooledCommandsTest {
+
+    private static final int PORT = 6385;
+
+    private final Jedis proxy = new Jedis("127.0.0.1", PORT);
+
+    @BeforeAll
+    public static void startRedisproxy() throws IllegalCommandException, IOException, InterruptedException {
+        CommandProcessors.initWithCommandTable();
+
+        ProxyConfig config = new ProxyConfig();
+        config.setPort(PORT);
+        config.setRedisServerLoader("org.jrp.server.loader.RedisproxyAsyncServerLoader");
+        config.setPooledCommands(true);
+        Bootstrap bootstrap = new Bootstrap(config, true);
+        bootstrap.start();
+    }
+
+    @Test
+    public void testPooledCommandsRecycled() throws InterruptedException {
+        String key = RandomStringUtils.randomAlphabetic(10);
+        Pipeline pipeline = proxy.pipelined();
+        for (int i = 0; i < 100; i++) {
+            pipeline.incr(key);
+            pipeline.get(key);
+            pipeline.strlen(key);
+        }
+        pipeline.syncAndReturnAll();
+        assertEquals("100", proxy.get(key));
+        proxy.del(key);
+
+        // the replies are read before the commands are recycled by the writer
+        long deadline = System.currentTimeMillis() + 1000;
+        while (Command.pooledInUse() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, Command.pooledInUse());
+    }
+}
@@ -0,0 +1,113 @@
+package org.jrp.server;
+
+import org.apache.commons.lang3.RandomStringUtils;
+import org.jrp.Bootstrap;
+import org.jrp.cmd.CommandProcessors;
+import org.jrp.config.ProxyConfig;
+import org.jrp.exception.IllegalCommandException;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Protocol;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RedisproxyThreadPerCoreTest {
+
+    private static final int PORT = 6382;
+
+    private final Jedis redis = new Jedis("127.0.0.1", 6379);
+
+    @BeforeAll
+    public static void startRedisproxy() throws IllegalCommandException, IOException, InterruptedException {
+        CommandProcessors.initWithCommandTable();
+
+        ProxyConfig config = new ProxyConfig();
+        config.setPort(PORT);
+        config.setRedisServerLoader("org.jrp.server.loader.RedisproxyAsyncServerLoader");
+        config.setIoThreads(2);
+        config.setThreadPerCore(true);
+        Bootstrap bootstrap = new Bootstrap(config, true);
+        bootstrap.start();
+    }
+
+    private static String randomKey() {
+        return RandomStringUtils.randomAlphabetic(10);
+    }
+
+    @Test
+    public void testPipeline() {
+        String key = randomKey();
+        // more clients than IO threads, so the event loops are shared
+        for (int c = 0; c < 4; c++) {
+            try (Jedis proxy = new Jedis("127.0.0.1", PORT)) {
+                Pipeline pipeline = proxy.pipelined();
+                for (int i = 0; i < 100; i++) {
+                    pipeline.incr(key);
+                    pipeline.get(key);
+                }
+                List<Object> replies = pipeline.syncAndReturnAll();
+                assertEquals(String.valueOf(c * 100 + 100), replies.get(replies.size() - 1));
+            }
+        }
+        assertEquals("400", redis.get(key));
+        redis.del(key);
+    }
+
+    @Test
+    public void testInfo() {
+        try (Jedis proxy = new Jedis("127.0.0.1", PORT)) {
+            // the reply is read in the event loop the client channel is bound to, which must not wait for it
+            for (int i = 0; i < 3; i++) {
+                String info = proxy.info("server");
+                assertTrue(info.contains("# Proxy Config"), info);
+                assertTrue(info.contains("redis_version"), info);
+            }
+            assertEquals("PONG", proxy.ping());
+        }
+    }
+
+    @Test
+    public void testSelectNotPinnedDb() {
+        String key = randomKey();
+        try (Jedis proxy = new Jedis("127.0.0.1", PORT); Jedis redis1 = new Jedis("127.0.0.1", 6379)) {
+            assertEquals("OK", proxy.select(1));
+            assertEquals("OK", proxy.set(key, "v"));
+            redis1.select(1);
+            assertEquals("v", redis1.get(key));
+            assertNull(redis.get(key));
+            redis1.del(key);
+        }
+    }
+
+    @Test
+    public void testPipelineWhileConnecting() {
+        String key = randomKey();
+        try (Jedis proxy = new Jedis("127.0.0.1", PORT); Jedis redis2 = new Jedis("127.0.0.1", 6379)) {
+            // the commands on DB 2 wait for its connections, which are made off the event loop, in order
+            Pipeline pipeline = proxy.pipelined();
+            pipeline.set(key, "0");
+            pipeline.sendCommand(Protocol.Command.SELECT, "2");
+            for (int i = 0; i < 100; i++) {
+                pipeline.incr(key);
+            }
+            pipeline.sendCommand(Protocol.Command.SELECT, "0");
+            pipeline.incr(key);
+            List<Object> replies = pipeline.syncAndReturnAll();
+            assertEquals(104, replies.size());
+            for (int i = 0; i < 100; i++) {
+                assertEquals((long) i + 1, replies.get(i + 2));
+            }
+            assertEquals(1L, replies.get(103));
+            redis2.select(2);
+            assertEquals("100", redis2.get(key));
+            assertEquals("1", redis.get(key));
+            redis2.del(key);
+            redis.del(key);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.jrp.server;
+
+import org.apache.commons.lang3.RandomStringUtils;
+import org.jrp.Bootstrap;
+import org.jrp.cmd.CommandProcessors;
+import org.jrp.config.ProxyConfig;
+import org.jrp.exception.IllegalCommandException;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class RedisproxyZeroCopyTokensTest {
+
+    private static final int PORT = 6388;
+
+    private final Jedis redis = new Jedis("127.0.0.1", 6379);
+    private final Jedis proxy = new Jedis("127.0.0.1", PORT);
+
+    @BeforeAll
+    public static void startRedisproxy() throws IllegalCommandException, IOException, InterruptedException {
+        CommandProcessors.initWithCommandTable();
+
+        ProxyConfig config = new ProxyConfig();
+        config.setPort(PORT);
+        config.setRedisServerLoader("org.jrp.server.loader.RedisproxyAsyncServerLoader");
+        config.setZeroCopyTokens(true);
+        Bootstrap bootstrap = new Bootstrap(config, true);
+        bootstrap.start();
+    }
+
+    @Test
+    public void testLongArguments() {
+        String k1 = RandomStringUtils.randomAlphabetic(10);
+        String k2 = RandomStringUtils.randomAlphabetic(10);
+        String v1 = RandomStringUtils.randomAlphabetic(1024);
+        String v2 = RandomStringUtils.randomAlphabetic(100000);
+
+        assertEquals("OK", proxy.set(k1, v1));
+        assertEquals(v1, redis.get(k1));
+        assertEquals(v1.length() * 2L, proxy.append(k1, v1));
+        assertEquals(v1 + v1, proxy.get(k1));
+
+        assertEquals(1, proxy.hset(k2, v1, v2));
+        assertEquals(Map.of(v1, v2), redis.hgetAll(k2));
+        assertEquals(v2, proxy.hget(k2, v1));
+
+        redis.del(k1, k2);
+    }
+
+    @Test
+    public void testPipelineLongArguments() {
+        String key = RandomStringUtils.randomAlphabetic(10);
+        Pipeline pipeline = proxy.pipelined();
+        for (int i = 0; i < 100; i++) {
+            pipeline.set(key + i, RandomStringUtils.randomAlphabetic(100) + i);
+            pipeline.get(key + i);
+        }
+        List<Object> replies = pipeline.syncAndReturnAll();
+        for (int i = 0; i < 100; i++) {
+            assertEquals("OK", replies.get(i * 2));
+            assertEquals(redis.get(key + i), replies.get(i * 2 + 1));
+            redis.del(key + i);
+        }
+    }
+}
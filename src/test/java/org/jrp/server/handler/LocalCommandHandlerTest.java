@@ -0,0 +1,89 @@
+package org.jrp.server.handler;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+import org.jrp.cmd.Command;
+import org.jrp.config.ProxyConfig;
+import org.jrp.monitor.ClientStat;
+import org.jrp.reply.Reply;
+import org.jrp.server.handler.RedisCommandHandlerTest.TestRedisServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.jrp.utils.BytesUtils.bytes;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LocalCommandHandlerTest {
+
+    private DefaultEventExecutorGroup group;
+    private EmbeddedChannel channel;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        group = new DefaultEventExecutorGroup(1);
+        RedisCommandAsyncHandler handler = new RedisCommandAsyncHandler(new TestRedisServer(), new ProxyConfig());
+        channel = new EmbeddedChannel(false, false);
+        channel.pipeline().addLast(new LocalCommandHandler(handler));
+        channel.pipeline().addLast(group, handler);
+        channel.register();
+        ClientStat.active(channel);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+        group.shutdownGracefully();
+    }
+
+    private void awaitHandedOffExecuted() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 1000;
+        while (LocalCommandHandler.handedOff(channel) > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, LocalCommandHandler.handedOff(channel));
+    }
+
+    @Test
+    public void testExecuteInPlace() throws InterruptedException {
+        awaitHandedOffExecuted();
+
+        channel.writeInbound(new Command(new byte[][]{bytes("PING")}));
+        // replied right in the IO thread
+        Reply reply = channel.readOutbound();
+        assertEquals("PONG", reply.toString());
+        assertEquals(0, LocalCommandHandler.handedOff(channel));
+
+        channel.writeInbound(new Command(new byte[][]{bytes("GET"), bytes("foo")}));
+        awaitHandedOffExecuted();
+        reply = channel.readOutbound();
+        assertEquals("bar", reply.toString());
+    }
+
+    @Test
+    public void testHandOffAfterPendingCommands() throws InterruptedException {
+        awaitHandedOffExecuted();
+
+        CountDownLatch blocked = new CountDownLatch(1);
+        group.next().execute(() -> {
+            try {
+                blocked.await();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        channel.writeInbound(new Command(new byte[][]{bytes("GET"), bytes("foo")}));
+        channel.writeInbound(new Command(new byte[][]{bytes("PING")}));
+        // the local command waits for the command before it
+        assertNull(channel.readOutbound());
+        assertEquals(2, LocalCommandHandler.handedOff(channel));
+
+        blocked.countDown();
+        awaitHandedOffExecuted();
+        Reply reply = channel.readOutbound();
+        assertEquals("bar", reply.toString());
+        reply = channel.readOutbound();
+        assertEquals("PONG", reply.toString());
+    }
+}
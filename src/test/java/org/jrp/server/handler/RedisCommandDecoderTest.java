@@ -6,12 +6,17 @@ import io.netty.channel.embedded.EmbeddedChannel;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.apache.commons.lang3.RandomUtils;
 import org.jrp.cmd.Command;
+import org.jrp.config.ProxyConfig;
 import org.jrp.exception.RedisCodecException;
+import org.jrp.monitor.metrics.RedisproxyMetrics;
+import org.jrp.reply.ErrorReply;
 import org.junit.jupiter.api.Test;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
 
+import static org.jrp.server.handler.RedisCommandDecoder.MIN_SLICED_BULK_STRING_LENGTH;
 import static org.jrp.server.handler.RedisCommandDecoder.readNum;
 import static org.jrp.utils.BytesUtils.bytes;
 import static org.junit.jupiter.api.Assertions.*;
@@ -130,7 +135,7 @@ public class RedisCommandDecoderTest {
     }
 
     @Test
-    public void testReplayingDecodeCommand() {
+    public void testIncrementalDecodeCommand() {
         String s1 = RandomStringUtils.randomAlphabetic(RandomUtils.nextInt(1, 20));
         String s2_1 = RandomStringUtils.randomAlphabetic(RandomUtils.nextInt(1, 10));
         String s2_2 = RandomStringUtils.randomAlphabetic(RandomUtils.nextInt(1, 10));
@@ -159,6 +164,161 @@ public class RedisCommandDecoderTest {
         assertEquals(String.format("\"SET\" \"%s\" \"%s%s\"(unknown, NEW)", s1, s2_1, s2_2), command.toString());
     }
 
+    @Test
+    public void testDecodePipelinedCommandsByteByByte() {
+        String s1 = RandomStringUtils.randomAlphabetic(RandomUtils.nextInt(1, 20));
+        String s2 = RandomStringUtils.randomAlphabetic(RandomUtils.nextInt(1, 20));
+        byte[] pipeline = bytes(String.format(
+                "*3\r\n$3\r\nSET\r\n$%d\r\n%s\r\n$%d\r\n%s\r\nGET  %s\r\n*2\r\n$3\r\nGET\r\n$%d\r\n%s\r\n",
+                s1.length(), s1, s2.length(), s2, s1, s2.length(), s2));
+
+        long bytesInBefore = RedisproxyMetrics.getCurrent().bytesIn.get();
+
+        EmbeddedChannel channel = new EmbeddedChannel(new RedisCommandDecoder());
+        for (byte b : pipeline) {
+            channel.writeInbound(Unpooled.wrappedBuffer(new byte[]{b}));
+        }
+        channel.finish();
+
+        Command command1 = channel.readInbound();
+        assertEquals(String.format("\"SET\" \"%s\" \"%s\"(unknown, NEW)", s1, s2), command1.toString());
+        Command command2 = channel.readInbound();
+        assertEquals(String.format("\"GET\" \"%s\"(unknown, NEW)", s1), command2.toString());
+        Command command3 = channel.readInbound();
+        assertEquals(String.format("\"GET\" \"%s\"(unknown, NEW)", s2), command3.toString());
+        assertNull(channel.readInbound());
+
+        assertEquals(bytesInBefore + pipeline.length, RedisproxyMetrics.getCurrent().bytesIn.get());
+    }
+
+    @Test
+    public void testDecodeZeroCopyTokens() {
+        String key = RandomStringUtils.randomAlphabetic(10);
+        String value = RandomStringUtils.randomAlphabetic(MIN_SLICED_BULK_STRING_LENGTH * 2);
+        ByteBuf in = Unpooled.wrappedBuffer(bytes(String.format(
+                "*3\r\n$3\r\nSET\r\n$%d\r\n%s\r\n$%d\r\n%s\r\n",
+                key.length(), key, value.length(), value)));
+        ProxyConfig config = new ProxyConfig();
+        config.setZeroCopyTokens(true);
+        EmbeddedChannel channel = new EmbeddedChannel(new RedisCommandDecoder(config));
+        channel.writeInbound(in);
+        channel.finish();
+
+        Command command = channel.readInbound();
+        assertEquals(String.format("\"SET\" \"%s\" \"%s...\"(unknown, NEW)",
+                key, value.substring(0, 20)), command.toString());
+        Object[] arguments = command.toArguments(new Class[]{byte[].class, ByteBuf.class});
+        assertArrayEquals(bytes(key), (byte[]) arguments[0]);
+        // the long value is a slice of the inbound buffer, which is retained until the command is released
+        ByteBuf valueBuf = (ByteBuf) arguments[1];
+        assertSame(in, valueBuf.unwrap());
+        assertEquals(value, valueBuf.toString(StandardCharsets.UTF_8));
+        assertEquals(1, in.refCnt());
+
+        command.release();
+        assertEquals(0, in.refCnt());
+    }
+
+    @Test
+    public void testDecodePooledCommands() {
+        long inUse = Command.pooledInUse();
+        ProxyConfig config = new ProxyConfig();
+        config.setPooledCommands(true);
+        EmbeddedChannel channel = new EmbeddedChannel(new RedisCommandDecoder(config));
+        channel.writeInbound(Unpooled.wrappedBuffer(bytes("*2\r\n$3\r\nGET\r\n$1\r\nk\r\nPING\r\n")));
+        channel.finish();
+
+        Command command = channel.readInbound();
+        Command inlineCommand = channel.readInbound();
+        assertTrue(command.isPooled());
+        assertTrue(inlineCommand.isPooled());
+        assertEquals("\"GET\" \"k\"(unknown, NEW)", command.toString());
+        assertEquals("\"PING\"(unknown, NEW)", inlineCommand.toString());
+        assertEquals(inUse + 2, Command.pooledInUse());
+
+        for (Command c : List.of(command, inlineCommand)) {
+            c.recycle();
+            c.recycle();
+        }
+        assertEquals(inUse, Command.pooledInUse());
+    }
+
+    @Test
+    public void testDiscardBusyPooledCommands() {
+        long inUse = Command.pooledInUse();
+        String value = RandomStringUtils.randomAlphabetic(MIN_SLICED_BULK_STRING_LENGTH * 2);
+        ByteBuf in = Unpooled.wrappedBuffer(bytes(String.format(
+                "*3\r\n$3\r\nSET\r\n$1\r\nk\r\n$%d\r\n%s\r\n", value.length(), value)));
+        ProxyConfig config = new ProxyConfig();
+        config.setPooledCommands(true);
+        config.setZeroCopyTokens(true);
+        // always busy
+        config.setMaxQueuedCommands(-1);
+        EmbeddedChannel channel = new EmbeddedChannel(new RedisCommandDecoder(config));
+        channel.writeInbound(in);
+        channel.finish();
+
+        assertNull(channel.readInbound());
+        assertSame(ErrorReply.BUSY_ERROR, channel.readOutbound());
+        assertEquals(0, in.refCnt());
+        assertEquals(inUse, Command.pooledInUse());
+    }
+
+    @Test
+    public void testDecodeHugeBulkString() {
+        String key = RandomStringUtils.randomAlphabetic(10);
+        String value = RandomStringUtils.randomAlphabetic(RandomUtils.nextInt(1048576 + 1, 1048576 * 2));
+        byte[] command = bytes(String.format("*3\r\n$3\r\nSET\r\n$%d\r\n%s\r\n$%d\r\n%s\r\n",
+                key.length(), key, value.length(), value));
+
+        ProxyConfig config = new ProxyConfig();
+        config.setHugeCommandThreshold(1024);
+        config.setMaxBulkStringLength(1048576 * 2);
+        config.setZeroCopyTokens(true);
+        Command decoded = decodeInChunks(config, command);
+        Object[] arguments = decoded.toArguments(new Class[]{byte[].class, ByteBuf.class});
+        assertArrayEquals(bytes(key), (byte[]) arguments[0]);
+        ByteBuf valueBuf = (ByteBuf) arguments[1];
+        assertTrue(valueBuf.isDirect());
+        assertEquals(value, valueBuf.toString(StandardCharsets.UTF_8));
+
+        decoded.release();
+        assertEquals(0, valueBuf.refCnt());
+    }
+
+    @Test
+    public void testDecodeHugeBulkStringAsBytes() {
+        String value = RandomStringUtils.randomAlphabetic(1048576 + 1);
+        ProxyConfig config = new ProxyConfig();
+        config.setHugeCommandThreshold(1024);
+        config.setMaxBulkStringLength(1048576 * 2);
+
+        // without zero copy tokens
+        Command decoded = decodeInChunks(config, bytes(String.format("*3\r\n$3\r\nSET\r\n$1\r\nk\r\n$%d\r\n%s\r\n",
+                value.length(), value)));
+        assertFalse(((ByteBuf) decoded.toArgument(1, ByteBuf.class)).isDirect());
+        assertEquals(value, new String((byte[]) decoded.toArgument(1, byte[].class), StandardCharsets.UTF_8));
+        decoded.release();
+
+        // a byte[] parameter is never accumulated off heap, to be copied again into a byte[]
+        config.setZeroCopyTokens(true);
+        decoded = decodeInChunks(config, bytes(String.format("*3\r\n$4\r\nSADD\r\n$1\r\nk\r\n$%d\r\n%s\r\n",
+                value.length(), value)));
+        // but sliced from the inbound buffer once it's all received
+        assertNotNull(((ByteBuf) decoded.toArgument(1, ByteBuf.class)).unwrap());
+        assertEquals(value, new String(((byte[][]) decoded.toArgument(1, byte[][].class))[0], StandardCharsets.UTF_8));
+        decoded.release();
+    }
+
+    private static Command decodeInChunks(ProxyConfig config, byte[] command) {
+        EmbeddedChannel channel = new EmbeddedChannel(new RedisCommandDecoder(config));
+        for (int i = 0; i < command.length; i += 65536) {
+            channel.writeInbound(Unpooled.wrappedBuffer(command, i, Math.min(65536, command.length - i)));
+        }
+        channel.finish();
+        return channel.readInbound();
+    }
+
     @Test
     public void testDecodeInlineCommand() {
         String s1 = RandomStringUtils.randomAlphabetic(RandomUtils.nextInt(1, 20));
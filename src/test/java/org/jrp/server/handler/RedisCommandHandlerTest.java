@@ -5,6 +5,8 @@ import io.lettuce.core.codec.StringCodec;
 import io.lettuce.core.output.ValueOutput;
 import io.lettuce.core.protocol.AsyncCommand;
 import io.lettuce.core.protocol.CommandType;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.DefaultChannelId;
 import io.netty.channel.embedded.EmbeddedChannel;
 import org.apache.commons.lang3.RandomStringUtils;
@@ -25,6 +27,7 @@ import org.jrp.server.AbstractRedisServer;
 import org.jrp.server.RedisServerContext;
 import org.junit.jupiter.api.Test;
 
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
@@ -60,13 +63,13 @@ public class RedisCommandHandlerTest {
         channel.writeInbound(getsetCommand);
         channel.flush();
         Reply reply2 = channel.readOutbound();
-        assertEquals(String.format("unknown command \"GETSET\" \"%s\" \"%s\"", key, value), reply2.toString());
+        assertEquals(String.format("unknown command \"getset\" \"%s\" \"%s\"", key, value), reply2.toString());
 
         Command strlenCommand = new Command(new byte[][]{bytes("strlen"), bytes(key)});
         channel.writeInbound(strlenCommand);
         channel.flush();
         Reply reply3 = channel.readOutbound();
-        assertEquals(String.format("unknown command \"STRLEN\" \"%s\"", key), reply3.toString());
+        assertEquals(String.format("unknown command \"strlen\" \"%s\"", key), reply3.toString());
     }
 
     @Test
@@ -117,7 +120,8 @@ public class RedisCommandHandlerTest {
 
         long queuedAfter = RedisproxyStatusMetrics.INSTANCE.queued.get();
         long threadsAfter = RedisproxyStatusMetrics.INSTANCE.threads.get();
-        assertEquals(queuedBefore - 3, queuedAfter);
+        // the commands are not decoded, so they are not counted as queued
+        assertEquals(queuedBefore, queuedAfter);
         assertEquals(threadsBefore, threadsAfter);
 
         assertNull(RedisServerContext.getChannel());
@@ -162,6 +166,22 @@ public class RedisCommandHandlerTest {
         assertFalse(channel.isActive());
     }
 
+    @Test
+    public void testQueuedCommandsBalanced() throws IllegalCommandException {
+        ProxyConfig config = new ProxyConfig();
+        RedisCommandHandler handler = new RedisCommandHandler(new TestRedisServer(), config);
+        EmbeddedChannel channel = new EmbeddedChannel(new RedisCommandDecoder(config), handler);
+        ClientStat.active(channel);
+
+        long queuedBefore = RedisproxyStatusMetrics.INSTANCE.queued.get();
+        channel.writeInbound(Unpooled.copiedBuffer("*1\r\n$4\r\nPING\r\n*1\r\n$x\r\n", StandardCharsets.UTF_8));
+        channel.flush();
+        assertEquals("PONG", channel.readOutbound().toString());
+        assertTrue(channel.readOutbound().toString().startsWith("RedisCodecException"));
+        // both the valid and the invalid commands are counted down as they are counted up
+        assertEquals(queuedBefore, RedisproxyStatusMetrics.INSTANCE.queued.get());
+    }
+
     @Test
     public void testExecuteCommandInReadonlyRedisServer() throws IllegalCommandException {
         ProxyConfig config = new ProxyConfig();
@@ -291,7 +311,9 @@ public class RedisCommandHandlerTest {
 
     @Test
     public void testHandleSelectCommand() throws IllegalCommandException {
-        RedisCommandHandler handler = new RedisCommandHandler(new TestRedisServer(), new ProxyConfig());
+        ProxyConfig proxyConfig = new ProxyConfig();
+        proxyConfig.setDatabases(64);
+        RedisCommandHandler handler = new RedisCommandHandler(new TestRedisServer(proxyConfig), proxyConfig);
         EmbeddedChannel channel = new EmbeddedChannel(DefaultChannelId.newInstance(), handler);
         ClientStat.active(channel);
 
@@ -303,6 +325,14 @@ public class RedisCommandHandlerTest {
         assertEquals("OK", reply.toString());
         ClientStat stat = ClientStat.getStat(channel);
         assertEquals(42, stat.getDb());
+
+        command = new Command(new byte[][]{bytes("SELECT"), bytes("64")});
+        channel.writeInbound(command);
+        channel.flush();
+
+        reply = channel.readOutbound();
+        assertEquals("ERR DB index is out of range", reply.toString());
+        assertEquals(42, stat.getDb());
     }
 
     @Test
@@ -327,7 +357,11 @@ public class RedisCommandHandlerTest {
         AsyncCommand<String, String, String> asyncCommand;
 
         public TestRedisServer() {
-            super(null);
+            this(null);
+        }
+
+        public TestRedisServer(ProxyConfig proxyConfig) {
+            super(proxyConfig);
             data.put("foo", "bar");
         }
 
@@ -337,8 +371,8 @@ public class RedisCommandHandlerTest {
         }
 
         @Override
-        public Reply set(byte[] rawKey, byte[] rawVal, byte[][] options) {
-            data.put(string(rawKey), string(rawVal));
+        public Reply set(byte[] rawKey, ByteBuf rawVal, byte[][] options) {
+            data.put(string(rawKey), rawVal.toString(StandardCharsets.UTF_8));
             return SimpleStringReply.OK;
         }
 
@@ -362,7 +396,7 @@ public class RedisCommandHandlerTest {
         }
 
         @Override
-        public Reply append(byte[] key, byte[] value) {
+        public Reply append(byte[] key, ByteBuf value) {
             throw new RedisException("expected");
         }
 
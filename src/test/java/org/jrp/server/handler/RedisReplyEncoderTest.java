@@ -1,6 +1,7 @@
 package org.jrp.server.handler;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.channel.embedded.EmbeddedChannel;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.apache.commons.lang3.RandomUtils;
@@ -11,7 +12,9 @@ import org.junit.jupiter.api.Test;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.jrp.utils.BytesUtils.bytes;
+import static org.jrp.utils.BytesUtils.string;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class RedisReplyEncoderTest {
 
@@ -36,6 +39,31 @@ public class RedisReplyEncoderTest {
         assertEquals(bytesOutBefore + 5 + s.length() + 2, bytesOutAfter);
     }
 
+    @Test
+    public void testEncodeInNegotiatedProtocol() {
+        EmbeddedChannel channel = new EmbeddedChannel(new RedisReplyEncoder());
+        try {
+            MapReply mapReply = new MapReply(new Reply[]{BulkReply.bulkReply("k"), BulkReply.NIL_REPLY});
+            channel.writeOutbound(mapReply);
+            ByteBuf resp2 = channel.readOutbound();
+            assertEquals("*2\r\n$1\r\nk\r\n$-1\r\n", resp2.toString(StandardCharsets.UTF_8));
+            resp2.release();
+
+            // the reply of "HELLO" is already in the negotiated protocol, and so are the replies after it
+            channel.writeOutbound(new HelloReply(RespVersion.RESP3, mapReply));
+            ByteBuf hello = channel.readOutbound();
+            assertEquals("%1\r\n$1\r\nk\r\n_\r\n", hello.toString(StandardCharsets.UTF_8));
+            hello.release();
+
+            channel.writeOutbound(mapReply);
+            ByteBuf resp3 = channel.readOutbound();
+            assertEquals("%1\r\n$1\r\nk\r\n_\r\n", resp3.toString(StandardCharsets.UTF_8));
+            resp3.release();
+        } finally {
+            channel.finish();
+        }
+    }
+
     @Test
     public void testEncodeMultiBulkReply() {
         String s1 = RandomStringUtils.randomAlphabetic(10);
@@ -97,4 +125,44 @@ public class RedisReplyEncoderTest {
 
         assertEquals(String.format("+%s\r\n", s), reply.toString(StandardCharsets.UTF_8));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testEncodeHugeBulkReply() {
+        byte[] payload = bytes(RandomStringUtils.randomAlphabetic(RandomUtils.nextInt(100, 200)));
+
+        EmbeddedChannel channel = new EmbeddedChannel(new RedisReplyEncoder(100));
+        channel.writeOutbound(new BulkReply(payload));
+        channel.finish();
+        ByteBuf reply = channel.readOutbound();
+
+        // the payload is not copied
+        CompositeByteBuf composite = assertInstanceOf(CompositeByteBuf.class, reply);
+        assertEquals(3, composite.numComponents());
+        assertSame(payload, composite.component(1).array());
+        assertEquals(String.format("$%d\r\n%s\r\n", payload.length, string(payload)),
+                reply.toString(StandardCharsets.UTF_8));
+        reply.release();
+    }
+
+    @Test
+    public void testEncodeHugeMultiBulkReply() {
+        String s1 = RandomStringUtils.randomAlphabetic(10);
+        String s2 = RandomStringUtils.randomAlphabetic(RandomUtils.nextInt(100, 200));
+        long l = RandomUtils.nextLong();
+        MultiBulkReply multiBulkReply = MultiBulkReply.from(Arrays.asList(s1, s2, l));
+
+        EmbeddedChannel channel = new EmbeddedChannel(new RedisReplyEncoder(100));
+        channel.writeOutbound(multiBulkReply);
+        channel.finish();
+        ByteBuf reply = channel.readOutbound();
+
+        // header and s1, s2 (header, payload and CRLF), l
+        CompositeByteBuf composite = assertInstanceOf(CompositeByteBuf.class, reply);
+        assertEquals(5, composite.numComponents());
+        String expected = String.format("*3\r\n$%d\r\n%s\r\n$%d\r\n%s\r\n:%d\r\n",
+                s1.length(), s1, s2.length(), s2, l);
+        assertEquals(expected, reply.toString(StandardCharsets.UTF_8));
+        assertEquals(expected.length(), multiBulkReply.encodedSize());
+        reply.release();
+    }
+}
@@ -0,0 +1,75 @@
+package org.jrp.utils;
+
+import org.apache.commons.lang3.BooleanUtils;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.apache.commons.lang3.RandomUtils;
+import org.junit.jupiter.api.Test;
+
+import static org.jrp.utils.BytesUtils.bytes;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class ByteScannerTest {
+
+    private final ByteScanner scalar = new ScalarByteScanner();
+    // compared with the scalar one, or with itself where the Vector API is unavailable
+    private final ByteScanner vector = isVectorSupported() ? new VectorByteScanner() : new ScalarByteScanner();
+
+    private static boolean isVectorSupported() {
+        try {
+            return VectorByteScanner.isSupported();
+        } catch (LinkageError e) {
+            // the incubator module is not resolved
+            return false;
+        }
+    }
+
+    @Test
+    public void testVectorScannerIsUsed() {
+        assumeTrue(isVectorSupported());
+        assumeFalse(BooleanUtils.toBoolean(System.getProperty("redisproxy.internal.vector.disabled")));
+        assertTrue(ByteScanner.INSTANCE instanceof VectorByteScanner);
+    }
+
+    @Test
+    public void testIndexOf() {
+        for (int len = 0; len < 200; len++) {
+            byte[] bytes = bytes(RandomStringUtils.randomAlphanumeric(len));
+            assertEquals(-1, scalar.indexOf(bytes, 0, len, (byte) '\r'));
+            assertEquals(-1, vector.indexOf(bytes, 0, len, (byte) '\r'));
+            if (len == 0) {
+                continue;
+            }
+
+            int i = RandomUtils.nextInt(0, len);
+            bytes[i] = '\r';
+            int from = RandomUtils.nextInt(0, len);
+            int expected = from <= i ? i : -1;
+            assertEquals(expected, scalar.indexOf(bytes, from, len, (byte) '\r'));
+            assertEquals(expected, vector.indexOf(bytes, from, len, (byte) '\r'));
+            // the range end is exclusive
+            assertEquals(-1, vector.indexOf(bytes, 0, i, (byte) '\r'));
+        }
+    }
+
+    @Test
+    public void testDigitsLength() {
+        for (int len = 0; len < 200; len++) {
+            byte[] bytes = bytes(RandomStringUtils.randomNumeric(len));
+            assertEquals(len, scalar.digitsLength(bytes, 0, len));
+            assertEquals(len, vector.digitsLength(bytes, 0, len));
+            if (len == 0) {
+                continue;
+            }
+
+            int i = RandomUtils.nextInt(0, len);
+            bytes[i] = (byte) (RandomUtils.nextBoolean() ? '/' : ':');
+            int from = RandomUtils.nextInt(0, len);
+            int expected = from <= i ? i - from : len - from;
+            assertEquals(expected, scalar.digitsLength(bytes, from, len));
+            assertEquals(expected, vector.digitsLength(bytes, from, len));
+        }
+    }
+}
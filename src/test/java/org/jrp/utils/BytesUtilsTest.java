@@ -5,6 +5,8 @@ import org.apache.commons.lang3.RandomUtils;
 import org.junit.jupiter.api.Test;
 
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -43,6 +45,39 @@ public class BytesUtilsTest {
         assertEquals("unable to convert null bytes to long", ex.getMessage());
     }
 
+    @Test
+    public void testBytesToLongBoundaries() {
+        for (String s : new String[]{"0", "-0", "+42", "00000000000000000000042",
+                String.valueOf(Long.MAX_VALUE), String.valueOf(Long.MIN_VALUE)}) {
+            assertEquals(Long.parseLong(s), BytesUtils.toLong(s.getBytes(StandardCharsets.UTF_8)));
+        }
+        for (String s : new String[]{"", "-", "+", "1a", " 1", "1.0", "9223372036854775808",
+                "-9223372036854775809", "99999999999999999999"}) {
+            NumberFormatException ex = assertThrows(NumberFormatException.class,
+                    () -> BytesUtils.toLong(s.getBytes(StandardCharsets.UTF_8)));
+            assertEquals("For input string: \"" + s + "\"", ex.getMessage());
+        }
+        assertThrows(NumberFormatException.class,
+                () -> BytesUtils.toInt(String.valueOf(Integer.MAX_VALUE + 1L).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void testStringSize() {
+        for (long l : new long[]{0, 1, -1, 9, 10, -10, 99, 100, Integer.MAX_VALUE, Integer.MIN_VALUE,
+                Long.MAX_VALUE, Long.MIN_VALUE, RandomUtils.nextLong(), -RandomUtils.nextLong()}) {
+            assertEquals(String.valueOf(l).length(), BytesUtils.stringSize(l));
+        }
+    }
+
+    @Test
+    public void testIndexOf() {
+        byte[] bytes = "SET foo bar\r\n".getBytes(StandardCharsets.UTF_8);
+        assertEquals(3, BytesUtils.indexOf(bytes, 0, bytes.length, (byte) ' '));
+        assertEquals(7, BytesUtils.indexOf(bytes, 4, bytes.length, (byte) ' '));
+        assertEquals(11, BytesUtils.indexOf(bytes, 0, bytes.length, (byte) '\r'));
+        assertEquals(-1, BytesUtils.indexOf(bytes, 0, 11, (byte) '\r'));
+    }
+
     @Test
     public void testToDouble() {
         double d = RandomUtils.nextDouble();
@@ -51,6 +86,40 @@ public class BytesUtilsTest {
                 String.valueOf(Double.NEGATIVE_INFINITY).getBytes(StandardCharsets.UTF_8)));
         assertEquals(Double.POSITIVE_INFINITY, BytesUtils.toDouble(
                 String.valueOf(Double.POSITIVE_INFINITY).getBytes(StandardCharsets.UTF_8)));
+        assertEquals(Double.NEGATIVE_INFINITY, BytesUtils.toDouble(BytesUtils.bytes("-inf")));
+        assertEquals(Double.POSITIVE_INFINITY, BytesUtils.toDouble(BytesUtils.bytes("INF")));
+        assertThrows(NumberFormatException.class, () -> BytesUtils.toDouble(BytesUtils.bytes("1.5x")));
+        assertThrows(NumberFormatException.class, () -> BytesUtils.toDouble(BytesUtils.bytes("1e")));
+        assertThrows(NumberFormatException.class, () -> BytesUtils.toDouble(BytesUtils.bytes("")));
+    }
+
+    @Test
+    public void testToDoubleSameAsParseDouble() {
+        List<String> decimals = new ArrayList<>(List.of("0", "-0", "0.0", "-0.0", ".5", "5.", "1e22", "1e-22", "1e23",
+                "123456789012345", "1234567890123456", "0.000001", "1.7976931348623157e308", "4.9e-324", "+1.5",
+                "1E+2", "00012.50", "0.30000000000000004", "9007199254740993"));
+        for (int i = 0; i < 1000; i++) {
+            decimals.add(String.valueOf(RandomUtils.nextDouble() * Math.pow(10, RandomUtils.nextInt(0, 20) - 10)));
+            decimals.add(String.valueOf(RandomUtils.nextLong(0, 1L << 53) / Math.pow(10, RandomUtils.nextInt(0, 15))));
+        }
+        for (String decimal : decimals) {
+            assertEquals(Double.parseDouble(decimal), BytesUtils.toDouble(BytesUtils.bytes(decimal)), decimal);
+            if (Character.isDigit(decimal.charAt(0))) {
+                assertEquals(Double.parseDouble("-" + decimal), BytesUtils.toDouble(BytesUtils.bytes("-" + decimal)));
+            }
+
+            byte[] padded = BytesUtils.bytes("x" + decimal + "x");
+            assertEquals(Double.parseDouble(decimal), BytesUtils.toDouble(padded, 1, padded.length - 2), decimal);
+        }
+    }
+
+    @Test
+    public void testToLongInRange() {
+        byte[] bytes = BytesUtils.bytes("$-123\r\n");
+        assertEquals(-123, BytesUtils.toLong(bytes, 1, 4));
+        assertEquals(-123, BytesUtils.toInt(bytes, 1, 4));
+        assertThrows(NumberFormatException.class, () -> BytesUtils.toLong(bytes, 1, 5));
+        assertThrows(NumberFormatException.class, () -> BytesUtils.toLong(bytes, 1, 0));
     }
 
     @Test
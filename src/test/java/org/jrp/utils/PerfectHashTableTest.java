@@ -0,0 +1,55 @@
+package org.jrp.utils;
+
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.jrp.utils.BytesUtils.bytes;
+import static org.jrp.utils.BytesUtils.string;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PerfectHashTableTest {
+
+    @Test
+    public void testGet() {
+        Set<String> names = new HashSet<>();
+        while (names.size() < 500) {
+            names.add(RandomStringUtils.randomAlphabetic(1, 16).toUpperCase());
+        }
+        List<String> values = new ArrayList<>(names);
+        PerfectHashTable<String> table = new PerfectHashTable<>(values, BytesUtils::bytes);
+        assertEquals(500, table.size());
+        assertEquals(values, table.values());
+
+        for (String name : names) {
+            assertEquals(name, table.get(bytes(name)));
+
+            byte[] lowercase = bytes(name.toLowerCase());
+            assertEquals(name, table.get(lowercase));
+            assertEquals(name.toLowerCase(), string(lowercase));
+        }
+        assertNull(table.get(null));
+        assertNull(table.get(new byte[0]));
+        assertNull(table.get(bytes("1234567890ABCDEFG")));
+    }
+
+    @Test
+    public void testGetNonLetters() {
+        PerfectHashTable<String> table = new PerfectHashTable<>(List.of("A@1", "B_2"), BytesUtils::bytes);
+        assertEquals("A@1", table.get(bytes("a@1")));
+        assertEquals("B_2", table.get(bytes("b_2")));
+        // '`' and '@', '_' and DEL differ only by the case bit, but they are not letters
+        assertNull(table.get(bytes("A`1")));
+        assertNull(table.get(bytes("B\u007f2")));
+    }
+
+    @Test
+    public void testDuplicatedKeys() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new PerfectHashTable<>(List.of("get", "GET"), BytesUtils::bytes));
+    }
+}